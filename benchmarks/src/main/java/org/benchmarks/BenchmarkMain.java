@@ -0,0 +1,49 @@
+package org.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Runs the benchmarks and writes their results as JSON, so the results of two builds can be compared by a script or
+ * a JMH result viewer.
+ * <p>
+ * Usage: {@code java -jar benchmarks/target/benchmarks.jar [result file] [JMH options]}, from the root of the
+ * repository. The result file defaults to {@value #DEFAULT_RESULT_FILE}; the JMH options select the benchmarks and
+ * their parameters as usual, e.g. {@code BoardModelBenchmark -p map=defaultmap}.
+ */
+public final class BenchmarkMain {
+    /**
+     * The file the results are written to if none is given.
+     */
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkMain() {
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args The result file, followed by the options of JMH.
+     * @throws CommandLineOptionException If the options of JMH are invalid.
+     * @throws RunnerException            If a benchmark fails.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        boolean hasFile = args.length > 0 && !args[0].startsWith("-") && args[0].endsWith(".json");
+        String resultFile = hasFile ? args[0] : DEFAULT_RESULT_FILE;
+        String[] jmhArgs = hasFile ? Arrays.copyOfRange(args, 1, args.length) : args;
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(jmhArgs))
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+        System.out.println("Results written to " + resultFile);
+    }
+}
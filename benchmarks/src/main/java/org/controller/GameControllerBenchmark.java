@@ -0,0 +1,135 @@
+package org.controller;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.util.FieldSet;
+import org.util.MapModel;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the turn cycle of the {@link GameController}: a whole game is played through
+ * {@link GameController#receiveInput(int)}, by clients that only remember the fields they were offered and always
+ * pick the first one. The clients take no time of their own, so the result is the time the controller spends on the
+ * placements, selections, movements and removals of a game of up to {@link #maxPlies} turns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameControllerBenchmark {
+    /**
+     * The map, a file name in the {@code maps} folder without the extension.
+     */
+    @Param({"defaultmap", "specialmap"})
+    public String map;
+
+    /**
+     * The number of turns after which the game is a draw.
+     */
+    @Param({"200"})
+    public int maxPlies;
+
+    private MapModel mapModel;
+
+    /**
+     * Loads the map.
+     *
+     * @throws IOException If the map cannot be read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        try (FileReader fr = new FileReader("maps/" + map + ".json")) {
+            mapModel = new Gson().fromJson(fr, MapModel.class);
+        }
+    }
+
+    /**
+     * Plays a game.
+     *
+     * @return The number of turns played.
+     */
+    @Benchmark
+    public int playGame() {
+        FieldSet[] offer = new FieldSet[1];
+        GameController gameController = new GameController(mapModel, new NoOpClient(offer), new NoOpClient(offer),
+                new Host(mapModel));
+        gameController.setMaxPlies(maxPlies);
+        //a turn takes at most a selection, a movement and a removal
+        for (int inputs = 0; !gameController.isGameOver(); inputs++) {
+            if (inputs > 3 * maxPlies) throw new IllegalStateException("The game does not end");
+            gameController.receiveInput(offer[0].first());
+        }
+        return gameController.getPlies();
+    }
+
+    /**
+     * A client that keeps the last fields offered to any of the two clients, the fields the next input is chosen from.
+     */
+    private static final class NoOpClient extends GameClient {
+        private final FieldSet[] offer;
+
+        NoOpClient(FieldSet[] offer) {
+            this.offer = offer;
+        }
+
+        @Override
+        public void sendUp(int field) {
+        }
+
+        @Override
+        void sendDownNone() {
+        }
+
+        @Override
+        void sendDownPlace(FieldSet possibleFields) {
+            offer[0] = possibleFields;
+        }
+
+        @Override
+        void sendDownRemove(FieldSet opponentFields) {
+            offer[0] = opponentFields;
+        }
+
+        @Override
+        void sendDownMove(FieldSet movableFields) {
+            offer[0] = movableFields;
+        }
+
+        @Override
+        void sendDownMoveTo(int fieldToMove, FieldSet possibleFields) {
+            offer[0] = possibleFields;
+        }
+
+        @Override
+        void endGame() {
+        }
+    }
+
+    /**
+     * The initializer of the benchmarked games, without a screen or a log.
+     */
+    static final class Host extends Initializer {
+        Host(MapModel mapModel) {
+            super(mapModel);
+        }
+
+        @Override
+        public void log(String s) {
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.controller;
+
+import com.google.gson.Gson;
+import org.model.BoardModel;
+import org.model.CompiledMap;
+import org.model.MoveGenerator;
+import org.model.SaveState;
+import org.model.SaveStateFormat;
+import org.util.MapModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the files of the game: loading a map with {@link Initializer#loadMap()}, which is served from the cache
+ * of {@link CompiledMap#load} while the file is unchanged, and parsing and compiling it without the cache; and writing
+ * a game to a save file and reading it back, as JSON with Gson and in the binary {@link SaveStateFormat}. The save is
+ * written to a temporary file instead of the {@code saves} folder, so the benchmark does not fill the list of saves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+    /**
+     * The map, a file name in the {@code maps} folder without the extension.
+     */
+    @Param({"defaultmap", "specialmap"})
+    public String map;
+
+    private final Gson gson = new Gson();
+    private Initializer initializer;
+    private Path mapFile;
+    private SaveState saveState;
+    private Path saveFile;
+
+    /**
+     * Loads the map and plays the first placements of a game to save.
+     *
+     * @throws IOException If the map cannot be read or the temporary file cannot be created.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        initializer = new GameControllerBenchmark.Host(new MapModel());
+        initializer.setCurrentMap(map);
+        mapFile = Paths.get("maps", map + ".json");
+        BoardModel board = new BoardModel(initializer.loadMap());
+        int[] moves = new int[MoveGenerator.maxMoves(board)];
+        for (int ply = 0; ply < 10; ply++) {
+            MoveGenerator.generate(board, moves);
+            board.makeMove(moves[ply % 3]);
+        }
+        saveState = SaveState.fromBoard(board);
+        saveFile = Files.createTempFile("millgame-benchmark", ".json");
+    }
+
+    /**
+     * Deletes the temporary save file.
+     *
+     * @throws IOException If the file cannot be deleted.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(saveFile);
+    }
+
+    /**
+     * Loads the map file, which after the first call only checks that the file is unchanged.
+     *
+     * @return The map.
+     */
+    @Benchmark
+    public Object loadMap() {
+        return initializer.loadMap();
+    }
+
+    /**
+     * Parses the map file and compiles the map, as the first load of a map does.
+     *
+     * @return The compiled map.
+     * @throws IOException If the map cannot be read.
+     */
+    @Benchmark
+    public CompiledMap loadMapCold() throws IOException {
+        try (Reader reader = Files.newBufferedReader(mapFile)) {
+            return CompiledMap.of(new Gson().fromJson(reader, MapModel.class));
+        }
+    }
+
+    /**
+     * Writes the game to the save file and reads it back.
+     *
+     * @return The state read.
+     * @throws IOException If the file cannot be written or read.
+     */
+    @Benchmark
+    public SaveState saveGameRoundTrip() throws IOException {
+        try (FileWriter fw = new FileWriter(saveFile.toFile())) {
+            gson.toJson(saveState, fw);
+        }
+        try (FileReader fr = new FileReader(saveFile.toFile())) {
+            return gson.fromJson(fr, SaveState.class);
+        }
+    }
+
+    /**
+     * Writes the game to the save file in the binary format and reads it back, with the map already loaded.
+     *
+     * @return The state read.
+     * @throws IOException If the file cannot be written or read.
+     */
+    @Benchmark
+    public SaveState saveGameBinaryRoundTrip() throws IOException {
+        SaveStateFormat.write(saveState, map, saveFile);
+        return SaveStateFormat.read(saveFile, (id, hash) -> saveState.mapModel);
+    }
+}
@@ -0,0 +1,156 @@
+package org.model;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.util.MapModel;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the board operations the game controller and the clients call on every turn, on both maps shipped with
+ * the game. Every operation is run over all the fields or pieces of a fixed middle game position (seven random pieces
+ * per color), so a result is the time of one sweep over the board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardModelBenchmark {
+    //the number of pieces per color in the benchmarked position
+    private static final int PIECES = 7;
+
+    /**
+     * The map, a file name in the {@code maps} folder without the extension.
+     */
+    @Param({"defaultmap", "specialmap"})
+    public String map;
+
+    private BoardModel empty;
+    private BoardModel position;
+    private BoardModel.Color[] colors;
+    private int[] pieces;
+    private int[] moveFrom;
+    private int[] moveTo;
+
+    /**
+     * Loads the map and sets up the position.
+     *
+     * @throws IOException If the map cannot be read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        MapModel mapModel;
+        try (FileReader fr = new FileReader("maps/" + map + ".json")) {
+            mapModel = new Gson().fromJson(fr, MapModel.class);
+        }
+        empty = new BoardModel(mapModel);
+        position = new BoardModel(mapModel);
+        int fields = position.getNumberOfFields();
+
+        colors = new BoardModel.Color[fields + 1];
+        for (int i = 1; i <= fields; i++) {
+            colors[i] = i % 2 == 0 ? BoardModel.Color.LIGHT : BoardModel.Color.DARK;
+        }
+
+        Random random = new Random(1);
+        for (int placed = 0; placed < 2 * PIECES; ) {
+            int field = random.nextInt(fields) + 1;
+            if (position.isFieldEmpty(field)) {
+                position.putPiece(field, placed++ % 2 == 0 ? BoardModel.Color.LIGHT : BoardModel.Color.DARK);
+            }
+        }
+        pieces = position.getFields(BoardModel.Color.LIGHT).union(position.getFields(BoardModel.Color.DARK)).toArray();
+
+        int moves = 0;
+        moveFrom = new int[pieces.length * fields];
+        moveTo = new int[pieces.length * fields];
+        for (int from : pieces) {
+            for (int to : position.getPossibleMoves(from, false).toArray()) {
+                moveFrom[moves] = from;
+                moveTo[moves++] = to;
+            }
+        }
+        moveFrom = Arrays.copyOf(moveFrom, moves);
+        moveTo = Arrays.copyOf(moveTo, moves);
+    }
+
+    /**
+     * Fills every field of the empty board and empties it again.
+     *
+     * @param blackhole Consumes the mills formed.
+     */
+    @Benchmark
+    public void putPiece(Blackhole blackhole) {
+        for (int i = 1; i < colors.length; i++) {
+            blackhole.consume(empty.putPiece(i, colors[i]));
+        }
+        for (int i = 1; i < colors.length; i++) {
+            empty.putPiece(i, BoardModel.Color.EMPTY);
+        }
+    }
+
+    /**
+     * Makes every move to a neighboring field of the position and takes it back.
+     *
+     * @param blackhole Consumes the mills formed.
+     */
+    @Benchmark
+    public void movePiece(Blackhole blackhole) {
+        for (int i = 0; i < moveFrom.length; i++) {
+            blackhole.consume(position.movePiece(moveFrom[i], moveTo[i]));
+            position.movePiece(moveTo[i], moveFrom[i]);
+        }
+    }
+
+    /**
+     * Gets the movable pieces of both colors.
+     *
+     * @param blackhole Consumes the sets.
+     */
+    @Benchmark
+    public void getMovableFields(Blackhole blackhole) {
+        blackhole.consume(position.getMovableFields(BoardModel.Color.LIGHT));
+        blackhole.consume(position.getMovableFields(BoardModel.Color.DARK));
+    }
+
+    /**
+     * Gets the destinations of every piece moving to neighboring fields.
+     *
+     * @param blackhole Consumes the sets.
+     */
+    @Benchmark
+    public void getPossibleMoves(Blackhole blackhole) {
+        for (int piece : pieces) {
+            blackhole.consume(position.getPossibleMoves(piece, false));
+        }
+    }
+
+    /**
+     * Gets the destinations of every piece flying.
+     *
+     * @param blackhole Consumes the sets.
+     */
+    @Benchmark
+    public void getPossibleMovesFlying(Blackhole blackhole) {
+        for (int piece : pieces) {
+            blackhole.consume(position.getPossibleMoves(piece, true));
+        }
+    }
+}
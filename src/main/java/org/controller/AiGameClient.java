@@ -0,0 +1,298 @@
+package org.controller;
+
+import org.engine.AlphaBetaSearch;
+import org.engine.Evaluator;
+import org.engine.ParallelSearch;
+import org.engine.SearchResult;
+import org.engine.TranspositionTable;
+import org.engine.book.OpeningBook;
+import org.engine.tablebase.Tablebase;
+import org.model.BoardModel;
+import org.model.Move;
+import org.util.FieldSet;
+import org.util.MapModel;
+import org.util.PlayerColor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Represents a game client played by the computer, extending the base GameClient class.
+ * When it is asked to move, the client rebuilds the position from the field colors and the piece counters it was sent,
+ * searches it with an {@link AlphaBetaSearch} (on several threads if configured, see {@link ParallelSearch}) and
+ * answers with {@link #sendUp(int)}, one field at a time, like a user clicking on the board. The search runs on the
+ * client's own worker thread, so the game controller is never blocked.
+ */
+public class AiGameClient extends GameClient {
+    /**
+     * The default maximum depth of the search, in plies.
+     */
+    public static final int DEFAULT_DEPTH = 32;
+    /**
+     * The default time the client can think about a move, in milliseconds.
+     */
+    public static final long DEFAULT_MOVE_TIME = 1000;
+    /**
+     * The default number of threads searching a move.
+     */
+    public static final int DEFAULT_THREADS = 1;
+
+    private final int maxDepth;
+    private final long moveTimeMillis;
+    private final long maxNodes;
+    private final Evaluator evaluator;
+    private final TranspositionTable table;
+    private final int threads;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AiGameClient");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Tablebase tablebase;
+    private volatile OpeningBook openingBook;
+    private BoardModel boardModel;
+    private ParallelSearch search;
+    //The move the client is in the middle of sending, Move.NONE if there is none
+    private volatile int plannedMove = Move.NONE;
+    private volatile boolean inGame = false;
+
+    /**
+     * Constructs an `AiGameClient` with the default search limits and evaluation.
+     */
+    public AiGameClient() {
+        this(DEFAULT_DEPTH, DEFAULT_MOVE_TIME, 0, Evaluator.DEFAULT);
+    }
+
+    /**
+     * Constructs an `AiGameClient` with the given search limits and evaluation, and a transposition table of the
+     * configured size.
+     *
+     * @param maxDepth       the maximum depth of the search, in plies
+     * @param moveTimeMillis the time the client can think about a move in milliseconds, 0 for no limit
+     * @param maxNodes       the maximum number of positions searched per move, 0 for no limit
+     * @param evaluator      the evaluation of the positions
+     */
+    public AiGameClient(int maxDepth, long moveTimeMillis, long maxNodes, Evaluator evaluator) {
+        this(maxDepth, moveTimeMillis, maxNodes, evaluator, TranspositionTable.configuredMegabytes(), DEFAULT_THREADS);
+    }
+
+    /**
+     * Constructs an `AiGameClient` with the given search limits, evaluation, transposition table size and number of
+     * search threads.
+     *
+     * @param maxDepth       the maximum depth of the search, in plies
+     * @param moveTimeMillis the time the client can think about a move in milliseconds, 0 for no limit
+     * @param maxNodes       the maximum number of positions searched per move by each thread, 0 for no limit
+     * @param evaluator      the evaluation of the positions
+     * @param hashMegabytes  the size of the transposition table in megabytes, kept between the moves of a game
+     * @param threads        the number of threads searching a move, sharing the transposition table
+     */
+    public AiGameClient(int maxDepth, long moveTimeMillis, long maxNodes, Evaluator evaluator, int hashMegabytes, int threads) {
+        if (maxDepth < 1) throw new IllegalArgumentException("The depth must be at least 1");
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+        this.threads = threads;
+        this.maxDepth = maxDepth;
+        this.moveTimeMillis = moveTimeMillis;
+        this.maxNodes = maxNodes;
+        this.evaluator = evaluator;
+        this.table = new TranspositionTable(hashMegabytes);
+    }
+
+    /**
+     * Sets the endgame tables the search probes, from the next game on.
+     *
+     * @param tablebase the thread-safe endgame tables of the map, null for none
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Sets the opening book the client plays from before searching.
+     *
+     * @param openingBook the opening book of the map, null for none
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * Initializes the game client and creates the board the client searches on.
+     *
+     * @param mapModel       the map model representing the game board
+     * @param playerColor    the color of the player
+     * @param gameController the game controller managing the game logic
+     */
+    @Override
+    void initGameClient(MapModel mapModel, PlayerColor playerColor, GameController gameController) {
+        super.initGameClient(mapModel, playerColor, gameController);
+        boardModel = new BoardModel(mapModel);
+        table.clear();
+        if (search != null) search.close();
+        search = new ParallelSearch(boardModel, evaluator, table, threads);
+        search.setTablebase(tablebase);
+        plannedMove = Move.NONE;
+        inGame = true;
+    }
+
+    /**
+     * Sends the chosen field to the game controller.
+     *
+     * @param field the index of the chosen field
+     */
+    @Override
+    public void sendUp(int field) {
+        if (inGame) {
+            gameController.receiveInput(field);
+        }
+    }
+
+    /**
+     * The client does not need to do anything when it is not its turn.
+     */
+    @Override
+    void sendDownNone() {
+    }
+
+    /**
+     * Searches for the best placement and sends its field.
+     *
+     * @param possibleFields a set of field indices where the player can place their piece
+     */
+    @Override
+    void sendDownPlace(FieldSet possibleFields) {
+        think(false, Move::to);
+    }
+
+    /**
+     * Removes the piece chosen together with the move that formed the mill, or searches for the best removal if the
+     * move was not planned by the search.
+     *
+     * @param opponentFields a set of field indices containing the opponent's pieces that can be removed
+     */
+    @Override
+    void sendDownRemove(FieldSet opponentFields) {
+        int planned = plannedMove;
+        plannedMove = Move.NONE;
+        if (opponentFields.contains(Move.removed(planned))) {
+            worker.execute(() -> sendUp(Move.removed(planned)));
+        } else {
+            think(true, Move::removed);
+        }
+    }
+
+    /**
+     * Searches for the best move and sends the field of the piece to move; the destination is sent when the game
+     * controller asks for it with {@link #sendDownMoveTo(int, FieldSet)}.
+     *
+     * @param movableFields a set of field indices containing the player's pieces that can be moved
+     */
+    @Override
+    void sendDownMove(FieldSet movableFields) {
+        think(false, Move::from);
+    }
+
+    /**
+     * Sends the destination of the planned move.
+     *
+     * @param fieldToMove    the index of the field containing the piece to be moved
+     * @param possibleFields a set of field indices where the piece can be moved to
+     */
+    @Override
+    void sendDownMoveTo(int fieldToMove, FieldSet possibleFields) {
+        int planned = plannedMove;
+        if (Move.from(planned) == fieldToMove && possibleFields.contains(Move.to(planned))) {
+            worker.execute(() -> sendUp(Move.to(planned)));
+        } else {
+            //the controller selected another piece than planned, deselect it to get asked again
+            worker.execute(() -> sendUp(fieldToMove));
+        }
+    }
+
+    /**
+     * Ends the game and stops a running search.
+     */
+    @Override
+    void endGame() {
+        inGame = false;
+        if (search != null) search.close();
+    }
+
+    /**
+     * Ends the game, stops the worker thread and closes the search. The client cannot play afterwards.
+     */
+    @Override
+    public void dispose() {
+        inGame = false;
+        worker.shutdownNow();
+        ParallelSearch closing = search;
+        if (closing != null) closing.close();
+        search = null;
+    }
+
+    /**
+     * Starts the search on the worker thread and sends the first field of the best move.
+     *
+     * @param removing whether the player has formed a mill and has to remove a piece
+     * @param field    the function extracting the field to send from the best move
+     */
+    private void think(boolean removing, IntUnaryOperator field) {
+        worker.execute(() -> {
+            if (!inGame) return;
+            BoardModel.Color myColor = playerColor == PlayerColor.LIGHT ? BoardModel.Color.LIGHT : BoardModel.Color.DARK;
+            syncBoard(myColor, removing);
+            int move = chooseMove(boardModel);
+            if (move == Move.NONE) return;
+            plannedMove = move;
+            sendUp(field.applyAsInt(move));
+        });
+    }
+
+    /**
+     * Chooses the move to play in a position, by default from the opening book if the position is in it and with
+     * the search otherwise. Runs on the worker thread of the client.
+     *
+     * @param board the position, with the client's player to move; it can be changed if it is restored afterwards
+     * @return the chosen move, {@link Move#NONE} if there is no legal move
+     */
+    protected int chooseMove(BoardModel board) {
+        OpeningBook book = openingBook;
+        if (book != null) {
+            int move = book.bestMove(board);
+            if (move != Move.NONE) return move;
+        }
+        return searchMove(board);
+    }
+
+    /**
+     * Searches the best move of a position, by default with the alpha-beta search. Runs on the worker thread of the
+     * client.
+     *
+     * @param board the position, with the client's player to move; it can be changed if it is restored afterwards
+     * @return the best move found, {@link Move#NONE} if there is no legal move
+     */
+    protected int searchMove(BoardModel board) {
+        SearchResult result = search.search(maxDepth, moveTimeMillis, maxNodes);
+        return result.move();
+    }
+
+    /**
+     * Sets the board the client searches on to the position the game controller sent.
+     *
+     * @param myColor  the color of the player, who is to move
+     * @param removing whether the player has to remove a piece
+     */
+    private void syncBoard(BoardModel.Color myColor, boolean removing) {
+        for (int i = 1; i < fieldColors.length; i++) {
+            if (boardModel.getFieldColor(i) != fieldColors[i]) {
+                boardModel.putPiece(i, BoardModel.Color.EMPTY);
+                boardModel.putPiece(i, fieldColors[i]);
+            }
+        }
+        int lightToPlace = myColor == BoardModel.Color.LIGHT ? myPiecesLeftToPlace : opponentPiecesLeftToPlace;
+        int darkToPlace = myColor == BoardModel.Color.DARK ? myPiecesLeftToPlace : opponentPiecesLeftToPlace;
+        boardModel.setTurn(myColor, Math.max(0, lightToPlace), Math.max(0, darkToPlace), removing);
+    }
+}
@@ -2,6 +2,7 @@ package org.controller;
 
 import org.jetbrains.annotations.NotNull;
 import org.model.BoardModel;
+import org.util.FieldSet;
 import org.util.MapModel;
 import org.util.PlayerColor;
 import org.view.ComponentGenerator;
@@ -159,13 +160,11 @@ public abstract class GameClient {
     /**
      * Updates the color of multiple fields on the game board to the same specified color.
      *
-     * @param fields A list of field indices to be updated.
+     * @param fields A set of field indices to be updated.
      * @param color  The new color to be assigned to the specified fields.
      */
-    public void sendDownColor(@NotNull List<Integer> fields, BoardModel.Color color) {
-        for (Integer field : fields) {
-            fieldColors[field] = color;
-        }
+    public void sendDownColor(@NotNull FieldSet fields, BoardModel.Color color) {
+        fields.forEach(field -> fieldColors[field] = color);
     }
 
     /**
@@ -174,17 +173,17 @@ public abstract class GameClient {
      * @param field The index of the field to be updated.
      * @param color The new color to be assigned to the specified field.
      */
-    public void sendDownColor(@NotNull Integer field, BoardModel.Color color) {
+    public void sendDownColor(int field, BoardModel.Color color) {
         fieldColors[field] = color;
     }
 
     /**
      * Informs the client that it is their turn to place a piece on the board.
-     * Provides a list of possible fields where the piece can be placed.
+     * Provides the set of possible fields where the piece can be placed.
      *
-     * @param possibleFields A list of field indices where the player can place their piece.
+     * @param possibleFields A set of field indices where the player can place their piece.
      */
-    abstract void sendDownPlace(List<Integer> possibleFields);
+    abstract void sendDownPlace(FieldSet possibleFields);
 
     /**
      * Grants focus to the game client, allowing it to respond to user input.
@@ -196,25 +195,25 @@ public abstract class GameClient {
 
     /**
      * Sends a request to the client to remove an opponent's piece from the board.
-     * Provides a list of fields where the opponent's pieces are located and can be removed.
-     * @param opponentFields A list of field indices containing the opponent's pieces that can be removed.
+     * Provides the set of fields where the opponent's pieces are located and can be removed.
+     * @param opponentFields A set of field indices containing the opponent's pieces that can be removed.
      */
-    abstract void sendDownRemove(List<Integer> opponentFields);
+    abstract void sendDownRemove(FieldSet opponentFields);
 
     /**
      * Sends a request to the client to select a piece to move on the board.
-     * Provides a list of fields where the player's pieces can be moved from.
-     * @param movableFields A list of field indices containing the player's pieces that can be moved.
+     * Provides the set of fields where the player's pieces can be moved from.
+     * @param movableFields A set of field indices containing the player's pieces that can be moved.
      */
-    abstract void sendDownMove(List<Integer> movableFields);
+    abstract void sendDownMove(FieldSet movableFields);
 
     /**
      * Sends a request to the client to move a piece to a new field on the board.
-     * Provides the field from which the piece is being moved and a list of possible destination fields.
+     * Provides the field from which the piece is being moved and the set of possible destination fields.
      * @param fieldToMove The index of the field from which the piece is being moved.
-     * @param possibleFields A list of field indices where the piece can be moved to.
+     * @param possibleFields A set of field indices where the piece can be moved to.
      */
-    abstract void sendDownMoveTo(Integer fieldToMove, List<Integer> possibleFields);
+    abstract void sendDownMoveTo(int fieldToMove, FieldSet possibleFields);
 
     /**
      * Notifies the client that the game has ended.
@@ -222,6 +221,13 @@ public abstract class GameClient {
      */
     abstract void endGame();
 
+    /**
+     * Releases the threads and memory of the client once it will not play any more games, e.g. at the end of a batch
+     * of games played by the computer. Clients without such resources do nothing.
+     */
+    public void dispose() {
+    }
+
     public void saveGame() {
         gameController.saveGame();
     }
@@ -3,10 +3,10 @@ package org.controller;
 import org.jetbrains.annotations.NotNull;
 import org.model.BoardModel;
 import org.model.SaveState;
+import org.util.FieldSet;
 import org.util.MapModel;
 import org.util.PlayerColor;
 
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -19,6 +19,8 @@ public class GameController {
     private final int defaultPieces;
     private final Initializer initializer;
     private final BoardModel boardModel;
+    //the journal the accepted turns are appended to, null if the game is not journaled
+    private final MoveJournal journal;
 
     /**
      * Currently selected piece for movement; null if no piece is selected.
@@ -50,6 +52,11 @@ public class GameController {
     private boolean millPhase = false;
     //true if the game is in the placing phase, false if in the main game phase
     private boolean placingPhase = true;
+    //true once the game has ended, later inputs are ignored
+    private boolean gameOver = false;
+    //the number of completed turns, and the number after which the game is a draw (0 for no limit)
+    private int plies = 0;
+    private int maxPlies = 0;
 
     /**
      * Constructs a GameController with the specified map model, players, and initializer.
@@ -59,7 +66,7 @@ public class GameController {
      * @param player2     the second game client (player)
      * @param initializer the initializer to return to the menu after the game ends
      */
-    public GameController(@NotNull MapModel mapModel, GameClient player1, GameClient player2, Initializer initializer) {
+    public GameController(@NotNull MapModel mapModel, GameClient player1, GameClient player2, @NotNull Initializer initializer) {
         this.initializer = initializer;
         boardModel = new BoardModel(mapModel);
         lightPlayerPieces = darkPlayerPieces = defaultPieces = mapModel.pieces;
@@ -77,6 +84,8 @@ public class GameController {
             lightPlayer = player2;
         }
 
+        journal = initializer.openJournal(SaveState.fromBoard(boardModel));
+
         //Start the game with the light player placing first
         lightPlayer.sendDownPlace(boardModel.getFields(BoardModel.Color.EMPTY));
     }
@@ -89,7 +98,7 @@ public class GameController {
      * @param darkPlayer  the game client for the dark player
      * @param initializer the initializer to return to the menu after the game ends
      */
-    public GameController(@NotNull SaveState saveState, @NotNull GameClient lightPlayer, @NotNull GameClient darkPlayer, Initializer initializer) {
+    public GameController(@NotNull SaveState saveState, @NotNull GameClient lightPlayer, @NotNull GameClient darkPlayer, @NotNull Initializer initializer) {
         this.initializer = initializer;
         boardModel = new BoardModel(saveState.mapModel);
         defaultPieces = saveState.piecesPerPlayer;
@@ -125,9 +134,11 @@ public class GameController {
             putPiece(i, saveState.fields[i]);
 
 
+        journal = initializer.openJournal(saveState);
+
         //Start the game with the correct phase and player
         if (millPhase) {
-            List<Integer> removableFields = boardModel.getFields(opponentPlayerColor(), false);
+            FieldSet removableFields = boardModel.getFields(opponentPlayerColor(), false);
             if (!removableFields.isEmpty()) {
                 currentPlayer().sendDownRemove(removableFields);
             } else {
@@ -138,45 +149,58 @@ public class GameController {
             if (placingPhase) {
                 currentPlayer().sendDownPlace(boardModel.getFields(BoardModel.Color.EMPTY));
             } else {
-                currentPlayer().sendDownMove(boardModel.getMovableFields(currentPlayerColor()));
+                currentPlayer().sendDownMove(getMovableFields(currentPlayerColor(), getCurrentPlayerPieces() == 3));
             }
         }
     }
 
     /**
-     * Asks the other player to make a move or place a piece based on the current game phase.
+     * Ends the turn of the current player and asks the other player to make a move or place a piece based on the
+     * current game phase. Every turn ends here, so it is counted here, also the last turn of a game.
+     * If the other player is left with less than 3 pieces, the game ends with the current player winning; if the
+     * other player has no valid moves, the current player wins by enclosure. Only then is the limit of turns applied.
      * If the current player is in the placing phase, the other player is prompted to place a piece.
      * If in the moving phase, the other player is prompted to move a piece.
-     * If the other player has no valid moves, the game ends with the current player winning by enclosure.
      */
     private void askOtherPlayer() {
-        if (focusOnLight) {
-            lightPlayer.sendDownNone();
-            if (placingPhase) {
-                darkPlayer.sendDownPlace(boardModel.getFields(BoardModel.Color.EMPTY));
-            } else {
-                List<Integer> movableFields = boardModel.getMovableFields(BoardModel.Color.DARK);
-                if (movableFields.isEmpty()) {
-                    endGame(true);
-                    return;
-                }
-                darkPlayer.sendDownMove(movableFields);
-            }
-            focusOnLight = false;
+        if (gameOver) return;
+        plies++;
+        int otherPlayerPieces = focusOnLight ? darkPlayerPieces : lightPlayerPieces;
+        if (otherPlayerPieces < 3) {
+            endGame(false);
+            return;
+        }
+        FieldSet movableFields = placingPhase ? null : getMovableFields(opponentPlayerColor(), otherPlayerPieces == 3);
+        if (movableFields != null && movableFields.isEmpty()) {
+            endGame(true);
+            return;
+        }
+        if (maxPlies > 0 && plies >= maxPlies) {
+            endGame(null, Termination.PLY_LIMIT);
+            return;
+        }
+        currentPlayer().sendDownNone();
+        GameClient otherPlayer = opponentPlayer();
+        if (placingPhase) {
+            otherPlayer.sendDownPlace(boardModel.getFields(BoardModel.Color.EMPTY));
         } else {
-            darkPlayer.sendDownNone();
-            if (placingPhase) {
-                lightPlayer.sendDownPlace(boardModel.getFields(BoardModel.Color.EMPTY));
-            } else {
-                List<Integer> movableFields = boardModel.getMovableFields(BoardModel.Color.LIGHT);
-                if (movableFields.isEmpty()) {
-                    endGame(true);
-                    return;
-                }
-                lightPlayer.sendDownMove(movableFields);
-            }
-            focusOnLight = true;
+            otherPlayer.sendDownMove(movableFields);
         }
+        focusOnLight = !focusOnLight;
+    }
+
+    /**
+     * Returns the fields of a player's pieces that can be moved.
+     *
+     * @param color  the color of the player
+     * @param flying true if the player is reduced to 3 pieces, so every piece can fly to any empty field
+     * @return the set of fields the player can move a piece from
+     */
+    private FieldSet getMovableFields(BoardModel.Color color, boolean flying) {
+        if (flying && !boardModel.getFields(BoardModel.Color.EMPTY).isEmpty()) {
+            return boardModel.getFields(color);
+        }
+        return boardModel.getMovableFields(color);
     }
 
     /**
@@ -199,23 +223,18 @@ public class GameController {
 
     /**
      * Decreases the number of pieces of the opponent player by one.
-     * If the opponent player has less than 3 pieces after the decrease, the game ends with the current player winning.
+     * If the opponent player has less than 3 pieces after the decrease, the game ends with the current player winning
+     * when the turn ends, see {@link #askOtherPlayer()}.
      */
     private void decreaseOpponentPieces() {
         if (focusOnLight) {
             lightPlayer.removePieceFromOpponent();
             darkPlayer.removePieceFromMe();
             darkPlayerPieces--;
-            if (darkPlayerPieces < 3) {
-                endGame(false);
-            }
         } else {
             darkPlayer.removePieceFromOpponent();
             lightPlayer.removePieceFromMe();
             lightPlayerPieces--;
-            if (lightPlayerPieces < 3) {
-                endGame(false);
-            }
         }
     }
 
@@ -241,10 +260,13 @@ public class GameController {
      * Receives input from the current player and processes it based on the current game phase.
      * Depending on whether the game is in the mill phase, placing phase, or moving phase,
      * the input is handled accordingly to update the game state.
+     * Clients can send their input from their own threads (e.g. a computer player answering from its worker thread),
+     * so inputs are processed one at a time.
      *
      * @param field the position on the board where the player wants to place or move a piece
      */
-    public void receiveInput(int field) {
+    public synchronized void receiveInput(int field) {
+        if (gameOver) return;
         initializer.log("Received field: " + field);
 
         if (millPhase) {
@@ -278,6 +300,7 @@ public class GameController {
         initializer.log("Mill phase move on field: " + field);
         if (boardModel.isFieldOfColor(field, opponentPlayerColor()) && !boardModel.isFieldInMill(field)) { // Check if the field has an opponent's piece -> valid move
             initializer.log("Removing opponent's piece from field: " + field);
+            if (journal != null) journal.remove(field);
             putPiece(field, BoardModel.Color.EMPTY);
             millPhase = false;
             decreaseOpponentPieces();
@@ -301,6 +324,7 @@ public class GameController {
      */
     private void placingPhaseMove(int field) {
         if (boardModel.isFieldEmpty(field)) { // Check if the field is empty -> valid move
+            if (journal != null) journal.place(field);
             //this call puts the piece and checks for mills
             if (++placedPieces == defaultPieces * 2) {
                 placingPhase = false;
@@ -349,10 +373,11 @@ public class GameController {
         if (field == selectedPiece) { // Deselect the piece
             selectedPiece = null;
             currentPlayer().sendDownNone(); // Clear highlights
-            currentPlayer().sendDownMove(boardModel.getMovableFields(currentPlayerColor()));
+            currentPlayer().sendDownMove(getMovableFields(currentPlayerColor(), getCurrentPlayerPieces() == 3));
         } else if (boardModel.isFieldEmpty(field) && boardModel.areNeighbors(selectedPiece, field) || (focusOnLight ? lightPlayerPieces : darkPlayerPieces) == 3 && boardModel.isFieldEmpty(field)) { // Check if the field is empty and a valid move -> valid move
+            if (journal != null) journal.move(selectedPiece, field);
             //this call moves the piece and checks for mills
-            if (movePiece(selectedPiece, field, currentPlayerColor())) {
+            if (movePiece(selectedPiece, field, currentPlayerColor(), getCurrentPlayerPieces() == 3)) {
                 initializer.log("Mill formed by moving to field: " + field);
                 mill();
             } else askOtherPlayer();
@@ -370,7 +395,7 @@ public class GameController {
     private void selectFieldToMove(int field) {
         if (boardModel.isFieldOfColor(field, currentPlayerColor())) { // Check if the field has the current player's piece -> valid selection
             selectedPiece = field;
-            List<Integer> possibleMoves = boardModel.getPossibleMoves(field, getCurrentPlayerPieces() == 3);
+            FieldSet possibleMoves = boardModel.getPossibleMoves(field, getCurrentPlayerPieces() == 3);
             if (possibleMoves.isEmpty()) {
                 initializer.log("No possible moves for selected piece on field: " + field);
                 selectedPiece = null;
@@ -391,7 +416,7 @@ public class GameController {
      */
     private void mill() {
         initializer.log("Mill formed!");
-        List<Integer> removableFields = boardModel.getFields(opponentPlayerColor(), false);
+        FieldSet removableFields = boardModel.getFields(opponentPlayerColor(), false);
         if (!removableFields.isEmpty()) {
             initializer.log(removableFields.size() + " fields found");
             millPhase = true;
@@ -412,8 +437,24 @@ public class GameController {
      */
     private void endGame(boolean enclosed) {
         initializer.log(currentPlayer().toString() + " won by " + (enclosed ? "enclosing all opponent pieces." : "getting the number of opponent pieces under 3."));
+        endGame(focusOnLight ? PlayerColor.LIGHT : PlayerColor.DARK, enclosed ? Termination.ENCLOSED : Termination.FEWER_THAN_THREE);
+    }
+
+    /**
+     * Ends the game, notifies both players and the initializer of the result, and returns to the main menu.
+     *
+     * @param winner      the color of the winner, null for a draw
+     * @param termination the way the game ended
+     */
+    private void endGame(PlayerColor winner, Termination termination) {
+        gameOver = true;
+        if (journal != null) {
+            journal.end(winner);
+            initializer.closeJournal(journal);
+        }
         lightPlayer.endGame();
         darkPlayer.endGame();
+        initializer.gameOver(winner, termination, plies);
         initializer.backToMenu();
     }
 
@@ -433,17 +474,18 @@ public class GameController {
     /**
      * Moves a piece on the board and updates both players' views.
      *
-     * @param from  the starting position of the piece
-     * @param to    the destination position of the piece
-     * @param color the color of the piece
+     * @param from   the starting position of the piece
+     * @param to     the destination position of the piece
+     * @param color  the color of the piece
+     * @param flying true if the piece can fly to any empty field
      * @return true if moving the piece forms a mill, false otherwise
      */
-    private boolean movePiece(int from, int to, BoardModel.Color color) {
+    private boolean movePiece(int from, int to, BoardModel.Color color, boolean flying) {
         darkPlayer.sendDownColor(from, BoardModel.Color.EMPTY);
         lightPlayer.sendDownColor(from, BoardModel.Color.EMPTY);
         darkPlayer.sendDownColor(to, color);
         lightPlayer.sendDownColor(to, color);
-        return boardModel.movePiece(from, to);
+        return boardModel.movePiece(from, to, flying);
     }
 
     /**
@@ -452,24 +494,52 @@ public class GameController {
      *
      * @param playerColor the color of the player who exited
      */
-    public void exitGame(PlayerColor playerColor) {
+    public synchronized void exitGame(PlayerColor playerColor) {
         initializer.log("Player " + playerColor + " exited the game.");
-        lightPlayer.endGame();
-        darkPlayer.endGame();
-        initializer.backToMenu();
+        endGame(playerColor == PlayerColor.LIGHT ? PlayerColor.DARK : PlayerColor.LIGHT, Termination.QUIT);
+    }
+
+    /**
+     * Sets the number of turns after which the game ends as a draw, e.g. for games between computer players that
+     * could go on forever.
+     *
+     * @param maxPlies the maximum number of turns, 0 for no limit
+     */
+    public synchronized void setMaxPlies(int maxPlies) {
+        if (maxPlies < 0) throw new IllegalArgumentException("The number of turns cannot be negative");
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Gets the number of turns completed so far, one per turn, a turn closing a mill ending with its removal.
+     *
+     * @return the number of turns
+     */
+    public synchronized int getPlies() {
+        return plies;
+    }
+
+    /**
+     * Checks whether the game has ended.
+     *
+     * @return true if a player has won, a player has exited or the game was drawn
+     */
+    public synchronized boolean isGameOver() {
+        return gameOver;
     }
 
     /**
      * Saves the current game state using the initializer's saving functionality.
      * Constructs a SaveState object with the current board configuration, player pieces,
      * game phase, and other relevant information before passing it to the initializer.
+     * Only the snapshot is taken here; it is written to the disk in the background, so saving does not delay a turn.
      */
-    public void saveGame() {
+    public synchronized void saveGame() {
         initializer.log("Saving game state...");
         SaveState saveState = new SaveState();
         saveState.numberOfPiecesPlaced = placedPieces;
         saveState.mapModel = boardModel.getMapModel();
-        saveState.fields = new BoardModel.Color[saveState.mapModel.fields.size()];
+        saveState.fields = new BoardModel.Color[saveState.mapModel.fields.size() + 1];
         for (int i = 1; i < saveState.fields.length; i++)
             saveState.fields[i] = boardModel.getFieldColor(i);
         saveState.piecesPerPlayer = defaultPieces;
@@ -480,4 +550,26 @@ public class GameController {
 
         initializer.saveGame(saveState);
     }
+
+    /**
+     * Enum representing the ways a game can end.
+     */
+    public enum Termination {
+        /**
+         * The player to move could not move any piece.
+         */
+        ENCLOSED,
+        /**
+         * A player was reduced to fewer than 3 pieces.
+         */
+        FEWER_THAN_THREE,
+        /**
+         * The maximum number of turns was reached, the game is a draw.
+         */
+        PLY_LIMIT,
+        /**
+         * A player quit the game.
+         */
+        QUIT
+    }
 }
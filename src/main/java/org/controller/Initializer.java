@@ -1,15 +1,22 @@
 package org.controller;
 
 import com.google.gson.Gson;
+import org.engine.book.OpeningBook;
 import org.jetbrains.annotations.NotNull;
+import org.model.CompiledMap;
+import org.model.MapStore;
 import org.model.SaveState;
+import org.model.SaveStateFormat;
 import org.util.MapModel;
+import org.util.PlayerColor;
 import org.view.MainMenuScreen;
 import org.view.swing.SwingComponentGenerator;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.concurrent.Executors;
 
 /**
@@ -20,19 +27,38 @@ public class Initializer {
     private MapModel mapModel;
     private String currentMap;
     private String[] maps;
-    private String currentSave;
-    private String[] saves;
+    private volatile String currentSave;
     MainMenuScreen mainMenuScreen;
     GameController gameController;
     Gson gson = new Gson();
+    //the games are journaled by the initializer with a screen, null for none
+    private Path journalFolder;
+    private JournalCommitter journalCommitter;
+    private SaveService saveService;
+    //the name of the save of the current game, null until it is saved
+    private String gameSaveName;
+    //the turns played before the current game was loaded
+    private int gamePliesBefore;
+    private SaveCatalog saveCatalog;
+    private final MapStore mapStore = new MapStore(Paths.get("maps"), Paths.get(MapStore.FOLDER));
 
     /**
      * Constructs an `Initializer` object that sets up the available maps and saves,
      * initializes the main menu screen, and selects the default map and save.
      */
     public Initializer() {
+        try {
+            saveCatalog = SaveCatalog.open(Paths.get("saves"), getMapStore());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the saves.", e);
+        }
+        journalFolder = Paths.get("journals");
+        recoverJournals();
+        long interval = JournalCommitter.configuredIntervalMillis();
+        if (interval > 0) journalCommitter = new JournalCommitter(interval);
+        //the writer threads are daemons, so the saves and turns they hold are written before the game exits
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "initializer-shutdown"));
         setMaps(setFromFile("maps"));
-        setSaves(setFromFile("saves"));
         if (getMaps().length == 0 || getSaves().length == 0) {
             throw new IllegalStateException("No maps or saves found in the respective folders.");
         }
@@ -42,6 +68,88 @@ public class Initializer {
         mainMenuScreen = new MainMenuScreen(this, new SwingComponentGenerator(Executors.newFixedThreadPool(1)));
     }
 
+    /**
+     * Constructs an `Initializer` without any screen, for games played without a display (e.g. by the
+     * {@link SelfPlayRunner}). Maps and saves are not scanned, the given map is the current one.
+     *
+     * @param mapModel the map the games are played on
+     */
+    protected Initializer(@NotNull MapModel mapModel) {
+        setMapModel(mapModel);
+    }
+
+    /**
+     * Turns the journals of the games that did not end, e.g. because the game crashed, into saves that can be loaded
+     * from the menu, and deletes all journals.
+     */
+    private void recoverJournals() {
+        File[] files = journalFolder.toFile().listFiles((dir, name) -> name.endsWith(MoveJournal.EXTENSION));
+        if (files == null) return;
+        for (File file : files) {
+            try {
+                MoveJournal.Recovery recovery = MoveJournal.recover(file.toPath(), getMapStore());
+                if (!recovery.ended()) {
+                    Files.createDirectories(Paths.get("saves"));
+                    String name = file.getName().substring(0, file.getName().length() - MoveJournal.EXTENSION.length());
+                    SaveStateFormat.write(recovery.saveState(), recovery.mapId(), Paths.get("saves", name + SaveStateFormat.EXTENSION));
+                    saveCatalog.put(new SaveCatalog.Entry(name, recovery.mapId(), System.currentTimeMillis(),
+                            recovery.plies(), recovery.saveState().focusOnLight));
+                    log("Recovered an unfinished game after " + recovery.plies() + " turns to save " + name);
+                }
+                Files.delete(file.toPath());
+            } catch (Exception e) {
+                log(e + " Could not recover the journal " + file);
+            }
+        }
+    }
+
+    /**
+     * Journals the games started from now on, e.g. for games played without a screen.
+     *
+     * @param folder    the folder of the journals, null to stop journaling
+     * @param committer the committer writing the turns in batches, null to write every turn at once
+     */
+    void setJournaling(Path folder, JournalCommitter committer) {
+        journalFolder = folder;
+        journalCommitter = committer;
+    }
+
+    /**
+     * Opens the journal of a new game, if the games are journaled. Called by the game controller before the first
+     * turn.
+     *
+     * @param start the position the game starts from
+     * @return the journal, null if the games are not journaled or the game is not on the current map
+     */
+    MoveJournal openJournal(@NotNull SaveState start) {
+        if (journalFolder == null || getCurrentMap() == null || getMapModel() == null
+                || CompiledMap.of(getMapModel()).contentHash() != CompiledMap.of(start.mapModel).contentHash()) {
+            return null;
+        }
+        try {
+            Files.createDirectories(journalFolder);
+            Path file = journalFolder.resolve(System.currentTimeMillis() + MoveJournal.EXTENSION);
+            return MoveJournal.create(file, start, getCurrentMap(), journalCommitter);
+        } catch (Exception e) {
+            log(e + " Could not create the journal of the game.");
+            return null;
+        }
+    }
+
+    /**
+     * Closes the journal of a game that has ended and deletes it, so only the journals of games that did not end are
+     * left to recover at the next start. Called by the game controller after the end of the game is journaled.
+     *
+     * @param journal the journal
+     */
+    void closeJournal(@NotNull MoveJournal journal) {
+        try {
+            journal.delete();
+        } catch (IOException e) {
+            log(e + " Could not close the journal of the game.");
+        }
+    }
+
     /**
      * Sets the list of available maps or saves from the specified folder.
      *
@@ -64,12 +172,50 @@ public class Initializer {
      * with two user game clients.
      */
     public void startGame() {
+        startGame(new UserGameClient(new SwingComponentGenerator(Executors.newFixedThreadPool(1))),
+                new UserGameClient(new SwingComponentGenerator(Executors.newFixedThreadPool(1))));
+    }
+
+    /**
+     * Starts a new game on the selected map between a user and the computer. The computer plays from the opening book
+     * of the map, {@code books/<map>.book}, if there is one.
+     */
+    public void startGameAgainstComputer() {
+        AiGameClient computer = new AiGameClient();
+        computer.setOpeningBook(loadOpeningBook());
+        startGame(new UserGameClient(new SwingComponentGenerator(Executors.newFixedThreadPool(1))), computer);
+    }
+
+    /**
+     * Helper method to open the opening book of the selected map.
+     *
+     * @return the book, null if the map has none or it cannot be opened
+     */
+    private OpeningBook loadOpeningBook() {
+        MapModel map = loadMap();
+        if (map == null) return null;
+        Path file = Paths.get("books", getCurrentMap().concat(".book"));
+        if (!Files.exists(file)) return null;
+        try {
+            return OpeningBook.open(file, map, OpeningBook.DEFAULT_MIN_GAMES);
+        } catch (IOException e) {
+            log(e + " Could not open the opening book.");
+            return null;
+        }
+    }
+
+    /**
+     * Starts a new game by loading the selected map and initializing the game controller
+     * with the given game clients, which can be users or computer players.
+     *
+     * @param player1 the first game client
+     * @param player2 the second game client
+     */
+    public void startGame(@NotNull GameClient player1, @NotNull GameClient player2) {
         setMapModel(loadMap());
-        gameController = new GameController(getMapModel(),
-                new UserGameClient(new SwingComponentGenerator(Executors.newFixedThreadPool(1))),
-                new UserGameClient(new SwingComponentGenerator(Executors.newFixedThreadPool(1))),
-                this
-        );
+        gameSaveName = null;
+        gamePliesBefore = 0;
+        gameController = new GameController(getMapModel(), player1, player2, this);
     }
 
     /**
@@ -81,11 +227,21 @@ public class Initializer {
         System.out.println(s);
     }
 
+    /**
+     * Called by the game controller when a game has ended, before returning to the main menu.
+     *
+     * @param winner      the color of the winner, null for a draw
+     * @param termination the way the game ended
+     * @param plies       the number of turns played
+     */
+    public void gameOver(PlayerColor winner, GameController.Termination termination, int plies) {
+    }
+
     /**
      * Returns to the main menu screen.
      */
     public void backToMenu() {
-        mainMenuScreen.show();
+        if (mainMenuScreen != null) mainMenuScreen.show();
     }
 
     /**
@@ -107,14 +263,14 @@ public class Initializer {
     }
 
     /**
-     * Loads the map model from a JSON file based on the currently selected map.
+     * Loads the map model from a JSON file based on the currently selected map. The map is parsed and compiled once
+     * and shared by all games until its file changes, see {@link CompiledMap#load}.
      *
      * @return the loaded MapModel object
      * */
     public MapModel loadMap() {
-        Gson gson1 = new Gson();
-        try (FileReader fr = new FileReader("maps/".concat(getCurrentMap()).concat(".json"))) {
-            return gson1.fromJson(fr, MapModel.class);
+        try {
+            return CompiledMap.load(Paths.get("maps", getCurrentMap().concat(".json"))).getMapModel();
         } catch (Exception e) {
             log(e + " Map file not found.");
         }
@@ -122,40 +278,112 @@ public class Initializer {
     }
 
     /**
-     * Saves the current game state to a JSON file based on the current time
-     * and updates the list of available saves.
-     * @param saveState the current state of the game to be saved
+     * Saves the current game state to a file named after the time of its first save and updates the list of available
+     * saves. The save is written in the binary format of {@link SaveStateFormat}, referencing its map by identifier and
+     * content hash: the name of the current map file, or the key of the map in the {@link MapStore} for a game on
+     * another map, e.g. a game loaded from a save with an embedded map. The map is put into the store as well.
+     * The save is written in the background by the {@link SaveService}, so this method returns at once; saving the
+     * same game again replaces its file, and saves made faster than the disk writes them are coalesced.
+     * @param saveState the current state of the game to be saved, not changed afterwards
      */
     public void saveGame(SaveState saveState) {
-        try {
-            File dir = new File("saves");
-            if (!dir.exists()) dir.mkdirs();
-            String filename = "saves/".concat(String.valueOf(System.currentTimeMillis())).concat(".json");
-            FileWriter fw = new FileWriter(filename);
-            gson.toJson(saveState, fw);
-            fw.close();
-            addNewSave(filename);
-            log("Game saved to " + filename);
-        } catch (Exception e) {
-            log(e + " Could not save the game.");
+        if (gameSaveName == null) gameSaveName = String.valueOf(System.currentTimeMillis());
+        String name = gameSaveName;
+        long hash = CompiledMap.of(saveState.mapModel).contentHash();
+        boolean currentMap = getCurrentMap() != null && getMapModel() != null
+                && CompiledMap.of(getMapModel()).contentHash() == hash;
+        Path file = Paths.get("saves", name.concat(SaveStateFormat.EXTENSION));
+        //the controller calls this holding its lock, so its turns are read consistently with the snapshot
+        int plies = gamePliesBefore + (gameController == null ? 0 : gameController.getPlies());
+        SaveCatalog.Entry entry = new SaveCatalog.Entry(name, currentMap ? getCurrentMap() : MapStore.key(hash),
+                System.currentTimeMillis(), plies, saveState.focusOnLight);
+        getSaveService().save(name, saveState, entry.mapId(), file, result -> {
+            if (result.succeeded()) {
+                addNewSave(entry);
+                log("Game saved to " + result.file());
+            } else {
+                log(result.error() + " Could not save the game.");
+            }
+        });
+    }
+
+    /**
+     * Writes the saves and journaled turns still waiting to be written, and stops their threads. Called when the game
+     * exits; saves made afterwards are rejected.
+     */
+    public void shutdown() {
+        //the callbacks of the saves use the initializer, so the services are closed without holding its lock
+        SaveService service;
+        synchronized (this) {
+            service = saveService;
+        }
+        if (service != null) service.close();
+        if (journalCommitter != null) journalCommitter.close();
+    }
+
+    /**
+     * Gets the service writing the saves, started by the first save.
+     *
+     * @return the save service
+     */
+    synchronized SaveService getSaveService() {
+        if (saveService == null) saveService = new SaveService(getMapStore());
+        return saveService;
+    }
+
+    /**
+     * Gets the store of the maps referenced by the saves, which also resolves the maps of the saves.
+     *
+     * @return the map store
+     */
+    MapStore getMapStore() {
+        return mapStore;
+    }
+
+    /**
+     * Gets the index of the saves, opened by the first use if there is no screen.
+     *
+     * @return the index, null if it cannot be opened
+     */
+    synchronized SaveCatalog getSaveCatalog() {
+        if (saveCatalog == null) {
+            try {
+                saveCatalog = SaveCatalog.open(Paths.get("saves"), getMapStore());
+            } catch (IOException e) {
+                log(e + " Could not read the saves.");
+            }
         }
+        return saveCatalog;
     }
 
-    private void addNewSave(String filename) {
-        String[] newSaves = new String[getSaves().length + 1];
-        System.arraycopy(getSaves(), 0, newSaves, 0, getSaves().length);
-        newSaves[getSaves().length] = filename.split("/")[1].split("\\.")[0];
-        setSaves(newSaves);
-        setCurrentSave(newSaves[newSaves.length - 1]);
+    /**
+     * Adds a save to the index of the saves, or updates its entry, and selects it.
+     *
+     * @param entry the description of the save
+     */
+    private void addNewSave(SaveCatalog.Entry entry) {
+        try {
+            if (getSaveCatalog() != null) getSaveCatalog().put(entry);
+        } catch (IOException e) {
+            log(e + " Could not update the index of the saves.");
+        }
+        setCurrentSave(entry.id());
     }
 
     /**
-     * Loads a saved game state from a JSON file based on the currently selected save.
+     * Loads a saved game state from a binary or JSON file based on the currently selected save.
      */
     public void loadGame() {
-        try (FileReader fr = new FileReader("saves/".concat(getCurrentSave()).concat(".json"))) {
-            SaveState saveState = gson.fromJson(fr, SaveState.class);
+        try {
+            Path file = Paths.get("saves", getCurrentSave().concat(SaveStateFormat.EXTENSION));
+            if (!Files.exists(file)) file = Paths.get("saves", getCurrentSave().concat(".json"));
+            SaveState saveState = SaveStateFormat.read(file, getMapStore());
+            //a map embedded in a JSON save is replaced by the shared map of the same content, if there is one
+            if (file.toString().endsWith(".json")) saveState.mapModel = getMapStore().intern(saveState.mapModel, getCurrentMap());
             setMapModel(loadMap());
+            gameSaveName = null;
+            SaveCatalog.Entry entry = getSaveCatalog() == null ? null : getSaveCatalog().get(getCurrentSave());
+            gamePliesBefore = entry == null ? saveState.numberOfPiecesPlaced : Math.max(entry.plies(), 0);
             gameController = new GameController(saveState,
                     new UserGameClient(new SwingComponentGenerator(Executors.newFixedThreadPool(1))),
                     new UserGameClient(new SwingComponentGenerator(Executors.newFixedThreadPool(1))),
@@ -190,11 +418,12 @@ public class Initializer {
         this.currentSave = currentSave;
     }
 
+    /**
+     * Gets the names of the saves from the index of the saves, without listing the folder.
+     *
+     * @return the names, in the order they were first saved
+     */
     public String[] getSaves() {
-        return saves;
-    }
-
-    public void setSaves(String[] saves) {
-        this.saves = saves;
+        return getSaveCatalog() == null ? new String[0] : getSaveCatalog().ids();
     }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package org.controller;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit of {@link MoveJournal}s: the turns of all the games written to a journal since the last commit are
+ * written and synced to the disk together, by a single thread at a fixed interval. A game then never waits for the
+ * disk, and a burst of turns, e.g. of many games played by the computer, costs one fsync per journal and interval
+ * instead of one per turn.
+ */
+public class JournalCommitter implements Closeable {
+    /**
+     * The system property setting the interval of the commits in milliseconds; 0 syncs every turn at once.
+     */
+    public static final String INTERVAL_PROPERTY = "millgame.journalSyncMillis";
+    /**
+     * The interval of the commits in milliseconds if it is not configured.
+     */
+    public static final long DEFAULT_INTERVAL_MILLIS = 200;
+
+    private final Set<MoveJournal> journals = ConcurrentHashMap.newKeySet();
+    private final Set<MoveJournal> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a committer and starts its thread.
+     *
+     * @param intervalMillis the interval of the commits in milliseconds
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public JournalCommitter(long intervalMillis) {
+        if (intervalMillis <= 0) throw new IllegalArgumentException("The interval must be positive");
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-committer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::commit, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the interval of the commits set in the configuration, i.e. the {@value #INTERVAL_PROPERTY} system property.
+     *
+     * @return the configured interval in milliseconds, {@value #DEFAULT_INTERVAL_MILLIS} if it is not set
+     */
+    public static long configuredIntervalMillis() {
+        return Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Adds a journal to the commits.
+     *
+     * @param journal the journal
+     */
+    void register(@NotNull MoveJournal journal) {
+        journals.add(journal);
+    }
+
+    /**
+     * Removes a journal from the commits, e.g. when it is closed.
+     *
+     * @param journal the journal
+     */
+    void unregister(@NotNull MoveJournal journal) {
+        journals.remove(journal);
+        dirty.remove(journal);
+    }
+
+    /**
+     * Marks a journal as having turns to write in the next commit.
+     *
+     * @param journal the journal
+     * @return false if the committer is closed or the journal not registered, so the journal has to write its turns
+     */
+    boolean markDirty(@NotNull MoveJournal journal) {
+        if (closed || !journals.contains(journal)) return false;
+        dirty.add(journal);
+        return true;
+    }
+
+    /**
+     * Writes and syncs the turns of all journals now. A journal that fails keeps its failure until it is flushed or
+     * closed by its game.
+     */
+    public void commit() {
+        for (MoveJournal journal : dirty) {
+            dirty.remove(journal);
+            journal.flushQuietly();
+        }
+    }
+
+    /**
+     * Stops the thread after a last commit. The journals stay open, and write every turn at once from now on.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commit();
+    }
+}
@@ -0,0 +1,111 @@
+package org.controller;
+
+import org.engine.Evaluator;
+import org.engine.MonteCarloSearch;
+import org.model.BoardModel;
+import org.model.Move;
+
+/**
+ * Represents a game client played by the computer that searches with Monte Carlo Tree Search instead of alpha-beta,
+ * extending the {@link AiGameClient}. The moves are chosen by a {@link MonteCarloSearch} running playouts on several
+ * threads; the tree of the last move is kept, so the playouts spent on the position the opponent chose are not lost.
+ * Like the {@link AiGameClient}, the client plays from its opening book first, if it has one.
+ */
+public class MctsGameClient extends AiGameClient {
+    private final long moveTimeMillis;
+    private final long maxPlayouts;
+    private final int megabytes;
+    private final int threads;
+    private final Object searchLock = new Object();
+    //the search of the current game and whether the worker thread is running it, guarded by searchLock
+    private MonteCarloSearch monteCarloSearch;
+    private boolean searching;
+
+    /**
+     * Constructs an `MctsGameClient` with the default time per move, tree size and a single thread.
+     */
+    public MctsGameClient() {
+        this(DEFAULT_MOVE_TIME, 0, MonteCarloSearch.DEFAULT_MEGABYTES, DEFAULT_THREADS);
+    }
+
+    /**
+     * Constructs an `MctsGameClient` with the given search limits, tree size and number of threads.
+     *
+     * @param moveTimeMillis the time the client can think about a move in milliseconds, 0 for no limit
+     * @param maxPlayouts    the maximum number of playouts per move, 0 for no limit
+     * @param megabytes      the size of the tree in megabytes, kept between the moves of a game
+     * @param threads        the number of threads running playouts on the shared tree
+     */
+    public MctsGameClient(long moveTimeMillis, long maxPlayouts, int megabytes, int threads) {
+        //the alpha-beta search of the base class is not used, so it gets the smallest table
+        super(1, moveTimeMillis, 0, Evaluator.DEFAULT, 1, 1);
+        if (moveTimeMillis <= 0 && maxPlayouts <= 0) throw new IllegalArgumentException("The search needs a limit");
+        if (megabytes < 1) throw new IllegalArgumentException("The tree needs at least one megabyte");
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+        this.moveTimeMillis = moveTimeMillis;
+        this.maxPlayouts = maxPlayouts;
+        this.megabytes = megabytes;
+        this.threads = threads;
+    }
+
+    /**
+     * Searches the best move with the Monte Carlo search, creating the search for the board of a new game.
+     *
+     * @param board the position, with the client's player to move
+     * @return the most visited move, {@link Move#NONE} if there is no legal move
+     */
+    @Override
+    protected int searchMove(BoardModel board) {
+        MonteCarloSearch search;
+        synchronized (searchLock) {
+            search = monteCarloSearch;
+            if (search == null || search.getBoard() != board) {
+                if (search != null) search.close();
+                search = new MonteCarloSearch(board, megabytes, threads);
+                monteCarloSearch = search;
+            }
+            searching = true;
+        }
+        try {
+            return search.search(moveTimeMillis, maxPlayouts).move();
+        } finally {
+            synchronized (searchLock) {
+                searching = false;
+                //the game ended during the search, which was only stopped so its helpers could finish
+                if (monteCarloSearch != search) search.close();
+            }
+        }
+    }
+
+    /**
+     * Ends the game and drops the search, releasing its trees and helper threads; the next game creates a new one.
+     */
+    @Override
+    void endGame() {
+        super.endGame();
+        closeSearch();
+    }
+
+    /**
+     * Ends the game, closes the search and stops the worker thread. The client cannot play afterwards.
+     */
+    @Override
+    public void dispose() {
+        super.dispose();
+        closeSearch();
+    }
+
+    /**
+     * Helper method to drop the Monte Carlo search, so its trees can be collected. A search still running on the
+     * worker thread is only stopped, and closed by the worker when it returns.
+     */
+    private void closeSearch() {
+        synchronized (searchLock) {
+            MonteCarloSearch current = monteCarloSearch;
+            monteCarloSearch = null;
+            if (current == null) return;
+            if (searching) current.stop();
+            else current.close();
+        }
+    }
+}
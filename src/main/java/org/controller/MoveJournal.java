@@ -0,0 +1,348 @@
+package org.controller;
+
+import org.jetbrains.annotations.NotNull;
+import org.model.BoardModel;
+import org.model.SaveState;
+import org.model.SaveStateFormat;
+import org.util.PlayerColor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only journal of a game, so a game can be resumed after a crash instead of being lost since its last save.
+ * The journal starts with the position the game started from, in the binary format of {@link SaveStateFormat}, and
+ * every turn accepted by the {@link GameController} is appended as two or three bytes:
+ * <pre>
+ * 1 field       placement
+ * 2 from to     movement
+ * 3 field       removal of an opponent's piece
+ * 4 winner      end of the game (0 draw, 1 light, 2 dark)
+ * </pre>
+ * The turns are buffered and written to the file together with an fsync, either after every turn or, with a
+ * {@link JournalCommitter}, in a batch for all the games at a fixed interval; a crash then loses at most the turns of
+ * the last interval. {@link #recover(Path, SaveStateFormat.MapResolver)} replays a journal into the
+ * {@link SaveState} of its last turn, which can be loaded like any save.
+ */
+public class MoveJournal implements Closeable {
+    /**
+     * The extension of journal files.
+     */
+    public static final String EXTENSION = ".mgj";
+    static final int MAGIC = 0x4D474A4C;
+    static final int VERSION = 1;
+    static final byte PLACE = 1;
+    static final byte MOVE = 2;
+    static final byte REMOVE = 3;
+    static final byte END = 4;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final JournalCommitter committer;
+    private ByteBuffer pending = ByteBuffer.allocate(64);
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Helper constructor for {@link #create}.
+     *
+     * @param file      the file of the journal
+     * @param channel   the channel of the file, positioned after the header
+     * @param committer the committer writing the turns, null to write every turn at once
+     */
+    private MoveJournal(Path file, FileChannel channel, JournalCommitter committer) {
+        this.file = file;
+        this.channel = channel;
+        this.committer = committer;
+    }
+
+    /**
+     * Creates the journal of a game, replacing the file if it exists.
+     *
+     * @param file      the file of the journal
+     * @param start     the position the game starts from
+     * @param mapId     the identifier of the map, see {@link SaveStateFormat}
+     * @param committer the committer writing the turns in batches, null to write and fsync every turn at once
+     * @return the journal, with its header written to the disk
+     * @throws IOException if the file cannot be written
+     */
+    public static MoveJournal create(@NotNull Path file, @NotNull SaveState start, @NotNull String mapId,
+                                     JournalCommitter committer) throws IOException {
+        byte[] state = SaveStateFormat.encode(start, mapId);
+        ByteBuffer header = ByteBuffer.allocate(4 + 1 + 2 + state.length);
+        header.putInt(MAGIC).put((byte) VERSION).putShort((short) state.length).put(state).flip();
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        MoveJournal journal = new MoveJournal(file, channel, committer);
+        if (committer != null) committer.register(journal);
+        return journal;
+    }
+
+    /**
+     * Appends a placement.
+     *
+     * @param field the field the piece was placed on
+     */
+    public void place(int field) {
+        append(PLACE, field);
+    }
+
+    /**
+     * Appends a movement.
+     *
+     * @param from the field the piece was moved from
+     * @param to   the field the piece was moved to
+     */
+    public void move(int from, int to) {
+        append(MOVE, from, to);
+    }
+
+    /**
+     * Appends the removal of a piece of the opponent.
+     *
+     * @param field the field of the removed piece
+     */
+    public void remove(int field) {
+        append(REMOVE, field);
+    }
+
+    /**
+     * Appends the end of the game; a journal of an ended game is not resumed.
+     *
+     * @param winner the color of the winner, null for a draw
+     */
+    public void end(PlayerColor winner) {
+        append(END, winner == null ? 0 : winner == PlayerColor.LIGHT ? 1 : 2);
+    }
+
+    /**
+     * Helper method to buffer a record and write it at once if there is no committer.
+     *
+     * @param type   the type of the record
+     * @param fields the fields of the record
+     */
+    private synchronized void append(byte type, int... fields) {
+        if (closed) return;
+        if (pending.remaining() < 1 + fields.length) {
+            ByteBuffer larger = ByteBuffer.allocate(2 * pending.capacity());
+            pending.flip();
+            pending = larger.put(pending);
+        }
+        pending.put(type);
+        for (int field : fields) {
+            pending.put((byte) field);
+        }
+        if (committer == null || !committer.markDirty(this)) flushQuietly();
+    }
+
+    /**
+     * Writes the buffered turns to the file and waits until they are on the disk.
+     *
+     * @throws IOException if the turns cannot be written, now or in an earlier batch
+     */
+    public synchronized void flush() throws IOException {
+        if (failure != null) throw failure;
+        if (pending.position() == 0 || closed) return;
+        pending.flip();
+        try {
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        } finally {
+            pending.clear();
+        }
+    }
+
+    /**
+     * Helper method to flush the journal from a committer or an append, which cannot report a failure; the failure is
+     * kept and thrown by the next {@link #flush()} or {@link #close()}.
+     */
+    void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Flushes the buffered turns and closes the file. Later turns are ignored.
+     *
+     * @throws IOException if the turns cannot be written, now or in an earlier batch
+     */
+    @Override
+    public void close() throws IOException {
+        if (committer != null) committer.unregister(this);
+        synchronized (this) {
+            if (closed) return;
+            try {
+                flush();
+            } finally {
+                closed = true;
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Closes the journal and deletes its file, e.g. once the game has ended and there is nothing to recover.
+     *
+     * @throws IOException if the turns cannot be written or the file cannot be deleted
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * The state of a game read from its journal.
+     *
+     * @param saveState the state after the last complete turn
+     * @param mapId     the identifier of the map
+     * @param plies     the number of complete turns in the journal, a turn closing a mill ending with its removal
+     * @param ended     whether the game has ended
+     */
+    public record Recovery(SaveState saveState, String mapId, int plies, boolean ended) {
+    }
+
+    /**
+     * Reads a journal and replays its turns from the start position, the way the {@link GameController} played them.
+     * An incomplete last turn, as left by a crash during a write, is ignored.
+     *
+     * @param file     the file of the journal
+     * @param resolver the lookup of the map of the game
+     * @return the state of the game
+     * @throws IOException if the file cannot be read, is not a journal, or contains a turn that is not legal
+     */
+    public static Recovery recover(@NotNull Path file, @NotNull SaveStateFormat.MapResolver resolver) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < 7 || buffer.getInt() != MAGIC) throw new IOException("Not a journal: " + file);
+        int version = buffer.get() & 0xFF;
+        if (version != VERSION) throw new IOException("Unsupported journal version " + version + ": " + file);
+        int length = buffer.getShort() & 0xFFFF;
+        if (buffer.remaining() < length) throw new IOException("Truncated journal: " + file);
+        byte[] state = new byte[length];
+        buffer.get(state);
+        String[] mapId = new String[1];
+        SaveState start = SaveStateFormat.decode(state, (id, hash) -> {
+            mapId[0] = id;
+            return resolver.resolve(id, hash);
+        });
+
+        Replay replay = new Replay(start);
+        boolean ended = false;
+        while (buffer.hasRemaining() && !ended) {
+            byte type = buffer.get();
+            int size = type == MOVE ? 2 : 1;
+            if (buffer.remaining() < size) break;
+            int first = buffer.get() & 0xFF;
+            try {
+                switch (type) {
+                    case PLACE -> replay.place(first);
+                    case MOVE -> replay.move(first, buffer.get() & 0xFF);
+                    case REMOVE -> replay.remove(first);
+                    case END -> ended = true;
+                    default -> throw new IOException("Corrupt journal: " + file);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Illegal turn " + replay.plies + " in journal " + file, e);
+            }
+        }
+        return new Recovery(replay.toSaveState(), mapId[0], replay.plies, ended);
+    }
+
+    /**
+     * The state of a replayed game, following the rules of the {@link GameController}.
+     */
+    private static final class Replay {
+        private final SaveState start;
+        private final BoardModel board;
+        private int placed;
+        private int lightPieces;
+        private int darkPieces;
+        private boolean lightToMove;
+        private boolean removing;
+        private int plies;
+
+        Replay(SaveState start) {
+            this.start = start;
+            board = new BoardModel(start.mapModel);
+            for (int i = 1; i < start.fields.length && i <= board.getNumberOfFields(); i++) {
+                if (start.fields[i] != null && start.fields[i] != BoardModel.Color.EMPTY) board.putPiece(i, start.fields[i]);
+            }
+            placed = start.numberOfPiecesPlaced;
+            lightPieces = start.lightPlayerPieces;
+            darkPieces = start.darkPlayerPieces;
+            lightToMove = start.focusOnLight;
+            removing = start.millPhase;
+        }
+
+        private BoardModel.Color mover() {
+            return lightToMove ? BoardModel.Color.LIGHT : BoardModel.Color.DARK;
+        }
+
+        private BoardModel.Color opponent() {
+            return lightToMove ? BoardModel.Color.DARK : BoardModel.Color.LIGHT;
+        }
+
+        void place(int field) {
+            if (removing || placed >= 2 * start.piecesPerPlayer) throw new IllegalStateException("No placement expected");
+            placed++;
+            afterTurn(board.putPiece(field, mover()));
+        }
+
+        void move(int from, int to) {
+            if (removing || placed < 2 * start.piecesPerPlayer || board.getFieldColor(from) != mover()) {
+                throw new IllegalStateException("No movement expected");
+            }
+            boolean flying = (lightToMove ? lightPieces : darkPieces) == 3;
+            afterTurn(board.movePiece(from, to, flying));
+        }
+
+        void remove(int field) {
+            if (!removing || board.getFieldColor(field) != opponent()) throw new IllegalStateException("No removal expected");
+            board.putPiece(field, BoardModel.Color.EMPTY);
+            if (lightToMove) darkPieces--;
+            else lightPieces--;
+            removing = false;
+            lightToMove = !lightToMove;
+            plies++;
+        }
+
+        //a mill lets the player remove a piece, if the opponent has one outside of mills
+        private void afterTurn(boolean mill) {
+            if (mill && !board.getFields(opponent(), false).isEmpty()) {
+                removing = true;
+            } else {
+                lightToMove = !lightToMove;
+                plies++;
+            }
+        }
+
+        SaveState toSaveState() {
+            BoardModel.Color[] fields = new BoardModel.Color[board.getNumberOfFields() + 1];
+            for (int i = 1; i < fields.length; i++) {
+                fields[i] = board.getFieldColor(i);
+            }
+            return new SaveState(placed, fields, start.piecesPerPlayer, removing, lightToMove, lightPieces, darkPieces,
+                    start.mapModel);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.controller;
+
+import org.engine.Evaluator;
+import org.engine.tablebase.Tablebase;
+import org.engine.tablebase.TablebaseValue;
+import org.model.BoardModel;
+import org.model.Move;
+import org.model.MoveGenerator;
+
+/**
+ * Represents a game client played by the computer that plays perfectly once the game is covered by endgame tables,
+ * extending the {@link AiGameClient}. Every move is looked up in the {@link Tablebase}: the client wins as fast as
+ * possible, draws if it cannot win, and loses as slowly as possible otherwise. Positions the tables do not cover
+ * (while pieces are placed, or with more pieces than were solved) are searched like by the {@link AiGameClient}, with
+ * the tables probed at the nodes of the search.
+ * <p>
+ * Tables that only know win/draw/loss (like a {@link org.engine.tablebase.CompressedTablebase}) cannot tell the way to
+ * a win: the client then removes a piece if that keeps the win, and searches for the way otherwise.
+ */
+public class PerfectPlayGameClient extends AiGameClient {
+    private final Tablebase tablebase;
+    private int[] moves = new int[0];
+
+    /**
+     * Constructs a `PerfectPlayGameClient` with the default search limits and evaluation.
+     *
+     * @param tablebase the endgame tables of the map that will be played
+     */
+    public PerfectPlayGameClient(Tablebase tablebase) {
+        this(tablebase, DEFAULT_DEPTH, DEFAULT_MOVE_TIME, 0, Evaluator.DEFAULT);
+    }
+
+    /**
+     * Constructs a `PerfectPlayGameClient` with the given search limits and evaluation for the positions outside the
+     * tables.
+     *
+     * @param tablebase      the endgame tables of the map that will be played
+     * @param maxDepth       the maximum depth of the search, in plies
+     * @param moveTimeMillis the time the client can think about a move in milliseconds, 0 for no limit
+     * @param maxNodes       the maximum number of positions searched per move, 0 for no limit
+     * @param evaluator      the evaluation of the positions
+     */
+    public PerfectPlayGameClient(Tablebase tablebase, int maxDepth, long moveTimeMillis, long maxNodes, Evaluator evaluator) {
+        super(maxDepth, moveTimeMillis, maxNodes, evaluator);
+        this.tablebase = tablebase;
+        setTablebase(tablebase);
+    }
+
+    /**
+     * Chooses the move leading to the best position in the tables, or searches if one of the positions is not
+     * covered.
+     *
+     * @param board the position, with the client's player to move
+     * @return the chosen move, {@link Move#NONE} if there is no legal move
+     */
+    @Override
+    protected int chooseMove(BoardModel board) {
+        if (board.getPiecesToPlace(BoardModel.Color.LIGHT) > 0 || board.getPiecesToPlace(BoardModel.Color.DARK) > 0) {
+            return super.chooseMove(board);
+        }
+        if (moves.length < MoveGenerator.maxMoves(board)) moves = new int[MoveGenerator.maxMoves(board)];
+        int count = MoveGenerator.generate(board, moves);
+        BoardModel.Color opponent = board.getSideToMove() == BoardModel.Color.LIGHT ? BoardModel.Color.DARK : BoardModel.Color.LIGHT;
+        int best = Move.NONE;
+        int bestScore = Integer.MIN_VALUE;
+        short bestValue = TablebaseValue.DRAW;
+        int winningRemoval = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i]);
+            short value = board.getPieceCount(opponent) < 3 ? TablebaseValue.loss(0) : tablebase.probe(board);
+            board.unmakeMove();
+            if (value == TablebaseValue.NOT_FOUND) return super.chooseMove(board);
+            if (TablebaseValue.isLoss(value) && Move.hasRemoval(moves[i])) winningRemoval = moves[i];
+            int score = score(value);
+            if (score > bestScore) {
+                bestScore = score;
+                bestValue = value;
+                best = moves[i];
+            }
+        }
+        if (!TablebaseValue.isDraw(bestValue) && TablebaseValue.distance(bestValue) == TablebaseValue.UNKNOWN_DISTANCE) {
+            return winningRemoval != Move.NONE ? winningRemoval : super.chooseMove(board);
+        }
+        return best;
+    }
+
+    /**
+     * Helper method to order the moves by the value of the position they lead to, for the opponent: the faster the
+     * opponent loses the better, then draws, then the later the opponent wins the better.
+     *
+     * @param value the value of the position after the move, for the opponent
+     * @return a score, higher is better for the player moving
+     */
+    private static int score(short value) {
+        int distance = TablebaseValue.distance(value);
+        if (TablebaseValue.isLoss(value)) return 2 * TablebaseValue.MAX_DISTANCE - distance;
+        if (TablebaseValue.isWin(value)) return distance - 2 * TablebaseValue.MAX_DISTANCE;
+        return 0;
+    }
+}
@@ -0,0 +1,258 @@
+package org.controller;
+
+import org.jetbrains.annotations.NotNull;
+import org.model.SaveState;
+import org.model.SaveStateFormat;
+import org.util.MapModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The index of the saves of a folder, kept in a small file next to them, so the saves can be listed and described
+ * without listing the folder or opening a single save. The index is a text file with one line per save,
+ * <pre>
+ * id TAB map id TAB timestamp TAB plies TAB L|D
+ * </pre>
+ * where the map id is empty for a JSON save containing its map, and L or D is the side to move. A save is added by
+ * appending a line, a later line of the same id replacing the earlier one; the file is rewritten when it holds more
+ * replaced lines than current ones. A missing index is rebuilt from the saves, the only time they are read; the plies
+ * of a rebuilt entry are the pieces placed, the only count the saves themselves contain.
+ */
+public class SaveCatalog {
+    /**
+     * The name of the index file in the folder of the saves.
+     */
+    public static final String FILE_NAME = "catalog.idx";
+
+    private final Path folder;
+    private final Path file;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private int lines;
+
+    /**
+     * The description of a save.
+     *
+     * @param id          the name of the save, without extension
+     * @param mapId       the identifier of the map of a binary save, null for a JSON save with its map
+     * @param timestamp   the time of the save in milliseconds since the epoch
+     * @param plies       the number of turns played in the game
+     * @param lightToMove whether light is to move
+     */
+    public record Entry(@NotNull String id, String mapId, long timestamp, int plies, boolean lightToMove) {
+    }
+
+    /**
+     * Helper constructor for {@link #open}.
+     *
+     * @param folder the folder of the saves
+     */
+    private SaveCatalog(Path folder) {
+        this.folder = folder;
+        this.file = folder.resolve(FILE_NAME);
+    }
+
+    /**
+     * Opens the index of a folder of saves, rebuilding it from the saves if it is missing.
+     *
+     * @param folder   the folder of the saves, created if it does not exist
+     * @param resolver the lookup of the maps of binary saves, only used to rebuild the index
+     * @return the index
+     * @throws IOException if the index cannot be read or written
+     */
+    public static SaveCatalog open(@NotNull Path folder, @NotNull SaveStateFormat.MapResolver resolver) throws IOException {
+        SaveCatalog catalog = new SaveCatalog(folder);
+        Files.createDirectories(folder);
+        String content;
+        try {
+            content = Files.readString(catalog.file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            catalog.rebuild(resolver);
+            return catalog;
+        }
+        boolean damaged = !content.isEmpty() && !content.endsWith("\n");
+        for (String line : content.split("\n")) {
+            Entry entry = parse(line);
+            //a line torn by a crash during an append is skipped, and the index rewritten without it
+            if (entry != null) {
+                catalog.entries.put(entry.id(), entry);
+                catalog.lines++;
+            } else if (!line.isEmpty()) {
+                damaged = true;
+            }
+        }
+        if (damaged) catalog.compact();
+        return catalog;
+    }
+
+    /**
+     * Adds a save to the index, or replaces its entry.
+     *
+     * @param entry the description of the save
+     * @throws IOException if the index cannot be written
+     */
+    public synchronized void put(@NotNull Entry entry) throws IOException {
+        entries.put(entry.id(), entry);
+        if (lines >= 2 * entries.size() + 64) {
+            compact();
+        } else {
+            Files.writeString(file, format(entry), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            lines++;
+        }
+    }
+
+    /**
+     * Gets the description of a save.
+     *
+     * @param id the name of the save
+     * @return the description, null if the save is not in the index
+     */
+    public synchronized Entry get(@NotNull String id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Gets the descriptions of all saves, in the order they were first saved.
+     *
+     * @return a copy of the entries
+     */
+    public synchronized List<Entry> entries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Gets the names of all saves, in the order they were first saved.
+     *
+     * @return the names
+     */
+    public synchronized String[] ids() {
+        return entries.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * Gets the number of saves.
+     *
+     * @return the number of saves in the index
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Rebuilds the index by reading every save of the folder. A save that cannot be read is still listed, without a
+     * map and with -1 plies.
+     *
+     * @param resolver the lookup of the maps of binary saves
+     * @throws IOException if the folder cannot be listed or the index cannot be written
+     */
+    public synchronized void rebuild(@NotNull SaveStateFormat.MapResolver resolver) throws IOException {
+        File[] files = folder.toFile().listFiles((dir, name) -> name.endsWith(SaveStateFormat.EXTENSION)
+                || name.endsWith(".json"));
+        if (files == null) throw new IOException("Cannot list the saves in " + folder);
+        //the maps are parsed once for all saves, not once per save
+        Map<String, MapModel> maps = new HashMap<>();
+        SaveStateFormat.MapResolver cached = (id, hash) -> {
+            String key = id + '\t' + hash;
+            MapModel mapModel = maps.get(key);
+            if (mapModel == null) {
+                mapModel = resolver.resolve(id, hash);
+                maps.put(key, mapModel);
+            }
+            return mapModel;
+        };
+        List<Entry> found = new ArrayList<>();
+        Map<String, Entry> byId = new HashMap<>();
+        for (File save : files) {
+            String name = save.getName();
+            String id = name.substring(0, name.lastIndexOf('.'));
+            //a binary save takes precedence over a JSON save of the same name, like when loading
+            if (byId.containsKey(id) && name.endsWith(".json")) continue;
+            Entry entry = describe(id, save.toPath(), cached);
+            Entry previous = byId.put(id, entry);
+            if (previous != null) found.remove(previous);
+            found.add(entry);
+        }
+        found.sort(Comparator.comparingLong(Entry::timestamp).thenComparing(Entry::id));
+        entries.clear();
+        for (Entry entry : found) {
+            entries.put(entry.id(), entry);
+        }
+        compact();
+    }
+
+    /**
+     * Helper method to describe a save by reading it.
+     *
+     * @param id       the name of the save
+     * @param save     the file of the save
+     * @param resolver the lookup of the map of a binary save
+     * @return the description
+     */
+    private static Entry describe(String id, Path save, SaveStateFormat.MapResolver resolver) {
+        String[] mapId = new String[1];
+        long timestamp = save.toFile().lastModified();
+        try {
+            SaveState saveState = SaveStateFormat.read(save, (map, hash) -> {
+                mapId[0] = map;
+                return resolver.resolve(map, hash);
+            });
+            return new Entry(id, mapId[0], timestamp, saveState.numberOfPiecesPlaced, saveState.focusOnLight);
+        } catch (IOException | RuntimeException e) {
+            return new Entry(id, mapId[0], timestamp, -1, true);
+        }
+    }
+
+    /**
+     * Helper method to rewrite the index with one line per save.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    private void compact() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (Entry entry : entries.values()) {
+            content.append(format(entry));
+        }
+        SaveService.writeAtomically(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        lines = entries.size();
+    }
+
+    /**
+     * Helper method to format an entry as a line of the index.
+     *
+     * @param entry the entry
+     * @return the line, with its line break
+     */
+    private static String format(Entry entry) {
+        return entry.id() + '\t' + (entry.mapId() == null ? "" : entry.mapId()) + '\t' + entry.timestamp() + '\t'
+                + entry.plies() + '\t' + (entry.lightToMove() ? 'L' : 'D') + '\n';
+    }
+
+    /**
+     * Helper method to parse a line of the index.
+     *
+     * @param line the line
+     * @return the entry, null if the line is malformed
+     */
+    private static Entry parse(String line) {
+        String[] parts = line.split("\t", -1);
+        if (parts.length != 5 || parts[0].isEmpty() || !(parts[4].equals("L") || parts[4].equals("D"))) return null;
+        try {
+            return new Entry(parts[0], parts[1].isEmpty() ? null : parts[1], Long.parseLong(parts[2]),
+                    Integer.parseInt(parts[3]), parts[4].equals("L"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package org.controller;
+
+import com.google.gson.Gson;
+import org.jetbrains.annotations.NotNull;
+import org.model.MapStore;
+import org.model.SaveState;
+import org.model.SaveStateFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Writes saves on a dedicated thread, so saving a game never waits for the disk on the thread of the screen or of the
+ * game controller. The caller hands over a snapshot of the game, a {@link SaveState} it does not change afterwards,
+ * and is told the result by a callback on the writer thread.
+ * <p>
+ * A save is serialized and written to a temporary file next to its target, synced, and then renamed onto the target
+ * in one step, so a crash leaves either the previous or the new save, never a partial one. Saves of the same game
+ * (the same key) waiting to be written are coalesced: only the latest snapshot is written, and the callbacks of all
+ * of them get its result.
+ * <p>
+ * With a {@link MapStore}, the map of a binary save is put into the store before the save is written, so the save can
+ * reference it by its identifier and hash only.
+ */
+public class SaveService implements Closeable {
+    private final Gson gson = new Gson();
+    private final Map<String, Request> pending = new HashMap<>();
+    private final MapStore mapStore;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "save-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructs a save service without a map store, and starts its thread.
+     */
+    public SaveService() {
+        this(null);
+    }
+
+    /**
+     * Constructs a save service and starts its thread.
+     *
+     * @param mapStore the store the maps of binary saves are put into, null for none
+     */
+    public SaveService(MapStore mapStore) {
+        this.mapStore = mapStore;
+    }
+
+    /**
+     * Saves a game.
+     *
+     * @param key      the game, saves of the same key waiting to be written are coalesced
+     * @param snapshot the state of the game, not changed afterwards
+     * @param mapId    the identifier of the map to write a binary save, see {@link SaveStateFormat}; null to write JSON
+     *                 with the map
+     * @param file     the file of the save, replaced if it exists
+     * @param callback called on the writer thread with the result, null for none
+     */
+    public void save(@NotNull String key, @NotNull SaveState snapshot, String mapId, @NotNull Path file,
+                     Consumer<Result> callback) {
+        synchronized (pending) {
+            Request request = pending.get(key);
+            if (request != null) {
+                request.snapshot = snapshot;
+                request.mapId = mapId;
+                request.file = file;
+                request.callbacks.add(callback);
+                return;
+            }
+            request = new Request(snapshot, mapId, file);
+            request.callbacks.add(callback);
+            pending.put(key, request);
+        }
+        executor.execute(() -> write(key));
+    }
+
+    /**
+     * Helper method to write the latest save of a game and report its result.
+     *
+     * @param key the game
+     */
+    private void write(String key) {
+        Request request;
+        synchronized (pending) {
+            request = pending.remove(key);
+        }
+        IOException error = null;
+        try {
+            if (request.mapId != null && mapStore != null) mapStore.put(request.snapshot.mapModel);
+            byte[] bytes = request.mapId == null
+                    ? gson.toJson(request.snapshot).getBytes(StandardCharsets.UTF_8)
+                    : SaveStateFormat.encode(request.snapshot, request.mapId);
+            writeAtomically(request.file, bytes);
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new IOException("Could not serialize the save", e);
+        }
+        Result result = new Result(request.file, error, request.callbacks.size());
+        for (Consumer<Result> callback : request.callbacks) {
+            if (callback != null) callback.accept(result);
+        }
+    }
+
+    /**
+     * Writes a file through a synced temporary file renamed onto it.
+     *
+     * @param file  the file, replaced if it exists
+     * @param bytes the content
+     * @throws IOException if the file cannot be written
+     */
+    static void writeAtomically(@NotNull Path file, @NotNull byte[] bytes) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = parent.resolve(file.getFileName() + ".tmp");
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Waits until the saves handed over so far are written and their callbacks called.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        try {
+            executor.submit(() -> {
+            }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Writes the saves handed over so far and stops the writer thread. Later saves are rejected.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The result of a save.
+     *
+     * @param file      the file written
+     * @param error     the reason the save failed, null if it was written
+     * @param coalesced the number of saves written at once, 1 if the save was not coalesced with later ones
+     */
+    public record Result(Path file, IOException error, int coalesced) {
+        /**
+         * Checks whether the save was written.
+         *
+         * @return true if the save is on the disk
+         */
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+
+    /**
+     * A save waiting to be written, guarded by the map of pending saves.
+     */
+    private static final class Request {
+        private SaveState snapshot;
+        private String mapId;
+        private Path file;
+        private final List<Consumer<Result>> callbacks = new ArrayList<>();
+
+        Request(SaveState snapshot, String mapId, Path file) {
+            this.snapshot = snapshot;
+            this.mapId = mapId;
+            this.file = file;
+        }
+    }
+}
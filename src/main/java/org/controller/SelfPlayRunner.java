@@ -0,0 +1,407 @@
+package org.controller;
+
+import com.google.gson.Gson;
+import org.engine.Evaluator;
+import org.engine.TranspositionTable;
+import org.engine.book.OpeningBook;
+import org.jetbrains.annotations.NotNull;
+import org.model.BoardModel;
+import org.model.MoveGenerator;
+import org.model.SaveState;
+import org.util.MapModel;
+import org.util.PlayerColor;
+
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays games between two computer players without any screen, e.g. on a server, to measure their strength or the
+ * speed of the engines. The games run on a pool of workers, every game through its own {@link GameController} like a
+ * game started from the menu, and the players alternate colors. Game {@code i} starts from a few random placements
+ * drawn with a random generator seeded with {@code seed + i}, so the games differ but a run can be repeated.
+ * <p>
+ * The result of every game is written to the output file as soon as the game ends, one line per game:
+ * <pre>
+ * game light winner plies termination
+ * 17   B     L      143   F
+ * </pre>
+ * where {@code light} is the engine playing light ({@code A} or {@code B}), {@code winner} the color of the winner
+ * ({@code L}, {@code D}, or {@code -} for a draw), {@code plies} the number of turns and {@code termination} the first
+ * letter of the {@link GameController.Termination} ({@code E}nclosed, {@code F}ewer than three pieces, {@code P}ly
+ * limit or {@code Q}uit).
+ * <p>
+ * The engines are given as {@code ab:<nodes per move>} for an {@link AiGameClient} and {@code mcts:<playouts per
+ * move>} for an {@link MctsGameClient}, with the options of {@link Engine#parse(String)}. Without a time option they
+ * search with these limits only, so their moves do not depend on the speed of the machine.
+ */
+public class SelfPlayRunner {
+    /**
+     * The default number of random placements the games start with.
+     */
+    public static final int DEFAULT_OPENING_PLIES = 4;
+    /**
+     * The default number of turns after which a game is a draw.
+     */
+    public static final int DEFAULT_MAX_PLIES = 300;
+    //the time a game can take before the run is given up
+    private static final long GAME_TIMEOUT_MINUTES = 10;
+
+    private final MapModel mapModel;
+    private final Engine engineA;
+    private final Engine engineB;
+    private final int workers;
+    private final int openingPlies;
+    private final int maxPlies;
+    private final long seed;
+
+    /**
+     * Constructs a runner.
+     *
+     * @param mapModel     the map the games are played on
+     * @param engineA      the first engine, see the class description
+     * @param engineB      the second engine
+     * @param workers      the number of games played at the same time
+     * @param openingPlies the number of random placements the games start with
+     * @param maxPlies     the number of turns after which a game is a draw
+     * @param seed         the seed of the random placements
+     * @throws IllegalArgumentException if an engine is unknown or a number is out of range
+     */
+    public SelfPlayRunner(@NotNull MapModel mapModel, @NotNull String engineA, @NotNull String engineB, int workers,
+                          int openingPlies, int maxPlies, long seed) {
+        if (workers < 1) throw new IllegalArgumentException("At least one worker is needed");
+        if (openingPlies < 0 || openingPlies > 2 * mapModel.pieces) throw new IllegalArgumentException("Invalid number of opening plies: " + openingPlies);
+        if (maxPlies < 1) throw new IllegalArgumentException("The games need at least one turn");
+        this.mapModel = mapModel;
+        this.engineA = Engine.parse(engineA);
+        this.engineB = Engine.parse(engineB);
+        this.workers = workers;
+        this.openingPlies = openingPlies;
+        this.maxPlies = maxPlies;
+        this.seed = seed;
+    }
+
+    /**
+     * Creates the game client of an engine.
+     *
+     * @param engine the engine, see {@link Engine#parse(String)}
+     * @return a new client
+     * @throws IllegalArgumentException if the engine is unknown or has an opening book, which needs a map
+     */
+    public static GameClient createClient(@NotNull String engine) {
+        try {
+            return Engine.parse(engine).createClient(null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The description of an engine, parsed and validated without creating a client, so the engines of a run can be
+     * checked before any table or thread is allocated.
+     *
+     * @param spec      the engine as given
+     * @param mcts      whether the engine is an {@link MctsGameClient} instead of an {@link AiGameClient}
+     * @param limit     the nodes or playouts per move, 0 for none
+     * @param time      the time per move in milliseconds, 0 for none
+     * @param depth     the maximum depth of an alpha-beta engine
+     * @param evaluator the evaluation of an alpha-beta engine
+     * @param book      the file of the opening book of the engine, null for none
+     */
+    public record Engine(String spec, boolean mcts, long limit, long time, int depth, Evaluator evaluator, Path book) {
+        /**
+         * Parses an engine.
+         *
+         * @param engine the engine, {@code ab:<nodes per move>} or {@code mcts:<playouts per move>}, optionally
+         *               followed by {@code ,time=<milliseconds per move>}, and for {@code ab} by
+         *               {@code ,depth=<plies>} and {@code ,eval=<material>/<mill>/<open two>/<mobility>}, and by
+         *               {@code ,book=<file>} to play from an opening book first; the limit can be 0 if a time is given
+         * @return the description of the engine
+         * @throws IllegalArgumentException if the engine is unknown
+         */
+        public static Engine parse(@NotNull String engine) {
+            String[] options = engine.split(",");
+            String[] parts = options[0].split(":");
+            try {
+                if (parts.length == 2 && (parts[0].equals("ab") || parts[0].equals("mcts"))) {
+                    boolean mcts = parts[0].equals("mcts");
+                    long limit = Long.parseLong(parts[1]);
+                    long time = 0;
+                    int depth = AiGameClient.DEFAULT_DEPTH;
+                    Evaluator evaluator = Evaluator.DEFAULT;
+                    Path book = null;
+                    for (int i = 1; i < options.length; i++) {
+                        String[] option = options[i].split("=");
+                        if (option.length != 2) throw unknownEngine(engine);
+                        switch (option[0]) {
+                            case "time":
+                                time = Long.parseLong(option[1]);
+                                break;
+                            case "depth":
+                                if (mcts) throw unknownEngine(engine);
+                                depth = Integer.parseInt(option[1]);
+                                break;
+                            case "eval":
+                                String[] weights = option[1].split("/");
+                                if (mcts || weights.length != 4) throw unknownEngine(engine);
+                                evaluator = new Evaluator(Integer.parseInt(weights[0]), Integer.parseInt(weights[1]),
+                                        Integer.parseInt(weights[2]), Integer.parseInt(weights[3]));
+                                break;
+                            case "book":
+                                book = Paths.get(option[1]);
+                                break;
+                            default:
+                                throw unknownEngine(engine);
+                        }
+                    }
+                    if (limit >= 0 && time >= 0 && limit + time > 0 && depth > 0) {
+                        return new Engine(engine, mcts, limit, time, depth, evaluator, book);
+                    }
+                }
+            } catch (NumberFormatException ignored) {
+            }
+            throw unknownEngine(engine);
+        }
+
+        /**
+         * Creates a client playing with this engine. The client should be {@link GameClient#dispose() disposed} when
+         * it is not needed any more.
+         *
+         * @param mapModel the map the opening book is opened for, can be null if the engine has no book
+         * @return a new client
+         * @throws IOException if the opening book cannot be opened for the map
+         */
+        public GameClient createClient(MapModel mapModel) throws IOException {
+            AiGameClient client = mcts
+                    ? new MctsGameClient(time, limit, 8, 1)
+                    : new AiGameClient(depth, time, limit, evaluator, TranspositionTable.configuredMegabytes(), 1);
+            if (book != null) {
+                if (mapModel == null) throw new IllegalArgumentException("The opening book of " + spec + " needs a map");
+                client.setOpeningBook(OpeningBook.open(book, mapModel, OpeningBook.DEFAULT_MIN_GAMES));
+            }
+            return client;
+        }
+
+        @Override
+        public String toString() {
+            return spec;
+        }
+    }
+
+    /**
+     * Helper method to create the exception of an engine that cannot be parsed.
+     *
+     * @param engine the engine
+     * @return the exception
+     */
+    private static IllegalArgumentException unknownEngine(String engine) {
+        return new IllegalArgumentException("Unknown engine " + engine + ", expected ab:<nodes> or mcts:<playouts>"
+                + " with optional ,time=<ms>, ,depth=<plies>, ,eval=<weights> and ,book=<file>");
+    }
+
+    /**
+     * Plays the games and writes their results to a file.
+     *
+     * @param games  the number of games
+     * @param output the file of the results, replaced if it exists
+     * @return the results of the run
+     * @throws IOException if the file cannot be written or an opening book cannot be opened
+     */
+    public Summary run(int games, @NotNull Path output) throws IOException {
+        long start = System.nanoTime();
+        AtomicInteger next = new AtomicInteger();
+        int[] counts = new int[3];
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try (BufferedWriter writer = Files.newBufferedWriter(output)) {
+            writer.write("# game light winner plies termination; A = " + engineA + ", B = " + engineB + ", seed " + seed);
+            writer.newLine();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                futures.add(pool.submit(() -> {
+                    GameClient clientA = engineA.createClient(mapModel);
+                    GameClient clientB = null;
+                    try {
+                        clientB = engineB.createClient(mapModel);
+                        for (int game = next.getAndIncrement(); game < games; game = next.getAndIncrement()) {
+                            boolean aIsLight = game % 2 == 0;
+                            Result result = play(game, aIsLight ? clientA : clientB, aIsLight ? clientB : clientA);
+                            PlayerColor winnerA = aIsLight ? PlayerColor.LIGHT : PlayerColor.DARK;
+                            synchronized (writer) {
+                                counts[result.winner() == null ? 2 : result.winner() == winnerA ? 0 : 1]++;
+                                writer.write(game + " " + (aIsLight ? 'A' : 'B') + " "
+                                        + (result.winner() == null ? '-' : result.winner() == PlayerColor.LIGHT ? 'L' : 'D') + " "
+                                        + result.plies() + " " + result.termination().name().charAt(0));
+                                writer.newLine();
+                                writer.flush();
+                            }
+                        }
+                    } finally {
+                        clientA.dispose();
+                        if (clientB != null) clientB.dispose();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while playing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IllegalStateException("A game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Summary(counts[0] + counts[1] + counts[2], counts[0], counts[1], counts[2],
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Helper method to play a game from its random opening and wait for its end.
+     *
+     * @param game  the index of the game
+     * @param light the client playing light
+     * @param dark  the client playing dark
+     * @return the result
+     */
+    private Result play(int game, GameClient light, GameClient dark) throws InterruptedException {
+        return play(opening(mapModel, openingPlies, new Random(seed + game)), light, dark, maxPlies);
+    }
+
+    /**
+     * Plays a game from a position without any screen and waits for its end.
+     *
+     * @param start    the position the game starts from
+     * @param light    the client playing light
+     * @param dark     the client playing dark
+     * @param maxPlies the number of turns after which the game is a draw
+     * @return the result
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static Result play(SaveState start, GameClient light, GameClient dark, int maxPlies) throws InterruptedException {
+        Host host = new Host(start.mapModel);
+        GameController gameController = new GameController(start, light, dark, host);
+        gameController.setMaxPlies(maxPlies);
+        if (!host.ended.await(GAME_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+            gameController.exitGame(PlayerColor.LIGHT);
+            throw new IllegalStateException("A game did not end after " + gameController.getPlies() + " turns");
+        }
+        return host.result;
+    }
+
+    /**
+     * Draws the random placements a game starts with.
+     *
+     * @param mapModel     the map of the game
+     * @param openingPlies the number of placements
+     * @param random       the random generator of the game
+     * @return the state of the game after the placements
+     */
+    static SaveState opening(MapModel mapModel, int openingPlies, Random random) {
+        BoardModel board = new BoardModel(mapModel);
+        int[] moves = new int[MoveGenerator.maxMoves(board)];
+        for (int ply = 0; ply < openingPlies; ply++) {
+            int count = MoveGenerator.generate(board, moves);
+            board.makeMove(moves[random.nextInt(count)]);
+        }
+        return SaveState.fromBoard(board);
+    }
+
+    /**
+     * The result of a game.
+     *
+     * @param winner      the color of the winner, null for a draw
+     * @param termination the way the game ended
+     * @param plies       the number of turns played
+     */
+    record Result(PlayerColor winner, GameController.Termination termination, int plies) {
+    }
+
+    /**
+     * The results of a run.
+     *
+     * @param games  the number of games played
+     * @param winsA  the number of games won by the first engine
+     * @param winsB  the number of games won by the second engine
+     * @param draws  the number of drawn games
+     * @param millis the time the run took, in milliseconds
+     */
+    public record Summary(int games, int winsA, int winsB, int draws, long millis) {
+        /**
+         * Gets the speed of the run.
+         *
+         * @return the number of games played per second
+         */
+        public double gamesPerSecond() {
+            return millis == 0 ? games * 1000.0 : games * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return games + " games (A " + winsA + ", B " + winsB + ", draws " + draws + ") in " + millis + " ms, "
+                    + String.format("%.2f", gamesPerSecond()) + " games/s";
+        }
+    }
+
+    /**
+     * The initializer of a game without a screen: it does not log the moves and reports the end of the game.
+     */
+    private static final class Host extends Initializer {
+        private final CountDownLatch ended = new CountDownLatch(1);
+        private volatile Result result;
+
+        Host(MapModel mapModel) {
+            super(mapModel);
+        }
+
+        @Override
+        public void log(String s) {
+        }
+
+        @Override
+        public void gameOver(PlayerColor winner, GameController.Termination termination, int plies) {
+            result = new Result(winner, termination, plies);
+            ended.countDown();
+        }
+    }
+
+    /**
+     * Plays games from the command line: {@code SelfPlayRunner <map file> <output file> <games> [engine A] [engine B]
+     * [workers] [seed]}, e.g. {@code SelfPlayRunner maps/defaultmap.json results.txt 100 ab:5000 mcts:5000 4 1}.
+     *
+     * @param args the arguments
+     * @throws IOException if the map cannot be read or the results cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: SelfPlayRunner <map file> <output file> <games> [engine A] [engine B] [workers] [seed]");
+            System.out.println("Engines: ab:<nodes per move> or mcts:<playouts per move>");
+            return;
+        }
+        MapModel mapModel;
+        try (FileReader reader = new FileReader(args[0])) {
+            mapModel = new Gson().fromJson(reader, MapModel.class);
+        }
+        String engineA = args.length > 3 ? args[3] : "ab:5000";
+        String engineB = args.length > 4 ? args[4] : "mcts:5000";
+        int workers = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 1;
+        SelfPlayRunner runner = new SelfPlayRunner(mapModel, engineA, engineB, workers, DEFAULT_OPENING_PLIES, DEFAULT_MAX_PLIES, seed);
+        System.out.println(runner.run(Integer.parseInt(args[2]), Paths.get(args[1])));
+    }
+}
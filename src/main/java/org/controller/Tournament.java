@@ -0,0 +1,529 @@
+package org.controller;
+
+import com.google.gson.Gson;
+import org.jetbrains.annotations.NotNull;
+import org.model.MapStore;
+import org.model.SaveState;
+import org.model.SaveStateFormat;
+import org.util.MapModel;
+import org.util.PlayerColor;
+
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays a round-robin tournament between engine configurations without any screen, to find out whether a change made
+ * an engine stronger. Every pair of engines plays a match; the games of all matches run on a pool of workers, every
+ * game through its own {@link GameController} like the games of the {@link SelfPlayRunner}, and the engines are given
+ * the same way (see {@link SelfPlayRunner.Engine#parse(String)}).
+ * <p>
+ * The games of a match are played in pairs from the same opening, the first engine playing light in the first game of
+ * a pair and dark in the second one. The openings are taken in turn from a list of saved games, or drawn at random
+ * like the openings of the {@link SelfPlayRunner} if there is none.
+ * <p>
+ * The result of a match is given as the Elo difference of its engines with a 95% confidence interval. A match can also
+ * be stopped early by a sequential probability ratio test ({@link Sprt}), as soon as the games played tell whether the
+ * first engine is stronger or not; the remaining games of the match are then played by the other matches.
+ * <p>
+ * The result of every game is written to the output file as soon as the game ends, one line per game:
+ * <pre>
+ * match game light dark winner plies termination
+ * 0     17   1     0    L      143   F
+ * </pre>
+ * where {@code light} and {@code dark} are the indices of the engines, and the other columns are written like those
+ * of the {@link SelfPlayRunner}.
+ */
+public class Tournament {
+    private final List<String> engines;
+    private final List<SelfPlayRunner.Engine> parsed;
+    private final MapModel mapModel;
+    private final List<SaveState> openings;
+    private final int workers;
+    private final int maxPlies;
+    private final long seed;
+    private final Sprt sprt;
+    private final List<Match> matches = new ArrayList<>();
+    private int nextMatch;
+
+    /**
+     * Constructs a tournament.
+     *
+     * @param engines  the engines, at least two, see {@link SelfPlayRunner.Engine#parse(String)}
+     * @param mapModel the map of the random openings and of the opening books of the engines
+     * @param openings the saved games the games start from, in turn; if empty, the games start from random openings
+     * @param workers  the number of games played at the same time
+     * @param maxPlies the number of turns after which a game is a draw
+     * @param seed     the seed of the random openings
+     * @param sprt     the test stopping the matches early, null to play all their games
+     * @throws IllegalArgumentException if an engine is unknown or a number is out of range
+     */
+    public Tournament(@NotNull List<String> engines, @NotNull MapModel mapModel, @NotNull List<SaveState> openings,
+                      int workers, int maxPlies, long seed, Sprt sprt) {
+        if (engines.size() < 2) throw new IllegalArgumentException("A tournament needs at least two engines");
+        if (workers < 1) throw new IllegalArgumentException("At least one worker is needed");
+        if (maxPlies < 1) throw new IllegalArgumentException("The games need at least one turn");
+        this.parsed = engines.stream().map(SelfPlayRunner.Engine::parse).toList();
+        this.engines = List.copyOf(engines);
+        this.mapModel = mapModel;
+        this.openings = List.copyOf(openings);
+        this.workers = workers;
+        this.maxPlies = maxPlies;
+        this.seed = seed;
+        this.sprt = sprt;
+    }
+
+    /**
+     * Loads the saved games of a folder, to be used as openings. The maps of binary saves are read from the
+     * {@code maps} folder.
+     *
+     * @param folder the folder, its {@code .json} and binary save files are read in the order of their names
+     * @return the saved games
+     * @throws IOException if the folder or a file cannot be read
+     */
+    public static List<SaveState> loadOpenings(@NotNull Path folder) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.{json,sav}")) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        SaveStateFormat.MapResolver resolver = new MapStore(Paths.get("maps"), Paths.get(MapStore.FOLDER));
+        List<SaveState> openings = new ArrayList<>();
+        for (Path file : files) {
+            openings.add(SaveStateFormat.read(file, resolver));
+        }
+        return openings;
+    }
+
+    /**
+     * Plays the tournament and writes the results of its games to a file.
+     *
+     * @param gamesPerMatch the number of games of every match, played unless the test stops the match
+     * @param output        the file of the results, replaced if it exists
+     * @return the results of the matches, in the order of the pairs of engines
+     * @throws IOException if the file cannot be written or an opening book cannot be opened
+     */
+    public List<MatchResult> run(int gamesPerMatch, @NotNull Path output) throws IOException {
+        if (gamesPerMatch < 1) throw new IllegalArgumentException("A match needs at least one game");
+        matches.clear();
+        nextMatch = 0;
+        for (int a = 0; a < engines.size(); a++) {
+            for (int b = a + 1; b < engines.size(); b++) {
+                matches.add(new Match(matches.size(), a, b, gamesPerMatch));
+            }
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try (BufferedWriter writer = Files.newBufferedWriter(output)) {
+            writer.write("# match game light dark winner plies termination; engines");
+            for (int i = 0; i < engines.size(); i++) {
+                writer.write(" " + i + " = " + engines.get(i));
+            }
+            writer.write(", seed " + seed + (sprt == null ? "" : ", " + sprt));
+            writer.newLine();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                futures.add(pool.submit(() -> {
+                    //the clients keep their tables between the games of a match, and are disposed when the worker
+                    //moves on to another match
+                    Match current = null;
+                    GameClient clientA = null;
+                    GameClient clientB = null;
+                    try {
+                        for (Game game = nextGame(); game != null; game = nextGame()) {
+                            Match match = game.match();
+                            if (match != current) {
+                                dispose(clientA, clientB);
+                                clientA = null;
+                                clientB = null;
+                                clientA = parsed.get(match.engineA).createClient(mapModel);
+                                clientB = parsed.get(match.engineB).createClient(mapModel);
+                                current = match;
+                            }
+                            boolean aIsLight = game.index() % 2 == 0;
+                            SelfPlayRunner.Result result = SelfPlayRunner.play(opening(match, game.index()),
+                                    aIsLight ? clientA : clientB, aIsLight ? clientB : clientA, maxPlies);
+                            finishGame(game, aIsLight, result, writer);
+                        }
+                    } finally {
+                        dispose(clientA, clientB);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while playing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IllegalStateException("A game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        List<MatchResult> results = new ArrayList<>();
+        for (Match match : matches) {
+            results.add(new MatchResult(engines.get(match.engineA), engines.get(match.engineB),
+                    new Score(match.winsA, match.winsB, match.draws), match.decision));
+        }
+        return results;
+    }
+
+    /**
+     * Helper method to dispose the clients of a worker.
+     *
+     * @param clients the clients, null entries are skipped
+     */
+    private static void dispose(GameClient... clients) {
+        for (GameClient client : clients) {
+            if (client != null) client.dispose();
+        }
+    }
+
+    /**
+     * Helper method to hand out the next game, taking the open matches in turn so they all progress at the same pace.
+     *
+     * @return the game, null if all matches are finished or have all their games running
+     */
+    private synchronized Game nextGame() {
+        for (int i = 0; i < matches.size(); i++) {
+            Match match = matches.get((nextMatch + i) % matches.size());
+            if (match.decision == Sprt.Decision.CONTINUE && match.started < match.games) {
+                nextMatch = (match.index + 1) % matches.size();
+                return new Game(match, match.started++);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method to record and write the result of a game, and to test whether its match can be stopped.
+     *
+     * @param game     the game
+     * @param aIsLight whether the first engine of the match played light
+     * @param result   the result
+     * @param writer   the writer of the output file
+     * @throws IOException if the result cannot be written
+     */
+    private synchronized void finishGame(Game game, boolean aIsLight, SelfPlayRunner.Result result, BufferedWriter writer) throws IOException {
+        Match match = game.match();
+        PlayerColor colorA = aIsLight ? PlayerColor.LIGHT : PlayerColor.DARK;
+        if (result.winner() == null) match.draws++;
+        else if (result.winner() == colorA) match.winsA++;
+        else match.winsB++;
+        if (sprt != null && match.decision == Sprt.Decision.CONTINUE) {
+            match.decision = sprt.decide(new Score(match.winsA, match.winsB, match.draws));
+        }
+        writer.write(match.index + " " + game.index() + " " + (aIsLight ? match.engineA : match.engineB) + " "
+                + (aIsLight ? match.engineB : match.engineA) + " "
+                + (result.winner() == null ? '-' : result.winner() == PlayerColor.LIGHT ? 'L' : 'D') + " "
+                + result.plies() + " " + result.termination().name().charAt(0));
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * Helper method to get the opening of a game; both games of a pair start from the same one.
+     *
+     * @param match the match
+     * @param game  the index of the game in the match
+     * @return the state the game starts from
+     */
+    private SaveState opening(Match match, int game) {
+        int pair = game / 2;
+        if (!openings.isEmpty()) return openings.get(pair % openings.size());
+        return SelfPlayRunner.opening(mapModel, SelfPlayRunner.DEFAULT_OPENING_PLIES,
+                new Random(seed + (long) match.index * 1_000_003 + pair));
+    }
+
+    /**
+     * The state of a match, guarded by the tournament.
+     */
+    private static final class Match {
+        private final int index;
+        private final int engineA;
+        private final int engineB;
+        private final int games;
+        private int started;
+        private int winsA;
+        private int winsB;
+        private int draws;
+        private Sprt.Decision decision = Sprt.Decision.CONTINUE;
+
+        Match(int index, int engineA, int engineB, int games) {
+            this.index = index;
+            this.engineA = engineA;
+            this.engineB = engineB;
+            this.games = games;
+        }
+    }
+
+    /**
+     * A game handed out to a worker.
+     *
+     * @param match the match of the game
+     * @param index the index of the game in the match
+     */
+    private record Game(Match match, int index) {
+    }
+
+    /**
+     * The result of a match.
+     *
+     * @param engineA  the first engine
+     * @param engineB  the second engine
+     * @param score    the score of the first engine
+     * @param decision the decision of the test that stopped the match, {@link Sprt.Decision#CONTINUE} if all its games
+     *                 were played
+     */
+    public record MatchResult(String engineA, String engineB, Score score, Sprt.Decision decision) {
+        @Override
+        public String toString() {
+            return engineA + " vs " + engineB + ": " + score
+                    + (decision == Sprt.Decision.CONTINUE ? "" : ", stopped with " + decision);
+        }
+    }
+
+    /**
+     * The score of an engine in a match, and the Elo difference it gives.
+     *
+     * @param wins   the number of games won
+     * @param losses the number of games lost
+     * @param draws  the number of drawn games
+     */
+    public record Score(int wins, int losses, int draws) {
+        //the z value of a two sided 95% confidence interval
+        private static final double Z_95 = 1.959964;
+
+        /**
+         * Gets the number of games.
+         *
+         * @return the number of games played
+         */
+        public int games() {
+            return wins + losses + draws;
+        }
+
+        /**
+         * Gets the mean score of a game, a win counting 1 and a draw one half.
+         *
+         * @return the mean score, 0.5 if no game was played
+         */
+        public double mean() {
+            return games() == 0 ? 0.5 : (wins + 0.5 * draws) / games();
+        }
+
+        /**
+         * Gets the variance of the score of a game, as observed.
+         *
+         * @return the variance, 0 if no game was played
+         */
+        public double variance() {
+            if (games() == 0) return 0;
+            double mean = mean();
+            return (wins * (1 - mean) * (1 - mean) + draws * (0.5 - mean) * (0.5 - mean) + losses * mean * mean) / games();
+        }
+
+        /**
+         * Gets the Elo difference the score gives.
+         *
+         * @return the Elo difference, infinite if all games were won or lost
+         */
+        public double elo() {
+            return elo(mean());
+        }
+
+        /**
+         * Gets the half width of the 95% confidence interval of the Elo difference.
+         *
+         * @return the error of the Elo difference, infinite if the interval is not bounded
+         */
+        public double eloError() {
+            if (games() == 0 || Double.isInfinite(elo())) return Double.POSITIVE_INFINITY;
+            double error = Z_95 * Math.sqrt(variance() / games());
+            return (elo(mean() + error) - elo(mean() - error)) / 2;
+        }
+
+        /**
+         * Converts a mean score into an Elo difference.
+         *
+         * @param mean the mean score
+         * @return the Elo difference, infinite at the ends of the range
+         */
+        public static double elo(double mean) {
+            if (mean <= 0) return Double.NEGATIVE_INFINITY;
+            if (mean >= 1) return Double.POSITIVE_INFINITY;
+            return -400 * Math.log10(1 / mean - 1);
+        }
+
+        /**
+         * Converts an Elo difference into the mean score it predicts.
+         *
+         * @param elo the Elo difference
+         * @return the mean score
+         */
+        public static double mean(double elo) {
+            return 1 / (1 + Math.pow(10, -elo / 400));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("+%d -%d =%d, Elo %.1f +- %.1f", wins, losses, draws, elo(), eloError());
+        }
+    }
+
+    /**
+     * A sequential probability ratio test of the Elo difference of a match, with the hypotheses H0 that the difference
+     * is {@code elo0} and H1 that it is {@code elo1}. After every game, the log likelihood ratio of the hypotheses is
+     * approximated from the mean and variance of the scores, and the match is stopped as soon as it leaves the bounds
+     * given by the error probabilities.
+     *
+     * @param elo0  the Elo difference of H0
+     * @param elo1  the Elo difference of H1, above {@code elo0}
+     * @param alpha the probability of accepting H1 although H0 is true
+     * @param beta  the probability of accepting H0 although H1 is true
+     */
+    public record Sprt(double elo0, double elo1, double alpha, double beta) {
+        /**
+         * Checks the hypotheses and error probabilities.
+         *
+         * @throws IllegalArgumentException if {@code elo1} is not above {@code elo0} or a probability is not between 0
+         *                                  and 0.5
+         */
+        public Sprt {
+            if (!(elo1 > elo0)) throw new IllegalArgumentException("elo1 must be above elo0");
+            if (!(alpha > 0 && alpha < 0.5 && beta > 0 && beta < 0.5)) {
+                throw new IllegalArgumentException("The error probabilities must be between 0 and 0.5");
+            }
+        }
+
+        /**
+         * Gets the log likelihood ratio below which H0 is accepted.
+         *
+         * @return the lower bound
+         */
+        public double lowerBound() {
+            return Math.log(beta / (1 - alpha));
+        }
+
+        /**
+         * Gets the log likelihood ratio above which H1 is accepted.
+         *
+         * @return the upper bound
+         */
+        public double upperBound() {
+            return Math.log((1 - beta) / alpha);
+        }
+
+        /**
+         * Approximates the log likelihood ratio of H1 against H0 for a score. A won and a lost game are added to the
+         * score as a prior, so a short run of equal results, whose variance is 0, cannot settle a match.
+         *
+         * @param score the score of the first engine
+         * @return the log likelihood ratio, 0 if no game was played
+         */
+        public double llr(@NotNull Score score) {
+            if (score.games() == 0) return 0;
+            Score prior = new Score(score.wins() + 1, score.losses() + 1, score.draws());
+            double s0 = Score.mean(elo0);
+            double s1 = Score.mean(elo1);
+            return (s1 - s0) * (2 * prior.mean() - s0 - s1) * prior.games() / (2 * prior.variance());
+        }
+
+        /**
+         * Decides whether a match can be stopped.
+         *
+         * @param score the score of the first engine
+         * @return the accepted hypothesis, or {@link Decision#CONTINUE} to play on
+         */
+        public Decision decide(@NotNull Score score) {
+            double llr = llr(score);
+            if (llr >= upperBound()) return Decision.H1;
+            if (llr <= lowerBound()) return Decision.H0;
+            return Decision.CONTINUE;
+        }
+
+        @Override
+        public String toString() {
+            return "SPRT elo0 " + elo0 + " elo1 " + elo1 + " alpha " + alpha + " beta " + beta;
+        }
+
+        /**
+         * The decisions of the test.
+         */
+        public enum Decision {
+            /**
+             * Neither hypothesis can be accepted yet.
+             */
+            CONTINUE,
+            /**
+             * The first engine is not stronger by {@code elo1}.
+             */
+            H0,
+            /**
+             * The first engine is stronger by more than {@code elo0}.
+             */
+            H1
+        }
+    }
+
+    /**
+     * Plays a tournament from the command line: {@code Tournament <map file> <output file> <games per match> <engine>
+     * <engine>... [--workers <n>] [--openings <folder of saves>] [--sprt <elo0>,<elo1>] [--max-plies <n>] [--seed <n>]},
+     * e.g. {@code Tournament maps/defaultmap.json results.txt 1000 ab:5000 ab:5000,eval=100/40/15/5 --sprt 0,10}.
+     * The test uses error probabilities of 5%.
+     *
+     * @param args the arguments
+     * @throws IOException if the map or the openings cannot be read or the results cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.out.println("Usage: Tournament <map file> <output file> <games per match> <engine> <engine>..."
+                    + " [--workers <n>] [--openings <folder>] [--sprt <elo0>,<elo1>] [--max-plies <n>] [--seed <n>]");
+            System.out.println("Engines: ab:<nodes per move> or mcts:<playouts per move>, with optional ,time=<ms>,"
+                    + " ,depth=<plies>, ,eval=<material>/<mill>/<open two>/<mobility> and ,book=<file>");
+            return;
+        }
+        MapModel mapModel;
+        try (FileReader reader = new FileReader(args[0])) {
+            mapModel = new Gson().fromJson(reader, MapModel.class);
+        }
+        List<String> engines = new ArrayList<>();
+        List<SaveState> openings = List.of();
+        int workers = Runtime.getRuntime().availableProcessors();
+        int maxPlies = SelfPlayRunner.DEFAULT_MAX_PLIES;
+        long seed = 1;
+        Sprt sprt = null;
+        for (int i = 3; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workers" -> workers = Integer.parseInt(args[++i]);
+                case "--openings" -> openings = loadOpenings(Paths.get(args[++i]));
+                case "--max-plies" -> maxPlies = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--sprt" -> {
+                    String[] bounds = args[++i].split(",");
+                    sprt = new Sprt(Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1]), 0.05, 0.05);
+                }
+                default -> engines.add(args[i]);
+            }
+        }
+        Tournament tournament = new Tournament(engines, mapModel, openings, workers, maxPlies, seed, sprt);
+        long start = System.nanoTime();
+        for (MatchResult result : tournament.run(Integer.parseInt(args[2]), Paths.get(args[1]))) {
+            System.out.println(result);
+        }
+        System.out.println("Played in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
@@ -2,6 +2,7 @@ package org.controller;
 
 import org.jetbrains.annotations.NotNull;
 import org.model.BoardModel;
+import org.util.FieldSet;
 import org.util.MapModel;
 import org.util.PlayerColor;
 import org.view.ComponentGenerator;
@@ -140,11 +141,11 @@ public class UserGameClient extends GameClient {
      * Sends a message down to the client to update multiple fields with a specific color.
      * Updates the game screen to reflect the specified color for the given fields.
      *
-     * @param fields a list of field indices to be updated
+     * @param fields a set of field indices to be updated
      * @param color  the color to be applied to the specified fields
      */
     @Override
-    public void sendDownColor(List<Integer> fields, BoardModel.Color color) {
+    public void sendDownColor(FieldSet fields, BoardModel.Color color) {
         super.sendDownColor(fields, color);
         gameScreen.updateFieldType(fields, convertState(color, State.NONE));
     }
@@ -157,7 +158,7 @@ public class UserGameClient extends GameClient {
      * @param color the color to be applied to the specified field
      */
     @Override
-    public void sendDownColor(Integer field, BoardModel.Color color) {
+    public void sendDownColor(int field, BoardModel.Color color) {
         super.sendDownColor(field, color);
         gameScreen.updateFieldType(field, convertState(color, State.NONE));
     }
@@ -167,10 +168,10 @@ public class UserGameClient extends GameClient {
      * Updates the game screen to highlight possible fields where the player can place their piece.
      * Changes the label text to prompt the player to place a piece.
      *
-     * @param possibleFields a list of field indices where the player can place their piece
+     * @param possibleFields a set of field indices where the player can place their piece
      */
     @Override
-    public void sendDownPlace(List<Integer> possibleFields) {
+    public void sendDownPlace(FieldSet possibleFields) {
         focus = true;
         gameScreen.updateFieldType(possibleFields, ComponentGenerator.FieldType.MOVABLE_TO);
         gameScreen.changeLabelText(0, "Place a piece");
@@ -181,14 +182,12 @@ public class UserGameClient extends GameClient {
      * Updates the game screen to highlight opponent fields that can be removed.
      * Changes the label text to prompt the player to remove an opponent's piece.
      *
-     * @param opponentFields a list of field indices where the player can remove an opponent's piece
+     * @param opponentFields a set of field indices where the player can remove an opponent's piece
      */
     @Override
-    public void sendDownRemove(@NotNull List<Integer> opponentFields) {
+    public void sendDownRemove(@NotNull FieldSet opponentFields) {
         focus = true;
-        for (Integer field : opponentFields) {
-            gameScreen.updateFieldType(field, convertState(fieldColors[field], State.REMOVABLE));
-        }
+        opponentFields.forEach(field -> gameScreen.updateFieldType(field, convertState(fieldColors[field], State.REMOVABLE)));
         gameScreen.changeLabelText(0, "Remove an opponent's piece");
     }
 
@@ -197,14 +196,12 @@ public class UserGameClient extends GameClient {
      * Updates the game screen to highlight pieces that can be moved.
      * Changes the label text to prompt the player to move a piece.
      *
-     * @param movableFields a list of field indices where the player can move their pieces from
+     * @param movableFields a set of field indices where the player can move their pieces from
      */
     @Override
-    public void sendDownMove(@NotNull List<Integer> movableFields) {
+    public void sendDownMove(@NotNull FieldSet movableFields) {
         focus = true;
-        for (Integer field : movableFields) {
-            gameScreen.updateFieldType(field, convertState(fieldColors[field], State.MOVABLE));
-        }
+        movableFields.forEach(field -> gameScreen.updateFieldType(field, convertState(fieldColors[field], State.MOVABLE)));
         gameScreen.changeLabelText(0, "Move a piece");
     }
 
@@ -214,10 +211,10 @@ public class UserGameClient extends GameClient {
      * Changes the label text to prompt the player to select a destination for the move.
      *
      * @param fieldToMove    the index of the field containing the piece to be moved
-     * @param possibleFields a list of field indices where the player can move the selected piece to
+     * @param possibleFields a set of field indices where the player can move the selected piece to
      */
     @Override
-    public void sendDownMoveTo(Integer fieldToMove, List<Integer> possibleFields) {
+    public void sendDownMoveTo(int fieldToMove, FieldSet possibleFields) {
         focus = true;
         gameScreen.updateFieldType(fieldToMove, convertState(fieldColors[fieldToMove], State.CHOSEN));
         gameScreen.updateFieldType(possibleFields, ComponentGenerator.FieldType.MOVABLE_TO);
@@ -0,0 +1,393 @@
+package org.engine;
+
+import org.engine.tablebase.Tablebase;
+import org.engine.tablebase.TablebaseValue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.model.BoardModel;
+import org.model.Move;
+import org.model.MoveGenerator;
+
+/**
+ * Iterative-deepening negamax search with principal variation search (PVS) on a {@link BoardModel}.
+ * <p>
+ * Moves are made and taken back on the board with {@link BoardModel#makeMove(int)} and
+ * {@link BoardModel#unmakeMove()}, and generated into arrays allocated once per ply, so the search itself does not
+ * allocate. Results are stored in a {@link TranspositionTable}, which cuts off positions reached again through another
+ * order of moves. Moves are ordered by the best move from the table (or of the previous iteration at the root), then
+ * removals, then the history heuristic. Repeated positions on the search path are scored as draws, and positions
+ * covered by endgame tables (see {@link #setTablebase(Tablebase)}) are scored by the tables without searching them.
+ * <p>
+ * A search can be limited by depth, time and nodes, and stopped from another thread with {@link #stop()}; the result
+ * is always the best move of the deepest completed iteration. An instance is not thread-safe, one search runs at a
+ * time.
+ */
+public class AlphaBetaSearch {
+    /**
+     * The score of a won position; a position lost in {@code n} plies scores {@code -MATE + n}.
+     */
+    public static final int MATE = 1_000_000;
+    /**
+     * The maximum depth of the search, in plies.
+     */
+    public static final int MAX_PLY = 64;
+    /**
+     * The score of a position won according to the endgame tables; the plies to the end are subtracted from it.
+     */
+    public static final int TABLEBASE_WIN = MATE / 2;
+
+    private static final int INFINITY = MATE + 1;
+    private static final int HINT_ORDER = 1 << 30;
+    private static final int REMOVAL_ORDER = 1 << 24;
+    private static final int CHECK_INTERVAL = 1024;
+    //Scores from here on are won (or lost) positions, counting plies from the root
+    private static final int DECIDED = TABLEBASE_WIN - MAX_PLY - TablebaseValue.MAX_DISTANCE;
+
+    private final BoardModel board;
+    private final Evaluator evaluator;
+    private final TranspositionTable table;
+    private Tablebase tablebase;
+
+    //moves[ply] and orders[ply] are allocated on first use, so shallow searches stay small
+    private final int[][] moves = new int[MAX_PLY + 1][];
+    private final int[][] orders = new int[MAX_PLY + 1][];
+    private final int maxMoves;
+    //hashes of the positions on the current search path, for detecting repetitions
+    private final long[] pathHashes = new long[MAX_PLY + 1];
+    //history[color][from * (MAX_FIELDS + 1) + to]: how often a quiet move caused a cutoff, weighted by depth
+    private final int[][] history = new int[2][(BoardModel.MAX_FIELDS + 1) * (BoardModel.MAX_FIELDS + 1)];
+
+    private volatile boolean stopped = false;
+    private long nodes;
+    private long maxNodes;
+    private long deadline;
+    private int rootHint;
+    private int rootBest;
+
+    /**
+     * Constructs a search on a board, with a transposition table of the configured size.
+     *
+     * @param board     The board to search; it is changed during the search and restored afterwards.
+     * @param evaluator The evaluation of the leaves.
+     */
+    public AlphaBetaSearch(@NotNull BoardModel board, @NotNull Evaluator evaluator) {
+        this(board, evaluator, new TranspositionTable(TranspositionTable.configuredMegabytes()));
+    }
+
+    /**
+     * Constructs a search on a board.
+     *
+     * @param board     The board to search; it is changed during the search and restored afterwards.
+     * @param evaluator The evaluation of the leaves.
+     * @param table     The transposition table, which can be shared with other searches.
+     */
+    public AlphaBetaSearch(@NotNull BoardModel board, @NotNull Evaluator evaluator, @NotNull TranspositionTable table) {
+        this.board = board;
+        this.evaluator = evaluator;
+        this.table = table;
+        this.maxMoves = MoveGenerator.maxMoves(board);
+    }
+
+    /**
+     * Searches the position on the board for the best move of the player to move.
+     *
+     * @param maxDepth   The maximum depth, in plies.
+     * @param timeMillis The time limit in milliseconds, {@code 0} for no limit.
+     * @param maxNodes   The limit of visited positions, {@code 0} for no limit.
+     * @return The result of the deepest completed iteration. If not even the first iteration completed, the first
+     * legal move is returned with depth {@code 0}.
+     */
+    public SearchResult search(int maxDepth, long timeMillis, long maxNodes) {
+        long start = System.nanoTime();
+        prepare(timeMillis > 0 ? start + timeMillis * 1_000_000 : Long.MAX_VALUE, maxNodes);
+        table.newSearch();
+        return iterate(1, maxDepth, start);
+    }
+
+    /**
+     * Resets the counters and limits before a search. Called on the thread starting the search, so that a
+     * {@link #stop()} after this is never lost.
+     *
+     * @param deadline The {@link System#nanoTime()} at which the search stops, {@code Long.MAX_VALUE} for no limit.
+     * @param maxNodes The limit of visited positions, {@code 0} for no limit.
+     */
+    void prepare(long deadline, long maxNodes) {
+        stopped = false;
+        nodes = 0;
+        this.maxNodes = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        this.deadline = deadline;
+        for (int[] values : history) {
+            for (int i = 0; i < values.length; i++) values[i] >>= 1;
+        }
+    }
+
+    /**
+     * Runs the iterative deepening prepared by {@link #prepare(long, long)}.
+     *
+     * @param firstDepth The depth of the first iteration.
+     * @param maxDepth   The maximum depth, in plies.
+     * @param start      The {@link System#nanoTime()} the search started at.
+     * @return The result of the deepest completed iteration, see {@link #search(int, long, long)}.
+     */
+    SearchResult iterate(int firstDepth, int maxDepth, long start) {
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completed = 0;
+        rootHint = Move.NONE;
+        for (int depth = firstDepth; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            rootBest = Move.NONE;
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+            if (stopped) break;
+            bestMove = rootHint = rootBest;
+            bestScore = score;
+            completed = depth;
+            if (Math.abs(score) >= MATE - MAX_PLY) break; //the result of the game is decided
+        }
+        if (bestMove == Move.NONE) {
+            int count = MoveGenerator.generate(board, movesAt(0));
+            bestMove = count == 0 ? Move.NONE : moves[0][0];
+            bestScore = count == 0 ? -MATE : 0;
+        }
+        return new SearchResult(bestMove, bestScore, completed, nodes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Stops the running search as soon as possible. Can be called from any thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Gets the number of positions visited by the current or last search.
+     *
+     * @return The node count.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Sets the endgame tables probed at every node below the root. The tables must be thread-safe if they are shared
+     * with other searches.
+     *
+     * @param tablebase The tables, {@code null} for none.
+     */
+    public void setTablebase(@Nullable Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Gets the transposition table of the search.
+     *
+     * @return The table.
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * The negamax search with principal variation search.
+     *
+     * @param depth The remaining depth.
+     * @param alpha The lower bound of the window.
+     * @param beta  The upper bound of the window.
+     * @param ply   The distance from the root.
+     * @return The score of the position for the player to move.
+     */
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        if (stopped || nodes >= maxNodes || ++nodes % CHECK_INTERVAL == 0 && System.nanoTime() >= deadline) {
+            stopped = true;
+            return 0;
+        }
+        long hash = board.positionHash();
+        pathHashes[ply] = hash;
+        if (ply > 0 && isRepetition(ply)) return 0;
+        if (ply > 0 && tablebase != null) {
+            short value = tablebase.probe(board);
+            if (value != TablebaseValue.NOT_FOUND) return tablebaseScore(value, ply);
+        }
+        if (depth <= 0 || ply == MAX_PLY) {
+            return MoveGenerator.hasMoves(board) ? evaluator.evaluate(board) : -MATE + ply;
+        }
+
+        long entry = table.probe(hash);
+        int hint = ply == 0 && rootHint != Move.NONE ? rootHint : TranspositionTable.move(entry);
+        if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || bound == TranspositionTable.LOWER && score >= beta
+                    || bound == TranspositionTable.UPPER && score <= alpha) {
+                return score;
+            }
+        }
+
+        int[] list = movesAt(ply);
+        int count = MoveGenerator.generate(board, list);
+        if (count == 0) return -MATE + ply;
+        int[] order = orders[ply];
+        orderMoves(list, order, count, hint);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(list, order, i, count);
+            board.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                score = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+            board.unmakeMove();
+            if (stopped) return 0;
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (ply == 0) rootBest = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        if (!Move.hasRemoval(move)) {
+                            history[colorIndex(move)][historyIndex(move)] += depth * depth;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(hash, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Helper method to convert a value of the endgame tables to a score.
+     *
+     * @param value The value of the position, for the player to move.
+     * @param ply   The distance of the position from the root.
+     * @return The score relative to the root: wins and losses below {@link #TABLEBASE_WIN} by the plies to the end.
+     */
+    private static int tablebaseScore(short value, int ply) {
+        int plies = ply + TablebaseValue.distance(value);
+        if (TablebaseValue.isWin(value)) return TABLEBASE_WIN - plies;
+        if (TablebaseValue.isLoss(value)) return -TABLEBASE_WIN + plies;
+        return 0;
+    }
+
+    /**
+     * Helper method to convert a score to be stored in the transposition table. Won and lost scores count the plies
+     * from the root, so they are stored relative to the position instead.
+     *
+     * @param score The score relative to the root.
+     * @param ply   The distance of the position from the root.
+     * @return The score relative to the position.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= DECIDED) return score + ply;
+        if (score <= -DECIDED) return score - ply;
+        return score;
+    }
+
+    /**
+     * Helper method to convert a score read from the transposition table, the inverse of {@link #toTable(int, int)}.
+     *
+     * @param score The score relative to the position.
+     * @param ply   The distance of the position from the root.
+     * @return The score relative to the root.
+     */
+    private static int fromTable(int score, int ply) {
+        if (score >= DECIDED) return score - ply;
+        if (score <= -DECIDED) return score + ply;
+        return score;
+    }
+
+    /**
+     * Checks if the position at a ply already occurred on the search path with the same player to move.
+     *
+     * @param ply The distance from the root.
+     * @return {@code true} if the position is a repetition.
+     */
+    private boolean isRepetition(int ply) {
+        long hash = pathHashes[ply];
+        for (int i = ply - 2; i >= 0; i -= 2) {
+            if (pathHashes[i] == hash) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Helper method to get the move array of a ply, allocating it on first use.
+     *
+     * @param ply The distance from the root.
+     * @return The array to generate the moves of the ply into.
+     */
+    private int[] movesAt(int ply) {
+        if (moves[ply] == null) {
+            moves[ply] = new int[maxMoves];
+            orders[ply] = new int[maxMoves];
+        }
+        return moves[ply];
+    }
+
+    /**
+     * Helper method to give every move an ordering value, higher values are searched first.
+     *
+     * @param list  The moves.
+     * @param order The array to write the values to.
+     * @param count The number of moves.
+     * @param hint  A move expected to be the best, searched first if present.
+     */
+    private void orderMoves(int[] list, int[] order, int count, int hint) {
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            if (move == hint) {
+                order[i] = HINT_ORDER;
+            } else if (Move.hasRemoval(move)) {
+                order[i] = REMOVAL_ORDER + (board.isFieldInMill(Move.removed(move)) ? 0 : 1);
+            } else {
+                order[i] = Math.min(history[colorIndex(move)][historyIndex(move)], REMOVAL_ORDER - 1);
+            }
+        }
+    }
+
+    /**
+     * Helper method to move the best remaining move to a position, one step of a selection sort. Sorting lazily is
+     * cheaper, as most nodes only search a few moves before a cutoff.
+     *
+     * @param list  The moves.
+     * @param order The ordering values of the moves.
+     * @param index The position to fill.
+     * @param count The number of moves.
+     * @return The move now at the position.
+     */
+    private static int pickNext(int[] list, int[] order, int index, int count) {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (order[i] > order[best]) best = i;
+        }
+        if (best != index) {
+            int move = list[best];
+            list[best] = list[index];
+            list[index] = move;
+            int value = order[best];
+            order[best] = order[index];
+            order[index] = value;
+        }
+        return list[index];
+    }
+
+    private static int colorIndex(int move) {
+        return Move.color(move) == BoardModel.Color.LIGHT ? 0 : 1;
+    }
+
+    private static int historyIndex(int move) {
+        return Move.from(move) * (BoardModel.MAX_FIELDS + 1) + Move.to(move);
+    }
+}
@@ -0,0 +1,91 @@
+package org.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.model.BoardModel;
+
+/**
+ * Static evaluation of a position for the search, from the point of view of the player to move. The score is a
+ * weighted sum of simple features, each taken as the difference between the two players:
+ * <ul>
+ *     <li>material: the pieces a player still has in the game, counting the ones not yet placed,</li>
+ *     <li>mills: the groups fully covered by the player's pieces,</li>
+ *     <li>open twos: the groups with two of the player's pieces and an empty field, i.e. a mill one move away,</li>
+ *     <li>mobility: the number of (piece, empty neighbor) pairs, which decides the game once all pieces are placed.</li>
+ * </ul>
+ * The evaluation only reads the bitboards of the {@link BoardModel}, so it does not allocate.
+ */
+public final class Evaluator {
+    /**
+     * The weights used when no other weights are configured.
+     */
+    public static final Evaluator DEFAULT = new Evaluator(100, 30, 15, 5);
+
+    private final int materialWeight;
+    private final int millWeight;
+    private final int openTwoWeight;
+    private final int mobilityWeight;
+
+    /**
+     * Constructs an evaluator with the given weights.
+     *
+     * @param materialWeight The value of a piece.
+     * @param millWeight     The value of a closed mill.
+     * @param openTwoWeight  The value of a group with two own pieces and an empty field.
+     * @param mobilityWeight The value of a possible move of a piece to a neighboring field.
+     */
+    public Evaluator(int materialWeight, int millWeight, int openTwoWeight, int mobilityWeight) {
+        this.materialWeight = materialWeight;
+        this.millWeight = millWeight;
+        this.openTwoWeight = openTwoWeight;
+        this.mobilityWeight = mobilityWeight;
+    }
+
+    /**
+     * Evaluates a position.
+     *
+     * @param board The position.
+     * @return The score of the position for the player to move, positive if the position is good for them.
+     */
+    public int evaluate(@NotNull BoardModel board) {
+        BoardModel.Color side = board.getSideToMove();
+        BoardModel.Color opponent = side == BoardModel.Color.LIGHT ? BoardModel.Color.DARK : BoardModel.Color.LIGHT;
+        long own = board.getBitboard(side);
+        long other = board.getBitboard(opponent);
+        long empty = board.getBitboard(BoardModel.Color.EMPTY);
+
+        int score = materialWeight * (board.getPieceCount(side) - board.getPieceCount(opponent));
+        for (int i = 0; i < board.getNumberOfGroups(); i++) {
+            long group = board.getGroupMask(i);
+            int ownCount = Long.bitCount(own & group);
+            int otherCount = Long.bitCount(other & group);
+            if (ownCount == 3) {
+                score += millWeight;
+            } else if (otherCount == 3) {
+                score -= millWeight;
+            } else if ((empty & group) != 0) {
+                if (ownCount == 2) score += openTwoWeight;
+                else if (otherCount == 2) score -= openTwoWeight;
+            }
+        }
+        if (mobilityWeight != 0) {
+            score += mobilityWeight * (mobility(board, own, empty) - mobility(board, other, empty));
+        }
+        return score;
+    }
+
+    /**
+     * Helper method to count the moves of the pieces on a bitboard to neighboring empty fields.
+     *
+     * @param board  The position.
+     * @param pieces The bitboard of the pieces.
+     * @param empty  The bitboard of the empty fields.
+     * @return The number of possible moves.
+     */
+    private static int mobility(BoardModel board, long pieces, long empty) {
+        int count = 0;
+        for (; pieces != 0; pieces &= pieces - 1) {
+            count += Long.bitCount(board.getNeighborMask(Long.numberOfTrailingZeros(pieces) + 1) & empty);
+        }
+        return count;
+    }
+}
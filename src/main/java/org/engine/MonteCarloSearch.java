@@ -0,0 +1,499 @@
+package org.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.model.BoardModel;
+import org.model.Move;
+import org.model.MoveGenerator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multithreaded Monte Carlo Tree Search: every thread walks down a shared tree choosing children by UCT, expands the
+ * leaf it reaches once the leaf has been visited a few times, finishes the game with random moves (a playout) and adds
+ * the result to the nodes on its path. A thread counts its visit on the way down and its result on the way back, so
+ * while a playout runs, its nodes look like they lost it (virtual loss) and the other threads spread over other
+ * children.
+ * <p>
+ * The nodes live in primitive arrays, updated with atomic operations, so the tree creates no objects while it grows.
+ * The children of a node are stored next to each other and allocated together by the thread that expands the node.
+ * When the tree is full, leaves are no longer expanded, but the playouts go on. Playouts use
+ * {@link MoveGenerator} and {@link BoardModel#makeMove(int)} on a board per thread and do not allocate either; a
+ * playout is a draw after {@link #MAX_PLAYOUT_PLIES} plies.
+ * <p>
+ * The tree is kept between searches: if the position searched next is the root of the last search or follows from it
+ * by one or two moves, the subtree of that position is copied to the root of the tree, with all its statistics.
+ */
+public class MonteCarloSearch implements AutoCloseable {
+    /**
+     * The number of plies after which a playout counts as a draw.
+     */
+    public static final int MAX_PLAYOUT_PLIES = 200;
+    /**
+     * The exploration constant of UCT, for results between 0 (lost) and 1 (won).
+     */
+    public static final double EXPLORATION = 1.0;
+    /**
+     * The size of the tree, in megabytes, used by the game client unless configured otherwise.
+     */
+    public static final int DEFAULT_MEGABYTES = 64;
+
+    //the visits a leaf needs before it is expanded
+    static final int EXPAND_VISITS = 4;
+    //the deepest path through the tree
+    private static final int MAX_TREE_DEPTH = 256;
+    //the bytes of a node: move, first child, child count and visits, the score, in both buffers, and the origin
+    private static final int NODE_BYTES = 2 * (4 * Integer.BYTES + Long.BYTES) + Integer.BYTES;
+    //childCount of a leaf that is not expanded, or is being expanded by a thread
+    private static final int UNEXPANDED = -1;
+    private static final int EXPANDING = -2;
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final BoardModel board;
+    private final int capacity;
+    //the tree and the buffer the kept subtree is copied to, swapped after the copy
+    private Tree tree;
+    private Tree spare;
+    //origins[i]: the node of the old tree copied to node i of the new one
+    private final int[] origins;
+    //the position at the root of the tree, valid if hasRoot is set
+    private final BoardModel rootBoard;
+    private boolean hasRoot = false;
+    private final Worker mainWorker;
+    private final Worker[] helperWorkers;
+    private final ExecutorService helpers;
+
+    private volatile boolean stopped = false;
+    private long deadline;
+    private long visitLimit;
+
+    /**
+     * Constructs a search on a board.
+     *
+     * @param board     The board to search; it is not changed by the search.
+     * @param megabytes The memory of the tree, in megabytes.
+     * @param threads   The number of threads searching, at least {@code 1}.
+     * @throws IllegalArgumentException If the memory or the number of threads is less than 1.
+     */
+    public MonteCarloSearch(@NotNull BoardModel board, int megabytes, int threads) {
+        if (megabytes < 1) throw new IllegalArgumentException("The tree needs at least one megabyte");
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+        this.board = board;
+        capacity = (int) Math.min(Integer.MAX_VALUE - 8, (long) megabytes * (1 << 20) / NODE_BYTES);
+        tree = new Tree(capacity);
+        spare = new Tree(capacity);
+        origins = new int[capacity];
+        rootBoard = new BoardModel(board.getCompiledMap());
+        mainWorker = new Worker(0);
+        helperWorkers = new Worker[threads - 1];
+        for (int i = 0; i < helperWorkers.length; i++) {
+            helperWorkers[i] = new Worker(i + 1);
+        }
+        helpers = helperWorkers.length == 0 ? null : Executors.newFixedThreadPool(helperWorkers.length, runnable -> {
+            Thread thread = new Thread(runnable, "MonteCarloSearch helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the position on the board for the best move of the player to move, on every thread.
+     *
+     * @param timeMillis  The time limit in milliseconds, {@code 0} for no limit.
+     * @param maxPlayouts The limit of playouts, {@code 0} for no limit.
+     * @return The most visited move of the root; the score is the expected result of the move for the player to move,
+     * from {@code -1000} (lost) to {@code 1000} (won), the depth the deepest path through the tree and the nodes the
+     * number of playouts.
+     * @throws IllegalArgumentException If there is neither a time nor a playout limit.
+     */
+    public SearchResult search(long timeMillis, long maxPlayouts) {
+        if (timeMillis <= 0 && maxPlayouts <= 0) throw new IllegalArgumentException("The search needs a limit");
+        long start = System.nanoTime();
+        reuseTree();
+        Tree t = tree;
+        mainWorker.board.copyFrom(board);
+        int count = (int) INTS.getAcquire(t.childCount, 0);
+        if (count == UNEXPANDED) count = mainWorker.expand(t, 0);
+        if (count <= 0) {
+            return new SearchResult(Move.NONE, -1000, 0, 0, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        long rootVisits = t.visits[0];
+        stopped = false;
+        deadline = timeMillis > 0 ? start + timeMillis * 1_000_000 : Long.MAX_VALUE;
+        visitLimit = maxPlayouts > 0 ? Math.min(Integer.MAX_VALUE, rootVisits + maxPlayouts) : Integer.MAX_VALUE;
+        Future<?>[] futures = new Future<?>[helperWorkers.length];
+        for (int i = 0; i < helperWorkers.length; i++) {
+            Worker helper = helperWorkers[i];
+            helper.board.copyFrom(board);
+            futures[i] = helpers.submit(helper::run);
+        }
+        mainWorker.run();
+        stopped = true;
+        int depth = mainWorker.maxDepth;
+        for (int i = 0; i < futures.length; i++) {
+            join(futures[i]);
+            depth = Math.max(depth, helperWorkers[i].maxDepth);
+        }
+
+        int best = t.firstChild[0];
+        for (int child = best + 1; child < t.firstChild[0] + count; child++) {
+            if (t.visits[child] > t.visits[best]) best = child;
+        }
+        int visits = Math.max(1, t.visits[best]);
+        int score = (int) Math.round(t.scores[best] * 1000.0 / visits) - 1000;
+        return new SearchResult(t.moves[best], score, depth, t.visits[0] - rootVisits, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Helper method to wait for a helper thread.
+     *
+     * @param future The pending helper.
+     */
+    private static void join(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a helper thread", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A helper thread failed", e.getCause());
+        }
+    }
+
+    /**
+     * Helper method to keep the subtree of the position on the board, if the tree has it within two plies of its
+     * root, and to clear the tree otherwise.
+     */
+    private void reuseTree() {
+        int found = hasRoot ? findPosition() : -1;
+        if (found < 0) {
+            tree.reset();
+        } else if (found > 0) {
+            copySubtree(found);
+        }
+        rootBoard.copyFrom(board);
+        hasRoot = true;
+    }
+
+    /**
+     * Helper method to find the node of the position on the board among the root, its children and grandchildren.
+     *
+     * @return The node, {@code -1} if it is not in the tree.
+     */
+    private int findPosition() {
+        long hash = board.positionHash();
+        if (rootBoard.positionHash() == hash) return 0;
+        Tree t = tree;
+        for (int child = t.firstChild[0]; child < t.firstChild[0] + Math.max(0, t.childCount[0]); child++) {
+            rootBoard.makeMove(t.moves[child]);
+            int found = rootBoard.positionHash() == hash ? child : -1;
+            for (int next = t.firstChild[child]; found < 0 && next < t.firstChild[child] + Math.max(0, t.childCount[child]); next++) {
+                rootBoard.makeMove(t.moves[next]);
+                if (rootBoard.positionHash() == hash) found = next;
+                rootBoard.unmakeMove();
+            }
+            rootBoard.unmakeMove();
+            if (found >= 0) return found;
+        }
+        return -1;
+    }
+
+    /**
+     * Helper method to copy the subtree of a node to the spare buffer, breadth first, and make it the tree.
+     *
+     * @param node The node becoming the root.
+     */
+    private void copySubtree(int node) {
+        Tree from = tree;
+        Tree to = spare;
+        to.reset();
+        to.visits[0] = from.visits[node];
+        to.scores[0] = from.scores[node];
+        origins[0] = node;
+        int size = 1;
+        for (int i = 0; i < size; i++) {
+            int old = origins[i];
+            int count = from.childCount[old];
+            if (count <= 0) {
+                to.childCount[i] = count == 0 ? 0 : UNEXPANDED;
+                continue;
+            }
+            int first = from.firstChild[old];
+            to.firstChild[i] = size;
+            to.childCount[i] = count;
+            System.arraycopy(from.moves, first, to.moves, size, count);
+            System.arraycopy(from.visits, first, to.visits, size, count);
+            System.arraycopy(from.scores, first, to.scores, size, count);
+            for (int k = 0; k < count; k++) origins[size + k] = first + k;
+            size += count;
+        }
+        to.size.set(size);
+        tree = to;
+        spare = from;
+    }
+
+    /**
+     * Stops the running search as soon as possible. Can be called from any thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Gets the board the search runs on.
+     *
+     * @return The board.
+     */
+    public BoardModel getBoard() {
+        return board;
+    }
+
+    /**
+     * Gets the number of threads searching.
+     *
+     * @return The number of threads, including the calling one.
+     */
+    public int getThreads() {
+        return helperWorkers.length + 1;
+    }
+
+    /**
+     * Gets the number of nodes the tree can hold.
+     *
+     * @return The capacity of the tree.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of nodes in the tree.
+     *
+     * @return The size of the tree.
+     */
+    public int getTreeSize() {
+        return Math.min(capacity, tree.size.get());
+    }
+
+    /**
+     * Gets the number of playouts through the root of the tree, including the ones of earlier searches that were kept.
+     *
+     * @return The visits of the root.
+     */
+    public int getRootVisits() {
+        return tree.visits[0];
+    }
+
+    /**
+     * Stops the running search and shuts the helper threads down.
+     */
+    @Override
+    public void close() {
+        stop();
+        if (helpers != null) helpers.shutdown();
+    }
+
+    /**
+     * The nodes of a tree, node {@code 0} being the root. A node stores the move leading to it and the score of the
+     * player who made that move: 2 for every playout won, 1 for every draw.
+     */
+    private static final class Tree {
+        final int[] moves;
+        final int[] firstChild;
+        //the number of children, UNEXPANDED or EXPANDING; written last when a node is expanded
+        final int[] childCount;
+        final int[] visits;
+        final long[] scores;
+        final AtomicInteger size = new AtomicInteger();
+
+        Tree(int capacity) {
+            moves = new int[capacity];
+            firstChild = new int[capacity];
+            childCount = new int[capacity];
+            visits = new int[capacity];
+            scores = new long[capacity];
+            reset();
+        }
+
+        /**
+         * Clears the tree down to an unexpanded root.
+         */
+        void reset() {
+            moves[0] = Move.NONE;
+            childCount[0] = UNEXPANDED;
+            visits[0] = 0;
+            scores[0] = 0;
+            size.set(1);
+        }
+
+        /**
+         * Allocates consecutive nodes, initialized as unexpanded leaves of the given moves.
+         *
+         * @return The first node, {@code -1} if the tree is full.
+         */
+        int allocate(int[] from, int count) {
+            if (size.get() + count > moves.length) return -1;
+            int first = size.getAndAdd(count);
+            if (first + count > moves.length) return -1;
+            for (int i = 0; i < count; i++) {
+                moves[first + i] = from[i];
+                childCount[first + i] = UNEXPANDED;
+                visits[first + i] = 0;
+                scores[first + i] = 0;
+            }
+            return first;
+        }
+    }
+
+    /**
+     * The board, buffers and random generator of one thread.
+     */
+    private final class Worker {
+        private final BoardModel board = new BoardModel(MonteCarloSearch.this.board.getCompiledMap());
+        private final int[] moves = new int[MoveGenerator.maxMoves(board)];
+        private final int[] path = new int[MAX_TREE_DEPTH + 1];
+        private long random;
+        private int maxDepth;
+
+        Worker(int index) {
+            random = 0x9E3779B97F4A7C15L * (index + 1);
+        }
+
+        /**
+         * Runs playouts until the search is stopped or a limit is reached.
+         */
+        void run() {
+            maxDepth = 0;
+            for (int i = 0; !stopped; i++) {
+                if ((i & 255) == 255 && System.nanoTime() > deadline) {
+                    stopped = true;
+                    break;
+                }
+                if (!iterate(tree)) stopped = true;
+            }
+        }
+
+        /**
+         * Runs one playout: selection, expansion, the random game and the update of the nodes on the path.
+         *
+         * @return {@code false} if the limit of playouts was reached.
+         */
+        boolean iterate(Tree t) {
+            if ((int) INTS.getAndAdd(t.visits, 0, 1) >= visitLimit) {
+                INTS.getAndAdd(t.visits, 0, -1);
+                return false;
+            }
+            int node = 0;
+            int depth = 0;
+            BoardModel.Color winner;
+            while (true) {
+                int count = (int) INTS.getAcquire(t.childCount, node);
+                if (count == UNEXPANDED && (int) INTS.getOpaque(t.visits, node) >= EXPAND_VISITS && depth < MAX_TREE_DEPTH) {
+                    count = expand(t, node);
+                }
+                if (count < 0) {
+                    winner = playout();
+                    break;
+                }
+                if (count == 0) {
+                    winner = opponent(board.getSideToMove());
+                    break;
+                }
+                node = select(t, node, count);
+                INTS.getAndAdd(t.visits, node, 1);
+                board.makeMove(t.moves[node]);
+                path[++depth] = node;
+            }
+            maxDepth = Math.max(maxDepth, depth);
+
+            for (int i = depth; i > 0; i--) {
+                int mover = path[i];
+                BoardModel.Color color = Move.color(t.moves[mover]);
+                long points = winner == BoardModel.Color.EMPTY ? 1 : winner == color ? 2 : 0;
+                if (points != 0) LONGS.getAndAdd(t.scores, mover, points);
+                board.unmakeMove();
+            }
+            return true;
+        }
+
+        /**
+         * Expands a leaf, if no other thread is expanding it, with the moves of the position on the board.
+         *
+         * @return The number of children, or a negative value if the leaf was not expanded.
+         */
+        int expand(Tree t, int node) {
+            if (!INTS.compareAndSet(t.childCount, node, UNEXPANDED, EXPANDING)) return (int) INTS.getAcquire(t.childCount, node);
+            int count = MoveGenerator.generate(board, moves);
+            int first = count == 0 ? 0 : t.allocate(moves, count);
+            if (first < 0) {
+                INTS.setRelease(t.childCount, node, UNEXPANDED);
+                return UNEXPANDED;
+            }
+            t.firstChild[node] = first;
+            INTS.setRelease(t.childCount, node, count);
+            return count;
+        }
+
+        /**
+         * Chooses the child with the highest upper confidence bound, or the first one nobody has visited yet.
+         */
+        private int select(Tree t, int node, int count) {
+            int first = t.firstChild[node];
+            double logVisits = Math.log(Math.max(1, (int) INTS.getOpaque(t.visits, node)));
+            int best = first;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int child = first; child < first + count; child++) {
+                int visits = (int) INTS.getOpaque(t.visits, child);
+                if (visits == 0) return child;
+                double value = (long) LONGS.getOpaque(t.scores, child) / (2.0 * visits)
+                        + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    best = child;
+                    bestValue = value;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Finishes the game on the board with random moves and takes them back.
+         *
+         * @return The color of the winner, {@code Color.EMPTY} for a draw.
+         */
+        private BoardModel.Color playout() {
+            BoardModel.Color winner = BoardModel.Color.EMPTY;
+            int plies = 0;
+            for (; plies < MAX_PLAYOUT_PLIES; plies++) {
+                int count = MoveGenerator.generate(board, moves);
+                if (count == 0) {
+                    winner = opponent(board.getSideToMove());
+                    break;
+                }
+                board.makeMove(moves[nextInt(count)]);
+            }
+            for (; plies > 0; plies--) board.unmakeMove();
+            return winner;
+        }
+
+        /**
+         * Helper method to draw a random number below a bound with xorshift, which does not allocate.
+         */
+        private int nextInt(int bound) {
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            return (int) (((random >>> 32) * bound) >>> 32);
+        }
+    }
+
+    private static BoardModel.Color opponent(BoardModel.Color color) {
+        return color == BoardModel.Color.LIGHT ? BoardModel.Color.DARK : BoardModel.Color.LIGHT;
+    }
+}
@@ -0,0 +1,161 @@
+package org.engine;
+
+import org.engine.tablebase.Tablebase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.model.BoardModel;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Multithreaded search in the style of Lazy SMP: every thread runs its own {@link AlphaBetaSearch} on its own copy of
+ * the position, and the threads only cooperate through a shared {@link TranspositionTable}. The helper threads
+ * start half of their iterations one ply deeper than the main thread, so they fill the table with results the main
+ * thread needs next.
+ * <p>
+ * The search runs on the calling thread and {@code threads - 1} helper threads, which are created once and reused by
+ * every search until {@link #close()} is called. When the main thread finishes, the helpers are stopped, and the best
+ * move of the deepest iteration any thread completed is returned, with the nodes of all threads added up.
+ */
+public class ParallelSearch implements AutoCloseable {
+    private final BoardModel board;
+    private final TranspositionTable table;
+    private final AlphaBetaSearch mainSearch;
+    private final BoardModel[] helperBoards;
+    private final AlphaBetaSearch[] helperSearches;
+    private final ExecutorService helpers;
+
+    /**
+     * Constructs a search on a board.
+     *
+     * @param board     The board to search; it is changed during the search and restored afterwards.
+     * @param evaluator The evaluation of the leaves.
+     * @param table     The transposition table shared by the threads.
+     * @param threads   The number of threads searching, at least {@code 1}.
+     * @throws IllegalArgumentException If the number of threads is less than 1.
+     */
+    public ParallelSearch(@NotNull BoardModel board, @NotNull Evaluator evaluator, @NotNull TranspositionTable table, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+        this.board = board;
+        this.table = table;
+        mainSearch = new AlphaBetaSearch(board, evaluator, table);
+        helperBoards = new BoardModel[threads - 1];
+        helperSearches = new AlphaBetaSearch[threads - 1];
+        for (int i = 0; i < helperBoards.length; i++) {
+            helperBoards[i] = new BoardModel(board.getCompiledMap());
+            helperSearches[i] = new AlphaBetaSearch(helperBoards[i], evaluator, table);
+        }
+        helpers = helperBoards.length == 0 ? null : Executors.newFixedThreadPool(helperBoards.length, runnable -> {
+            Thread thread = new Thread(runnable, "ParallelSearch helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the position on the board for the best move of the player to move, on every thread.
+     *
+     * @param maxDepth   The maximum depth, in plies.
+     * @param timeMillis The time limit in milliseconds, {@code 0} for no limit.
+     * @param maxNodes   The limit of positions visited by each thread, {@code 0} for no limit.
+     * @return The result of the deepest iteration completed by any thread, with the nodes of every thread.
+     */
+    public SearchResult search(int maxDepth, long timeMillis, long maxNodes) {
+        long start = System.nanoTime();
+        long deadline = timeMillis > 0 ? start + timeMillis * 1_000_000 : Long.MAX_VALUE;
+        table.newSearch();
+        mainSearch.prepare(deadline, maxNodes);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Future<SearchResult>[] futures = new Future[helperSearches.length];
+        for (int i = 0; i < helperSearches.length; i++) {
+            AlphaBetaSearch helper = helperSearches[i];
+            int firstDepth = 1 + i % 2;
+            helperBoards[i].copyFrom(board);
+            helper.prepare(deadline, maxNodes);
+            futures[i] = helpers.submit(() -> helper.iterate(firstDepth, maxDepth, start));
+        }
+
+        SearchResult best = mainSearch.iterate(1, maxDepth, start);
+        long nodes = best.nodes();
+        for (AlphaBetaSearch helper : helperSearches) {
+            helper.stop();
+        }
+        for (Future<SearchResult> future : futures) {
+            SearchResult result = join(future);
+            nodes += result.nodes();
+            if (result.depth() > best.depth()) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.move(), best.score(), best.depth(), nodes, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Helper method to wait for the result of a helper thread.
+     *
+     * @param future The pending result.
+     * @return The result of the helper.
+     */
+    private static SearchResult join(Future<SearchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a helper thread", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A helper thread failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stops the running search as soon as possible. Can be called from any thread.
+     */
+    public void stop() {
+        mainSearch.stop();
+        for (AlphaBetaSearch helper : helperSearches) {
+            helper.stop();
+        }
+    }
+
+    /**
+     * Sets the endgame tables probed by every thread, see {@link AlphaBetaSearch#setTablebase(Tablebase)}.
+     *
+     * @param tablebase The thread-safe tables, {@code null} for none.
+     */
+    public void setTablebase(@Nullable Tablebase tablebase) {
+        mainSearch.setTablebase(tablebase);
+        for (AlphaBetaSearch helper : helperSearches) {
+            helper.setTablebase(tablebase);
+        }
+    }
+
+    /**
+     * Gets the number of threads searching.
+     *
+     * @return The number of threads, including the calling one.
+     */
+    public int getThreads() {
+        return helperSearches.length + 1;
+    }
+
+    /**
+     * Gets the transposition table shared by the threads.
+     *
+     * @return The table.
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Stops the running search and shuts the helper threads down.
+     */
+    @Override
+    public void close() {
+        stop();
+        if (helpers != null) helpers.shutdown();
+    }
+}
@@ -0,0 +1,242 @@
+package org.engine;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.jetbrains.annotations.NotNull;
+import org.model.BoardModel;
+import org.model.MapStore;
+import org.model.Move;
+import org.model.MoveGenerator;
+import org.model.SaveState;
+import org.model.SaveStateFormat;
+import org.util.MapModel;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the move sequences of a given length from a position (perft), to check {@link MoveGenerator} and
+ * {@link BoardModel#makeMove(int)}/{@link BoardModel#unmakeMove()} against known counts and to measure their speed.
+ * A move is a whole turn, including the removal of a piece after a mill, and positions without a move end their
+ * sequences, so they are not counted below their depth.
+ * <p>
+ * The moves of the root are split over a {@link ForkJoinPool}, every task walking its subtree on its own board. The
+ * counts of subtrees can be cached by the Zobrist hash of their position and the remaining depth, in a table shared by
+ * the tasks; positions reached by different sequences are then only walked once. A hash collision could give a wrong
+ * count, so the counts meant to check the move generator should also be run without the cache.
+ */
+public class Perft {
+    //the counts of the last level are the numbers of moves, the moves are not made
+    private static final int BULK_DEPTH = 1;
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final BoardModel board;
+    private final ForkJoinPool pool;
+    //pairs of (hash ^ data, data), data being the count shifted left by 8 bits and the depth
+    private final long[] cache;
+    private final int cacheMask;
+
+    /**
+     * Constructs a perft of the position on a board.
+     *
+     * @param board          The position; it is not changed.
+     * @param pool           The pool the moves of the root are counted on.
+     * @param cacheMegabytes The size of the subtree cache in megabytes, {@code 0} for none.
+     * @throws IllegalArgumentException If the size of the cache is negative.
+     */
+    public Perft(@NotNull BoardModel board, @NotNull ForkJoinPool pool, int cacheMegabytes) {
+        if (cacheMegabytes < 0) throw new IllegalArgumentException("The size of the cache cannot be negative");
+        this.board = board;
+        this.pool = pool;
+        if (cacheMegabytes == 0) {
+            cache = null;
+            cacheMask = 0;
+        } else {
+            //a power of two of entries of 16 bytes
+            int entries = Integer.highestOneBit((int) Math.min(1 << 30, (long) cacheMegabytes * (1 << 20) / 16));
+            cache = new long[2 * entries];
+            cacheMask = entries - 1;
+        }
+    }
+
+    /**
+     * Counts the move sequences of a length, split by the first move.
+     *
+     * @param depth The length of the sequences, in moves.
+     * @return The counts per move of the root and in total.
+     * @throws IllegalArgumentException If the depth is negative or above 255.
+     */
+    public Result divide(int depth) {
+        if (depth < 0 || depth > 0xFF) throw new IllegalArgumentException("Invalid depth: " + depth);
+        long start = System.nanoTime();
+        if (depth == 0) return new Result(new int[0], new long[0], 1, (System.nanoTime() - start) / 1_000_000);
+        int[] moves = new int[MoveGenerator.maxMoves(board)];
+        int count = MoveGenerator.generate(board, moves);
+        List<RecursiveTask<Long>> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            tasks.add(new RecursiveTask<>() {
+                @Override
+                protected Long compute() {
+                    BoardModel copy = new BoardModel(board.getCompiledMap());
+                    copy.copyFrom(board);
+                    copy.makeMove(move);
+                    return new Walker(copy, depth - 1).count(depth - 1);
+                }
+            });
+        }
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                ForkJoinTask.invokeAll(tasks);
+                return null;
+            }
+        });
+        long[] counts = new long[count];
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            counts[i] = tasks.get(i).join();
+            total += counts[i];
+        }
+        return new Result(Arrays.copyOf(moves, count), counts, total, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Counts the move sequences of a length.
+     *
+     * @param depth The length of the sequences, in moves.
+     * @return The number of sequences.
+     * @throws IllegalArgumentException If the depth is negative or above 255.
+     */
+    public long count(int depth) {
+        return divide(depth).total();
+    }
+
+    /**
+     * The board and move lists of a task.
+     */
+    private final class Walker {
+        private final BoardModel board;
+        private final int[][] moves;
+
+        Walker(BoardModel board, int depth) {
+            this.board = board;
+            moves = new int[Math.max(1, depth)][MoveGenerator.maxMoves(board)];
+        }
+
+        long count(int depth) {
+            if (depth == 0) return 1;
+            int[] list = moves[depth - 1];
+            int count = MoveGenerator.generate(board, list);
+            if (depth == BULK_DEPTH) return count;
+            long hash = board.positionHash();
+            if (cache != null) {
+                int slot = 2 * (int) (hash & cacheMask);
+                long data = (long) LONGS.getOpaque(cache, slot + 1);
+                long check = (long) LONGS.getOpaque(cache, slot);
+                if ((check ^ data) == hash && (data & 0xFF) == depth) return data >>> 8;
+            }
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                board.makeMove(list[i]);
+                total += count(depth - 1);
+                board.unmakeMove();
+            }
+            if (cache != null) {
+                int slot = 2 * (int) (hash & cacheMask);
+                long data = total << 8 | depth;
+                LONGS.setOpaque(cache, slot, hash ^ data);
+                LONGS.setOpaque(cache, slot + 1, data);
+            }
+            return total;
+        }
+    }
+
+    /**
+     * The counts of a perft.
+     *
+     * @param moves  The moves of the root.
+     * @param counts The number of sequences starting with every move of the root.
+     * @param total  The number of sequences.
+     * @param millis The time the count took, in milliseconds.
+     */
+    public record Result(int[] moves, long[] counts, long total, long millis) {
+        /**
+         * Gets the speed of the count.
+         *
+         * @return The number of sequences counted per second.
+         */
+        public long nodesPerSecond() {
+            return millis == 0 ? total * 1000 : total * 1000 / millis;
+        }
+
+        /**
+         * Lists the counts per move of the root, one per line, followed by the total.
+         *
+         * @return The divide output.
+         */
+        public String divideString() {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < moves.length; i++) {
+                builder.append(Move.toString(moves[i])).append(": ").append(counts[i]).append('\n');
+            }
+            return builder.append("total: ").append(total).toString();
+        }
+
+        @Override
+        public String toString() {
+            return total + " in " + millis + " ms (" + nodesPerSecond() + " nps)";
+        }
+    }
+
+    /**
+     * Runs a perft from the command line: {@code Perft <map or save file> <depth> [threads] [cache megabytes]}. The
+     * file is a map, counted from its initial position, or a JSON or binary save, counted from the saved position.
+     * The counts of every depth up to the given one are printed, and the divide of the last one.
+     *
+     * @param args The arguments.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: Perft <map or save file> <depth> [threads] [cache megabytes]");
+            return;
+        }
+        BoardModel board;
+        if (args[0].endsWith(SaveStateFormat.EXTENSION)) {
+            board = SaveStateFormat.read(Paths.get(args[0]), new MapStore(Paths.get("maps"), Paths.get(MapStore.FOLDER))).toBoard();
+        } else {
+            Gson gson = new Gson();
+            JsonObject json;
+            try (FileReader reader = new FileReader(args[0])) {
+                json = gson.fromJson(reader, JsonObject.class);
+            }
+            board = json.has("mapModel") ? gson.fromJson(json, SaveState.class).toBoard()
+                    : new BoardModel(gson.fromJson(json, MapModel.class));
+        }
+        int depth = Integer.parseInt(args[1]);
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int megabytes = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Perft perft = new Perft(board, pool, megabytes);
+            Result result = null;
+            for (int d = 1; d <= depth; d++) {
+                result = perft.divide(d);
+                System.out.println("perft " + d + ": " + result);
+            }
+            if (result != null) System.out.println(result.divideString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.engine;
+
+import org.model.Move;
+
+/**
+ * The outcome of a search.
+ *
+ * @param move   The best move found, encoded by {@link Move}; {@link Move#NONE} if the player to move has lost.
+ * @param score  The score of the move for the player to move, see {@link AlphaBetaSearch#MATE} for won and lost
+ *               positions.
+ * @param depth  The depth of the deepest completed iteration.
+ * @param nodes  The number of positions visited.
+ * @param millis The time the search took, in milliseconds.
+ */
+public record SearchResult(int move, int score, int depth, long nodes, long millis) {
+
+    /**
+     * Gets the speed of the search.
+     *
+     * @return The number of positions visited per second.
+     */
+    public long nodesPerSecond() {
+        return millis == 0 ? nodes * 1000 : nodes * 1000 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return Move.toString(move) + " score " + score + " depth " + depth + " nodes " + nodes + " (" + nodesPerSecond() + " nps)";
+    }
+}
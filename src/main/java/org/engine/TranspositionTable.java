@@ -0,0 +1,240 @@
+package org.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size transposition table for the search, storing the results of already searched positions by their Zobrist
+ * hash. It is backed by a single {@code long[]} allocated once, and can be shared by several search threads without
+ * any locking.
+ * <p>
+ * Every entry takes two {@code long}s: the data, packing the score, depth, bound, best move and the generation of the
+ * search, and the hash XOR-ed with the data. A reader only accepts an entry if XOR-ing the two gives back its hash, so
+ * an entry torn by two threads writing at the same time is seen as a miss, never as a wrong result.
+ * <p>
+ * Entries are grouped in buckets of two: the first slot keeps the deepest result (it is only replaced by a result at
+ * least as deep, or by any result once its search is over), the second slot always takes the newest one.
+ * <p>
+ * Layout of the data of an entry:
+ * <pre>
+ * bits  0-21: the best move, encoded by {@code Move}
+ * bits 22-43: the score, offset by 2^21
+ * bits 44-50: the depth
+ * bits 51-52: the bound, see {@link #EXACT}, {@link #LOWER} and {@link #UPPER}
+ * bits 53-60: the generation of the search that stored the entry
+ * bit     63: set in every entry, so the data is never 0
+ * </pre>
+ */
+public final class TranspositionTable {
+    /**
+     * The bound of a score that is the exact value of the position.
+     */
+    public static final int EXACT = 0;
+    /**
+     * The bound of a score that is a lower bound of the value of the position (the search failed high).
+     */
+    public static final int LOWER = 1;
+    /**
+     * The bound of a score that is an upper bound of the value of the position (the search failed low).
+     */
+    public static final int UPPER = 2;
+
+    /**
+     * The system property the size of the table is read from by {@link #configuredMegabytes()}.
+     */
+    public static final String SIZE_PROPERTY = "millgame.hashMegabytes";
+    /**
+     * The size of the table in megabytes if it is not configured.
+     */
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+    private static final int SCORE_SHIFT = 22;
+    private static final int SCORE_OFFSET = 1 << 21;
+    private static final int DEPTH_SHIFT = 44;
+    private static final int BOUND_SHIFT = 51;
+    private static final int GENERATION_SHIFT = 53;
+    private static final long VALID = 1L << 63;
+
+    private final long[] table;
+    private final long bucketMask;
+    private volatile int generation = 0;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    /**
+     * Constructs a table using at most the given amount of memory. The number of entries is rounded down to a power of
+     * two.
+     *
+     * @param megabytes The size of the table in megabytes.
+     * @throws IllegalArgumentException If the size is not positive or too large for an array.
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1 || megabytes > 8 * 1024) {
+            throw new IllegalArgumentException("Invalid transposition table size: " + megabytes + " MB");
+        }
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / (2 * ENTRY_BYTES));
+        table = new long[(int) (buckets * 4)];
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Gets the size of the table set in the configuration, i.e. the {@value #SIZE_PROPERTY} system property.
+     *
+     * @return The configured size in megabytes, {@value #DEFAULT_MEGABYTES} if it is not set.
+     */
+    public static int configuredMegabytes() {
+        return Integer.getInteger(SIZE_PROPERTY, DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * Starts a new search: the entries of earlier searches stay usable, but can be replaced by any new entry.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Removes every entry and resets the counters. Must not be called while the table is in use.
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        probes.reset();
+        hits.reset();
+        collisions.reset();
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param hash The Zobrist hash of the position.
+     * @return The data of the entry, to be read with the static getters, or {@code 0} if the position is not found.
+     */
+    public long probe(long hash) {
+        int index = (int) (hash & bucketMask) << 2;
+        probes.increment();
+        for (int slot = index; slot < index + 4; slot += 2) {
+            long data = table[slot + 1];
+            if ((table[slot] ^ data) == hash && data != 0) {
+                hits.increment();
+                return data;
+            }
+        }
+        if (table[index + 1] != 0 || table[index + 3] != 0) {
+            collisions.increment();
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores the result of a search of a position.
+     *
+     * @param hash  The Zobrist hash of the position.
+     * @param move  The best move found, {@code Move.NONE} if there is none.
+     * @param score The score of the position, between {@code -2^21} and {@code 2^21}.
+     * @param depth The depth of the search, between {@code 0} and {@code 127}.
+     * @param bound The bound of the score: {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     */
+    public void store(long hash, int move, int score, int depth, int bound) {
+        int index = (int) (hash & bucketMask) << 2;
+        int currentGeneration = generation;
+        long data = VALID
+                | (move & 0x3FFFFFL)
+                | ((long) (score + SCORE_OFFSET) & 0x3FFFFFL) << SCORE_SHIFT
+                | (long) (depth & 0x7F) << DEPTH_SHIFT
+                | (long) (bound & 0x3) << BOUND_SHIFT
+                | (long) currentGeneration << GENERATION_SHIFT;
+        long old = table[index + 1];
+        int slot = index + 2;
+        if (old == 0
+                || (table[index] ^ old) == hash
+                || depth(old) <= depth
+                || generation(old) != currentGeneration) {
+            slot = index;
+        }
+        table[slot] = hash ^ data;
+        table[slot + 1] = data;
+    }
+
+    /**
+     * Gets the best move of an entry.
+     *
+     * @param data The data of the entry.
+     * @return The encoded move.
+     */
+    public static int move(long data) {
+        return (int) (data & 0x3FFFFFL);
+    }
+
+    /**
+     * Gets the score of an entry.
+     *
+     * @param data The data of the entry.
+     * @return The score.
+     */
+    public static int score(long data) {
+        return (int) ((data >>> SCORE_SHIFT) & 0x3FFFFFL) - SCORE_OFFSET;
+    }
+
+    /**
+     * Gets the depth of an entry.
+     *
+     * @param data The data of the entry.
+     * @return The depth the position was searched to.
+     */
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0x7F);
+    }
+
+    /**
+     * Gets the bound of an entry.
+     *
+     * @param data The data of the entry.
+     * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     */
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 0x3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> GENERATION_SHIFT) & 0xFF);
+    }
+
+    /**
+     * Gets the number of entries the table can hold.
+     *
+     * @return The capacity of the table.
+     */
+    public int capacity() {
+        return table.length / 2;
+    }
+
+    /**
+     * Gets the number of lookups since the table was created or cleared.
+     *
+     * @return The number of probes.
+     */
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    /**
+     * Gets the number of lookups that found their position.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that did not find their position because other positions took its bucket.
+     *
+     * @return The number of collisions.
+     */
+    public long getCollisions() {
+        return collisions.sum();
+    }
+}
@@ -0,0 +1,246 @@
+package org.engine.book;
+
+import com.google.gson.Gson;
+import org.engine.AlphaBetaSearch;
+import org.engine.Evaluator;
+import org.engine.TranspositionTable;
+import org.jetbrains.annotations.NotNull;
+import org.model.BoardModel;
+import org.model.BoardSymmetries;
+import org.model.CompiledMap;
+import org.model.MoveGenerator;
+import org.util.MapModel;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds an {@link OpeningBook} by self-play: games are played on several threads by {@link AlphaBetaSearch}es with a
+ * small node budget, with a random move now and then during the placing phase so the games spread over the openings.
+ * Every move of the placing phase is counted with the result of its game for the player who played it, under the
+ * canonical key of its position, and the statistics of all games are written as a sorted book file.
+ * <p>
+ * A game ends when a player cannot move, or as a draw when a position repeats or after {@link #MAX_PLIES} plies. Game
+ * {@code i} uses a random generator seeded with {@code seed + i} and searches with node budgets only, so a build gives
+ * the same book on any number of threads.
+ */
+public class BookBuilder {
+    /**
+     * The number of plies after which a game counts as a draw.
+     */
+    public static final int MAX_PLIES = 200;
+
+    private final MapModel mapModel;
+    private final BoardSymmetries symmetries;
+    private final int threads;
+    private final long nodesPerMove;
+    private final double randomMoveRate;
+    private final long seed;
+
+    /**
+     * Constructs a builder.
+     *
+     * @param mapModel       The map of the games.
+     * @param threads        The number of games played at the same time.
+     * @param nodesPerMove   The node budget of the search of every move.
+     * @param randomMoveRate The probability of a random move instead of the searched one in the placing phase.
+     * @param seed           The seed of the random moves.
+     * @throws IllegalArgumentException If the number of threads is less than 1.
+     */
+    public BookBuilder(@NotNull MapModel mapModel, int threads, long nodesPerMove, double randomMoveRate, long seed) {
+        if (threads < 1) throw new IllegalArgumentException("At least one thread is needed");
+        this.mapModel = mapModel;
+        this.symmetries = new BoardSymmetries(mapModel);
+        this.threads = threads;
+        this.nodesPerMove = nodesPerMove;
+        this.randomMoveRate = randomMoveRate;
+        this.seed = seed;
+    }
+
+    /**
+     * Plays the games and writes the book, through a temporary file which is then moved to the given one.
+     *
+     * @param games The number of games.
+     * @param file  The file of the book.
+     * @return The number of entries written.
+     * @throws IOException If the file cannot be written.
+     */
+    public long build(int games, @NotNull Path file) throws IOException {
+        Map<Entry, int[]> statistics = play(games);
+        List<Map.Entry<Entry, int[]>> sorted = new ArrayList<>(statistics.entrySet());
+        sorted.sort(Map.Entry.comparingByKey());
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(symmetries.get(0).getFields())
+                    .putLong(CompiledMap.of(mapModel).contentHash())
+                    .putLong(sorted.size());
+            for (Map.Entry<Entry, int[]> entry : sorted) {
+                if (buffer.remaining() < OpeningBook.ENTRY_BYTES) write(channel, buffer);
+                buffer.putLong(entry.getKey().key()).putInt(entry.getKey().move())
+                        .putInt(entry.getValue()[0]).putInt(entry.getValue()[1]);
+            }
+            write(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return sorted.size();
+    }
+
+    /**
+     * Helper method to write the buffered bytes to the file and clear the buffer.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Helper method to play the games on the worker threads, each collecting its own statistics, which are merged at
+     * the end.
+     *
+     * @return The games and points of every position and move.
+     */
+    private Map<Entry, int[]> play(int games) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<Map<Entry, int[]>>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    Map<Entry, int[]> statistics = new HashMap<>();
+                    Worker worker = new Worker();
+                    for (int game = next.getAndIncrement(); game < games; game = next.getAndIncrement()) {
+                        worker.play(new Random(seed + game), statistics);
+                    }
+                    return statistics;
+                }));
+            }
+            Map<Entry, int[]> merged = new HashMap<>();
+            for (Future<Map<Entry, int[]>> future : futures) {
+                future.get().forEach((entry, counts) -> merged.merge(entry, counts, (a, b) -> new int[]{a[0] + b[0], a[1] + b[1]}));
+            }
+            return merged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the book", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A self-play game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * A position and a move of the book, ordered like the entries of the book file.
+     *
+     * @param key  The canonical hash of the position.
+     * @param move The move, played from the canonical position.
+     */
+    private record Entry(long key, int move) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int compare = Long.compare(key, other.key);
+            return compare != 0 ? compare : Integer.compare(move, other.move);
+        }
+    }
+
+    /**
+     * The board, transposition table and buffers of one thread, reused for all of its games.
+     */
+    private final class Worker {
+        private final BoardModel board = new BoardModel(mapModel);
+        private final TranspositionTable table = new TranspositionTable(4);
+        private final int[] moves = new int[MoveGenerator.maxMoves(board)];
+        private final long[] keys = new long[MAX_PLIES];
+        private final int[] bookMoves = new int[MAX_PLIES];
+        private final BoardModel.Color[] movers = new BoardModel.Color[MAX_PLIES];
+        private final Set<Long> seen = new HashSet<>();
+
+        /**
+         * Plays a game from the start and adds its placing moves to the statistics.
+         */
+        void play(Random random, Map<Entry, int[]> statistics) {
+            //the board starts every game from the empty map, so taking back the last game restores it
+            while (board.getHistorySize() > 0) board.unmakeMove();
+            seen.clear();
+            //a fresh search and table, so a game does not depend on the games played before it on the thread
+            table.clear();
+            AlphaBetaSearch search = new AlphaBetaSearch(board, Evaluator.DEFAULT, table);
+            int placing = 0;
+            BoardModel.Color winner = BoardModel.Color.EMPTY;
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                int count = MoveGenerator.generate(board, moves);
+                if (count == 0) {
+                    winner = board.getSideToMove() == BoardModel.Color.LIGHT ? BoardModel.Color.DARK : BoardModel.Color.LIGHT;
+                    break;
+                }
+                boolean inBook = board.getPhase() == BoardModel.Phase.PLACING;
+                int move = inBook && random.nextDouble() < randomMoveRate ? moves[random.nextInt(count)]
+                        : search.search(AlphaBetaSearch.MAX_PLY, 0, nodesPerMove).move();
+                if (inBook) {
+                    int transform = symmetries.canonicalTransform(board.getBitboard(BoardModel.Color.LIGHT),
+                            board.getBitboard(BoardModel.Color.DARK));
+                    keys[placing] = symmetries.canonicalHash(board);
+                    bookMoves[placing] = symmetries.mapMove(move, transform);
+                    movers[placing++] = board.getSideToMove();
+                }
+                board.makeMove(move);
+                if (!inBook && !seen.add(board.positionHash())) break;
+            }
+
+            for (int i = 0; i < placing; i++) {
+                int points = winner == BoardModel.Color.EMPTY ? 1 : winner == movers[i] ? 2 : 0;
+                int[] counts = statistics.computeIfAbsent(new Entry(keys[i], bookMoves[i]), entry -> new int[2]);
+                counts[0]++;
+                counts[1] += points;
+            }
+        }
+    }
+
+    /**
+     * Builds a book from the command line: {@code BookBuilder <map file> <book file> <games> [threads] [nodes per
+     * move] [seed]}.
+     *
+     * @param args The arguments.
+     * @throws IOException If the map cannot be read or the book cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: BookBuilder <map file> <book file> <games> [threads] [nodes per move] [seed]");
+            return;
+        }
+        MapModel mapModel;
+        try (FileReader reader = new FileReader(args[0])) {
+            mapModel = new Gson().fromJson(reader, MapModel.class);
+        }
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long nodes = args.length > 4 ? Long.parseLong(args[4]) : 20_000;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+        long start = System.nanoTime();
+        long entries = new BookBuilder(mapModel, threads, nodes, 0.2, seed).build(Integer.parseInt(args[2]), Paths.get(args[1]));
+        System.out.println(entries + " entries in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
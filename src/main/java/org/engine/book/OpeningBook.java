@@ -0,0 +1,165 @@
+package org.engine.book;
+
+import org.jetbrains.annotations.NotNull;
+import org.model.BoardModel;
+import org.model.BoardSymmetries;
+import org.model.CompiledMap;
+import org.model.Move;
+import org.model.MoveGenerator;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An opening book: statistics of the moves played from positions of the placing phase, written by the
+ * {@link BookBuilder} and read through a memory map. Positions are keyed by the Zobrist hash of their canonical image
+ * (see {@link BoardSymmetries}), and the moves are stored as played from the canonical image, so a book entry covers
+ * every equivalent position.
+ * <p>
+ * Layout of a book file:
+ * <pre>
+ * int  magic "MGBK"
+ * int  version 2
+ * int  number of fields of the map
+ * long content hash of the map, see {@link CompiledMap#contentHash()}
+ * long number of entries
+ * entries, sorted by key and move:
+ *   long key     the canonical hash of the position
+ *   int  move    the move played from the canonical position, see {@link Move}
+ *   int  games   the number of games the move was played in
+ *   int  points  2 for every game the player moving won, 1 for every draw
+ * </pre>
+ * Looking a position up is a binary search over the entries, so it takes microseconds. The book is immutable and can
+ * be shared by threads.
+ */
+public final class OpeningBook {
+    static final int MAGIC = 0x4D47424B;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 28;
+    static final int ENTRY_BYTES = 20;
+    /**
+     * The default number of games a move needs before the book plays it.
+     */
+    public static final int DEFAULT_MIN_GAMES = 4;
+
+    private final BoardSymmetries symmetries;
+    private final MappedByteBuffer entries;
+    private final long count;
+    private final int minGames;
+
+    private OpeningBook(BoardSymmetries symmetries, MappedByteBuffer entries, long count, int minGames) {
+        this.symmetries = symmetries;
+        this.entries = entries;
+        this.count = count;
+        this.minGames = minGames;
+    }
+
+    /**
+     * Opens a book file.
+     *
+     * @param file     The file of the book.
+     * @param mapModel The map the book was built for.
+     * @param minGames The number of games a move needs before it is played.
+     * @return The book.
+     * @throws IOException If the file cannot be read, is not a book or is of another map.
+     */
+    public static OpeningBook open(@NotNull Path file, @NotNull MapModel mapModel, int minGames) throws IOException {
+        BoardSymmetries symmetries = new BoardSymmetries(mapModel);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) ;
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) throw new IOException("Not an opening book: " + file);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported opening book version " + version + ": " + file);
+            int fields = header.getInt();
+            if (fields != symmetries.get(0).getFields()) throw new IOException("The opening book is of another map: " + file);
+            if (header.getLong() != CompiledMap.of(mapModel).contentHash()) throw new IOException("The opening book is of another map: " + file);
+            long count = header.getLong();
+            long bytes = count * ENTRY_BYTES;
+            if (bytes > Integer.MAX_VALUE) throw new IOException("Opening book too large: " + file);
+            if (channel.size() < HEADER_BYTES + bytes) throw new IOException("Truncated opening book: " + file);
+            return new OpeningBook(symmetries, channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, bytes), count, minGames);
+        }
+    }
+
+    /**
+     * Gets the number of entries (position and move) of the book.
+     *
+     * @return The number of entries.
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Finds the best move of the book for the position on a board: the move with the highest score among the moves
+     * played in enough games, the most played one if the scores are equal.
+     *
+     * @param board The position.
+     * @return The legal move, {@link Move#NONE} if the position is not in the book.
+     */
+    public int bestMove(@NotNull BoardModel board) {
+        if (board.getNumberOfFields() != symmetries.get(0).getFields()) return Move.NONE;
+        int transform = symmetries.canonicalTransform(board.getBitboard(BoardModel.Color.LIGHT),
+                board.getBitboard(BoardModel.Color.DARK));
+        long key = symmetries.canonicalHash(board);
+
+        int best = Move.NONE;
+        long bestPoints = -1;
+        long bestGames = 0;
+        for (long i = find(key); i < count && key(i) == key; i++) {
+            int offset = (int) (i * ENTRY_BYTES);
+            int games = entries.getInt(offset + 12);
+            long points = entries.getInt(offset + 16);
+            if (games < minGames) continue;
+            //compares points / games without dividing
+            long compare = points * bestGames - bestPoints * games;
+            if (best == Move.NONE || compare > 0 || compare == 0 && games > bestGames) {
+                best = entries.getInt(offset + 8);
+                bestPoints = points;
+                bestGames = games;
+            }
+        }
+        if (best == Move.NONE) return Move.NONE;
+        int move = symmetries.mapMove(best, symmetries.inverse(transform));
+        return isLegal(board, move) ? move : Move.NONE;
+    }
+
+    /**
+     * Helper method to find the first entry of a key.
+     *
+     * @return The index of the first entry with a key not smaller than the given one.
+     */
+    private long find(long key) {
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (key(middle) < key) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private long key(long index) {
+        return entries.getLong((int) (index * ENTRY_BYTES));
+    }
+
+    /**
+     * Helper method to guard against hash collisions: the move must be legal in the position.
+     */
+    private static boolean isLegal(BoardModel board, int move) {
+        int[] moves = new int[MoveGenerator.maxMoves(board)];
+        int count = MoveGenerator.generate(board, moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,166 @@
+package org.engine.tablebase;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded least-recently-used cache of decompressed table blocks, keyed by a {@code long}. The cache is split into
+ * stripes by key, each guarded by its own lock, so threads probing different blocks rarely wait for each other. Every
+ * stripe keeps its entries in primitive arrays (a chained hash index and a doubly linked recency list), so lookups do
+ * not allocate.
+ */
+final class BlockCache {
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructs a cache.
+     *
+     * @param capacityBytes The maximum size of the cached blocks.
+     * @param blockBytes    The size of a block.
+     */
+    BlockCache(long capacityBytes, int blockBytes) {
+        long blocks = Math.max(STRIPES, capacityBytes / blockBytes);
+        int perStripe = (int) Math.min(Integer.MAX_VALUE >> 2, (blocks + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * Gets a cached block and marks it as the most recently used.
+     *
+     * @param key The key of the block.
+     * @return The block, {@code null} if it is not cached.
+     */
+    byte[] get(long key) {
+        byte[] block = stripes[stripe(key)].get(key);
+        (block == null ? misses : hits).increment();
+        return block;
+    }
+
+    /**
+     * Adds a block, evicting the least recently used block of its stripe if the stripe is full.
+     *
+     * @param key   The key of the block.
+     * @param block The block.
+     */
+    void put(long key, byte[] block) {
+        stripes[stripe(key)].put(key, block);
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    private static int stripe(long key) {
+        return (int) (mix(key) >>> 60) & (STRIPES - 1);
+    }
+
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ key >>> 29;
+    }
+
+    /**
+     * One stripe of the cache. Slots are filled in order until the stripe is full, then the least recently used slot
+     * is reused.
+     */
+    private static final class Stripe {
+        private final long[] keys;
+        private final byte[][] blocks;
+        //recency list, from head (most recent) to tail (least recent), -1 ends it
+        private final int[] newer;
+        private final int[] older;
+        //hash index: buckets hold the first slot + 1 of a chain, 0 for an empty bucket
+        private final int[] buckets;
+        private final int[] chain;
+        private int size = 0;
+        private int head = -1;
+        private int tail = -1;
+
+        Stripe(int capacity) {
+            keys = new long[capacity];
+            blocks = new byte[capacity][];
+            newer = new int[capacity];
+            older = new int[capacity];
+            chain = new int[capacity];
+            buckets = new int[Integer.highestOneBit(Math.max(1, capacity - 1)) << 1];
+        }
+
+        synchronized byte[] get(long key) {
+            int slot = find(key);
+            if (slot < 0) return null;
+            unlink(slot);
+            linkFirst(slot);
+            return blocks[slot];
+        }
+
+        synchronized void put(long key, byte[] block) {
+            int slot = find(key);
+            if (slot >= 0) {
+                unlink(slot);
+            } else {
+                if (size < keys.length) {
+                    slot = size++;
+                } else {
+                    slot = tail;
+                    unlink(slot);
+                    removeFromIndex(slot);
+                }
+                keys[slot] = key;
+                int bucket = bucket(key);
+                chain[slot] = buckets[bucket];
+                buckets[bucket] = slot + 1;
+            }
+            blocks[slot] = block;
+            linkFirst(slot);
+        }
+
+        private int find(long key) {
+            for (int slot = buckets[bucket(key)] - 1; slot >= 0; slot = chain[slot] - 1) {
+                if (keys[slot] == key) return slot;
+            }
+            return -1;
+        }
+
+        private void removeFromIndex(int slot) {
+            int bucket = bucket(keys[slot]);
+            if (buckets[bucket] == slot + 1) {
+                buckets[bucket] = chain[slot];
+                return;
+            }
+            for (int previous = buckets[bucket] - 1; previous >= 0; previous = chain[previous] - 1) {
+                if (chain[previous] == slot + 1) {
+                    chain[previous] = chain[slot];
+                    return;
+                }
+            }
+        }
+
+        private void unlink(int slot) {
+            if (newer[slot] >= 0) older[newer[slot]] = older[slot];
+            else head = older[slot];
+            if (older[slot] >= 0) newer[older[slot]] = newer[slot];
+            else tail = newer[slot];
+        }
+
+        private void linkFirst(int slot) {
+            newer[slot] = -1;
+            older[slot] = head;
+            if (head >= 0) newer[head] = slot;
+            head = slot;
+            if (tail < 0) tail = slot;
+        }
+
+        private int bucket(long key) {
+            return (int) mix(key) & (buckets.length - 1);
+        }
+    }
+}
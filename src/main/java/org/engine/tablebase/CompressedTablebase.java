@@ -0,0 +1,327 @@
+package org.engine.tablebase;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact endgame tables for probing: only win/draw/loss is kept, 2 bits per position, packed into blocks of
+ * {@link #BLOCK_VALUES} positions which are compressed one by one. The files are memory-mapped, and only the blocks
+ * that are probed are decompressed, into a bounded {@link BlockCache} shared by every subspace. Probing is
+ * thread-safe, so the tables can be used at the leaves of a parallel search.
+ * <p>
+ * Layout of a file ({@code tb-<own>-<opp>.wdl}):
+ * <pre>
+ * int   magic "MGWD"
+ * int   version 1
+ * int   number of fields of the map
+ * int   number of pieces of the player to move
+ * int   number of pieces of the opponent
+ * int   number of positions per block
+ * long  number of positions
+ * int   number of blocks
+ * int   reserved, 0
+ * long  offsets[number of blocks + 1]   the file offset of every compressed block, and the end of the last one
+ * byte  blocks[]                        zlib-compressed, 4 positions per byte from the low bits up
+ * </pre>
+ * The values are 0 for a draw, 1 for a win and 2 for a loss, for the player to move. The probed values are
+ * {@link TablebaseValue}s with an {@link TablebaseValue#UNKNOWN_DISTANCE unknown distance}.
+ */
+public final class CompressedTablebase implements Tablebase {
+    /**
+     * The number of positions in a block.
+     */
+    public static final int BLOCK_VALUES = 1 << 14;
+    static final int MAGIC = 0x4D475744;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 40;
+    private static final int BLOCK_BYTES = BLOCK_VALUES / 4;
+    //Blocks are mapped in windows of about this size, a mapping must stay below 2 GB
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private static final short WIN = TablebaseValue.win(TablebaseValue.UNKNOWN_DISTANCE);
+    private static final short LOSS = TablebaseValue.loss(TablebaseValue.UNKNOWN_DISTANCE);
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    private final PositionIndexer indexer;
+    //tables[own][opp], null where not covered
+    private final Table[][] tables;
+    private final BlockCache cache;
+
+    private CompressedTablebase(PositionIndexer indexer, Table[][] tables, BlockCache cache) {
+        this.indexer = indexer;
+        this.tables = tables;
+        this.cache = cache;
+    }
+
+    /**
+     * Opens the compressed table files in a directory.
+     *
+     * @param fields     The number of fields of the map the tables were solved for.
+     * @param directory  The directory of the files.
+     * @param cacheBytes The maximum size of the decompressed blocks kept in memory.
+     * @return The tables.
+     * @throws IOException If a file cannot be read or was written for another number of fields.
+     */
+    public static CompressedTablebase open(int fields, @NotNull Path directory, long cacheBytes) throws IOException {
+        PositionIndexer indexer = new PositionIndexer(fields);
+        Table[][] tables = new Table[fields + 1][fields + 1];
+        int id = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "tb-*-*.wdl")) {
+            for (Path file : files) {
+                Table table = Table.open(file, id++);
+                if (table.fields != fields || table.own + table.opp > fields
+                        || table.size != indexer.size(table.own, table.opp)) {
+                    throw new IOException("The endgame table does not belong to a map with " + fields + " fields: " + file);
+                }
+                tables[table.own][table.opp] = table;
+            }
+        }
+        return new CompressedTablebase(indexer, tables, new BlockCache(cacheBytes, BLOCK_BYTES));
+    }
+
+    /**
+     * Writes every subspace of solved tables as compressed files.
+     *
+     * @param source    The solved tables.
+     * @param directory The directory to write the files to.
+     * @throws IOException If a file cannot be written.
+     */
+    public static void write(@NotNull DistanceTablebase source, @NotNull Path directory) throws IOException {
+        Files.createDirectories(directory);
+        int fields = source.getIndexer().getFields();
+        for (int own = 0; own <= fields; own++) {
+            for (int opp = 0; opp <= fields - own; opp++) {
+                if (source.covers(own, opp)) {
+                    write(source, own, opp, directory.resolve("tb-" + own + "-" + opp + ".wdl"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to write one subspace, through a temporary file which is then moved to the given one.
+     */
+    private static void write(DistanceTablebase source, int own, int opp, Path file) throws IOException {
+        long size = source.getIndexer().size(own, opp);
+        int blocks = (int) ((size + BLOCK_VALUES - 1) / BLOCK_VALUES);
+        long[] offsets = new long[blocks + 1];
+        byte[] packed = new byte[BLOCK_BYTES];
+        byte[] compressed = new byte[BLOCK_BYTES + 64];
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            long position = HEADER_BYTES + (long) (blocks + 1) * Long.BYTES;
+            for (int b = 0; b < blocks; b++) {
+                long first = (long) b * BLOCK_VALUES;
+                int count = (int) Math.min(BLOCK_VALUES, size - first);
+                Arrays.fill(packed, (byte) 0);
+                for (int i = 0; i < count; i++) {
+                    packed[i >> 2] |= (byte) (wdl(source.probe(own, opp, first + i)) << ((i & 3) << 1));
+                }
+                deflater.reset();
+                deflater.setInput(packed, 0, (count + 3) >> 2);
+                deflater.finish();
+                int length = 0;
+                while (!deflater.finished()) {
+                    if (length == compressed.length) compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                    length += deflater.deflate(compressed, length, compressed.length - length);
+                }
+                offsets[b] = position;
+                ByteBuffer data = ByteBuffer.wrap(compressed, 0, length);
+                while (data.hasRemaining()) position += channel.write(data, position);
+            }
+            offsets[blocks] = position;
+
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES + (blocks + 1) * Long.BYTES);
+            head.putInt(MAGIC).putInt(VERSION).putInt(source.getIndexer().getFields()).putInt(own).putInt(opp)
+                    .putInt(BLOCK_VALUES).putLong(size).putInt(blocks).putInt(0);
+            head.asLongBuffer().put(offsets);
+            head.clear();
+            long at = 0;
+            while (head.hasRemaining()) at += channel.write(head, at);
+            channel.force(true);
+        } finally {
+            deflater.end();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int wdl(short value) {
+        return TablebaseValue.isWin(value) ? 1 : TablebaseValue.isLoss(value) ? 2 : 0;
+    }
+
+    @Override
+    public boolean covers(int ownCount, int oppCount) {
+        return ownCount >= 0 && oppCount >= 0 && ownCount < tables.length && oppCount < tables.length
+                && tables[ownCount][oppCount] != null;
+    }
+
+    @Override
+    public short probe(long own, long opp) {
+        int ownCount = Long.bitCount(own);
+        int oppCount = Long.bitCount(opp);
+        if (!covers(ownCount, oppCount)) return TablebaseValue.NOT_FOUND;
+        Table table = tables[ownCount][oppCount];
+        long index = indexer.rank(own, opp);
+        int block = (int) (index / BLOCK_VALUES);
+        int offset = (int) (index % BLOCK_VALUES);
+        long key = (long) table.id << 32 | block;
+        byte[] values = cache.get(key);
+        if (values == null) {
+            values = table.decompress(block);
+            cache.put(key, values);
+        }
+        return switch ((values[offset >> 2] >>> ((offset & 3) << 1)) & 3) {
+            case 1 -> WIN;
+            case 2 -> LOSS;
+            default -> TablebaseValue.DRAW;
+        };
+    }
+
+    /**
+     * Gets the number of probes answered from the cache of decompressed blocks.
+     *
+     * @return The number of cache hits.
+     */
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    /**
+     * Gets the number of probes that had to decompress a block.
+     *
+     * @return The number of cache misses.
+     */
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    /**
+     * A compressed file of one subspace, mapped read-only.
+     */
+    private static final class Table {
+        final int id;
+        final int fields;
+        final int own;
+        final int opp;
+        final long size;
+        final LongBuffer offsets;
+        //windows[w] maps the file from windowStarts[w] on, every block lies in a single window
+        final long[] windowStarts;
+        final MappedByteBuffer[] windows;
+
+        private Table(int id, int fields, int own, int opp, long size, LongBuffer offsets, long[] windowStarts, MappedByteBuffer[] windows) {
+            this.id = id;
+            this.fields = fields;
+            this.own = own;
+            this.opp = opp;
+            this.size = size;
+            this.offsets = offsets;
+            this.windowStarts = windowStarts;
+            this.windows = windows;
+        }
+
+        static Table open(Path file, int id) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                while (header.hasRemaining() && channel.read(header) >= 0) ;
+                header.flip();
+                if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                    throw new IOException("Not a compressed endgame table: " + file);
+                }
+                int version = header.getInt();
+                if (version != VERSION) throw new IOException("Unsupported endgame table version " + version + ": " + file);
+                int fields = header.getInt();
+                int own = header.getInt();
+                int opp = header.getInt();
+                int blockValues = header.getInt();
+                long size = header.getLong();
+                int blocks = header.getInt();
+                if (blockValues != BLOCK_VALUES || blocks != (size + BLOCK_VALUES - 1) / BLOCK_VALUES) {
+                    throw new IOException("Unsupported block size: " + file);
+                }
+                LongBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, (long) (blocks + 1) * Long.BYTES)
+                        .asLongBuffer();
+                if (offsets.get(blocks) > channel.size()) throw new IOException("Truncated endgame table: " + file);
+
+                List<Long> starts = new ArrayList<>();
+                List<MappedByteBuffer> windows = new ArrayList<>();
+                int first = 0;
+                while (first < blocks) {
+                    int last = first + 1;
+                    while (last < blocks && offsets.get(last + 1) - offsets.get(first) <= WINDOW_BYTES) last++;
+                    long start = offsets.get(first);
+                    starts.add(start);
+                    windows.add(channel.map(FileChannel.MapMode.READ_ONLY, start, offsets.get(last) - start));
+                    first = last;
+                }
+                return new Table(id, fields, own, opp, size, offsets, starts.stream().mapToLong(Long::longValue).toArray(),
+                        windows.toArray(new MappedByteBuffer[0]));
+            }
+        }
+
+        /**
+         * Decompresses a block.
+         *
+         * @param block The number of the block.
+         * @return The packed values of the block.
+         */
+        byte[] decompress(int block) {
+            long start = offsets.get(block);
+            int length = (int) (offsets.get(block + 1) - start);
+            int w = Arrays.binarySearch(windowStarts, start);
+            if (w < 0) w = -w - 2;
+            int count = (int) Math.min(BLOCK_VALUES, size - (long) block * BLOCK_VALUES);
+            byte[] values = new byte[(count + 3) >> 2];
+            Inflater inflater = INFLATERS.get();
+            inflater.reset();
+            inflater.setInput(windows[w].slice((int) (start - windowStarts[w]), length));
+            try {
+                int read = 0;
+                while (read < values.length && !inflater.finished()) {
+                    int n = inflater.inflate(values, read, values.length - read);
+                    if (n == 0 && inflater.needsInput()) break;
+                    read += n;
+                }
+                if (read != values.length) throw new IllegalStateException("Corrupt endgame table block " + block);
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt endgame table block " + block, e);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Compresses solved tables from the command line: {@code CompressedTablebase <number of fields> <directory of
+     * the solved tables> <output directory>}.
+     *
+     * @param args The arguments.
+     * @throws IOException If a table cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: CompressedTablebase <number of fields> <solved tables directory> <output directory>");
+            return;
+        }
+        int fields = Integer.parseInt(args[0]);
+        write(DistanceTablebase.open(fields, Paths.get(args[1])), Paths.get(args[2]));
+    }
+}
@@ -0,0 +1,83 @@
+package org.engine.tablebase;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Endgame tables with win/draw/loss and the distance to the end for every position, one {@link ValueTable} per number
+ * of pieces of the player to move and of the opponent, as produced by the {@link RetrogradeSolver}.
+ */
+public final class DistanceTablebase implements Tablebase {
+    private final PositionIndexer indexer;
+    //tables[own][opp], null where not covered
+    private final ValueTable[][] tables;
+
+    DistanceTablebase(@NotNull PositionIndexer indexer, @NotNull ValueTable[][] tables) {
+        this.indexer = indexer;
+        this.tables = tables;
+    }
+
+    /**
+     * Opens the table files ({@code tb-<own>-<opp>.dte}) in a directory.
+     *
+     * @param fields    The number of fields of the map the tables were solved for.
+     * @param directory The directory of the files.
+     * @return The tables, mapped read-only.
+     * @throws IOException If a file cannot be read or was solved for another number of fields.
+     */
+    public static DistanceTablebase open(int fields, @NotNull Path directory) throws IOException {
+        PositionIndexer indexer = new PositionIndexer(fields);
+        ValueTable[][] tables = new ValueTable[fields + 1][fields + 1];
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "tb-*-*.dte")) {
+            for (Path file : files) {
+                ValueTable table = ValueTable.open(file);
+                if (table.getFields() != fields || table.getOwn() + table.getOpp() > fields
+                        || table.size() != indexer.size(table.getOwn(), table.getOpp())) {
+                    throw new IOException("The endgame table does not belong to a map with " + fields + " fields: " + file);
+                }
+                tables[table.getOwn()][table.getOpp()] = table;
+            }
+        }
+        return new DistanceTablebase(indexer, tables);
+    }
+
+    /**
+     * Gets the indexer of the positions.
+     *
+     * @return The indexer.
+     */
+    public PositionIndexer getIndexer() {
+        return indexer;
+    }
+
+    @Override
+    public boolean covers(int ownCount, int oppCount) {
+        return ownCount >= 0 && oppCount >= 0 && ownCount < tables.length && oppCount < tables.length
+                && tables[ownCount][oppCount] != null;
+    }
+
+    @Override
+    public short probe(long own, long opp) {
+        int ownCount = Long.bitCount(own);
+        int oppCount = Long.bitCount(opp);
+        if (!covers(ownCount, oppCount)) return TablebaseValue.NOT_FOUND;
+        return tables[ownCount][oppCount].get(indexer.rank(own, opp));
+    }
+
+    /**
+     * Gets the value of an indexed position.
+     *
+     * @param ownCount The number of pieces of the player to move.
+     * @param oppCount The number of pieces of the opponent.
+     * @param index    The index of the position, see {@link PositionIndexer}.
+     * @return The value, {@link TablebaseValue#NOT_FOUND} if the numbers of pieces are not covered.
+     */
+    public short probe(int ownCount, int oppCount, long index) {
+        if (!covers(ownCount, oppCount)) return TablebaseValue.NOT_FOUND;
+        return tables[ownCount][oppCount].get(index);
+    }
+}
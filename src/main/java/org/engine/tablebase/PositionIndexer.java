@@ -0,0 +1,219 @@
+package org.engine.tablebase;
+
+import org.jetbrains.annotations.NotNull;
+import org.model.BoardModel;
+
+/**
+ * Maps the positions with a given number of pieces per player to dense indices and back, using the combinatorial number
+ * system: the pieces of the player to move are ranked among all fields, the opponent's pieces among the remaining
+ * ones, so every index in {@code [0, size(own, opp))} stands for exactly one position.
+ * <p>
+ * Positions are given as bitboards, field {@code i} being bit {@code i - 1}, either as the pieces of the player to
+ * move and of the opponent, or as the light and dark pieces and the player to move (the subspace of a position is
+ * then its number of light pieces, number of dark pieces and player to move). Ranking and unranking take O(fields)
+ * and do not allocate. See {@link SymmetricPositionIndexer} for indices reduced by the symmetries of the board.
+ */
+public final class PositionIndexer {
+    private final int fields;
+    private final long allFields;
+    //binomial[n][k] = n choose k
+    private final long[][] binomial;
+
+    /**
+     * Constructs an indexer for a board.
+     *
+     * @param fields The number of fields of the board, at most 64.
+     * @throws IllegalArgumentException If the number of fields is out of range.
+     */
+    public PositionIndexer(int fields) {
+        if (fields < 1 || fields > Long.SIZE) throw new IllegalArgumentException("Invalid number of fields: " + fields);
+        this.fields = fields;
+        allFields = fields == Long.SIZE ? -1L : (1L << fields) - 1;
+        binomial = new long[fields + 1][fields + 1];
+        for (int n = 0; n <= fields; n++) {
+            binomial[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                binomial[n][k] = binomial[n - 1][k - 1] + (k <= n - 1 ? binomial[n - 1][k] : 0);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of fields of the board.
+     *
+     * @return The number of fields.
+     */
+    public int getFields() {
+        return fields;
+    }
+
+    /**
+     * Gets the number of positions with the given numbers of pieces.
+     *
+     * @param own The number of pieces of the player to move.
+     * @param opp The number of pieces of the opponent.
+     * @return The size of the index space.
+     * @throws IllegalArgumentException If there are more pieces than fields.
+     * @throws ArithmeticException      If the size does not fit in a {@code long}.
+     */
+    public long size(int own, int opp) {
+        if (own < 0 || opp < 0 || own + opp > fields) {
+            throw new IllegalArgumentException("Invalid number of pieces: " + own + ", " + opp);
+        }
+        return Math.multiplyExact(binomial[fields][own], binomial[fields - own][opp]);
+    }
+
+    /**
+     * Gets the number of positions with the given numbers of light and dark pieces and player to move.
+     *
+     * @param lightCount The number of light pieces.
+     * @param darkCount  The number of dark pieces.
+     * @param sideToMove The player to move.
+     * @return The size of the index space.
+     * @throws IllegalArgumentException If there are more pieces than fields.
+     */
+    public long size(int lightCount, int darkCount, @NotNull BoardModel.Color sideToMove) {
+        return sideToMove == BoardModel.Color.DARK ? size(darkCount, lightCount) : size(lightCount, darkCount);
+    }
+
+    /**
+     * Computes the index of a position given by colors.
+     *
+     * @param light      The bitboard of the light pieces.
+     * @param dark       The bitboard of the dark pieces.
+     * @param sideToMove The player to move.
+     * @return The index of the position among the positions of its subspace.
+     */
+    public long rank(long light, long dark, @NotNull BoardModel.Color sideToMove) {
+        return sideToMove == BoardModel.Color.DARK ? rank(dark, light) : rank(light, dark);
+    }
+
+    /**
+     * Computes the index of the position on a board, see {@link #rank(long, long, BoardModel.Color)}. The pieces
+     * left to place and the {@code REMOVING} phase are not part of the index.
+     *
+     * @param board The position.
+     * @return The index of the position among the positions of its subspace.
+     */
+    public long rank(@NotNull BoardModel board) {
+        return rank(board.getBitboard(BoardModel.Color.LIGHT), board.getBitboard(BoardModel.Color.DARK), board.getSideToMove());
+    }
+
+    /**
+     * Gets the light pieces of an indexed position given by colors.
+     *
+     * @param index      The index of the position.
+     * @param lightCount The number of light pieces.
+     * @param darkCount  The number of dark pieces.
+     * @param sideToMove The player to move.
+     * @return The bitboard of the light pieces.
+     */
+    public long unrankLight(long index, int lightCount, int darkCount, @NotNull BoardModel.Color sideToMove) {
+        if (sideToMove != BoardModel.Color.DARK) return unrankOwn(index, lightCount, darkCount);
+        return unrankOpp(index, unrankOwn(index, darkCount, lightCount), lightCount);
+    }
+
+    /**
+     * Gets the dark pieces of an indexed position given by colors.
+     *
+     * @param index      The index of the position.
+     * @param light      The bitboard of the light pieces, see {@link #unrankLight(long, int, int, BoardModel.Color)}.
+     * @param darkCount  The number of dark pieces.
+     * @param sideToMove The player to move.
+     * @return The bitboard of the dark pieces.
+     */
+    public long unrankDark(long index, long light, int darkCount, @NotNull BoardModel.Color sideToMove) {
+        if (sideToMove != BoardModel.Color.DARK) return unrankOpp(index, light, darkCount);
+        return unrankOwn(index, darkCount, Long.bitCount(light));
+    }
+
+    /**
+     * Computes the index of a position.
+     *
+     * @param own The bitboard of the pieces of the player to move.
+     * @param opp The bitboard of the pieces of the opponent, disjoint from {@code own}.
+     * @return The index of the position among the positions with the same numbers of pieces.
+     */
+    public long rank(long own, long opp) {
+        int ownCount = Long.bitCount(own);
+        long free = allFields & ~own;
+        return rankSubset(own) * binomial[fields - ownCount][Long.bitCount(opp)] + rankSubset(Long.compress(opp, free));
+    }
+
+    /**
+     * Gets the pieces of the player to move of an indexed position.
+     *
+     * @param index    The index of the position.
+     * @param ownCount The number of pieces of the player to move.
+     * @param oppCount The number of pieces of the opponent.
+     * @return The bitboard of the pieces of the player to move.
+     */
+    public long unrankOwn(long index, int ownCount, int oppCount) {
+        return unrankSubset(index / binomial[fields - ownCount][oppCount], ownCount, fields);
+    }
+
+    /**
+     * Gets the pieces of the opponent of an indexed position.
+     *
+     * @param index    The index of the position.
+     * @param own      The bitboard of the pieces of the player to move, see {@link #unrankOwn(long, int, int)}.
+     * @param oppCount The number of pieces of the opponent.
+     * @return The bitboard of the pieces of the opponent.
+     */
+    public long unrankOpp(long index, long own, int oppCount) {
+        int ownCount = Long.bitCount(own);
+        long rest = index % binomial[fields - ownCount][oppCount];
+        return Long.expand(unrankSubset(rest, oppCount, fields - ownCount), allFields & ~own);
+    }
+
+    /**
+     * Gets a binomial coefficient.
+     *
+     * @param n The number of elements, at most the number of fields.
+     * @param k The number of chosen elements.
+     * @return {@code n} choose {@code k}, {@code 0} if {@code k > n}.
+     */
+    long binomial(int n, int k) {
+        return k > n ? 0 : binomial[n][k];
+    }
+
+    long getAllFields() {
+        return allFields;
+    }
+
+    /**
+     * Helper method to rank a set in the combinatorial number system: the set {@code c1 < c2 < ... < ck} (0-based
+     * bits) has the rank {@code C(c1, 1) + C(c2, 2) + ... + C(ck, k)}.
+     *
+     * @param set The set as a bitset.
+     * @return The rank of the set among the sets of the same size.
+     */
+    long rankSubset(long set) {
+        long rank = 0;
+        int k = 1;
+        for (; set != 0; set &= set - 1) {
+            rank += binomial[Long.numberOfTrailingZeros(set)][k++];
+        }
+        return rank;
+    }
+
+    /**
+     * Helper method to find the set of a rank, the inverse of {@link #rankSubset(long)}.
+     *
+     * @param rank The rank of the set.
+     * @param k    The size of the set.
+     * @param n    The number of elements to choose from.
+     * @return The set as a bitset.
+     */
+    long unrankSubset(long rank, int k, int n) {
+        long set = 0L;
+        int c = n - 1;
+        for (; k > 0; k--) {
+            while (binomial[c][k] > rank) c--;
+            rank -= binomial[c][k];
+            set |= 1L << c;
+            c--;
+        }
+        return set;
+    }
+}
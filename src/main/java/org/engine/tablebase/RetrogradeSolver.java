@@ -0,0 +1,449 @@
+package org.engine.tablebase;
+
+import com.google.gson.Gson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.util.MapModel;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solves the moving phase of a map by retrograde analysis, producing a {@link DistanceTablebase} with win/draw/loss
+ * and the distance to the end for every position with 3 to {@code maxPieces} pieces per player.
+ * <p>
+ * The positions are split into subspaces by the number of pieces of the player to move and of the opponent. A move
+ * either stays in the subspace of the opponent (the pair {@code (own, opp)} and {@code (opp, own)} is solved
+ * together), or removes a piece and leads to a subspace with one piece less, which is solved before. So the pairs are
+ * solved in the order of their total number of pieces, the pairs with the same total in parallel, and every pair
+ * is solved in passes over index ranges on a {@link ForkJoinPool}:
+ * <ol>
+ *     <li>an initial pass finds the positions without a move (lost) and looks up the moves that remove a piece in the
+ *     smaller tables,</li>
+ *     <li>pass {@code k} takes the positions resolved in pass {@code k - 1} and generates their predecessors by
+ *     unmoving a piece of the opponent, using the neighbors and groups of the map: the predecessors of a lost
+ *     position are won in {@code k} plies, a predecessor of a won position is lost in {@code k} plies if all of its
+ *     moves lead to positions won for the opponent in less than {@code k} plies,</li>
+ *     <li>the passes stop when a pass resolves nothing; the positions left are draws.</li>
+ * </ol>
+ * Tables larger than the heap limit are spilled to memory-mapped files in the output directory. Finished tables are
+ * saved there ({@code tb-<own>-<opp>.dte}), and a later run skips the pairs whose files exist.
+ */
+public class RetrogradeSolver {
+    //States only used while solving, see TablebaseValue
+    static final int PENDING_WIN_STATE = 3;
+    static final int PENDING_CHECK_STATE = 4;
+    //Index ranges smaller than this are not split further
+    private static final long SPLIT = 1 << 12;
+
+    private final Topology topology;
+    private final PositionIndexer indexer;
+    private final Path directory;
+    private final ForkJoinPool pool;
+    private final long heapLimitBytes;
+    //tables[own][opp]
+    private ValueTable[][] tables;
+
+    /**
+     * Constructs a solver for a map.
+     *
+     * @param mapModel       The map.
+     * @param directory      The directory of the table files, {@code null} to keep every table on the heap.
+     * @param pool           The pool the solver runs on.
+     * @param heapLimitBytes The size above which a table is spilled to a memory-mapped file.
+     * @throws IllegalArgumentException If the map is not valid for a board.
+     */
+    public RetrogradeSolver(@NotNull MapModel mapModel, @Nullable Path directory, @NotNull ForkJoinPool pool, long heapLimitBytes) {
+        this.topology = new Topology(mapModel);
+        this.indexer = new PositionIndexer(topology.fields);
+        this.directory = directory;
+        this.pool = pool;
+        this.heapLimitBytes = heapLimitBytes;
+    }
+
+    /**
+     * Solves every subspace with 3 to {@code maxPieces} pieces per player (and at most as many pieces as fields).
+     *
+     * @param maxPieces The maximum number of pieces of a player.
+     * @return The solved tables.
+     * @throws IOException If a table file cannot be read or written.
+     */
+    public DistanceTablebase solve(int maxPieces) throws IOException {
+        int fields = topology.fields;
+        tables = new ValueTable[fields + 1][fields + 1];
+        if (directory != null) Files.createDirectories(directory);
+        for (int total = 6; total <= Math.min(2 * maxPieces, fields); total++) {
+            List<RecursiveAction> pairs = new ArrayList<>();
+            for (int fewer = 3; fewer <= total - fewer; fewer++) {
+                int a = fewer;
+                int b = total - fewer;
+                if (b > maxPieces) continue;
+                if (!load(a, b)) {
+                    pairs.add(action(() -> solvePair(a, b)));
+                }
+            }
+            try {
+                pool.invoke(action(() -> ForkJoinTask.invokeAll(pairs)));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return new DistanceTablebase(indexer, tables);
+    }
+
+    /**
+     * Helper method to open the files of a pair of subspaces solved before.
+     *
+     * @return {@code true} if both tables were found.
+     */
+    private boolean load(int a, int b) throws IOException {
+        if (directory == null) return false;
+        Path first = directory.resolve(ValueTable.fileName(a, b));
+        Path second = directory.resolve(ValueTable.fileName(b, a));
+        if (!Files.exists(first) || !Files.exists(second)) return false;
+        tables[a][b] = ValueTable.open(first);
+        tables[b][a] = ValueTable.open(second);
+        return true;
+    }
+
+    /**
+     * Helper method to solve the subspaces with {@code a} pieces against {@code b} and {@code b} against {@code a}.
+     */
+    private void solvePair(int a, int b) {
+        int[][] subspaces = a == b ? new int[][]{{a, b}} : new int[][]{{a, b}, {b, a}};
+        try {
+            for (int[] s : subspaces) {
+                tables[s[0]][s[1]] = create(s[0], s[1]);
+            }
+
+            LongAccumulator lastPending = new LongAccumulator(Math::max, 0);
+            forEachRange(subspaces, (own, opp, from, to) -> initialize(own, opp, from, to, lastPending));
+            for (int k = 1; ; k++) {
+                if (k > TablebaseValue.MAX_DISTANCE) throw new IllegalStateException("Distance to the end out of range");
+                int pass = k;
+                LongAdder resolved = new LongAdder();
+                forEachRange(subspaces, (own, opp, from, to) -> resolve(own, opp, from, to, pass, resolved));
+                if (resolved.sum() == 0 && k >= lastPending.get()) break;
+            }
+            forEachRange(subspaces, this::finish);
+
+            for (int[] s : subspaces) {
+                tables[s[0]][s[1]] = store(tables[s[0]][s[1]], s[0], s[1]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Helper method to create an empty table, on the heap or spilled to a temporary file.
+     */
+    private ValueTable create(int own, int opp) throws IOException {
+        long size = indexer.size(own, opp);
+        if (directory != null && size * Short.BYTES > heapLimitBytes) {
+            return ValueTable.mapped(temporaryFile(own, opp), topology.fields, own, opp, size);
+        }
+        return ValueTable.onHeap(topology.fields, own, opp, size);
+    }
+
+    /**
+     * Helper method to write a solved table to its file, which is then mapped read-only in place of the table.
+     */
+    private ValueTable store(ValueTable table, int own, int opp) throws IOException {
+        if (directory == null) return table;
+        Path file = directory.resolve(ValueTable.fileName(own, opp));
+        if (table.isMapped()) {
+            table.force();
+            Files.move(temporaryFile(own, opp), file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            table.save(file);
+        }
+        return ValueTable.open(file);
+    }
+
+    private Path temporaryFile(int own, int opp) {
+        return directory.resolve(ValueTable.fileName(own, opp) + ".tmp");
+    }
+
+    /**
+     * Helper method to run a step over every index of the subspaces, split into ranges run in parallel.
+     */
+    private void forEachRange(int[][] subspaces, RangeStep step) {
+        List<RangeTask> tasks = new ArrayList<>();
+        for (int[] s : subspaces) {
+            tasks.add(new RangeTask(step, s[0], s[1], 0, tables[s[0]][s[1]].size()));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    /**
+     * Initial pass: positions without a move are lost, the moves removing a piece are looked up in the smaller
+     * tables. A removal winning the game makes the position won at the latest then, and if every removal loses, the
+     * position is lost unless another move leads somewhere better.
+     */
+    private void initialize(int ownCount, int oppCount, long from, long to, LongAccumulator lastPending) {
+        ValueTable table = tables[ownCount][oppCount];
+        ValueTable smaller = oppCount > 3 ? tables[oppCount - 1][ownCount] : null;
+        boolean flying = ownCount == 3;
+        long pending = 0;
+        for (long i = from; i < to; i++) {
+            long own = indexer.unrankOwn(i, ownCount, oppCount);
+            long opp = indexer.unrankOpp(i, own, oppCount);
+            long empty = topology.allFields & ~own & ~opp;
+            long removable = opp & ~topology.millFields(opp);
+            boolean moves = false;
+            boolean quiet = false;
+            boolean removalsLose = true;
+            int slowestLoss = -1;
+            int fastestWin = Integer.MAX_VALUE;
+
+            search:
+            for (long pieces = own; pieces != 0; pieces &= pieces - 1) {
+                int field = Long.numberOfTrailingZeros(pieces) + 1;
+                long rest = own & ~Topology.bit(field);
+                for (long targets = topology.targets(field, empty, flying); targets != 0; targets &= targets - 1) {
+                    int target = Long.numberOfTrailingZeros(targets) + 1;
+                    long after = rest | Topology.bit(target);
+                    moves = true;
+                    if (removable == 0 || !topology.formsMill(after, target)) {
+                        quiet = true;
+                        continue;
+                    }
+                    if (smaller == null) {
+                        fastestWin = 1;
+                        break search;
+                    }
+                    for (long victims = removable; victims != 0; victims &= victims - 1) {
+                        short child = smaller.get(indexer.rank(opp & ~(victims & -victims), after));
+                        int distance = TablebaseValue.distance(child);
+                        if (TablebaseValue.isLoss(child)) {
+                            fastestWin = Math.min(fastestWin, distance + 1);
+                        } else if (TablebaseValue.isWin(child)) {
+                            slowestLoss = Math.max(slowestLoss, distance);
+                        } else {
+                            removalsLose = false;
+                        }
+                    }
+                }
+            }
+
+            if (!moves) {
+                table.set(i, TablebaseValue.loss(0));
+                pending = Math.max(pending, 1);
+            } else if (fastestWin == 1) {
+                //no move wins faster than removing the opponent's last but two pieces
+                table.set(i, TablebaseValue.win(1));
+                pending = Math.max(pending, 2);
+            } else if (fastestWin != Integer.MAX_VALUE) {
+                table.set(i, TablebaseValue.encode(PENDING_WIN_STATE, fastestWin));
+                pending = Math.max(pending, fastestWin);
+            } else if (removalsLose && slowestLoss >= 0) {
+                if (quiet) {
+                    table.set(i, TablebaseValue.encode(PENDING_CHECK_STATE, slowestLoss + 1));
+                    pending = Math.max(pending, slowestLoss + 1);
+                } else {
+                    table.set(i, TablebaseValue.loss(slowestLoss + 1));
+                    pending = Math.max(pending, slowestLoss + 2);
+                }
+            }
+        }
+        lastPending.accumulate(pending);
+    }
+
+    /**
+     * Pass {@code k}: retro-analyzes the positions resolved in pass {@code k - 1} and resolves the pending positions
+     * whose distance has come.
+     */
+    private void resolve(int ownCount, int oppCount, long from, long to, int k, LongAdder resolved) {
+        ValueTable table = tables[ownCount][oppCount];
+        long count = 0;
+        for (long i = from; i < to; i++) {
+            short value = table.get(i);
+            int state = TablebaseValue.state(value);
+            int distance = TablebaseValue.distance(value);
+            if ((state == TablebaseValue.WIN_STATE || state == TablebaseValue.LOSS_STATE) && distance == k - 1) {
+                long own = indexer.unrankOwn(i, ownCount, oppCount);
+                long opp = indexer.unrankOpp(i, own, oppCount);
+                count += unmove(ownCount, oppCount, own, opp, state == TablebaseValue.LOSS_STATE, k);
+            } else if (state == PENDING_WIN_STATE && distance == k) {
+                table.set(i, TablebaseValue.win(k));
+                count++;
+            } else if (state == PENDING_CHECK_STATE && distance == k) {
+                long own = indexer.unrankOwn(i, ownCount, oppCount);
+                long opp = indexer.unrankOpp(i, own, oppCount);
+                if (isLost(ownCount, oppCount, own, opp, k)) {
+                    table.set(i, TablebaseValue.loss(k));
+                    count++;
+                }
+            }
+        }
+        resolved.add(count);
+    }
+
+    /**
+     * Helper method to update the predecessors of a resolved position: the positions the opponent moved from to reach
+     * it, without forming a mill that removes a piece.
+     *
+     * @return The number of predecessors resolved.
+     */
+    private int unmove(int ownCount, int oppCount, long own, long opp, boolean lost, int k) {
+        ValueTable previous = tables[oppCount][ownCount];
+        long empty = topology.allFields & ~own & ~opp;
+        boolean flying = oppCount == 3;
+        boolean ownRemovable = (own & ~topology.millFields(own)) != 0;
+        int count = 0;
+        for (long pieces = opp; pieces != 0; pieces &= pieces - 1) {
+            int target = Long.numberOfTrailingZeros(pieces) + 1;
+            //arriving here formed a mill, so the move would have removed a piece
+            if (ownRemovable && topology.formsMill(opp, target)) continue;
+            long rest = opp & ~Topology.bit(target);
+            for (long sources = topology.targets(target, empty, flying); sources != 0; sources &= sources - 1) {
+                long before = rest | (sources & -sources);
+                long index = indexer.rank(before, own);
+                int state = TablebaseValue.state(previous.get(index));
+                if (lost) {
+                    if (state == TablebaseValue.DRAW_STATE || state == PENDING_WIN_STATE || state == PENDING_CHECK_STATE) {
+                        previous.set(index, TablebaseValue.win(k));
+                        count++;
+                    }
+                } else if ((state == TablebaseValue.DRAW_STATE || state == PENDING_CHECK_STATE)
+                        && isLost(oppCount, ownCount, before, own, k)) {
+                    previous.set(index, TablebaseValue.loss(k));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Helper method to check whether every move of a position leads to a position won by the opponent in less than
+     * {@code k} plies.
+     */
+    private boolean isLost(int ownCount, int oppCount, long own, long opp, int k) {
+        ValueTable next = tables[oppCount][ownCount];
+        ValueTable smaller = oppCount > 3 ? tables[oppCount - 1][ownCount] : null;
+        long empty = topology.allFields & ~own & ~opp;
+        long removable = opp & ~topology.millFields(opp);
+        boolean flying = ownCount == 3;
+        boolean moves = false;
+        for (long pieces = own; pieces != 0; pieces &= pieces - 1) {
+            int field = Long.numberOfTrailingZeros(pieces) + 1;
+            long rest = own & ~Topology.bit(field);
+            for (long targets = topology.targets(field, empty, flying); targets != 0; targets &= targets - 1) {
+                int target = Long.numberOfTrailingZeros(targets) + 1;
+                long after = rest | Topology.bit(target);
+                moves = true;
+                if (removable == 0 || !topology.formsMill(after, target)) {
+                    if (!wonBefore(next.get(indexer.rank(opp, after)), k)) return false;
+                    continue;
+                }
+                if (smaller == null) return false;
+                for (long victims = removable; victims != 0; victims &= victims - 1) {
+                    if (!wonBefore(smaller.get(indexer.rank(opp & ~(victims & -victims), after)), k)) return false;
+                }
+            }
+        }
+        return moves;
+    }
+
+    private static boolean wonBefore(short value, int k) {
+        return TablebaseValue.isWin(value) && TablebaseValue.distance(value) < k;
+    }
+
+    /**
+     * Last pass: the positions still pending are draws.
+     */
+    private void finish(int ownCount, int oppCount, long from, long to) {
+        ValueTable table = tables[ownCount][oppCount];
+        for (long i = from; i < to; i++) {
+            int state = TablebaseValue.state(table.get(i));
+            if (state == PENDING_WIN_STATE || state == PENDING_CHECK_STATE) {
+                table.set(i, TablebaseValue.DRAW);
+            }
+        }
+    }
+
+    private static RecursiveAction action(Runnable runnable) {
+        return new RecursiveAction() {
+            @Override
+            protected void compute() {
+                runnable.run();
+            }
+        };
+    }
+
+    /**
+     * A step of a pass, run on a range of indices of a subspace.
+     */
+    @FunctionalInterface
+    private interface RangeStep {
+        void run(int ownCount, int oppCount, long from, long to);
+    }
+
+    /**
+     * Runs a step on a range of indices, splitting it in halves until it is small enough.
+     */
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient RangeStep step;
+        private final int ownCount;
+        private final int oppCount;
+        private final long from;
+        private final long to;
+
+        RangeTask(RangeStep step, int ownCount, int oppCount, long from, long to) {
+            this.step = step;
+            this.ownCount = ownCount;
+            this.oppCount = oppCount;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT) {
+                step.run(ownCount, oppCount, from, to);
+            } else {
+                long middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(step, ownCount, oppCount, from, middle),
+                        new RangeTask(step, ownCount, oppCount, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Solves a map from the command line: {@code RetrogradeSolver <map file> <output directory> <max pieces>
+     * [heap limit in megabytes]}.
+     *
+     * @param args The arguments.
+     * @throws IOException If the map cannot be read or a table cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: RetrogradeSolver <map file> <output directory> <max pieces> [heap limit in MB]");
+            return;
+        }
+        MapModel mapModel;
+        try (FileReader reader = new FileReader(args[0])) {
+            mapModel = new Gson().fromJson(reader, MapModel.class);
+        }
+        long heapLimit = (args.length > 3 ? Long.parseLong(args[3]) : 256) << 20;
+        long start = System.nanoTime();
+        new RetrogradeSolver(mapModel, Paths.get(args[1]), ForkJoinPool.commonPool(), heapLimit)
+                .solve(Integer.parseInt(args[2]));
+        System.out.println("Solved in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
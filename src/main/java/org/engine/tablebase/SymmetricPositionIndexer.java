@@ -0,0 +1,195 @@
+package org.engine.tablebase;
+
+import org.jetbrains.annotations.NotNull;
+import org.model.BoardSymmetries;
+import org.model.FieldPermutation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Maps positions to dense indices like the {@link PositionIndexer}, but gives positions that are images of each other
+ * under a symmetry of the board the same index, which makes tables smaller by up to the number of symmetries.
+ * <p>
+ * The pieces of the player to move are replaced by the smallest of their images (their class), and the opponent's
+ * pieces are mapped by the same symmetry; when several symmetries give the smallest image, the one giving the
+ * smallest index for the opponent's pieces is used. So equivalent positions share their index. Only when the pieces
+ * of the player to move are symmetric themselves, a few indices are never returned by {@link #rank(long, long)}, as
+ * their positions are equivalent to positions of smaller indices.
+ * <p>
+ * Ranking takes O(symmetries) bitboard mappings and unranking O(fields), neither allocates. The classes of a number of
+ * pieces are listed on first use, O(fields choose pieces) per number of pieces.
+ */
+public final class SymmetricPositionIndexer {
+    private final PositionIndexer indexer;
+    private final FieldPermutation[] symmetries;
+    //the classes of the pieces of the player to move, per number of pieces, listed on first use
+    private final AtomicReferenceArray<Classes> classes;
+
+    /**
+     * Constructs an indexer for a board.
+     *
+     * @param fields     The number of fields of the board.
+     * @param symmetries The symmetries of the board, with or without the identity.
+     * @throws IllegalArgumentException If a symmetry is of another number of fields.
+     */
+    public SymmetricPositionIndexer(int fields, @NotNull FieldPermutation... symmetries) {
+        indexer = new PositionIndexer(fields);
+        List<FieldPermutation> distinct = new ArrayList<>();
+        distinct.add(FieldPermutation.identity(fields));
+        for (FieldPermutation symmetry : symmetries) {
+            if (symmetry.getFields() != fields) throw new IllegalArgumentException("The symmetry is of another board: " + symmetry);
+            if (!distinct.contains(symmetry)) distinct.add(symmetry);
+        }
+        this.symmetries = distinct.toArray(new FieldPermutation[0]);
+        classes = new AtomicReferenceArray<>(fields + 1);
+    }
+
+    /**
+     * Constructs an indexer for the symmetries found in a map.
+     *
+     * @param symmetries The symmetries of the map.
+     */
+    public SymmetricPositionIndexer(@NotNull BoardSymmetries symmetries) {
+        this(symmetries.get(0).getFields(), symmetries.getAll());
+    }
+
+    /**
+     * Gets the number of fields of the board.
+     *
+     * @return The number of fields.
+     */
+    public int getFields() {
+        return indexer.getFields();
+    }
+
+    /**
+     * Gets the number of symmetries used, including the identity.
+     *
+     * @return The number of symmetries.
+     */
+    public int getSymmetries() {
+        return symmetries.length;
+    }
+
+    /**
+     * Gets the number of indices of the positions with the given numbers of pieces.
+     *
+     * @param own The number of pieces of the player to move.
+     * @param opp The number of pieces of the opponent.
+     * @return The size of the index space.
+     * @throws IllegalArgumentException If there are more pieces than fields.
+     */
+    public long size(int own, int opp) {
+        indexer.size(own, opp);
+        return classes(own).representatives.length * indexer.binomial(getFields() - own, opp);
+    }
+
+    /**
+     * Computes the index of a position, the same for every image of the position under the symmetries.
+     *
+     * @param own The bitboard of the pieces of the player to move.
+     * @param opp The bitboard of the pieces of the opponent, disjoint from {@code own}.
+     * @return The index of the position among the positions with the same numbers of pieces.
+     */
+    public long rank(long own, long opp) {
+        int ownCount = Long.bitCount(own);
+        Classes ownClasses = classes(ownCount);
+        long bestOwn = Long.MAX_VALUE;
+        long bestOpp = Long.MAX_VALUE;
+        for (FieldPermutation symmetry : symmetries) {
+            long image = symmetry.apply(own);
+            long ownRank = indexer.rankSubset(image);
+            if (ownRank > bestOwn) continue;
+            long oppRank = indexer.rankSubset(Long.compress(symmetry.apply(opp), indexer.getAllFields() & ~image));
+            if (ownRank < bestOwn || oppRank < bestOpp) {
+                bestOwn = ownRank;
+                bestOpp = oppRank;
+            }
+        }
+        return ownClasses.classOf[(int) bestOwn] * indexer.binomial(getFields() - ownCount, Long.bitCount(opp)) + bestOpp;
+    }
+
+    /**
+     * Gets the pieces of the player to move of an indexed position.
+     *
+     * @param index    The index of the position.
+     * @param ownCount The number of pieces of the player to move.
+     * @param oppCount The number of pieces of the opponent.
+     * @return The bitboard of the pieces of the player to move.
+     */
+    public long unrankOwn(long index, int ownCount, int oppCount) {
+        return classes(ownCount).representatives[(int) (index / indexer.binomial(getFields() - ownCount, oppCount))];
+    }
+
+    /**
+     * Gets the pieces of the opponent of an indexed position.
+     *
+     * @param index    The index of the position.
+     * @param own      The bitboard of the pieces of the player to move, see {@link #unrankOwn(long, int, int)}.
+     * @param oppCount The number of pieces of the opponent.
+     * @return The bitboard of the pieces of the opponent.
+     */
+    public long unrankOpp(long index, long own, int oppCount) {
+        int free = getFields() - Long.bitCount(own);
+        long rest = index % indexer.binomial(free, oppCount);
+        return Long.expand(indexer.unrankSubset(rest, oppCount, free), indexer.getAllFields() & ~own);
+    }
+
+    /**
+     * Helper method to get the classes of a number of pieces, listing them on first use.
+     *
+     * @param count The number of pieces.
+     * @return The classes.
+     */
+    private Classes classes(int count) {
+        Classes ret = classes.get(count);
+        if (ret == null) {
+            ret = listClasses(count);
+            if (!classes.compareAndSet(count, null, ret)) ret = classes.get(count);
+        }
+        return ret;
+    }
+
+    /**
+     * Helper method to list the classes of a number of pieces: a set of fields is the representative of its class if
+     * none of its images has a smaller rank.
+     */
+    private Classes listClasses(int count) {
+        int fields = getFields();
+        long sets = indexer.binomial(fields, count);
+        if (sets > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many sets of " + count + " pieces");
+        int[] classOf = new int[(int) sets];
+        long[] representatives = new long[(int) sets];
+        int found = 0;
+        for (int rank = 0; rank < sets; rank++) {
+            long set = indexer.unrankSubset(rank, count, fields);
+            boolean smallest = true;
+            for (FieldPermutation symmetry : symmetries) {
+                if (indexer.rankSubset(symmetry.apply(set)) < rank) {
+                    smallest = false;
+                    break;
+                }
+            }
+            if (smallest) {
+                classOf[rank] = found;
+                representatives[found++] = set;
+            } else {
+                classOf[rank] = -1;
+            }
+        }
+        return new Classes(classOf, Arrays.copyOf(representatives, found));
+    }
+
+    /**
+     * The classes of the sets of a number of fields.
+     *
+     * @param classOf         The class of every set (by rank) that is the representative of its class, -1 for the
+     *                        other sets.
+     * @param representatives The representative of every class.
+     */
+    private record Classes(int[] classOf, long[] representatives) {
+    }
+}
@@ -0,0 +1,46 @@
+package org.engine.tablebase;
+
+import org.jetbrains.annotations.NotNull;
+import org.model.BoardModel;
+
+/**
+ * Endgame tables: the perfect-play {@link TablebaseValue value} of positions of the moving phase, for the player to
+ * move.
+ */
+public interface Tablebase {
+
+    /**
+     * Checks whether the positions with the given numbers of pieces are in the tables.
+     *
+     * @param ownCount The number of pieces of the player to move.
+     * @param oppCount The number of pieces of the opponent.
+     * @return {@code true} if they can be probed.
+     */
+    boolean covers(int ownCount, int oppCount);
+
+    /**
+     * Gets the value of a position of the moving phase.
+     *
+     * @param own The bitboard of the pieces of the player to move.
+     * @param opp The bitboard of the pieces of the opponent.
+     * @return The value for the player to move, {@link TablebaseValue#NOT_FOUND} if the position is not covered.
+     */
+    short probe(long own, long opp);
+
+    /**
+     * Gets the value of the position on a board, for the player to move.
+     *
+     * @param board The position.
+     * @return The value, {@link TablebaseValue#NOT_FOUND} if a player still has pieces to place, the player to move
+     * has to remove a piece, or the numbers of pieces are not covered.
+     */
+    default short probe(@NotNull BoardModel board) {
+        if (board.isRemoving() || board.getPiecesToPlace(BoardModel.Color.LIGHT) > 0
+                || board.getPiecesToPlace(BoardModel.Color.DARK) > 0) {
+            return TablebaseValue.NOT_FOUND;
+        }
+        BoardModel.Color side = board.getSideToMove();
+        BoardModel.Color opponent = side == BoardModel.Color.LIGHT ? BoardModel.Color.DARK : BoardModel.Color.LIGHT;
+        return probe(board.getBitboard(side), board.getBitboard(opponent));
+    }
+}
@@ -0,0 +1,124 @@
+package org.engine.tablebase;
+
+/**
+ * Utility class for the values stored in endgame tables: the game-theoretic result of a position for the player to
+ * move (win, loss or draw) together with the distance to the end of the game in plies, packed into a {@code short}.
+ * <p>
+ * Layout of a value:
+ * <pre>
+ * bits  0-12: the distance to the end, in plies
+ * bits 13-15: the state, 0 for a draw, 1 for a win, 2 for a loss (the solver uses further states while working)
+ * </pre>
+ * A won position is won in the given number of plies against any defense, a lost one is lost in the given number of
+ * plies at the latest. A position without any legal move is lost in 0 plies.
+ */
+public final class TablebaseValue {
+    /**
+     * The value of a drawn position (neither player can force a win).
+     */
+    public static final short DRAW = 0;
+    /**
+     * The value returned by a probe for a position not covered by the tables.
+     */
+    public static final short NOT_FOUND = -1;
+    /**
+     * The largest distance that can be stored.
+     */
+    public static final int MAX_DISTANCE = (1 << 13) - 1;
+    /**
+     * The distance of a value whose distance is not known (e.g. when only win/draw/loss is stored).
+     */
+    public static final int UNKNOWN_DISTANCE = MAX_DISTANCE;
+
+    static final int DRAW_STATE = 0;
+    static final int WIN_STATE = 1;
+    static final int LOSS_STATE = 2;
+
+    private TablebaseValue() {
+    }
+
+    /**
+     * Encodes a won position.
+     *
+     * @param plies The number of plies until the opponent has lost.
+     * @return The value.
+     */
+    public static short win(int plies) {
+        return encode(WIN_STATE, plies);
+    }
+
+    /**
+     * Encodes a lost position.
+     *
+     * @param plies The number of plies until the player has lost.
+     * @return The value.
+     */
+    public static short loss(int plies) {
+        return encode(LOSS_STATE, plies);
+    }
+
+    /**
+     * Checks whether a value is a win for the player to move.
+     *
+     * @param value The value.
+     * @return {@code true} for won positions.
+     */
+    public static boolean isWin(short value) {
+        return state(value) == WIN_STATE;
+    }
+
+    /**
+     * Checks whether a value is a loss for the player to move.
+     *
+     * @param value The value.
+     * @return {@code true} for lost positions.
+     */
+    public static boolean isLoss(short value) {
+        return state(value) == LOSS_STATE;
+    }
+
+    /**
+     * Checks whether a value is a draw.
+     *
+     * @param value The value.
+     * @return {@code true} for drawn positions.
+     */
+    public static boolean isDraw(short value) {
+        return value == DRAW;
+    }
+
+    /**
+     * Gets the distance to the end of the game.
+     *
+     * @param value The value of a won or lost position.
+     * @return The number of plies, {@link #UNKNOWN_DISTANCE} if it is not known.
+     */
+    public static int distance(short value) {
+        return value & MAX_DISTANCE;
+    }
+
+    /**
+     * Converts a value to a human readable form, e.g. {@code "WIN 12"}.
+     *
+     * @param value The value.
+     * @return The string representation of the value.
+     */
+    public static String toString(short value) {
+        if (value == NOT_FOUND) return "NOT_FOUND";
+        return switch (state(value)) {
+            case DRAW_STATE -> "DRAW";
+            case WIN_STATE -> "WIN " + distance(value);
+            case LOSS_STATE -> "LOSS " + distance(value);
+            default -> "STATE " + state(value) + " " + distance(value);
+        };
+    }
+
+    static int state(short value) {
+        return (value & 0xFFFF) >>> 13;
+    }
+
+    static short encode(int state, int distance) {
+        if (distance < 0 || distance > MAX_DISTANCE) throw new IllegalArgumentException("Distance out of range: " + distance);
+        return (short) (state << 13 | distance);
+    }
+}
@@ -0,0 +1,93 @@
+package org.engine.tablebase;
+
+import org.model.BoardModel;
+import org.model.CompiledMap;
+import org.util.MapModel;
+
+/**
+ * The immutable part of a map the solver needs, as bitboards: the neighbors of every field and the groups a field is
+ * part of. Unlike a {@link BoardModel} it holds no position, so it can be shared by every solver thread.
+ */
+final class Topology {
+    final int fields;
+    final long allFields;
+    //neighbors[i]: the bitboard of the neighbors of field i (1-based)
+    final long[] neighbors;
+    //fieldGroups[i]: the masks of the groups containing field i
+    final long[][] fieldGroups;
+    final long[] groups;
+
+    /**
+     * Constructs the topology of a map from its shared {@link CompiledMap}.
+     *
+     * @param mapModel The map.
+     * @throws IllegalArgumentException If the map is not valid for a {@link BoardModel}.
+     */
+    Topology(MapModel mapModel) {
+        CompiledMap map = CompiledMap.of(mapModel);
+        fields = map.getNumberOfFields();
+        neighbors = new long[fields + 1];
+        long all = 0L;
+        for (int i = 1; i <= fields; i++) {
+            neighbors[i] = map.getNeighborMask(i);
+            all |= bit(i);
+        }
+        allFields = all;
+        groups = new long[map.getNumberOfGroups()];
+        for (int g = 0; g < groups.length; g++) {
+            groups[g] = map.getGroupMask(g);
+        }
+        fieldGroups = new long[fields + 1][];
+        for (int i = 1; i <= fields; i++) {
+            int[] fieldGroupIndices = map.getGroupsOf(i);
+            fieldGroups[i] = new long[fieldGroupIndices.length];
+            for (int k = 0; k < fieldGroupIndices.length; k++) {
+                fieldGroups[i][k] = groups[fieldGroupIndices[k]];
+            }
+        }
+    }
+
+    /**
+     * Checks if a field is part of a group fully covered by a bitboard.
+     *
+     * @param pieces The bitboard of a player's pieces.
+     * @param field  The field.
+     * @return {@code true} if the field is in a mill of the pieces.
+     */
+    boolean formsMill(long pieces, int field) {
+        for (long group : fieldGroups[field]) {
+            if ((pieces & group) == group) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the pieces that are part of a mill.
+     *
+     * @param pieces The bitboard of a player's pieces.
+     * @return The bitboard of the pieces in a mill.
+     */
+    long millFields(long pieces) {
+        long ret = 0L;
+        for (long group : groups) {
+            if ((pieces & group) == group) ret |= group;
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the fields a piece can move to.
+     *
+     * @param field  The field of the piece.
+     * @param empty  The bitboard of the empty fields.
+     * @param flying Whether the piece can fly to any empty field.
+     * @return The bitboard of the destinations.
+     */
+    long targets(int field, long empty, boolean flying) {
+        return flying ? empty : neighbors[field] & empty;
+    }
+
+    static long bit(int field) {
+        return 1L << (field - 1);
+    }
+}
@@ -0,0 +1,246 @@
+package org.engine.tablebase;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {@link TablebaseValue values} of every position of one subspace (a number of pieces for the player to move and
+ * for the opponent), indexed by {@link PositionIndexer}. The values are kept on the heap, or in a memory-mapped file
+ * when the table is too large for the heap; finished tables are saved to and opened from files.
+ * <p>
+ * Layout of a table file:
+ * <pre>
+ * int   magic   "MGTB"
+ * int   version 1
+ * int   number of fields of the map
+ * int   number of pieces of the player to move
+ * int   number of pieces of the opponent
+ * int   reserved, 0
+ * long  number of positions
+ * short values[number of positions]
+ * </pre>
+ * Values are only read and written whole, so the table can be shared by threads; a write is not guaranteed to be
+ * visible to other threads until they synchronize with the writer (e.g. by joining its task).
+ */
+final class ValueTable {
+    static final int MAGIC = 0x4D475442;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    //Number of values in a segment, a mapped segment must stay below 2 GB
+    private static final int SEGMENT_SHIFT = 28;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = (int) SEGMENT_SIZE - 1;
+
+    private final int fields;
+    private final int own;
+    private final int opp;
+    private final long size;
+    private final ShortBuffer[] segments;
+    //The mappings behind the segments, null for a heap table
+    private final MappedByteBuffer[] mappings;
+
+    private ValueTable(int fields, int own, int opp, long size, ShortBuffer[] segments, MappedByteBuffer[] mappings) {
+        this.fields = fields;
+        this.own = own;
+        this.opp = opp;
+        this.size = size;
+        this.segments = segments;
+        this.mappings = mappings;
+    }
+
+    private ValueTable(int fields, int own, int opp, long size, MappedByteBuffer[] mappings) {
+        this(fields, own, opp, size, new ShortBuffer[mappings.length], mappings);
+        for (int s = 0; s < mappings.length; s++) {
+            segments[s] = mappings[s].asShortBuffer();
+        }
+    }
+
+    /**
+     * Creates a table on the heap with every value {@link TablebaseValue#DRAW}.
+     *
+     * @param fields The number of fields of the map.
+     * @param own    The number of pieces of the player to move.
+     * @param opp    The number of pieces of the opponent.
+     * @param size   The number of positions.
+     * @return The new table.
+     */
+    static ValueTable onHeap(int fields, int own, int opp, long size) {
+        ShortBuffer[] segments = new ShortBuffer[segmentCount(size)];
+        for (int s = 0; s < segments.length; s++) {
+            segments[s] = ShortBuffer.allocate(segmentLength(size, s));
+        }
+        return new ValueTable(fields, own, opp, size, segments, null);
+    }
+
+    /**
+     * Creates a table in a memory-mapped file with every value {@link TablebaseValue#DRAW}. The file is replaced if
+     * it exists.
+     *
+     * @param file   The file of the table.
+     * @param fields The number of fields of the map.
+     * @param own    The number of pieces of the player to move.
+     * @param opp    The number of pieces of the opponent.
+     * @param size   The number of positions.
+     * @return The new table.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    static ValueTable mapped(@NotNull Path file, int fields, int own, int opp, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(header(fields, own, opp, size), 0);
+            //grow the file to its full size, the values are zero (draws) until written
+            channel.write(ByteBuffer.allocate(1), HEADER_BYTES + size * Short.BYTES - 1);
+            return new ValueTable(fields, own, opp, size, map(channel, FileChannel.MapMode.READ_WRITE, size));
+        }
+    }
+
+    /**
+     * Opens a table file for reading.
+     *
+     * @param file The file of the table.
+     * @return The table, mapped read-only.
+     * @throws IOException If the file cannot be read or is not a table.
+     */
+    static ValueTable open(@NotNull Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) ;
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("Not an endgame table: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported endgame table version " + version + ": " + file);
+            int fields = header.getInt();
+            int own = header.getInt();
+            int opp = header.getInt();
+            header.getInt();
+            long size = header.getLong();
+            if (channel.size() < HEADER_BYTES + size * Short.BYTES) throw new IOException("Truncated endgame table: " + file);
+            return new ValueTable(fields, own, opp, size, map(channel, FileChannel.MapMode.READ_ONLY, size));
+        }
+    }
+
+    /**
+     * Gets the value of a position.
+     *
+     * @param index The index of the position.
+     * @return The value.
+     */
+    short get(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) index & SEGMENT_MASK);
+    }
+
+    /**
+     * Sets the value of a position.
+     *
+     * @param index The index of the position.
+     * @param value The value.
+     */
+    void set(long index, short value) {
+        segments[(int) (index >>> SEGMENT_SHIFT)].put((int) index & SEGMENT_MASK, value);
+    }
+
+    /**
+     * Writes the values of a mapped table back to its file.
+     */
+    void force() {
+        if (mappings == null) throw new IllegalStateException("The table is not mapped");
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+    }
+
+    /**
+     * Writes a heap table to a file, through a temporary file which is then moved to the given one.
+     *
+     * @param file The file of the table.
+     * @throws IOException If the file cannot be written.
+     */
+    void save(@NotNull Path file) throws IOException {
+        if (mappings != null) throw new IllegalStateException("The table is mapped, use force()");
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = header(fields, own, opp, size);
+            while (header.hasRemaining()) channel.write(header);
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 20);
+            for (ShortBuffer segment : segments) {
+                ShortBuffer values = segment.duplicate().clear();
+                while (values.hasRemaining()) {
+                    chunk.clear();
+                    ShortBuffer view = chunk.asShortBuffer();
+                    int n = Math.min(view.remaining(), values.remaining());
+                    view.put(values.slice(values.position(), n));
+                    values.position(values.position() + n);
+                    chunk.limit(n * Short.BYTES);
+                    while (chunk.hasRemaining()) channel.write(chunk);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    int getFields() {
+        return fields;
+    }
+
+    int getOwn() {
+        return own;
+    }
+
+    int getOpp() {
+        return opp;
+    }
+
+    long size() {
+        return size;
+    }
+
+    boolean isMapped() {
+        return mappings != null;
+    }
+
+    /**
+     * Gets the name of the file of a table, e.g. {@code "tb-4-3.dte"}.
+     *
+     * @param own The number of pieces of the player to move.
+     * @param opp The number of pieces of the opponent.
+     * @return The file name.
+     */
+    static String fileName(int own, int opp) {
+        return "tb-" + own + "-" + opp + ".dte";
+    }
+
+    private static ByteBuffer header(int fields, int own, int opp, long size) {
+        return ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putInt(fields).putInt(own).putInt(opp)
+                .putInt(0).putLong(size).flip();
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+        MappedByteBuffer[] mappings = new MappedByteBuffer[segmentCount(size)];
+        for (int s = 0; s < mappings.length; s++) {
+            long offset = HEADER_BYTES + ((long) s << SEGMENT_SHIFT) * Short.BYTES;
+            mappings[s] = channel.map(mode, offset, (long) segmentLength(size, s) * Short.BYTES);
+        }
+        return mappings;
+    }
+
+    private static int segmentCount(long size) {
+        return (int) Math.max(1, (size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+    }
+
+    private static int segmentLength(long size, int segment) {
+        return (int) Math.min(SEGMENT_SIZE, size - ((long) segment << SEGMENT_SHIFT));
+    }
+}
@@ -1,57 +1,192 @@
 package org.model;
 
 import org.jetbrains.annotations.NotNull;
+import org.util.FieldSet;
 import org.util.MapModel;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * The {@code BoardModel} class represents the game board and the pieces in the game. It stores information about the
  * board layout, the pieces' positions, and the groups of pieces that form mills.
+ * <p>
+ * The board is stored as bitboards: field {@code i} (1-based) is represented by bit {@code i - 1} of a {@code long},
+ * so maps can have at most {@value #MAX_FIELDS} fields.
  */
 public class BoardModel {
     /**
-     * Constants representing boolean values as integers.
+     * The maximum number of fields a map can have, since every field needs its own bit in a {@code long}.
      */
-    private static final int FALSE = -1;
-    private static final int TRUE = 1;
-    //The board is represented as a graph, where each field is a node and edges connect neighboring fields.
-    private final HashMap<Integer, ArrayList<Integer>> boardMap;
+    public static final int MAX_FIELDS = Long.SIZE;
+
+    private static final int INITIAL_HISTORY = 256;
 
-    //Array index represents the field number
-    // ! 1-based indexing for easier understanding
-    private final Piece[] pieces;
+    //Bitboards of the pieces on the board, one per color
+    private long lightBoard = 0L;
+    private long darkBoard = 0L;
+    //Bitboard of the fields that are part of at least one mill
+    private long millBoard = 0L;
 
-    //This is a 2D array where each row represents a group of three pieces that can form a mill.
-    //groups[0] is not used
-    //groups[i][0]: whether the whole group is in a mill
-    //groups[i][1]-[3]: the 3 fields that make up the group
-    private final int[][] groups;
-    private final MapModel mapModel;
+    //The board is represented as a graph, where each field is a node and edges connect neighboring fields.
+    //The topology is compiled once per map and shared by all its boards; the arrays below are its arrays, held
+    //directly for the hot paths and never written.
+    //neighborMasks[i] has a bit set for every neighbor of field i
+    // ! 1-based indexing for easier understanding, neighborMasks[0] is not used
+    private final long[] neighborMasks;
+
+    //Each group of three fields that can form a mill is stored as a mask of its fields
+    private final long[] groupMasks;
+    //the fields of group i are groupFieldList[groupStart[i]] .. groupFieldList[groupStart[i + 1] - 1]
+    private final int[] groupStart;
+    private final int[] groupFieldList;
+    //groupInMill[i]: whether the whole group is in a mill
+    private final boolean[] groupInMill;
+
+    //Incidence index: the groups containing field i are fieldGroupList[fieldGroupStart[i]] ..
+    //fieldGroupList[fieldGroupStart[i + 1] - 1], so a move only has to look at the few groups touching the fields it
+    //changes
+    private final int[] fieldGroupStart;
+    private final int[] fieldGroupList;
+    //millCounts[i]: the number of groups in a mill that contain field i (the field is in a mill if this is not 0)
+    private final int[] millCounts;
+
+    //State of the turn, updated by makeMove or set with setTurn
+    private Color sideToMove = Color.LIGHT;
+    private int lightPiecesToPlace;
+    private int darkPiecesToPlace;
+    private boolean removing = false;
+
+    //Zobrist hash of the whole position, updated incrementally on every change
+    private long hash;
+
+    //Undo stack of the moves made with makeMove, grown only when a search goes deeper than ever before
+    //hashHistory[i] holds the hash of the position before history[i] was made
+    private int[] history = new int[INITIAL_HISTORY];
+    private long[] hashHistory = new long[INITIAL_HISTORY];
+    private int historySize = 0;
+
+    private final int numberOfFields;
+    private final CompiledMap map;
 
     /**
-     * Constructs a new {@code BoardModel} instance.
+     * Constructs a new {@code BoardModel} instance, sharing the compiled topology of the map with the other boards of
+     * the same {@code MapModel} instance.
      *
      * @param mapModel The {@code MapModel} instance containing the board layout and groups.
+     * @throws IllegalArgumentException If the map has more than {@value #MAX_FIELDS} fields or pieces per player, or
+     *                                  refers to a field outside of {@code 1..fields.size()}.
      */
     public BoardModel(@NotNull MapModel mapModel) {
-        this.mapModel = mapModel;
-        pieces = new Piece[mapModel.fields.size() + 1];
-        for (int i = 1; i < pieces.length; i++) {
-            pieces[i] = new Piece();
-        }
-        groups = new int[mapModel.groups.size()][4];
-        for (int i = 0; i < mapModel.groups.size(); i++) {
-            int[] group = mapModel.groups.get(i);
-            groups[i][0] = FALSE;
-            groups[i][1] = group[0];
-            groups[i][2] = group[1];
-            groups[i][3] = group[2];
+        this(CompiledMap.of(mapModel));
+    }
+
+    /**
+     * Constructs a new {@code BoardModel} instance of a compiled map.
+     *
+     * @param map The compiled topology of the map.
+     */
+    public BoardModel(@NotNull CompiledMap map) {
+        this.map = map;
+        numberOfFields = map.numberOfFields;
+        lightPiecesToPlace = darkPiecesToPlace = map.pieces;
+        hash = Zobrist.hash(0L, 0L, sideToMove, lightPiecesToPlace, darkPiecesToPlace, removing);
+        neighborMasks = map.neighborMasks;
+        groupMasks = map.groupMasks;
+        groupStart = map.groupStart;
+        groupFieldList = map.groupFieldList;
+        fieldGroupStart = map.fieldGroupStart;
+        fieldGroupList = map.fieldGroupList;
+        groupInMill = new boolean[groupMasks.length];
+        millCounts = new int[numberOfFields + 1];
+    }
+
+    /**
+     * Returns the bit representing a field on a bitboard.
+     *
+     * @param field The index of the field.
+     * @return A mask with only the bit of the field set.
+     */
+    public static long bit(int field) {
+        return 1L << (field - 1);
+    }
+
+    /**
+     * Gets the bitboard of a color, where bit {@code i - 1} represents field {@code i}.
+     *
+     * @param color The color of the pieces.
+     * @return The bitboard of the pieces of the given color; for {@code Color.EMPTY} the empty fields.
+     */
+    public long getBitboard(@NotNull Color color) {
+        return switch (color) {
+            case LIGHT -> lightBoard;
+            case DARK -> darkBoard;
+            case EMPTY -> ~(lightBoard | darkBoard) & allFields();
+        };
+    }
+
+    /**
+     * Gets the bitboard of the fields that are part of a mill.
+     *
+     * @return The mill bitboard.
+     */
+    public long getMillBitboard() {
+        return millBoard;
+    }
+
+    /**
+     * Gets the mask of the neighbors of a field.
+     *
+     * @param field The index of the field.
+     * @return The bitboard of the neighboring fields.
+     */
+    public long getNeighborMask(int field) {
+        return neighborMasks[field];
+    }
+
+    /**
+     * Gets the number of groups (possible mills) on the board.
+     *
+     * @return The number of groups.
+     */
+    public int getNumberOfGroups() {
+        return groupMasks.length;
+    }
+
+    /**
+     * Gets the mask of the fields of a group.
+     *
+     * @param group The index of the group, in the order of {@code MapModel.groups}.
+     * @return The bitboard of the three fields of the group.
+     */
+    public long getGroupMask(int group) {
+        return groupMasks[group];
+    }
+
+    /**
+     * Checks whether a field would be part of a mill if the pieces of a player were on the given fields, without
+     * changing the board.
+     *
+     * @param colorBoard The bitboard of the player's pieces, including the field.
+     * @param field      The index of the field.
+     * @return {@code true} if a group containing the field is fully covered by the bitboard.
+     */
+    public boolean formsMill(long colorBoard, int field) {
+        for (int k = fieldGroupStart[field]; k < fieldGroupStart[field + 1]; k++) {
+            int i = fieldGroupList[k];
+            if ((colorBoard & groupMasks[i]) == groupMasks[i]) {
+                return true;
+            }
         }
-        boardMap = mapModel.fields;
+        return false;
+    }
+
+    /**
+     * Helper method to get a mask of every field on the board.
+     *
+     * @return A mask with the bit of every field set.
+     */
+    private long allFields() {
+        return numberOfFields == MAX_FIELDS ? -1L : (1L << numberOfFields) - 1;
     }
 
     /**
@@ -60,7 +195,16 @@ public class BoardModel {
      * @return The {@code MapModel} instance.
      */
     public MapModel getMapModel() {
-        return mapModel;
+        return map.getMapModel();
+    }
+
+    /**
+     * Gets the compiled topology of the map of this board, shared with the other boards of the map.
+     *
+     * @return The compiled map.
+     */
+    public CompiledMap getCompiledMap() {
+        return map;
     }
 
     /**
@@ -70,7 +214,7 @@ public class BoardModel {
      * @return {@code true} if the field is empty, {@code false} otherwise.
      */
     public boolean isFieldEmpty(int field) {
-        return pieces[field].color == Color.EMPTY;
+        return ((lightBoard | darkBoard) & bit(field)) == 0;
     }
 
     /**
@@ -81,7 +225,7 @@ public class BoardModel {
      * @return {@code true} if the field contains a piece of the specified color, {@code false} otherwise.
      */
     public boolean isFieldOfColor(int field, Color color) {
-        return pieces[field].color == color;
+        return (getBitboard(color) & bit(field)) != 0;
     }
 
     /**
@@ -91,7 +235,7 @@ public class BoardModel {
      * @return {@code true} if the field is part of a mill, {@code false} otherwise.
      */
     public boolean isFieldInMill(int field) {
-        return pieces[field].inMill;
+        return (millBoard & bit(field)) != 0;
     }
 
     /**
@@ -102,7 +246,7 @@ public class BoardModel {
      * @return {@code true} if the fields are neighbors, {@code false} otherwise.
      */
     public boolean areNeighbors(int a, int b) {
-        return boardMap.get(a).contains(b);
+        return (neighborMasks[a] & bit(b)) != 0;
     }
 
     /**
@@ -112,9 +256,11 @@ public class BoardModel {
      * @return {@code true} if the move creates a mill, {@code false} otherwise.
      */
     private boolean checkForMill(int location) {
+        long colorBoard = (lightBoard & bit(location)) != 0 ? lightBoard : darkBoard;
         boolean ret = false;
-        for (int i = 0; i < groups.length; i++) {
-            if (groupContains(groups[i], location) && (groupSameColor(groups[i]))) {
+        for (int k = fieldGroupStart[location]; k < fieldGroupStart[location + 1]; k++) {
+            int i = fieldGroupList[k];
+            if ((colorBoard & groupMasks[i]) == groupMasks[i]) {
                 setMillForGroup(i, true);
                 ret = true;
             }
@@ -123,7 +269,7 @@ public class BoardModel {
     }
 
     /**
-     * Moves a piece from one field to another.
+     * Moves a piece from one field to a neighboring one.
      *
      * @param from The index of the field where the piece is moving from.
      * @param to   The index of the field where the piece is moving to.
@@ -132,13 +278,26 @@ public class BoardModel {
      *                          modifications)
      */
     public boolean movePiece(int from, int to) throws RuntimeException {
-        if (pieces[to].color != Color.EMPTY || pieces[from].color == Color.EMPTY || !boardMap.get(from).contains(to)) {
+        return movePiece(from, to, false);
+    }
+
+    /**
+     * Moves a piece from one field to another.
+     *
+     * @param from   The index of the field where the piece is moving from.
+     * @param to     The index of the field where the piece is moving to.
+     * @param flying {@code true} if the piece can fly to any empty field, {@code false} if it can only move to a
+     *               neighboring field.
+     * @return {@code true} if the move results in a mill, {@code false} otherwise.
+     * @throws RuntimeException If the move is not valid
+     */
+    public boolean movePiece(int from, int to, boolean flying) throws RuntimeException {
+        if (!isFieldEmpty(to) || isFieldEmpty(from) || !flying && !areNeighbors(from, to)) {
             throw new RuntimeException("INVALID MOVE");
         }
-        pieces[to].color = pieces[from].color;
-        pieces[from].color = Color.EMPTY;
-        checkForUnmill(from);
-        return checkForMill(to);
+        Color color = getFieldColor(from);
+        removePiece(from, color);
+        return addPiece(to, color);
     }
 
     /**
@@ -150,54 +309,265 @@ public class BoardModel {
      * @throws RuntimeException If the field is already occupied and the color is not {@code Color.EMPTY}.
      */
     public boolean putPiece(int where, Color color) throws RuntimeException {
-        if (pieces[where].color != Color.EMPTY && color != Color.EMPTY) {
+        if (!isFieldEmpty(where) && color != Color.EMPTY) {
             throw new RuntimeException("INVALID PUT");
         }
-        pieces[where].color = color;
+        if (color == Color.EMPTY) {
+            if (!isFieldEmpty(where)) {
+                removePiece(where, getFieldColor(where));
+            }
+            return false;
+        }
+        return addPiece(where, color);
+    }
+
+    /**
+     * Helper method to add a piece to an empty field, updating the mills and the hash.
+     *
+     * @param field The index of the field.
+     * @param color The color of the piece, either {@code LIGHT} or {@code DARK}.
+     * @return {@code true} if adding the piece forms a mill, {@code false} otherwise.
+     */
+    private boolean addPiece(int field, Color color) {
+        if (color == Color.LIGHT) {
+            lightBoard |= bit(field);
+        } else {
+            darkBoard |= bit(field);
+        }
+        hash ^= Zobrist.field(color, field);
+        return checkForMill(field);
+    }
+
+    /**
+     * Helper method to remove a piece from a field, updating the mills and the hash.
+     *
+     * @param field The index of the field.
+     * @param color The color of the piece on the field, either {@code LIGHT} or {@code DARK}.
+     */
+    private void removePiece(int field, Color color) {
+        if (color == Color.LIGHT) {
+            lightBoard &= ~bit(field);
+        } else {
+            darkBoard &= ~bit(field);
+        }
+        hash ^= Zobrist.field(color, field);
+        checkForUnmill(field);
+    }
+
+    /**
+     * Makes a complete turn on the board: places, moves or flies a piece and removes the opponent's piece if the move
+     * includes a removal, then passes the turn to the opponent. In the {@code REMOVING} phase the move only consists
+     * of the removal. The move can be taken back with {@link #unmakeMove()}.
+     * <p>
+     * The move is not validated, it is expected to be legal in the current position. Making and unmaking moves does
+     * not allocate, except when the undo stack has to grow.
+     *
+     * @param move The move encoded by {@link Move}.
+     */
+    public void makeMove(int move) {
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, history.length * 2);
+            hashHistory = Arrays.copyOf(hashHistory, hashHistory.length * 2);
+        }
+        history[historySize] = move;
+        hashHistory[historySize++] = hash;
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int removed = Move.removed(move);
+        Color color = Move.color(move);
+        Color opponent = color == Color.LIGHT ? Color.DARK : Color.LIGHT;
+        if (from != 0) removePiece(from, color);
+        if (to != 0) addPiece(to, color);
+        if (removed != 0) removePiece(removed, opponent);
+
+        if (Move.isPlacement(move)) {
+            hash ^= Zobrist.piecesToPlace(color, getPiecesToPlace(color));
+            if (color == Color.LIGHT) lightPiecesToPlace--;
+            else darkPiecesToPlace--;
+            hash ^= Zobrist.piecesToPlace(color, getPiecesToPlace(color));
+        }
+        if (removing) {
+            removing = false;
+            hash ^= Zobrist.removing();
+        }
+        sideToMove = opponent;
+        hash ^= Zobrist.darkToMove();
+    }
+
+    /**
+     * Takes back the last move made with {@link #makeMove(int)}, restoring the colors of the fields, the mill status
+     * of every field and group, the state of the turn and the hash.
+     *
+     * @return The move that was taken back.
+     * @throws IllegalStateException If there is no move to take back.
+     */
+    public int unmakeMove() {
+        if (historySize == 0) throw new IllegalStateException("No move to unmake");
+        int move = history[--historySize];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int removed = Move.removed(move);
+        Color color = Move.color(move);
+        //A group is in a mill exactly when its three fields have the same color, so replaying the changes backwards
+        //restores the mill status as well
+        if (removed != 0) addPiece(removed, color == Color.LIGHT ? Color.DARK : Color.LIGHT);
+        if (to != 0) removePiece(to, color);
+        if (from != 0) addPiece(from, color);
+
+        if (Move.isPlacement(move)) {
+            if (color == Color.LIGHT) lightPiecesToPlace++;
+            else darkPiecesToPlace++;
+        }
+        removing = Move.isRemovalOnly(move);
+        sideToMove = color;
+        hash = hashHistory[historySize];
+        return move;
+    }
+
+    /**
+     * Sets the state of the turn, e.g. when the board is rebuilt from the view of a game client.
+     *
+     * @param sideToMove         The color of the player to move.
+     * @param lightPiecesToPlace The number of pieces the light player has left to place.
+     * @param darkPiecesToPlace  The number of pieces the dark player has left to place.
+     * @param removing           Whether the player to move has formed a mill and has to remove a piece.
+     * @throws IllegalArgumentException If the side to move is {@code Color.EMPTY} or a count is out of range.
+     */
+    public void setTurn(@NotNull Color sideToMove, int lightPiecesToPlace, int darkPiecesToPlace, boolean removing) {
+        if (sideToMove == Color.EMPTY) throw new IllegalArgumentException("The empty color cannot move");
+        if (lightPiecesToPlace < 0 || lightPiecesToPlace > MAX_FIELDS || darkPiecesToPlace < 0 || darkPiecesToPlace > MAX_FIELDS) {
+            throw new IllegalArgumentException("Invalid number of pieces to place");
+        }
+        this.sideToMove = sideToMove;
+        this.lightPiecesToPlace = lightPiecesToPlace;
+        this.darkPiecesToPlace = darkPiecesToPlace;
+        this.removing = removing;
+        hash = Zobrist.hash(lightBoard, darkBoard, sideToMove, lightPiecesToPlace, darkPiecesToPlace, removing);
+    }
+
+    /**
+     * Sets this board to the position of another board of the same map, e.g. to give every search thread its own
+     * copy of a position. The undo stack of this board is cleared, the moves of the other board are not copied.
+     *
+     * @param other The board to copy the position from.
+     * @throws IllegalArgumentException If the other board has a different number of fields or groups.
+     */
+    public void copyFrom(@NotNull BoardModel other) {
+        if (other.numberOfFields != numberOfFields || other.groupMasks.length != groupMasks.length) {
+            throw new IllegalArgumentException("The boards are not of the same map");
+        }
+        lightBoard = other.lightBoard;
+        darkBoard = other.darkBoard;
+        millBoard = other.millBoard;
+        System.arraycopy(other.groupInMill, 0, groupInMill, 0, groupInMill.length);
+        System.arraycopy(other.millCounts, 0, millCounts, 0, millCounts.length);
+        sideToMove = other.sideToMove;
+        lightPiecesToPlace = other.lightPiecesToPlace;
+        darkPiecesToPlace = other.darkPiecesToPlace;
+        removing = other.removing;
+        hash = other.hash;
+        historySize = 0;
+    }
+
+    /**
+     * Gets the color of the player to move.
+     *
+     * @return {@code Color.LIGHT} or {@code Color.DARK}.
+     */
+    public Color getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Gets the number of pieces a player still has in the game, counting the ones not yet placed.
+     *
+     * @param color The color of the player.
+     * @return The number of pieces on the board plus the pieces left to place.
+     */
+    public int getPieceCount(Color color) {
+        return Long.bitCount(getBitboard(color)) + getPiecesToPlace(color);
+    }
 
-        return color != Color.EMPTY && checkForMill(where);
+    /**
+     * Checks whether the pieces of a player can fly, which happens when they are reduced to 3 pieces after placing.
+     *
+     * @param color The color of the player.
+     * @return {@code true} if the player's pieces can move to any empty field.
+     */
+    public boolean isFlying(Color color) {
+        return getPiecesToPlace(color) == 0 && Long.bitCount(getBitboard(color)) == 3;
     }
 
     /**
-     * Gets a list of fields that contain pieces of the specified color and status (whether they are part of a mill or
+     * Gets the number of pieces a player has left to place.
+     *
+     * @param color The color of the player.
+     * @return The number of pieces not yet placed on the board.
+     */
+    public int getPiecesToPlace(Color color) {
+        return color == Color.LIGHT ? lightPiecesToPlace : darkPiecesToPlace;
+    }
+
+    /**
+     * Checks whether the player to move has formed a mill and has to remove a piece of the opponent.
+     *
+     * @return {@code true} in the {@code REMOVING} phase.
+     */
+    public boolean isRemoving() {
+        return removing;
+    }
+
+    /**
+     * Gets the phase of the turn of the player to move.
+     *
+     * @return {@code REMOVING} if the player has formed a mill, otherwise {@code PLACING} while the player has pieces
+     * left to place and {@code MOVING} after that.
+     */
+    public Phase getPhase() {
+        if (removing) return Phase.REMOVING;
+        return getPiecesToPlace(sideToMove) > 0 ? Phase.PLACING : Phase.MOVING;
+    }
+
+    /**
+     * Gets the Zobrist hash of the position, covering the colors of the fields, the player to move, the phase and the
+     * pieces left to place. The hash is maintained incrementally, so this is O(1).
+     *
+     * @return The 64-bit hash of the position.
+     */
+    public long positionHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the number of moves made with {@link #makeMove(int)} that can still be taken back.
+     *
+     * @return The size of the undo stack.
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * Gets the set of fields that contain pieces of the specified color and status (whether they are part of a mill or
      * not).
      *
      * @param byColor The color of the pieces to check.
      * @param byMill  {@code true} to filter for pieces that are in a mill, {@code false} for those not in a mill.
-     * @return A list of field indices with the specified color and mill status.
-     */
-    public List<Integer> getFields(Color byColor, boolean byMill) {
-        ArrayList<Integer> ret = new ArrayList<>();
-        if (byMill) {
-            for (int i = 1; i < pieces.length; i++) {
-                if (pieces[i].color == byColor && pieces[i].inMill) {
-                    ret.add(i);
-                }
-            }
-        } else {
-            for (int i = 1; i < pieces.length; i++) {
-                if (pieces[i].color == byColor && !pieces[i].inMill) {
-                    ret.add(i);
-                }
-            }
-        }
-        return ret;
+     * @return The set of field indices with the specified color and mill status.
+     */
+    public FieldSet getFields(Color byColor, boolean byMill) {
+        return FieldSet.fromMask(getBitboard(byColor) & (byMill ? millBoard : ~millBoard));
     }
 
     /**
-     * Gets a list of fields that contain pieces of the specified color.
+     * Gets the set of fields that contain pieces of the specified color.
      *
      * @param byColor The color of the pieces to check.
-     * @return A list of field indices with the specified color.
+     * @return The set of field indices with the specified color.
      */
-    public List<Integer> getFields(Color byColor) {
-        ArrayList<Integer> ret = new ArrayList<>();
-        for (int i = 1; i < pieces.length; i++) {
-            if (pieces[i].color == byColor) {
-                ret.add(i);
-            }
-        }
-        return ret;
+    public FieldSet getFields(Color byColor) {
+        return FieldSet.fromMask(getBitboard(byColor));
     }
 
     /**
@@ -206,61 +576,53 @@ public class BoardModel {
      * @return The number of fields.
      */
     public int getNumberOfFields() {
-        return pieces.length - 1;
+        return numberOfFields;
     }
 
     /**
-     * Gets a list of fields that contain pieces of the specified color and have at least one neighboring empty field.
+     * Gets the set of fields that contain pieces of the specified color and have at least one neighboring empty field.
      *
      * @param byColor The color of the pieces to check.
-     * @return A list of field indices with the specified color that can be moved.
+     * @return The set of field indices with the specified color that can be moved.
      * @throws IllegalArgumentException If {@code byColor} is {@code Color.EMPTY}.
      */
-    public List<Integer> getMovableFields(Color byColor) {
+    public FieldSet getMovableFields(Color byColor) {
         if (byColor == Color.EMPTY) throw new IllegalArgumentException("Cannot get movable fields for empty color");
-        ArrayList<Integer> ret = new ArrayList<>();
-        for (int i = 1; i < pieces.length; i++) {
-            if (pieces[i].color == byColor) {
-                for (Integer neighbor : boardMap.get(i)) {
-                    if (pieces[neighbor].color == Color.EMPTY && !ret.contains(i)) {
-                        ret.add(i);
-                    }
-                }
+        long empty = getBitboard(Color.EMPTY);
+        long movable = 0L;
+        for (long pieces = getBitboard(byColor); pieces != 0; pieces &= pieces - 1) {
+            int field = Long.numberOfTrailingZeros(pieces) + 1;
+            if ((neighborMasks[field] & empty) != 0) {
+                movable |= bit(field);
             }
         }
-        return ret;
+        return FieldSet.fromMask(movable);
     }
 
     /**
-     * Filters a list of fields based on the color of the pieces at those fields.
+     * Filters a set of fields based on the color of the pieces at those fields.
      *
-     * @param fieldsToSort The list of fields to be filtered.
+     * @param fieldsToSort The set of fields to be filtered.
      * @param byColor      The color to filter by.
-     * @return A list of field indices that contain pieces of the specified color.
+     * @return The set of field indices that contain pieces of the specified color.
      */
-    public List<Integer> filterFieldsByColor(@NotNull List<Integer> fieldsToSort, Color byColor) {
-        ArrayList<Integer> ret = new ArrayList<>();
-        for (Integer i : fieldsToSort) {
-            if (pieces[i].color == byColor) {
-                ret.add(i);
-            }
-        }
-        return ret;
+    public FieldSet filterFieldsByColor(@NotNull FieldSet fieldsToSort, Color byColor) {
+        return FieldSet.fromMask(fieldsToSort.mask() & getBitboard(byColor));
     }
 
     /**
-     * Gets a list of possible moves for a piece at a given field.
+     * Gets the set of possible moves for a piece at a given field.
      *
      * @param from   The index of the field where the piece is located.
      * @param flying {@code true} if the piece can fly to any empty field, {@code false} if it can only move to
      *               neighboring empty fields.
-     * @return A list of field indices where the piece can move.
+     * @return The set of field indices where the piece can move.
      */
-    public List<Integer> getPossibleMoves(int from, boolean flying) {
+    public FieldSet getPossibleMoves(int from, boolean flying) {
         if (flying) {
             return getFields(Color.EMPTY);
         } else {
-            return filterFieldsByColor(getNeighbouring(from), Color.EMPTY);
+            return FieldSet.fromMask(neighborMasks[from] & getBitboard(Color.EMPTY));
         }
     }
 
@@ -268,96 +630,62 @@ public class BoardModel {
      * Gets the neighboring fields for a given field.
      *
      * @param i The field index.
-     * @return A list of neighboring fields.
+     * @return The set of neighboring fields.
      */
-    public List<Integer> getNeighbouring(Integer i) {
-        return boardMap.get(i);
+    public FieldSet getNeighbouring(int i) {
+        return FieldSet.fromMask(neighborMasks[i]);
     }
 
     /**
-     * Gets the neighboring fields for a list of fields.
+     * Gets the neighboring fields for a set of fields.
      *
-     * @param list A list of field indices.
-     * @return A list of neighboring fields for all the given fields.
+     * @param fields A set of field indices.
+     * @return The set of fields neighboring any of the given fields.
      */
-    public List<Integer> getNeighbouring(List<Integer> list) {
-        ArrayList<Integer> ret = new ArrayList<>();
-        list.forEach(i -> ret.addAll(getNeighbouring(i)));
-        return ret;
+    public FieldSet getNeighbouring(@NotNull FieldSet fields) {
+        long ret = 0L;
+        for (long rest = fields.mask(); rest != 0; rest &= rest - 1) {
+            ret |= neighborMasks[Long.numberOfTrailingZeros(rest) + 1];
+        }
+        return FieldSet.fromMask(ret);
     }
 
     /**
-     * Checks if moving a piece breaks any mills on the board.
+     * Checks if moving or removing a piece breaks any mills on the board.
      *
-     * @param location The location of the piece that was moved.
+     * @param location The location of the piece that was moved or removed.
      */
     private void checkForUnmill(int location) {
         //Since every time we move, the moved piece's position will be BLANK, meaning every mill in which it is involved will disappear
-        //but its neighbors can still be part of a mill, so we need to pay close attention to those.
-        for (int i = 0; i < groups.length; i++) {
-            //check for "unmilling"
-            if (groupContains(groups[i], location)) {
+        //but its neighbors can still be part of another mill, which is why the mill membership of a field is a counter.
+        for (int k = fieldGroupStart[location]; k < fieldGroupStart[location + 1]; k++) {
+            int i = fieldGroupList[k];
+            if (groupInMill[i]) {
                 setMillForGroup(i, false);
-                //We need to check for "falsely unmilled mills" tho
-                if (location == groups[i][1]) {
-                    checkFalseUnmill(i, 2, 3);
-                } else if (location == groups[i][3]) {
-                    checkFalseUnmill(i, 1, 2);
-                } else {
-                    checkFalseUnmill(i, 1, 3);
-                }
-            }
-        }
-    }
-
-    /**
-     * Helper method to check and restore mills that may have been falsely "unmilled."
-     *
-     * @param i The index of the group.
-     * @param a One of the positions in the group.
-     * @param b Another position in the group.
-     */
-    private void checkFalseUnmill(int i, int a, int b) {
-        for (int j = 0; j < groups.length; j++) {
-            if (groupContains(groups[j], groups[i][a]) && groups[j][0] == TRUE) {
-                pieces[groups[i][a]].inMill = true;
-            }
-            if (groupContains(groups[j], groups[i][b]) && groups[j][0] == TRUE) {
-                pieces[groups[i][b]].inMill = true;
             }
         }
     }
 
     /**
-     * Helper method to check if a group contains a specific value.
-     *
-     * @param arr The group to check.
-     * @param val The value to look for.
-     * @return {@code true} if the group contains the value, {@code false} otherwise.
-     */
-    private boolean groupContains(int[] arr, int val) {
-        return arr[1] == val || arr[2] == val || arr[3] == val;
-    }
-
-    /**
-     * Helper method to check if all pieces in a group are of the same color.
-     *
-     * @param arr The group to check.
-     * @return {@code true} if all pieces in the group are of the same color, {@code false} otherwise.
-     */
-    private boolean groupSameColor(int[] arr) {
-        return pieces[arr[1]].color == pieces[arr[2]].color && pieces[arr[2]].color == pieces[arr[3]].color;
-    }
-
-    /**
-     * Sets the mill status for a group of pieces.
+     * Sets the mill status for a group of pieces, updating the mill counters of its fields.
      *
      * @param i    The index of the group.
      * @param mill {@code true} to set the group as in a mill, {@code false} to set it as not in a mill.
      */
     private void setMillForGroup(int i, boolean mill) {
-        pieces[groups[i][1]].inMill = pieces[groups[i][2]].inMill = pieces[groups[i][3]].inMill = mill;
-        groups[i][0] = mill ? TRUE : FALSE;
+        groupInMill[i] = mill;
+        for (int k = groupStart[i]; k < groupStart[i + 1]; k++) {
+            int field = groupFieldList[k];
+            if (mill) {
+                if (millCounts[field]++ == 0) {
+                    millBoard |= bit(field);
+                }
+            } else {
+                if (--millCounts[field] == 0) {
+                    millBoard &= ~bit(field);
+                }
+            }
+        }
     }
 
     /**
@@ -367,7 +695,27 @@ public class BoardModel {
      * @return The color of the piece at the specified field.
      */
     public Color getFieldColor(int i) {
-        return pieces[i].color;
+        if ((lightBoard & bit(i)) != 0) return Color.LIGHT;
+        if ((darkBoard & bit(i)) != 0) return Color.DARK;
+        return Color.EMPTY;
+    }
+
+    /**
+     * Enum representing the phase of the turn of the player to move.
+     */
+    public enum Phase {
+        /**
+         * The player places a new piece.
+         */
+        PLACING,
+        /**
+         * The player moves (or flies) one of their pieces.
+         */
+        MOVING,
+        /**
+         * The player has formed a mill and removes a piece of the opponent.
+         */
+        REMOVING
     }
 
     /**
@@ -387,21 +735,4 @@ public class BoardModel {
          */
         EMPTY
     }
-
-    /**
-     * The {@code Piece} class represents a single piece on the board. Each piece has a color and a status indicating
-     * whether it is part of a mill.
-     */
-    private static class Piece {
-
-        private Color color; // The color of the piece
-        private boolean inMill = false; // Whether the piece is part of a mill
-
-        /**
-         * Constructs a new {@code Piece} with the default color of {@code BLANK}.
-         */
-        public Piece() {
-            color = Color.EMPTY;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,280 @@
+package org.model;
+
+import org.jetbrains.annotations.NotNull;
+import org.util.MapModel;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The symmetries of a map: every permutation of the fields that maps neighbors to neighbors, non-neighbors to
+ * non-neighbors and groups (the possible mills) to groups, found by searching the automorphisms of the
+ * {@link MapModel#fields} graph. The default map has 16 of them: 4 rotations, 4 reflections, and each of them combined
+ * with swapping the inner and the outer ring.
+ * <p>
+ * Positions that are images of each other under a symmetry are equivalent, so tables keyed by positions only need one
+ * of them, the canonical one: the image with the smallest light bitboard, and the smallest dark bitboard among those.
+ * Finding it takes O(symmetries) bitboard mappings, see {@link FieldPermutation#apply(long)}.
+ */
+public final class BoardSymmetries {
+    private final int fields;
+    //symmetries[0] is the identity
+    private final FieldPermutation[] symmetries;
+    //inverses[t]: the index of the symmetry undoing symmetry t
+    private final int[] inverses;
+
+    /**
+     * Finds the symmetries of a map.
+     *
+     * @param mapModel The map.
+     * @throws IllegalArgumentException If the map is not valid for a {@link BoardModel}.
+     */
+    public BoardSymmetries(@NotNull MapModel mapModel) {
+        BoardModel board = new BoardModel(mapModel);
+        fields = board.getNumberOfFields();
+        symmetries = new Search(board).run().toArray(new FieldPermutation[0]);
+        inverses = new int[symmetries.length];
+        for (int t = 0; t < symmetries.length; t++) {
+            for (int u = 0; u < symmetries.length; u++) {
+                if (symmetries[t].then(symmetries[u]).isIdentity()) inverses[t] = u;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of symmetries, including the identity.
+     *
+     * @return The number of symmetries.
+     */
+    public int size() {
+        return symmetries.length;
+    }
+
+    /**
+     * Gets a symmetry.
+     *
+     * @param transform The index of the symmetry, {@code 0} is the identity.
+     * @return The permutation of the fields.
+     */
+    public FieldPermutation get(int transform) {
+        return symmetries[transform];
+    }
+
+    /**
+     * Gets the symmetry undoing another one.
+     *
+     * @param transform The index of a symmetry.
+     * @return The index of its inverse.
+     */
+    public int inverse(int transform) {
+        return inverses[transform];
+    }
+
+    /**
+     * Gets every symmetry.
+     *
+     * @return A new array of the permutations, the identity first.
+     */
+    public FieldPermutation[] getAll() {
+        return symmetries.clone();
+    }
+
+    /**
+     * Finds the symmetry that maps a position to its canonical image.
+     *
+     * @param light The bitboard of the light pieces.
+     * @param dark  The bitboard of the dark pieces.
+     * @return The index of the symmetry; the smallest index if several give the canonical image.
+     */
+    public int canonicalTransform(long light, long dark) {
+        int best = 0;
+        long bestLight = light;
+        long bestDark = dark;
+        for (int t = 1; t < symmetries.length; t++) {
+            long l = symmetries[t].apply(light);
+            int compare = Long.compareUnsigned(l, bestLight);
+            if (compare > 0) continue;
+            long d = symmetries[t].apply(dark);
+            if (compare < 0 || Long.compareUnsigned(d, bestDark) < 0) {
+                best = t;
+                bestLight = l;
+                bestDark = d;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Maps a position to its canonical image.
+     *
+     * @param light The bitboard of the light pieces.
+     * @param dark  The bitboard of the dark pieces.
+     * @return The canonical position and the symmetry mapping the position to it.
+     */
+    public Canonical canonicalize(long light, long dark) {
+        int t = canonicalTransform(light, dark);
+        return new Canonical(symmetries[t].apply(light), symmetries[t].apply(dark), t);
+    }
+
+    /**
+     * Maps the position on a board to its canonical image.
+     *
+     * @param board The position.
+     * @return The canonical position and the symmetry mapping the position to it.
+     * @throws IllegalArgumentException If the board has another number of fields.
+     */
+    public Canonical canonicalize(@NotNull BoardModel board) {
+        checkBoard(board);
+        return canonicalize(board.getBitboard(BoardModel.Color.LIGHT), board.getBitboard(BoardModel.Color.DARK));
+    }
+
+    /**
+     * Computes the Zobrist hash of the canonical image of the position on a board, the same for every equivalent
+     * position. The player to move, the pieces left to place and the phase are hashed like by
+     * {@link BoardModel#positionHash()}.
+     *
+     * @param board The position.
+     * @return The hash of the canonical position.
+     * @throws IllegalArgumentException If the board has another number of fields.
+     */
+    public long canonicalHash(@NotNull BoardModel board) {
+        checkBoard(board);
+        long light = board.getBitboard(BoardModel.Color.LIGHT);
+        long dark = board.getBitboard(BoardModel.Color.DARK);
+        FieldPermutation symmetry = symmetries[canonicalTransform(light, dark)];
+        return Zobrist.hash(symmetry.apply(light), symmetry.apply(dark), board.getSideToMove(),
+                board.getPiecesToPlace(BoardModel.Color.LIGHT), board.getPiecesToPlace(BoardModel.Color.DARK),
+                board.isRemoving());
+    }
+
+    /**
+     * Maps the fields of an encoded {@link Move}.
+     *
+     * @param move      The move.
+     * @param transform The index of the symmetry.
+     * @return The image of the move.
+     */
+    public int mapMove(int move, int transform) {
+        if (move == Move.NONE) return Move.NONE;
+        FieldPermutation symmetry = symmetries[transform];
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int removed = Move.removed(move);
+        return Move.encode(Move.color(move), from == 0 ? 0 : symmetry.apply(from), to == 0 ? 0 : symmetry.apply(to),
+                removed == 0 ? 0 : symmetry.apply(removed));
+    }
+
+    private void checkBoard(BoardModel board) {
+        if (board.getNumberOfFields() != fields) throw new IllegalArgumentException("The board is of another map");
+    }
+
+    /**
+     * A canonical position.
+     *
+     * @param light     The bitboard of the light pieces.
+     * @param dark      The bitboard of the dark pieces.
+     * @param transform The index of the symmetry that mapped the original position to this one.
+     */
+    public record Canonical(long light, long dark, int transform) {
+    }
+
+    /**
+     * Backtracking search of the automorphisms. Fields are assigned an image in breadth-first order, so most fields
+     * have an assigned neighbor, and a candidate image is rejected as soon as it disagrees with the images assigned so
+     * far: its neighbors among them, or a group whose fields are all assigned and whose image is not a group.
+     */
+    private static final class Search {
+        private final int fields;
+        private final long[] neighbors;
+        private final long[][] fieldGroups;
+        private final Set<Long> groups = new HashSet<>();
+        private final long[] signatures;
+        private final int[] order;
+        private final int[] image;
+        private final List<FieldPermutation> found = new ArrayList<>();
+
+        Search(BoardModel board) {
+            fields = board.getNumberOfFields();
+            neighbors = new long[fields + 1];
+            fieldGroups = new long[fields + 1][];
+            signatures = new long[fields + 1];
+            image = new int[fields + 1];
+            for (int g = 0; g < board.getNumberOfGroups(); g++) {
+                groups.add(board.getGroupMask(g));
+            }
+            for (int i = 1; i <= fields; i++) {
+                neighbors[i] = board.getNeighborMask(i);
+                long bit = BoardModel.bit(i);
+                fieldGroups[i] = groups.stream().filter(group -> (group & bit) != 0).mapToLong(Long::longValue).toArray();
+            }
+            //fields can only be mapped to fields with the same degree and the same sizes of groups
+            for (int i = 1; i <= fields; i++) {
+                long signature = Long.bitCount(neighbors[i]);
+                for (long group : fieldGroups[i]) {
+                    signature += 1L << (8 + 4 * Math.min(Long.bitCount(group), 13));
+                }
+                signatures[i] = signature;
+            }
+            order = new int[fields];
+            long visited = 0L;
+            int count = 0;
+            for (int start = 1; start <= fields; start++) {
+                if ((visited & BoardModel.bit(start)) != 0) continue;
+                visited |= BoardModel.bit(start);
+                order[count++] = start;
+                for (int next = count - 1; next < count; next++) {
+                    for (long rest = neighbors[order[next]] & ~visited; rest != 0; rest &= rest - 1) {
+                        int field = Long.numberOfTrailingZeros(rest) + 1;
+                        visited |= BoardModel.bit(field);
+                        order[count++] = field;
+                    }
+                }
+            }
+        }
+
+        List<FieldPermutation> run() {
+            assign(0, 0L, 0L);
+            //the identity is always found first, as every field first tries itself
+            found.sort((a, b) -> Boolean.compare(b.isIdentity(), a.isIdentity()));
+            return found;
+        }
+
+        private void assign(int position, long assigned, long used) {
+            if (position == fields) {
+                found.add(new FieldPermutation(image));
+                return;
+            }
+            int field = order[position];
+            long assignedNeighbors = neighbors[field] & assigned;
+            long assignedAfter = assigned | BoardModel.bit(field);
+            for (int offset = 0; offset < fields; offset++) {
+                //try the field itself first
+                int candidate = (field - 1 + offset) % fields + 1;
+                if ((used & BoardModel.bit(candidate)) != 0 || signatures[candidate] != signatures[field]) continue;
+                if (mapped(assignedNeighbors) != (neighbors[candidate] & used)) continue;
+                image[field] = candidate;
+                if (groupsKept(field, assignedAfter)) {
+                    assign(position + 1, assignedAfter, used | BoardModel.bit(candidate));
+                }
+            }
+            image[field] = 0;
+        }
+
+        private long mapped(long set) {
+            long ret = 0L;
+            for (; set != 0; set &= set - 1) {
+                ret |= BoardModel.bit(image[Long.numberOfTrailingZeros(set) + 1]);
+            }
+            return ret;
+        }
+
+        private boolean groupsKept(int field, long assigned) {
+            for (long group : fieldGroups[field]) {
+                if ((group & assigned) == group && !groups.contains(mapped(group))) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package org.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.jetbrains.annotations.NotNull;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The topology of a map compiled into flat arrays: the neighbors of the fields in compressed sparse rows, the fields of
+ * the groups, the groups of every field, and the content hash of the map. A compiled map is immutable and shared by
+ * every {@link BoardModel} of its map, so thousands of games on one map hold one topology instead of one graph each.
+ * <p>
+ * Row {@code i} of a compressed sparse row array is {@code list[start[i]] .. list[start[i + 1] - 1]}; fields are
+ * 1-based, groups 0-based in the order of {@code MapModel.groups}.
+ * <p>
+ * Maps are compiled once: {@link #of(MapModel)} caches the compiled map of a {@code MapModel} instance, and
+ * {@link #load(Path)} the compiled map of a file until the file is changed. The {@code MapModel} of a compiled map must
+ * not be changed afterwards.
+ */
+public final class CompiledMap {
+    //the compiled map references its MapModel, so it is only weakly referenced to let unused maps be collected
+    private static final Map<MapModel, WeakReference<CompiledMap>> COMPILED = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<Path, Loaded> LOADED = new ConcurrentHashMap<>();
+
+    private final MapModel mapModel;
+    final int numberOfFields;
+    final int pieces;
+    //neighborMasks[i] has a bit set for every neighbor of field i, neighborMasks[0] is not used
+    final long[] neighborMasks;
+    final int[] neighborStart;
+    final int[] neighborList;
+    final long[] groupMasks;
+    final int[] groupStart;
+    final int[] groupFieldList;
+    //Incidence index: the groups containing each field, so a move only looks at the few groups it touches
+    final int[] fieldGroupStart;
+    final int[] fieldGroupList;
+    private final long contentHash;
+    //the content of the map when it was compiled, to notice a MapModel whose lists were replaced
+    private final Object fields;
+    private final Object groups;
+
+    /**
+     * A compiled map of a file, valid while the file keeps its modification time and size.
+     */
+    private record Loaded(long lastModified, long size, CompiledMap map) {
+    }
+
+    /**
+     * Helper constructor for {@link #compile(MapModel)}.
+     *
+     * @param mapModel The map.
+     */
+    private CompiledMap(MapModel mapModel) {
+        this.mapModel = mapModel;
+        fields = mapModel.fields;
+        groups = mapModel.groups;
+        numberOfFields = mapModel.fields.size();
+        if (numberOfFields > BoardModel.MAX_FIELDS) {
+            throw new IllegalArgumentException("Maps with more than " + BoardModel.MAX_FIELDS + " fields are not supported");
+        }
+        if (mapModel.pieces < 0 || mapModel.pieces > BoardModel.MAX_FIELDS) {
+            throw new IllegalArgumentException("Invalid number of pieces: " + mapModel.pieces);
+        }
+        pieces = mapModel.pieces;
+
+        neighborMasks = new long[numberOfFields + 1];
+        for (Map.Entry<Integer, ArrayList<Integer>> entry : mapModel.fields.entrySet()) {
+            int field = checkField(entry.getKey());
+            for (Integer neighbor : entry.getValue()) {
+                neighborMasks[field] |= BoardModel.bit(checkField(neighbor));
+            }
+        }
+        neighborStart = new int[numberOfFields + 2];
+        for (int i = 1; i <= numberOfFields; i++) {
+            neighborStart[i + 1] = neighborStart[i] + Long.bitCount(neighborMasks[i]);
+        }
+        neighborStart[0] = neighborStart[1];
+        neighborList = new int[neighborStart[numberOfFields + 1]];
+        for (int i = 1; i <= numberOfFields; i++) {
+            int k = neighborStart[i];
+            for (long rest = neighborMasks[i]; rest != 0; rest &= rest - 1) {
+                neighborList[k++] = Long.numberOfTrailingZeros(rest) + 1;
+            }
+        }
+
+        int numberOfGroups = mapModel.groups.size();
+        groupMasks = new long[numberOfGroups];
+        groupStart = new int[numberOfGroups + 1];
+        for (int i = 0; i < numberOfGroups; i++) {
+            groupStart[i + 1] = groupStart[i] + mapModel.groups.get(i).length;
+        }
+        groupFieldList = new int[groupStart[numberOfGroups]];
+        int[] groupsPerField = new int[numberOfFields + 2];
+        for (int i = 0; i < numberOfGroups; i++) {
+            int k = groupStart[i];
+            for (int field : mapModel.groups.get(i)) {
+                groupMasks[i] |= BoardModel.bit(checkField(field));
+                groupFieldList[k++] = field;
+                groupsPerField[field]++;
+            }
+        }
+        fieldGroupStart = new int[numberOfFields + 2];
+        for (int i = 1; i <= numberOfFields; i++) {
+            fieldGroupStart[i + 1] = fieldGroupStart[i] + groupsPerField[i];
+        }
+        fieldGroupStart[0] = fieldGroupStart[1];
+        fieldGroupList = new int[fieldGroupStart[numberOfFields + 1]];
+        int[] next = Arrays.copyOf(fieldGroupStart, numberOfFields + 1);
+        for (int i = 0; i < numberOfGroups; i++) {
+            for (int k = groupStart[i]; k < groupStart[i + 1]; k++) {
+                fieldGroupList[next[groupFieldList[k]]++] = i;
+            }
+        }
+        contentHash = mapModel.contentHash();
+    }
+
+    /**
+     * Compiles a map, without caching it.
+     *
+     * @param mapModel The map.
+     * @return The compiled map.
+     * @throws IllegalArgumentException If the map has more than {@value BoardModel#MAX_FIELDS} fields or pieces per
+     *                                  player, or refers to a field outside of {@code 1..fields.size()}.
+     */
+    public static CompiledMap compile(@NotNull MapModel mapModel) {
+        return new CompiledMap(mapModel);
+    }
+
+    /**
+     * Gets the compiled map of a {@code MapModel}, compiling it on the first call for the instance.
+     *
+     * @param mapModel The map.
+     * @return The compiled map, the same for every call with the same unchanged instance.
+     * @throws IllegalArgumentException If the map is not valid, see {@link #compile(MapModel)}.
+     */
+    public static CompiledMap of(@NotNull MapModel mapModel) {
+        WeakReference<CompiledMap> reference = COMPILED.get(mapModel);
+        CompiledMap map = reference == null ? null : reference.get();
+        if (map == null || !map.compiledFrom(mapModel)) {
+            map = compile(mapModel);
+            COMPILED.put(mapModel, new WeakReference<>(map));
+        }
+        return map;
+    }
+
+    /**
+     * Loads and compiles the map of a JSON file, or gets it from the cache if the file has not been changed since.
+     *
+     * @param file The file of the map.
+     * @return The compiled map, shared by all callers loading the same unchanged file.
+     * @throws IOException If the file cannot be read or is not a valid map.
+     */
+    public static CompiledMap load(@NotNull Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        Loaded loaded = LOADED.get(key);
+        if (loaded != null && loaded.lastModified() == lastModified && loaded.size() == attributes.size()) {
+            return loaded.map();
+        }
+        MapModel mapModel;
+        try (Reader reader = Files.newBufferedReader(key)) {
+            mapModel = new Gson().fromJson(reader, MapModel.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid map " + file, e);
+        }
+        if (mapModel == null || mapModel.fields == null || mapModel.groups == null) throw new IOException("Invalid map " + file);
+        CompiledMap map;
+        try {
+            map = compile(mapModel);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid map " + file + ": " + e.getMessage(), e);
+        }
+        COMPILED.put(mapModel, new WeakReference<>(map));
+        LOADED.put(key, new Loaded(lastModified, attributes.size(), map));
+        return map;
+    }
+
+    /**
+     * Helper method to check that a map was compiled from the current lists of a {@code MapModel}.
+     *
+     * @param mapModel The map.
+     * @return {@code true} if the lists and sizes are the ones compiled.
+     */
+    private boolean compiledFrom(MapModel mapModel) {
+        return mapModel.fields == fields && mapModel.groups == groups && mapModel.fields.size() == numberOfFields
+                && mapModel.groups.size() == groupMasks.length && mapModel.pieces == pieces;
+    }
+
+    /**
+     * Helper method to validate a field index read from the map.
+     *
+     * @param field The index of the field.
+     * @return The same index.
+     * @throws IllegalArgumentException If the field is not on the board.
+     */
+    private int checkField(int field) {
+        if (field < 1 || field > numberOfFields) {
+            throw new IllegalArgumentException("Field " + field + " is not on the board");
+        }
+        return field;
+    }
+
+    /**
+     * Gets the map this topology was compiled from.
+     *
+     * @return The {@code MapModel}, which must not be changed.
+     */
+    public MapModel getMapModel() {
+        return mapModel;
+    }
+
+    /**
+     * Gets the number of fields of the map.
+     *
+     * @return The number of fields.
+     */
+    public int getNumberOfFields() {
+        return numberOfFields;
+    }
+
+    /**
+     * Gets the number of pieces of each player.
+     *
+     * @return The pieces per player.
+     */
+    public int getPieces() {
+        return pieces;
+    }
+
+    /**
+     * Gets the number of groups (possible mills) of the map.
+     *
+     * @return The number of groups.
+     */
+    public int getNumberOfGroups() {
+        return groupMasks.length;
+    }
+
+    /**
+     * Gets the mask of the neighbors of a field.
+     *
+     * @param field The index of the field.
+     * @return The bitboard of the neighboring fields.
+     */
+    public long getNeighborMask(int field) {
+        return neighborMasks[field];
+    }
+
+    /**
+     * Gets the neighbors of a field.
+     *
+     * @param field The index of the field.
+     * @return A copy of the neighboring fields, in ascending order.
+     */
+    public int[] getNeighbors(int field) {
+        return Arrays.copyOfRange(neighborList, neighborStart[field], neighborStart[field + 1]);
+    }
+
+    /**
+     * Gets the mask of the fields of a group.
+     *
+     * @param group The index of the group.
+     * @return The bitboard of the fields of the group.
+     */
+    public long getGroupMask(int group) {
+        return groupMasks[group];
+    }
+
+    /**
+     * Gets the fields of a group.
+     *
+     * @param group The index of the group.
+     * @return A copy of the fields, in the order of the map.
+     */
+    public int[] getGroupFields(int group) {
+        return Arrays.copyOfRange(groupFieldList, groupStart[group], groupStart[group + 1]);
+    }
+
+    /**
+     * Gets the groups containing a field.
+     *
+     * @param field The index of the field.
+     * @return A copy of the indices of the groups, in ascending order.
+     */
+    public int[] getGroupsOf(int field) {
+        return Arrays.copyOfRange(fieldGroupList, fieldGroupStart[field], fieldGroupStart[field + 1]);
+    }
+
+    /**
+     * Gets the content hash of the map, see {@link MapModel#contentHash()}.
+     *
+     * @return The hash, computed when the map was compiled.
+     */
+    public long contentHash() {
+        return contentHash;
+    }
+}
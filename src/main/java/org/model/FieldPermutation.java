@@ -0,0 +1,144 @@
+package org.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Immutable permutation of the fields of a board, e.g. a rotation or reflection of the map. Besides single fields it
+ * maps whole bitboards (field {@code i} is bit {@code i - 1}) through precomputed tables, one per byte of the
+ * bitboard, so a bitboard is mapped with 8 table lookups and no allocation.
+ */
+public final class FieldPermutation {
+    //image[i]: the field that field i is mapped to (1-based, image[0] is unused)
+    private final int[] image;
+    //byteImages[b][v]: the bitboard of the images of the fields set in byte b of a bitboard having the value v
+    private final long[][] byteImages;
+
+    /**
+     * Constructs a permutation.
+     *
+     * @param image The field every field is mapped to: {@code image[i]} for field {@code i}, {@code image[0]} is
+     *              ignored. The array is copied.
+     * @throws IllegalArgumentException If the fields are out of range or not a permutation.
+     */
+    public FieldPermutation(@NotNull int[] image) {
+        int fields = image.length - 1;
+        if (fields < 0 || fields > BoardModel.MAX_FIELDS) throw new IllegalArgumentException("Invalid number of fields: " + fields);
+        this.image = image.clone();
+        this.image[0] = 0;
+        long seen = 0L;
+        for (int i = 1; i <= fields; i++) {
+            if (image[i] < 1 || image[i] > fields || (seen & BoardModel.bit(image[i])) != 0) {
+                throw new IllegalArgumentException("Not a permutation: " + Arrays.toString(image));
+            }
+            seen |= BoardModel.bit(image[i]);
+        }
+        byteImages = new long[(fields + 7) / 8][256];
+        for (int b = 0; b < byteImages.length; b++) {
+            for (int value = 1; value < 256; value++) {
+                int low = Integer.numberOfTrailingZeros(value);
+                int field = b * 8 + low + 1;
+                long rest = byteImages[b][value & (value - 1)];
+                byteImages[b][value] = field <= fields ? rest | BoardModel.bit(image[field]) : rest;
+            }
+        }
+    }
+
+    /**
+     * Creates the permutation mapping every field to itself.
+     *
+     * @param fields The number of fields.
+     * @return The identity.
+     */
+    public static FieldPermutation identity(int fields) {
+        int[] image = new int[fields + 1];
+        for (int i = 1; i <= fields; i++) image[i] = i;
+        return new FieldPermutation(image);
+    }
+
+    /**
+     * Gets the number of fields permuted.
+     *
+     * @return The number of fields.
+     */
+    public int getFields() {
+        return image.length - 1;
+    }
+
+    /**
+     * Maps a field.
+     *
+     * @param field The field, 1-based.
+     * @return The field it is mapped to.
+     */
+    public int apply(int field) {
+        return image[field];
+    }
+
+    /**
+     * Maps every field of a bitboard.
+     *
+     * @param bitboard The bitboard, field {@code i} being bit {@code i - 1}.
+     * @return The bitboard of the images of the fields.
+     */
+    public long apply(long bitboard) {
+        long ret = 0L;
+        for (int b = 0; bitboard != 0; b++, bitboard >>>= 8) {
+            ret |= byteImages[b][(int) bitboard & 0xFF];
+        }
+        return ret;
+    }
+
+    /**
+     * Creates the permutation undoing this one.
+     *
+     * @return The inverse permutation.
+     */
+    public FieldPermutation inverse() {
+        int[] inverse = new int[image.length];
+        for (int i = 1; i < image.length; i++) inverse[image[i]] = i;
+        return new FieldPermutation(inverse);
+    }
+
+    /**
+     * Creates the permutation applying this one first and another one after it.
+     *
+     * @param next The permutation applied second.
+     * @return The composed permutation.
+     * @throws IllegalArgumentException If the permutations are of different numbers of fields.
+     */
+    public FieldPermutation then(@NotNull FieldPermutation next) {
+        if (next.getFields() != getFields()) throw new IllegalArgumentException("Different numbers of fields");
+        int[] composed = new int[image.length];
+        for (int i = 1; i < image.length; i++) composed[i] = next.image[image[i]];
+        return new FieldPermutation(composed);
+    }
+
+    /**
+     * Checks whether this permutation maps every field to itself.
+     *
+     * @return {@code true} for the identity.
+     */
+    public boolean isIdentity() {
+        for (int i = 1; i < image.length; i++) {
+            if (image[i] != i) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FieldPermutation other && Arrays.equals(image, other.image);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(image);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOfRange(image, 1, image.length));
+    }
+}
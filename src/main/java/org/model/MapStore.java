@@ -0,0 +1,125 @@
+package org.model;
+
+import com.google.gson.Gson;
+import org.jetbrains.annotations.NotNull;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A content-addressed store of maps, so a save only references its map by identifier and content hash instead of
+ * embedding it. Every map a game is saved with is put into the store once, as {@code <content hash>.json}; a save can
+ * then be loaded even after the map file it was played on has been changed or deleted.
+ * <p>
+ * As a {@link SaveStateFormat.MapResolver}, the store looks a map up in the maps folder by its identifier first, and
+ * in the store by its hash if the file is missing or has been changed. Both are read through the cache of
+ * {@link CompiledMap#load}, so every save of a map shares one parsed and compiled map.
+ */
+public class MapStore implements SaveStateFormat.MapResolver {
+    /**
+     * The folder of the store of the game, next to the {@code maps} folder.
+     */
+    public static final String FOLDER = "mapstore";
+
+    private final Path mapsFolder;
+    private final Path storeFolder;
+    //the hashes known to be in the store, so saving a map again does not touch the disk
+    private final Set<Long> stored = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Constructs a store.
+     *
+     * @param mapsFolder  The folder of the maps named after their identifiers, e.g. {@code maps}.
+     * @param storeFolder The folder of the stored maps, created by the first map put into it.
+     */
+    public MapStore(@NotNull Path mapsFolder, @NotNull Path storeFolder) {
+        this.mapsFolder = mapsFolder;
+        this.storeFolder = storeFolder;
+    }
+
+    /**
+     * Gets the key of a map in the store, which can also be used as the identifier of a map without a file.
+     *
+     * @param hash The content hash of the map.
+     * @return The hash as 16 hexadecimal digits.
+     */
+    public static String key(long hash) {
+        return String.format("%016x", hash);
+    }
+
+    /**
+     * Puts a map into the store, unless it is stored already.
+     *
+     * @param mapModel The map.
+     * @return The content hash of the map.
+     * @throws IOException If the map cannot be written.
+     */
+    public long put(@NotNull MapModel mapModel) throws IOException {
+        long hash = CompiledMap.of(mapModel).contentHash();
+        if (stored.contains(hash)) return hash;
+        Path file = storeFolder.resolve(key(hash) + ".json");
+        if (!Files.exists(file)) {
+            Files.createDirectories(storeFolder);
+            Path temporary = storeFolder.resolve(key(hash) + ".json.tmp");
+            try {
+                Files.writeString(temporary, new Gson().toJson(mapModel), StandardCharsets.UTF_8);
+                try {
+                    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        stored.add(hash);
+        return hash;
+    }
+
+    /**
+     * Finds a map by its identifier in the maps folder, or by its hash in the store.
+     *
+     * @param id   The identifier of the map.
+     * @param hash The content hash of the map.
+     * @return The map with this hash, shared with the other callers resolving it.
+     * @throws IOException If neither the maps folder nor the store has the map.
+     */
+    @Override
+    public MapModel resolve(@NotNull String id, long hash) throws IOException {
+        Path named = mapsFolder.resolve(id + ".json");
+        if (Files.exists(named)) {
+            CompiledMap map = CompiledMap.load(named);
+            if (map.contentHash() == hash) return map.getMapModel();
+        }
+        Path file = storeFolder.resolve(key(hash) + ".json");
+        if (!Files.exists(file)) throw new IOException("The map " + id + " of the save is neither in " + mapsFolder + " nor in " + storeFolder);
+        CompiledMap map = CompiledMap.load(file);
+        if (map.contentHash() != hash) throw new IOException("The stored map " + file + " is corrupt");
+        stored.add(hash);
+        return map.getMapModel();
+    }
+
+    /**
+     * Replaces a map by the equal map shared by the other saves, e.g. the map embedded in a JSON save, so the games of
+     * the save share the compiled topology.
+     *
+     * @param mapModel The map.
+     * @param id       The identifier of the map file to try first, e.g. the current map; null to only try the store.
+     * @return The shared map with the same content, or the given map if there is none.
+     */
+    public MapModel intern(@NotNull MapModel mapModel, String id) {
+        long hash = CompiledMap.of(mapModel).contentHash();
+        try {
+            return resolve(id == null ? key(hash) : id, hash);
+        } catch (IOException e) {
+            return mapModel;
+        }
+    }
+}
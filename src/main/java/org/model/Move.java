@@ -0,0 +1,175 @@
+package org.model;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Utility class for encoding a complete turn of a player into a single {@code int}, so that moves can be stored in
+ * primitive arrays and passed around without allocation.
+ * <p>
+ * Layout of an encoded move (fields are 1-based, {@code 0} means "none"):
+ * <pre>
+ * bits  0- 6: the field the piece is placed or moved to ({@code 0} if the move is only a removal)
+ * bits  7-13: the field the piece is moved from ({@code 0} for placing a piece)
+ * bits 14-20: the field of the opponent's piece removed after forming a mill ({@code 0} if there is none)
+ * bit     21: the color of the moving player ({@code 0} for light, {@code 1} for dark)
+ * </pre>
+ * A move with only a removal finishes a turn in the {@link BoardModel.Phase#REMOVING} phase.
+ */
+public final class Move {
+    /**
+     * Value that never represents a valid move.
+     */
+    public static final int NONE = 0;
+
+    private static final int FIELD_BITS = 7;
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+    private static final int FROM_SHIFT = FIELD_BITS;
+    private static final int REMOVE_SHIFT = 2 * FIELD_BITS;
+    private static final int COLOR_SHIFT = 3 * FIELD_BITS;
+
+    private Move() {
+    }
+
+    /**
+     * Encodes placing a piece.
+     *
+     * @param color The color of the player placing the piece.
+     * @param to    The field the piece is placed on.
+     * @return The encoded move.
+     */
+    public static int place(@NotNull BoardModel.Color color, int to) {
+        return encode(color, 0, to, 0);
+    }
+
+    /**
+     * Encodes moving (or flying) a piece.
+     *
+     * @param color The color of the player moving the piece.
+     * @param from  The field the piece is moved from.
+     * @param to    The field the piece is moved to.
+     * @return The encoded move.
+     */
+    public static int move(@NotNull BoardModel.Color color, int from, int to) {
+        return encode(color, from, to, 0);
+    }
+
+    /**
+     * Encodes only removing a piece of the opponent, after a mill was formed.
+     *
+     * @param color   The color of the player removing the piece.
+     * @param removed The field of the opponent's piece to remove.
+     * @return The encoded move.
+     */
+    public static int removal(@NotNull BoardModel.Color color, int removed) {
+        return encode(color, 0, 0, removed);
+    }
+
+    /**
+     * Adds the removal of an opponent's piece to a move.
+     *
+     * @param move    The encoded move without a removal.
+     * @param removed The field of the opponent's piece to remove.
+     * @return The encoded move including the removal.
+     */
+    public static int withRemoval(int move, int removed) {
+        return (move & ~(FIELD_MASK << REMOVE_SHIFT)) | (removed << REMOVE_SHIFT);
+    }
+
+    /**
+     * Encodes a move from its parts.
+     *
+     * @param color   The color of the moving player.
+     * @param from    The field the piece is moved from, {@code 0} for placing a piece.
+     * @param to      The field the piece is placed or moved to.
+     * @param removed The field of the removed opponent's piece, {@code 0} if there is none.
+     * @return The encoded move.
+     */
+    public static int encode(@NotNull BoardModel.Color color, int from, int to, int removed) {
+        if (color == BoardModel.Color.EMPTY) throw new IllegalArgumentException("Only players can move");
+        return to | (from << FROM_SHIFT) | (removed << REMOVE_SHIFT) | ((color == BoardModel.Color.DARK ? 1 : 0) << COLOR_SHIFT);
+    }
+
+    /**
+     * Gets the field a piece is placed or moved to.
+     *
+     * @param move The encoded move.
+     * @return The destination field.
+     */
+    public static int to(int move) {
+        return move & FIELD_MASK;
+    }
+
+    /**
+     * Gets the field a piece is moved from.
+     *
+     * @param move The encoded move.
+     * @return The origin field, {@code 0} if the move places a piece.
+     */
+    public static int from(int move) {
+        return (move >>> FROM_SHIFT) & FIELD_MASK;
+    }
+
+    /**
+     * Gets the field of the opponent's piece removed by the move.
+     *
+     * @param move The encoded move.
+     * @return The removed field, {@code 0} if the move does not remove a piece.
+     */
+    public static int removed(int move) {
+        return (move >>> REMOVE_SHIFT) & FIELD_MASK;
+    }
+
+    /**
+     * Gets the color of the player making the move.
+     *
+     * @param move The encoded move.
+     * @return {@code Color.LIGHT} or {@code Color.DARK}.
+     */
+    public static BoardModel.Color color(int move) {
+        return ((move >>> COLOR_SHIFT) & 1) == 0 ? BoardModel.Color.LIGHT : BoardModel.Color.DARK;
+    }
+
+    /**
+     * Checks whether a move places a new piece on the board.
+     *
+     * @param move The encoded move.
+     * @return {@code true} for placing moves, {@code false} for moving (or flying) ones and removals.
+     */
+    public static boolean isPlacement(int move) {
+        return from(move) == 0 && to(move) != 0;
+    }
+
+    /**
+     * Checks whether a move consists only of removing an opponent's piece.
+     *
+     * @param move The encoded move.
+     * @return {@code true} if the move does not place or move a piece.
+     */
+    public static boolean isRemovalOnly(int move) {
+        return to(move) == 0;
+    }
+
+    /**
+     * Checks whether a move removes an opponent's piece.
+     *
+     * @param move The encoded move.
+     * @return {@code true} if the move forms a mill and removes a piece.
+     */
+    public static boolean hasRemoval(int move) {
+        return removed(move) != 0;
+    }
+
+    /**
+     * Converts a move to a human readable form, e.g. {@code "LIGHT 4-5x9"}.
+     *
+     * @param move The encoded move.
+     * @return The string representation of the move.
+     */
+    public static String toString(int move) {
+        StringBuilder sb = new StringBuilder(color(move).name()).append(' ');
+        if (from(move) != 0) sb.append(from(move)).append('-');
+        if (to(move) != 0) sb.append(to(move));
+        if (hasRemoval(move)) sb.append('x').append(removed(move));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package org.model;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Generates every legal move of a position as {@link Move}-encoded {@code int}s, following the same rules as the
+ * {@code GameController}:
+ * <ul>
+ *     <li>while a player has pieces left to place, they place a piece on any empty field,</li>
+ *     <li>after that they move a piece to a neighboring empty field, or to any empty field when they are reduced to 3
+ *     pieces (flying),</li>
+ *     <li>a move that forms a mill also removes an opponent's piece that is not part of a mill; if every piece of the
+ *     opponent is in a mill, nothing is removed,</li>
+ *     <li>a player with fewer than 3 pieces (or without any legal move) has lost.</li>
+ * </ul>
+ * Compound moves (the placement or movement together with the removal) are generated as one move, except in the
+ * {@link BoardModel.Phase#REMOVING} phase, where only the removal is left.
+ * <p>
+ * The generator works on the bitboards of the {@link BoardModel}, so it works for any map and does not allocate.
+ */
+public final class MoveGenerator {
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Gets a size for the move array that is large enough for any position on the board.
+     *
+     * @param board The board the moves will be generated for.
+     * @return The maximum number of moves {@link #generate(BoardModel, BoardModel.Color, int[])} can produce.
+     */
+    public static int maxMoves(@NotNull BoardModel board) {
+        int fields = board.getNumberOfFields();
+        int maxDegree = 3; //flying pieces can go anywhere, but there are only 3 of them
+        for (int i = 1; i <= fields; i++) {
+            maxDegree = Math.max(maxDegree, Long.bitCount(board.getNeighborMask(i)));
+        }
+        return Math.max(1, fields * maxDegree * Math.max(1, fields));
+    }
+
+    /**
+     * Generates the legal moves of the player to move.
+     *
+     * @param board The position.
+     * @param moves The array to fill, see {@link #maxMoves(BoardModel)} for its size.
+     * @return The number of moves written to the beginning of the array; {@code 0} if the player has lost.
+     */
+    public static int generate(@NotNull BoardModel board, @NotNull int[] moves) {
+        return generate(board, board.getSideToMove(), moves);
+    }
+
+    /**
+     * Generates the legal moves of a player. The {@code REMOVING} phase of the board only applies if the player is the
+     * one to move.
+     *
+     * @param board The position.
+     * @param side  The color of the player.
+     * @param moves The array to fill, see {@link #maxMoves(BoardModel)} for its size.
+     * @return The number of moves written to the beginning of the array; {@code 0} if the player has lost.
+     * @throws IllegalArgumentException If {@code side} is {@code Color.EMPTY}.
+     */
+    public static int generate(@NotNull BoardModel board, @NotNull BoardModel.Color side, @NotNull int[] moves) {
+        if (side == BoardModel.Color.EMPTY) throw new IllegalArgumentException("The empty color cannot move");
+        BoardModel.Color opponent = side == BoardModel.Color.LIGHT ? BoardModel.Color.DARK : BoardModel.Color.LIGHT;
+        long own = board.getBitboard(side);
+        long empty = board.getBitboard(BoardModel.Color.EMPTY);
+        long removable = board.getBitboard(opponent) & ~board.getMillBitboard();
+        int count = 0;
+
+        if (board.getPieceCount(side) < 3) {
+            return 0;
+        }
+        if (board.isRemoving() && side == board.getSideToMove()) {
+            for (long rest = removable; rest != 0; rest &= rest - 1) {
+                moves[count++] = Move.removal(side, Long.numberOfTrailingZeros(rest) + 1);
+            }
+            return count;
+        }
+        if (board.getPiecesToPlace(side) > 0) {
+            for (long targets = empty; targets != 0; targets &= targets - 1) {
+                int to = Long.numberOfTrailingZeros(targets) + 1;
+                count = add(board, moves, count, Move.place(side, to), own | BoardModel.bit(to), to, removable);
+            }
+            return count;
+        }
+        boolean flying = Long.bitCount(own) == 3;
+        for (long pieces = own; pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces) + 1;
+            long rest = own & ~BoardModel.bit(from);
+            long targets = flying ? empty : board.getNeighborMask(from) & empty;
+            for (; targets != 0; targets &= targets - 1) {
+                int to = Long.numberOfTrailingZeros(targets) + 1;
+                count = add(board, moves, count, Move.move(side, from, to), rest | BoardModel.bit(to), to, removable);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether the player to move has at least one legal move, without generating them.
+     *
+     * @param board The position.
+     * @return {@code true} if the player to move has not lost yet.
+     */
+    public static boolean hasMoves(@NotNull BoardModel board) {
+        BoardModel.Color side = board.getSideToMove();
+        BoardModel.Color opponent = side == BoardModel.Color.LIGHT ? BoardModel.Color.DARK : BoardModel.Color.LIGHT;
+        long empty = board.getBitboard(BoardModel.Color.EMPTY);
+        if (board.getPieceCount(side) < 3) {
+            return false;
+        }
+        if (board.isRemoving()) {
+            return (board.getBitboard(opponent) & ~board.getMillBitboard()) != 0;
+        }
+        if (board.getPiecesToPlace(side) > 0 || board.isFlying(side)) {
+            return empty != 0;
+        }
+        for (long pieces = board.getBitboard(side); pieces != 0; pieces &= pieces - 1) {
+            if ((board.getNeighborMask(Long.numberOfTrailingZeros(pieces) + 1) & empty) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Helper method to add a move, expanded with every possible removal if it forms a mill.
+     *
+     * @param board     The position.
+     * @param moves     The array of moves.
+     * @param count     The number of moves already in the array.
+     * @param move      The move without a removal.
+     * @param ownAfter  The bitboard of the moving player after the move.
+     * @param to        The field the piece arrives at.
+     * @param removable The bitboard of the opponent's pieces that can be removed.
+     * @return The new number of moves in the array.
+     */
+    private static int add(BoardModel board, int[] moves, int count, int move, long ownAfter, int to, long removable) {
+        if (removable != 0 && board.formsMill(ownAfter, to)) {
+            for (; removable != 0; removable &= removable - 1) {
+                moves[count++] = Move.withRemoval(move, Long.numberOfTrailingZeros(removable) + 1);
+            }
+        } else {
+            moves[count++] = move;
+        }
+        return count;
+    }
+}
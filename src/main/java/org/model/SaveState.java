@@ -64,4 +64,41 @@ public class SaveState {
     /** Model representing the game map.
      */
     public MapModel mapModel;
+
+    /**
+     * Creates the save state of the position on a board.
+     *
+     * @param board the position, not in the middle of a turn other than a removal
+     * @return the save state, with the map of the board
+     */
+    public static SaveState fromBoard(BoardModel board) {
+        MapModel mapModel = board.getMapModel();
+        BoardModel.Color[] fields = new BoardModel.Color[board.getNumberOfFields() + 1];
+        for (int i = 1; i < fields.length; i++) {
+            fields[i] = board.getFieldColor(i);
+        }
+        int placed = 2 * mapModel.pieces - board.getPiecesToPlace(BoardModel.Color.LIGHT) - board.getPiecesToPlace(BoardModel.Color.DARK);
+        return new SaveState(placed, fields, mapModel.pieces, board.isRemoving(),
+                board.getSideToMove() == BoardModel.Color.LIGHT,
+                board.getPieceCount(BoardModel.Color.LIGHT), board.getPieceCount(BoardModel.Color.DARK), mapModel);
+    }
+
+    /**
+     * Creates a board with the saved position: the pieces, the player to move, the pieces left to place (light places
+     * first, so light has placed the extra piece of an odd number) and whether a piece has to be removed.
+     *
+     * @return a new board of the saved map
+     * @throws IllegalArgumentException if the map or the counters are not valid
+     */
+    public BoardModel toBoard() {
+        BoardModel board = new BoardModel(mapModel);
+        for (int i = 1; i < fields.length && i <= board.getNumberOfFields(); i++) {
+            if (fields[i] != null && fields[i] != BoardModel.Color.EMPTY) board.putPiece(i, fields[i]);
+        }
+        int darkPlaced = numberOfPiecesPlaced / 2;
+        int lightPlaced = numberOfPiecesPlaced - darkPlaced;
+        board.setTurn(focusOnLight ? BoardModel.Color.LIGHT : BoardModel.Color.DARK,
+                Math.max(0, piecesPerPlayer - lightPlaced), Math.max(0, piecesPerPlayer - darkPlaced), millPhase);
+        return board;
+    }
 }
@@ -0,0 +1,290 @@
+package org.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.jetbrains.annotations.NotNull;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes {@link SaveState}s in a compact binary format, with JSON as a fallback for the saves written before
+ * it and for exporting saves to other tools.
+ * <p>
+ * A binary save does not contain its map, only the identifier of the map (the name of its file in the {@code maps}
+ * folder, or its key in the {@link MapStore}) and its {@link MapModel#contentHash() content hash}; the map is looked
+ * up by a {@link MapResolver} when the save is read, usually the {@link MapStore} the game puts every saved map into. A
+ * save of the default map takes 36 bytes instead of several kilobytes of JSON:
+ * <pre>
+ * int    magic "MGSV"
+ * byte   version
+ * byte   length of the map identifier, followed by the identifier in UTF-8
+ * long   content hash of the map
+ * byte   number of fields
+ * byte   pieces per player
+ * byte   flags: 1 = a piece has to be removed, 2 = light to move
+ * byte   pieces placed
+ * byte   pieces of light, including the pieces left to place
+ * byte   pieces of dark, including the pieces left to place
+ * byte[] colors of the fields, 2 bits per field (0 empty, 1 light, 2 dark), four fields per byte from the low bits
+ * </pre>
+ */
+public final class SaveStateFormat {
+    /**
+     * The extension of binary save files.
+     */
+    public static final String EXTENSION = ".sav";
+    static final int MAGIC = 0x4D475356;
+    static final int VERSION = 1;
+    private static final int MAX_FIELDS = 255;
+
+    private SaveStateFormat() {
+    }
+
+    /**
+     * Looks up the map of a binary save.
+     */
+    @FunctionalInterface
+    public interface MapResolver {
+        /**
+         * Finds a map.
+         *
+         * @param id   The identifier of the map.
+         * @param hash The content hash of the map.
+         * @return The map with this identifier and hash.
+         * @throws IOException If there is no such map.
+         */
+        MapModel resolve(@NotNull String id, long hash) throws IOException;
+    }
+
+    /**
+     * Creates a resolver reading the maps of a folder, e.g. the {@code maps} folder of the game, from the files named
+     * after their identifiers.
+     *
+     * @param folder The folder of the maps.
+     * @return The resolver, failing if the file of a map is missing or has been changed since the save was written.
+     * The maps are read through the cache of {@link CompiledMap#load}.
+     */
+    public static MapResolver folderResolver(@NotNull Path folder) {
+        return (id, hash) -> {
+            CompiledMap map = CompiledMap.load(folder.resolve(id + ".json"));
+            if (map.contentHash() != hash) {
+                throw new IOException("The map " + id + " has been changed since the game was saved");
+            }
+            return map.getMapModel();
+        };
+    }
+
+    /**
+     * Encodes a save.
+     *
+     * @param saveState The save; its map is not written.
+     * @param mapId     The identifier of the map.
+     * @return The encoded save.
+     * @throws IllegalArgumentException If the map identifier is too long or the map or a counter too large.
+     */
+    public static byte[] encode(@NotNull SaveState saveState, @NotNull String mapId) {
+        byte[] id = mapId.getBytes(StandardCharsets.UTF_8);
+        int fields = saveState.mapModel.fields.size();
+        if (id.length > 0xFF) throw new IllegalArgumentException("The map identifier is too long: " + mapId);
+        if (fields > MAX_FIELDS) throw new IllegalArgumentException("Too many fields: " + fields);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 1 + id.length + 8 + 6 + (fields + 3) / 4);
+        buffer.putInt(MAGIC).put((byte) VERSION).put((byte) id.length).put(id);
+        buffer.putLong(saveState.mapModel.contentHash());
+        buffer.put((byte) fields);
+        buffer.put(counter(saveState.piecesPerPlayer));
+        buffer.put((byte) ((saveState.millPhase ? 1 : 0) | (saveState.focusOnLight ? 2 : 0)));
+        buffer.put(counter(saveState.numberOfPiecesPlaced));
+        buffer.put(counter(saveState.lightPlayerPieces));
+        buffer.put(counter(saveState.darkPlayerPieces));
+        for (int i = 0; i < fields; i += 4) {
+            int packed = 0;
+            for (int j = 0; j < 4 && i + j < fields; j++) {
+                packed |= code(saveState, i + j + 1) << 2 * j;
+            }
+            buffer.put((byte) packed);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a save.
+     *
+     * @param bytes    The encoded save.
+     * @param resolver The lookup of the map of the save.
+     * @return The save, with the resolved map.
+     * @throws IOException If the bytes are not a save of a supported version or the map cannot be found.
+     */
+    public static SaveState decode(@NotNull byte[] bytes, @NotNull MapResolver resolver) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.remaining() < 6 || buffer.getInt() != MAGIC) throw new IOException("Not a binary save");
+        int version = buffer.get() & 0xFF;
+        if (version != VERSION) throw new IOException("Unsupported save version " + version);
+        int idLength = buffer.get() & 0xFF;
+        if (buffer.remaining() < idLength + 8 + 6) throw new IOException("Truncated save");
+        byte[] id = new byte[idLength];
+        buffer.get(id);
+        long hash = buffer.getLong();
+        int fields = buffer.get() & 0xFF;
+        SaveState saveState = new SaveState();
+        saveState.piecesPerPlayer = buffer.get() & 0xFF;
+        int flags = buffer.get();
+        saveState.millPhase = (flags & 1) != 0;
+        saveState.focusOnLight = (flags & 2) != 0;
+        saveState.numberOfPiecesPlaced = buffer.get() & 0xFF;
+        saveState.lightPlayerPieces = buffer.get() & 0xFF;
+        saveState.darkPlayerPieces = buffer.get() & 0xFF;
+        if (buffer.remaining() != (fields + 3) / 4) throw new IOException("Truncated save");
+        saveState.fields = new BoardModel.Color[fields + 1];
+        for (int i = 0; i < fields; i += 4) {
+            int packed = buffer.get();
+            for (int j = 0; j < 4 && i + j < fields; j++) {
+                saveState.fields[i + j + 1] = color(packed >>> 2 * j & 3);
+            }
+        }
+        saveState.mapModel = resolver.resolve(new String(id, StandardCharsets.UTF_8), hash);
+        if (saveState.mapModel.fields.size() != fields) throw new IOException("The save does not fit its map");
+        return saveState;
+    }
+
+    /**
+     * Writes a save to a binary file through a {@link FileChannel}, replacing the file if it exists.
+     *
+     * @param saveState The save.
+     * @param mapId     The identifier of the map.
+     * @param file      The file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(@NotNull SaveState saveState, @NotNull String mapId, @NotNull Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(encode(saveState, mapId));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a save from a file, binary or JSON. A JSON save contains its map, so the resolver is only used for binary
+     * saves.
+     *
+     * @param file     The file.
+     * @param resolver The lookup of the map of a binary save.
+     * @return The save.
+     * @throws IOException If the file cannot be read, is not a save or its map cannot be found.
+     */
+    public static SaveState read(@NotNull Path file, @NotNull MapResolver resolver) throws IOException {
+        byte[] bytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Save too large: " + file);
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) ;
+            bytes = buffer.array();
+        }
+        if (bytes.length >= 4 && ByteBuffer.wrap(bytes).getInt() == MAGIC) {
+            try {
+                return decode(bytes, resolver);
+            } catch (IOException e) {
+                throw new IOException(e.getMessage() + ": " + file, e);
+            }
+        }
+        SaveState saveState;
+        try {
+            saveState = new Gson().fromJson(new String(bytes, StandardCharsets.UTF_8), SaveState.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Not a save: " + file, e);
+        }
+        if (saveState == null || saveState.mapModel == null || saveState.fields == null) throw new IOException("Not a save: " + file);
+        return saveState;
+    }
+
+    /**
+     * Exports a save as JSON, with its map, like the saves of earlier versions of the game.
+     *
+     * @param saveState The save.
+     * @param file      The file, replaced if it exists.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void exportJson(@NotNull SaveState saveState, @NotNull Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            new Gson().toJson(saveState, writer);
+        }
+    }
+
+    /**
+     * Helper method to check that a counter fits into a byte.
+     *
+     * @param value The counter.
+     * @return The byte.
+     */
+    private static byte counter(int value) {
+        if (value < 0 || value > 0xFF) throw new IllegalArgumentException("Counter out of range: " + value);
+        return (byte) value;
+    }
+
+    /**
+     * Helper method to get the 2-bit code of a field; fields missing from the save are empty.
+     *
+     * @param saveState The save.
+     * @param field     The field.
+     * @return The code.
+     */
+    private static int code(SaveState saveState, int field) {
+        BoardModel.Color color = field < saveState.fields.length ? saveState.fields[field] : null;
+        if (color == null) return 0;
+        return switch (color) {
+            case EMPTY -> 0;
+            case LIGHT -> 1;
+            case DARK -> 2;
+        };
+    }
+
+    /**
+     * Helper method to get the color of a 2-bit code.
+     *
+     * @param code The code.
+     * @return The color.
+     * @throws IOException If the code is not a color.
+     */
+    private static BoardModel.Color color(int code) throws IOException {
+        return switch (code) {
+            case 0 -> BoardModel.Color.EMPTY;
+            case 1 -> BoardModel.Color.LIGHT;
+            case 2 -> BoardModel.Color.DARK;
+            default -> throw new IOException("Invalid field color");
+        };
+    }
+
+    /**
+     * Converts saves from the command line: {@code SaveStateFormat <input> <output> [map id] [maps folder]}. The input
+     * can be binary or JSON; the output is written as JSON if its name ends with {@code .json}, and as binary with the
+     * given map identifier otherwise. The maps of binary inputs are read from the maps folder, {@code maps} by
+     * default, or from the {@link MapStore} in {@code mapstore}.
+     *
+     * @param args The arguments.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: SaveStateFormat <input> <output> [map id] [maps folder]");
+            return;
+        }
+        MapResolver resolver = new MapStore(Paths.get(args.length > 3 ? args[3] : "maps"), Paths.get(MapStore.FOLDER));
+        SaveState saveState = read(Paths.get(args[0]), resolver);
+        if (args[1].endsWith(".json")) {
+            exportJson(saveState, Paths.get(args[1]));
+        } else {
+            if (args.length < 3) throw new IllegalArgumentException("The map id is needed to write a binary save");
+            write(saveState, args[2], Paths.get(args[1]));
+        }
+    }
+}
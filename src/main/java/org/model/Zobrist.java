@@ -0,0 +1,119 @@
+package org.model;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Random keys for Zobrist hashing of positions. The hash of a position is the XOR of the keys of its parts (the
+ * pieces on the fields, the player to move, a pending removal and the pieces left to place), so it can be updated
+ * incrementally whenever one of the parts changes.
+ * <p>
+ * The keys are generated from a fixed seed, so hashes are stable between runs and can be stored in files.
+ */
+public final class Zobrist {
+    private static final long SEED = 0x4D696C6C47616D65L;
+
+    //FIELD_KEYS[0] for light, FIELD_KEYS[1] for dark pieces, indexed by the (1-based) field
+    private static final long[][] FIELD_KEYS = new long[2][BoardModel.MAX_FIELDS + 1];
+    //TO_PLACE_KEYS[0] for light, TO_PLACE_KEYS[1] for dark, indexed by the number of pieces left to place
+    private static final long[][] TO_PLACE_KEYS = new long[2][BoardModel.MAX_FIELDS + 1];
+    private static final long DARK_TO_MOVE_KEY;
+    private static final long REMOVING_KEY;
+
+    static {
+        long state = SEED;
+        for (int color = 0; color < 2; color++) {
+            for (int i = 1; i <= BoardModel.MAX_FIELDS; i++) {
+                FIELD_KEYS[color][i] = mix(state += 0x9E3779B97F4A7C15L);
+            }
+            for (int i = 0; i <= BoardModel.MAX_FIELDS; i++) {
+                TO_PLACE_KEYS[color][i] = mix(state += 0x9E3779B97F4A7C15L);
+            }
+        }
+        DARK_TO_MOVE_KEY = mix(state += 0x9E3779B97F4A7C15L);
+        REMOVING_KEY = mix(state + 0x9E3779B97F4A7C15L);
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * The SplitMix64 finalizer, used to turn a counter into well distributed keys.
+     *
+     * @param z The counter value.
+     * @return The mixed value.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int index(@NotNull BoardModel.Color color) {
+        if (color == BoardModel.Color.EMPTY) throw new IllegalArgumentException("Empty fields have no key");
+        return color == BoardModel.Color.LIGHT ? 0 : 1;
+    }
+
+    /**
+     * Gets the key of a piece on a field.
+     *
+     * @param color The color of the piece, either {@code LIGHT} or {@code DARK}.
+     * @param field The (1-based) index of the field.
+     * @return The key of the piece.
+     */
+    public static long field(BoardModel.Color color, int field) {
+        return FIELD_KEYS[index(color)][field];
+    }
+
+    /**
+     * Gets the key of the number of pieces a player has left to place.
+     *
+     * @param color The color of the player.
+     * @param count The number of pieces left to place.
+     * @return The key of the count.
+     */
+    public static long piecesToPlace(BoardModel.Color color, int count) {
+        return TO_PLACE_KEYS[index(color)][count];
+    }
+
+    /**
+     * Gets the key XOR-ed into the hash when the dark player is to move.
+     *
+     * @return The side to move key.
+     */
+    public static long darkToMove() {
+        return DARK_TO_MOVE_KEY;
+    }
+
+    /**
+     * Gets the key XOR-ed into the hash when the player to move has formed a mill and has to remove a piece.
+     *
+     * @return The removing phase key.
+     */
+    public static long removing() {
+        return REMOVING_KEY;
+    }
+
+    /**
+     * Computes the hash of a position from scratch.
+     *
+     * @param lightBoard   The bitboard of the light pieces (field {@code i} is bit {@code i - 1}).
+     * @param darkBoard    The bitboard of the dark pieces.
+     * @param sideToMove   The color of the player to move.
+     * @param lightToPlace The number of pieces the light player has left to place.
+     * @param darkToPlace  The number of pieces the dark player has left to place.
+     * @param removing     Whether the player to move has to remove a piece.
+     * @return The hash of the position.
+     */
+    public static long hash(long lightBoard, long darkBoard, BoardModel.Color sideToMove, int lightToPlace, int darkToPlace, boolean removing) {
+        long hash = TO_PLACE_KEYS[0][lightToPlace] ^ TO_PLACE_KEYS[1][darkToPlace];
+        for (; lightBoard != 0; lightBoard &= lightBoard - 1) {
+            hash ^= FIELD_KEYS[0][Long.numberOfTrailingZeros(lightBoard) + 1];
+        }
+        for (; darkBoard != 0; darkBoard &= darkBoard - 1) {
+            hash ^= FIELD_KEYS[1][Long.numberOfTrailingZeros(darkBoard) + 1];
+        }
+        if (sideToMove == BoardModel.Color.DARK) hash ^= DARK_TO_MOVE_KEY;
+        if (removing) hash ^= REMOVING_KEY;
+        return hash;
+    }
+}
@@ -0,0 +1,223 @@
+package org.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable set of board fields, backed by a single {@code long} bitset: field {@code i} (1-based) is bit
+ * {@code i - 1}, the same layout the {@code BoardModel} bitboards use. Fields are iterated in increasing order as
+ * primitive {@code int}s, so no boxing happens when a set is built or read.
+ */
+public final class FieldSet {
+    /**
+     * The set containing no fields.
+     */
+    public static final FieldSet EMPTY = new FieldSet(0L);
+
+    private final long mask;
+
+    private FieldSet(long mask) {
+        this.mask = mask;
+    }
+
+    /**
+     * Creates a set from a bitset of fields.
+     *
+     * @param mask The bitset, where bit {@code i - 1} represents field {@code i}.
+     * @return The set of the fields whose bits are set.
+     */
+    public static FieldSet fromMask(long mask) {
+        return mask == 0L ? EMPTY : new FieldSet(mask);
+    }
+
+    /**
+     * Creates a set of the given fields.
+     *
+     * @param fields The (1-based) indices of the fields, between {@code 1} and {@code 64}.
+     * @return The set of the fields.
+     * @throws IllegalArgumentException If a field is out of range.
+     */
+    public static FieldSet of(@NotNull int... fields) {
+        long mask = 0L;
+        for (int field : fields) {
+            mask |= bit(field);
+        }
+        return fromMask(mask);
+    }
+
+    private static long bit(int field) {
+        if (field < 1 || field > Long.SIZE) throw new IllegalArgumentException("Field " + field + " is out of range");
+        return 1L << (field - 1);
+    }
+
+    /**
+     * Gets the bitset backing this set.
+     *
+     * @return The bitset, where bit {@code i - 1} represents field {@code i}.
+     */
+    public long mask() {
+        return mask;
+    }
+
+    /**
+     * Checks if the set contains a field.
+     *
+     * @param field The index of the field.
+     * @return {@code true} if the field is in the set.
+     */
+    public boolean contains(int field) {
+        return field >= 1 && field <= Long.SIZE && (mask & (1L << (field - 1))) != 0;
+    }
+
+    /**
+     * Gets the number of fields in the set.
+     *
+     * @return The size of the set.
+     */
+    public int size() {
+        return Long.bitCount(mask);
+    }
+
+    /**
+     * Checks if the set is empty.
+     *
+     * @return {@code true} if the set contains no fields.
+     */
+    public boolean isEmpty() {
+        return mask == 0L;
+    }
+
+    /**
+     * Gets the smallest field of the set. Together with {@link #next(int)} this allows iterating without an iterator:
+     * {@code for (int f = set.first(); f != 0; f = set.next(f))}.
+     *
+     * @return The smallest field, or {@code 0} if the set is empty.
+     */
+    public int first() {
+        return mask == 0L ? 0 : Long.numberOfTrailingZeros(mask) + 1;
+    }
+
+    /**
+     * Gets the smallest field of the set greater than the given one.
+     *
+     * @param field The index of a field.
+     * @return The next field, or {@code 0} if there is none.
+     */
+    public int next(int field) {
+        if (field >= Long.SIZE) return 0;
+        long rest = mask & (-1L << field);
+        return rest == 0L ? 0 : Long.numberOfTrailingZeros(rest) + 1;
+    }
+
+    /**
+     * Creates a set with a field added.
+     *
+     * @param field The field to add.
+     * @return A set containing the fields of this set and the given field.
+     */
+    public FieldSet with(int field) {
+        return fromMask(mask | bit(field));
+    }
+
+    /**
+     * Creates a set with a field removed.
+     *
+     * @param field The field to remove.
+     * @return A set containing the fields of this set except the given field.
+     */
+    public FieldSet without(int field) {
+        return fromMask(mask & ~bit(field));
+    }
+
+    /**
+     * Creates the union of two sets.
+     *
+     * @param other The other set.
+     * @return A set containing the fields of both sets.
+     */
+    public FieldSet union(@NotNull FieldSet other) {
+        return fromMask(mask | other.mask);
+    }
+
+    /**
+     * Creates the intersection of two sets.
+     *
+     * @param other The other set.
+     * @return A set containing the fields present in both sets.
+     */
+    public FieldSet intersect(@NotNull FieldSet other) {
+        return fromMask(mask & other.mask);
+    }
+
+    /**
+     * Performs an action for every field of the set, in increasing order.
+     *
+     * @param action The action to perform.
+     */
+    public void forEach(@NotNull IntConsumer action) {
+        for (long rest = mask; rest != 0L; rest &= rest - 1) {
+            action.accept(Long.numberOfTrailingZeros(rest) + 1);
+        }
+    }
+
+    /**
+     * Gets a primitive iterator over the fields of the set, in increasing order.
+     *
+     * @return The iterator.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private long rest = mask;
+
+            @Override
+            public boolean hasNext() {
+                return rest != 0L;
+            }
+
+            @Override
+            public int nextInt() {
+                if (rest == 0L) throw new NoSuchElementException();
+                int field = Long.numberOfTrailingZeros(rest) + 1;
+                rest &= rest - 1;
+                return field;
+            }
+        };
+    }
+
+    /**
+     * Copies the fields of the set into an array, in increasing order.
+     *
+     * @return The array of field indices.
+     */
+    public int[] toArray() {
+        int[] ret = new int[size()];
+        int i = 0;
+        for (long rest = mask; rest != 0L; rest &= rest - 1) {
+            ret[i++] = Long.numberOfTrailingZeros(rest) + 1;
+        }
+        return ret;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FieldSet other && other.mask == mask;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(mask);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (long rest = mask; rest != 0L; rest &= rest - 1) {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(Long.numberOfTrailingZeros(rest) + 1);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -2,6 +2,8 @@ package org.util;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
 
 /**
  * Represents the model of a game map, including locations, lines, groups, and associated data.
@@ -47,4 +49,51 @@ public class MapModel {
      * The number of pieces available in the game (per player).
      */
     public int pieces = 9;
+
+    /**
+     * Computes a hash of the whole content of the map: the neighbors of every field, the groups, the number of pieces,
+     * and the locations and lines it is drawn with. Maps loaded from equal files have the same hash, whatever the order
+     * of their fields, so saves can check that they are loaded with the map they were played on.
+     *
+     * @return the 64-bit content hash
+     */
+    public long contentHash() {
+        long hash = mix(0, pieces);
+        hash = mix(hash, fields.size());
+        for (var entry : new TreeMap<>(fields).entrySet()) {
+            List<Integer> neighbors = new ArrayList<>(entry.getValue());
+            neighbors.sort(null);
+            hash = mix(mix(hash, entry.getKey()), neighbors.size());
+            for (int neighbor : neighbors) {
+                hash = mix(hash, neighbor);
+            }
+        }
+        hash = mix(hash, groups.size());
+        for (int[] group : groups) {
+            hash = mix(hash, group.length);
+            for (int field : group) {
+                hash = mix(hash, field);
+            }
+        }
+        hash = mix(hash, locationList.size());
+        for (IntTuple location : locationList) {
+            hash = mix(mix(hash, location.getX()), location.getY());
+        }
+        hash = mix(hash, lineList.size());
+        for (Line line : lineList) {
+            hash = mix(mix(mix(mix(hash, line.getX1()), line.getY1()), line.getX2()), line.getY2());
+        }
+        return hash ^ hash >>> 31;
+    }
+
+    /**
+     * Helper method to add a value to a hash.
+     *
+     * @param hash  the hash so far
+     * @param value the value
+     * @return the new hash
+     */
+    private static long mix(long hash, int value) {
+        return Long.rotateLeft((hash ^ value) * 0x9E3779B97F4A7C15L, 29) * 0xBF58476D1CE4E5B9L;
+    }
 }
@@ -1,8 +1,8 @@
 package org.view;
 
+import org.util.FieldSet;
 import org.util.MapModel;
 
-import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -53,10 +53,10 @@ public interface ComponentGenerator {
     /** Updates the graphical representation of fields on the game board.
      * This method can update multiple fields at once or a single field based on the provided parameters.
      *
-     * @param fieldList A list of field indices to update.
+     * @param fieldList A set of field indices to update.
      * @param type      The type to set for the specified fields.
      */
-    void updateFieldGraphic(List<Integer> fieldList, FieldType type);
+    void updateFieldGraphic(FieldSet fieldList, FieldType type);
     /** Updates the graphical representation of a single field on the game board.
      *
      * @param field The index of the field to update.
@@ -3,6 +3,7 @@ package org.view;
 
 import org.controller.GameClient;
 import org.jetbrains.annotations.NotNull;
+import org.util.FieldSet;
 import org.util.MapModel;
 import org.util.PlayerColor;
 
@@ -88,10 +89,10 @@ public class GameScreen {
 
     /** Updates the graphical representation of multiple fields on the game board.
      *
-     * @param fields    A list of field indices to be updated.
+     * @param fields    A set of field indices to be updated.
      * @param fieldType The new type to set for the specified fields.
      */
-    public void updateFieldType(@NotNull java.util.List<Integer> fields, ComponentGenerator.FieldType fieldType) {
+    public void updateFieldType(@NotNull FieldSet fields, ComponentGenerator.FieldType fieldType) {
         componentGenerator.updateFieldGraphic(fields, fieldType);
     }
 
@@ -50,6 +50,12 @@ public class MainMenuScreen {
             initializer.loadGame();
         }, 10);
 
+        componentGenerator.addButton("Play Against The Computer", 200, 200, 400, 50,
+        () -> {
+            componentGenerator.hide();
+            initializer.startGameAgainstComputer();
+        }, 10);
+
         componentGenerator.addButton("Exit game", 200, 275, 400, 50, () -> {
             System.exit(0);
         }, 10);
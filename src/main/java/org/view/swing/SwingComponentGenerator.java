@@ -2,6 +2,7 @@ package org.view.swing;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.util.FieldSet;
 import org.util.IntTuple;
 import org.util.Line;
 import org.util.MapModel;
@@ -71,11 +72,11 @@ public class SwingComponentGenerator implements ComponentGenerator {
     /**
      * Updates the graphical representation of multiple game fields based on their types.
      *
-     * @param fieldList A list of field IDs to update.
+     * @param fieldList A set of field IDs to update.
      * @param type      The new type to set for the specified fields.
      */
     @Override
-    public void updateFieldGraphic(@NotNull java.util.List<Integer> fieldList, FieldType type) {
+    public void updateFieldGraphic(@NotNull FieldSet fieldList, FieldType type) {
         fieldList.forEach((i) -> {
             types.set(i, type);
             fields.get(i).repaint();
@@ -4,6 +4,7 @@ import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.model.BoardModel;
+import org.util.FieldSet;
 import org.util.MapModel;
 import org.util.PlayerColor;
 import org.view.ComponentGenerator;
@@ -51,14 +52,14 @@ class GameClientTest {
         int sendUpField = -1;
         boolean sendDownNoneCalled = false;
         boolean sendDownPlaceCalled = false;
-        List<Integer> sendDownPlaceFields = null;
+        FieldSet sendDownPlaceFields = null;
         boolean sendDownRemoveCalled = false;
-        List<Integer> sendDownRemoveFields = null;
+        FieldSet sendDownRemoveFields = null;
         boolean sendDownMoveCalled = false;
-        List<Integer> sendDownMoveFields = null;
+        FieldSet sendDownMoveFields = null;
         boolean sendDownMoveToCalled = false;
         Integer sendDownMoveToField = null;
-        List<Integer> sendDownMoveToFields = null;
+        FieldSet sendDownMoveToFields = null;
         boolean endGameCalled = false;
 
         @Override
@@ -73,25 +74,25 @@ class GameClientTest {
         }
 
         @Override
-        void sendDownPlace(List<Integer> possibleFields) {
+        void sendDownPlace(FieldSet possibleFields) {
             sendDownPlaceCalled = true;
             sendDownPlaceFields = possibleFields;
         }
 
         @Override
-        void sendDownRemove(List<Integer> opponentFields) {
+        void sendDownRemove(FieldSet opponentFields) {
             sendDownRemoveCalled = true;
             sendDownRemoveFields = opponentFields;
         }
 
         @Override
-        void sendDownMove(List<Integer> movableFields) {
+        void sendDownMove(FieldSet movableFields) {
             sendDownMoveCalled = true;
             sendDownMoveFields = movableFields;
         }
 
         @Override
-        void sendDownMoveTo(Integer fieldToMove, List<Integer> possibleFields) {
+        void sendDownMoveTo(int fieldToMove, FieldSet possibleFields) {
             sendDownMoveToCalled = true;
             sendDownMoveToField = fieldToMove;
             sendDownMoveToFields = possibleFields;
@@ -223,7 +224,7 @@ class GameClientTest {
 
     @Test
     void sendDownColor() {
-        List<Integer> fields = Arrays.asList(1, 2, 3);
+        FieldSet fields = FieldSet.of(1, 2, 3);
         client.sendDownColor(fields, BoardModel.Color.DARK);
         assertEquals(BoardModel.Color.DARK, client.fieldColors[1]);
         assertEquals(BoardModel.Color.DARK, client.fieldColors[2]);
@@ -238,7 +239,7 @@ class GameClientTest {
 
     @Test
     void sendDownPlace() {
-        List<Integer> possibleFields = Arrays.asList(1, 2, 3);
+        FieldSet possibleFields = FieldSet.of(1, 2, 3);
         client.sendDownPlace(possibleFields);
         assertTrue(client.sendDownPlaceCalled);
         assertEquals(possibleFields, client.sendDownPlaceFields);
@@ -252,7 +253,7 @@ class GameClientTest {
 
     @Test
     void sendDownRemove() {
-        List<Integer> opponentFields = Arrays.asList(4, 5);
+        FieldSet opponentFields = FieldSet.of(4, 5);
         client.sendDownRemove(opponentFields);
         assertTrue(client.sendDownRemoveCalled);
         assertEquals(opponentFields, client.sendDownRemoveFields);
@@ -260,7 +261,7 @@ class GameClientTest {
 
     @Test
     void sendDownMove() {
-        List<Integer> movableFields = Arrays.asList(2, 3);
+        FieldSet movableFields = FieldSet.of(2, 3);
         client.sendDownMove(movableFields);
         assertTrue(client.sendDownMoveCalled);
         assertEquals(movableFields, client.sendDownMoveFields);
@@ -268,7 +269,7 @@ class GameClientTest {
 
     @Test
     void sendDownMoveTo() {
-        List<Integer> possibleFields = Arrays.asList(1, 2);
+        FieldSet possibleFields = FieldSet.of(1, 2);
         client.sendDownMoveTo(3, possibleFields);
         assertTrue(client.sendDownMoveToCalled);
         assertEquals(3, client.sendDownMoveToField);
@@ -4,6 +4,7 @@ import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.model.BoardModel;
+import org.util.FieldSet;
 import org.util.MapModel;
 import org.util.PlayerColor;
 
@@ -29,16 +30,16 @@ class GameControllerTest {
         void sendDownNone() {}
 
         @Override
-        void sendDownPlace(java.util.List<Integer> possibleFields) {}
+        void sendDownPlace(FieldSet possibleFields) {}
 
         @Override
-        void sendDownRemove(java.util.List<Integer> opponentFields) {}
+        void sendDownRemove(FieldSet opponentFields) {}
 
         @Override
-        void sendDownMove(java.util.List<Integer> movableFields) {}
+        void sendDownMove(FieldSet movableFields) {}
 
         @Override
-        void sendDownMoveTo(Integer fieldToMove, java.util.List<Integer> possibleFields) {}
+        void sendDownMoveTo(int fieldToMove, FieldSet possibleFields) {}
 
         @Override
         void endGame() {
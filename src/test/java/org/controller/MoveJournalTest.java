@@ -0,0 +1,166 @@
+package org.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.model.BoardModel;
+import org.model.SaveState;
+import org.model.SaveStateFormat;
+import org.util.MapModel;
+import org.util.PlayerColor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveJournalTest {
+
+    private static final SaveStateFormat.MapResolver RESOLVER = (id, hash) -> {
+        try {
+            return SelfPlayRunnerTest.loadMap();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    };
+
+    @Test
+    void replaysTheGameOfTheController(@TempDir Path directory) throws Exception {
+        MapModel mapModel = SelfPlayRunnerTest.loadMap();
+        SaveState[] saved = new SaveState[1];
+        CountDownLatch ended = new CountDownLatch(1);
+        Initializer host = new Initializer(mapModel) {
+            @Override
+            public void log(String s) {
+            }
+
+            @Override
+            public void gameOver(PlayerColor winner, GameController.Termination termination, int plies) {
+                ended.countDown();
+            }
+
+            @Override
+            public void saveGame(SaveState saveState) {
+                saved[0] = saveState;
+            }
+
+            @Override
+            void closeJournal(MoveJournal journal) {
+                //the journal is kept to be replayed, see endedGamesDeleteTheirJournals
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        host.setCurrentMap("defaultmap");
+        try (JournalCommitter committer = new JournalCommitter(5)) {
+            host.setJournaling(directory, committer);
+            GameController gameController = new GameController(mapModel, SelfPlayRunner.createClient("ab:200"),
+                    SelfPlayRunner.createClient("mcts:200"), host);
+            gameController.setMaxPlies(40);
+            assertTrue(ended.await(1, TimeUnit.MINUTES));
+            gameController.saveGame();
+            assertFalse(gameController.getPlies() > 40);
+
+            File[] journals = directory.toFile().listFiles();
+            assertEquals(1, journals.length);
+            MoveJournal.Recovery recovery = MoveJournal.recover(journals[0].toPath(), RESOLVER);
+            assertTrue(recovery.ended());
+            assertEquals("defaultmap", recovery.mapId());
+            assertEquals(gameController.getPlies(), recovery.plies());
+            //the controller does not pass the turn after the last one, so only the pieces are compared
+            assertArrayEquals(saved[0].fields, recovery.saveState().fields);
+            assertEquals(saved[0].numberOfPiecesPlaced, recovery.saveState().numberOfPiecesPlaced);
+            assertEquals(saved[0].lightPlayerPieces, recovery.saveState().lightPlayerPieces);
+            assertEquals(saved[0].darkPlayerPieces, recovery.saveState().darkPlayerPieces);
+        }
+    }
+
+    @Test
+    void endedGamesDeleteTheirJournals(@TempDir Path directory) throws Exception {
+        MapModel mapModel = SelfPlayRunnerTest.loadMap();
+        CountDownLatch ended = new CountDownLatch(1);
+        Initializer host = new Initializer(mapModel) {
+            @Override
+            public void log(String s) {
+            }
+
+            @Override
+            public void gameOver(PlayerColor winner, GameController.Termination termination, int plies) {
+                ended.countDown();
+            }
+        };
+        host.setCurrentMap("defaultmap");
+        host.setJournaling(directory, null);
+        GameController gameController = new GameController(mapModel, SelfPlayRunner.createClient("ab:200"),
+                SelfPlayRunner.createClient("ab:200"), host);
+        gameController.setMaxPlies(10);
+        assertTrue(ended.await(1, TimeUnit.MINUTES));
+        assertEquals(0, directory.toFile().listFiles().length);
+    }
+
+    @Test
+    void recoversUnfinishedAndTornJournals(@TempDir Path directory) throws IOException {
+        MapModel mapModel = SelfPlayRunnerTest.loadMap();
+        Path file = directory.resolve("game" + MoveJournal.EXTENSION);
+        //without a committer every turn is on the disk at once, as after a crash
+        MoveJournal journal = MoveJournal.create(file, SaveState.fromBoard(new BoardModel(mapModel)), "defaultmap", null);
+        journal.place(1);
+        journal.place(10);
+        journal.place(2);
+        journal.place(11);
+        journal.place(3);
+        journal.remove(10);
+        long size = Files.size(file);
+
+        MoveJournal.Recovery recovery = MoveJournal.recover(file, RESOLVER);
+        assertFalse(recovery.ended());
+        assertEquals(5, recovery.plies());
+        SaveState state = recovery.saveState();
+        assertFalse(state.focusOnLight);
+        assertFalse(state.millPhase);
+        assertEquals(5, state.numberOfPiecesPlaced);
+        assertEquals(8, state.darkPlayerPieces);
+        assertEquals(BoardModel.Color.EMPTY, state.fields[10]);
+        assertEquals(BoardModel.Color.DARK, state.fields[11]);
+
+        //a turn cut by a crash is ignored
+        journal.move(3, 4);
+        journal.close();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertEquals(5, MoveJournal.recover(file, RESOLVER).plies());
+
+        //an illegal turn is reported
+        Files.write(file, Arrays.copyOf(bytes, (int) size + 2));
+        Files.write(file, new byte[]{MoveJournal.REMOVE, 1}, StandardOpenOption.APPEND);
+        assertThrows(IOException.class, () -> MoveJournal.recover(file, RESOLVER));
+    }
+
+    @Test
+    void committerBatchesTheTurns(@TempDir Path directory) throws IOException {
+        MapModel mapModel = SelfPlayRunnerTest.loadMap();
+        SaveState start = SaveState.fromBoard(new BoardModel(mapModel));
+        try (JournalCommitter committer = new JournalCommitter(TimeUnit.HOURS.toMillis(1))) {
+            MoveJournal first = MoveJournal.create(directory.resolve("first.mgj"), start, "defaultmap", committer);
+            MoveJournal second = MoveJournal.create(directory.resolve("second.mgj"), start, "defaultmap", committer);
+            long header = Files.size(directory.resolve("first.mgj"));
+            first.place(5);
+            second.place(6);
+            second.place(7);
+            assertEquals(header, Files.size(directory.resolve("first.mgj")));
+            committer.commit();
+            assertEquals(header + 2, Files.size(directory.resolve("first.mgj")));
+            assertEquals(header + 4, Files.size(directory.resolve("second.mgj")));
+            first.close();
+            second.close();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.controller;
+
+import org.engine.tablebase.CompressedTablebase;
+import org.engine.tablebase.DistanceTablebase;
+import org.engine.tablebase.PositionIndexer;
+import org.engine.tablebase.RetrogradeSolver;
+import org.engine.tablebase.Tablebase;
+import org.engine.tablebase.TablebaseValue;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.model.BoardModel;
+import org.model.Move;
+import org.model.MoveGenerator;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerfectPlayGameClientTest {
+
+    static MapModel mapModel = new MapModel();
+    static DistanceTablebase solved;
+
+    @BeforeAll
+    static void solve() throws IOException {
+        /*
+            1---2---3
+            |   |   |
+            4---5---6
+            |   |   |
+            7---8---9
+         */
+        mapModel.pieces = 4;
+        mapModel.fields = new HashMap<>();
+        int[][] neighbors = {{2, 4}, {1, 3, 5}, {2, 6}, {1, 5, 7}, {2, 4, 6, 8}, {3, 5, 9}, {4, 8}, {5, 7, 9}, {6, 8}};
+        for (int i = 0; i < neighbors.length; i++) {
+            ArrayList<Integer> list = new ArrayList<>();
+            for (int neighbor : neighbors[i]) list.add(neighbor);
+            mapModel.fields.put(i + 1, list);
+        }
+        mapModel.groups = new ArrayList<>(List.of(new int[]{1, 2, 3}, new int[]{4, 5, 6}, new int[]{7, 8, 9},
+                new int[]{1, 4, 7}, new int[]{2, 5, 8}, new int[]{3, 6, 9}));
+        solved = new RetrogradeSolver(mapModel, null, ForkJoinPool.commonPool(), Long.MAX_VALUE).solve(4);
+    }
+
+    /**
+     * A client recording whether it fell back to the search, which is not run.
+     */
+    private static final class RecordingClient extends PerfectPlayGameClient {
+        boolean searched;
+
+        RecordingClient(Tablebase tablebase) {
+            super(tablebase);
+        }
+
+        @Override
+        protected int searchMove(BoardModel board) {
+            searched = true;
+            return Move.NONE;
+        }
+    }
+
+    @Test
+    void winsFastestDrawsAndLosesSlowest() {
+        RecordingClient client = new RecordingClient(solved);
+
+        BoardModel won = find(value -> TablebaseValue.isWin(value) && TablebaseValue.distance(value) >= 3);
+        short value = solved.probe(won);
+        short child = after(won, client.chooseMove(won));
+        assertTrue(TablebaseValue.isLoss(child));
+        assertEquals(TablebaseValue.distance(value) - 1, TablebaseValue.distance(child));
+
+        BoardModel drawn = find(TablebaseValue::isDraw);
+        assertTrue(TablebaseValue.isDraw(after(drawn, client.chooseMove(drawn))));
+
+        BoardModel lost = find(v -> TablebaseValue.isLoss(v) && TablebaseValue.distance(v) >= 2);
+        value = solved.probe(lost);
+        child = after(lost, client.chooseMove(lost));
+        assertTrue(TablebaseValue.isWin(child));
+        assertEquals(TablebaseValue.distance(value) - 1, TablebaseValue.distance(child));
+        assertFalse(client.searched);
+    }
+
+    @Test
+    void searchesPositionsOutsideTheTables() throws IOException {
+        RecordingClient client = new RecordingClient(new RetrogradeSolver(mapModel, null, ForkJoinPool.commonPool(),
+                Long.MAX_VALUE).solve(3));
+        //the moves of a position with four pieces each lead to positions that were not solved
+        BoardModel board = board(0b000001111L, 0b111100000L);
+        assertEquals(Move.NONE, client.chooseMove(board));
+        assertTrue(client.searched);
+    }
+
+    @Test
+    void removesAPieceToWinWithWinDrawLossTables(@TempDir Path directory) throws IOException {
+        CompressedTablebase.write(solved, directory);
+        RecordingClient client = new RecordingClient(CompressedTablebase.open(9, directory, 1 << 10));
+        //light can fly to 3 and close the mill 1-2-3
+        BoardModel board = board(BoardModel.bit(1) | BoardModel.bit(2) | BoardModel.bit(9),
+                BoardModel.bit(4) | BoardModel.bit(5) | BoardModel.bit(7));
+        int move = client.chooseMove(board);
+        assertTrue(Move.hasRemoval(move));
+        board.makeMove(move);
+        assertEquals(2, board.getPieceCount(BoardModel.Color.DARK));
+        assertFalse(client.searched);
+    }
+
+    /**
+     * Helper method to find a position of the tables with light to move whose value matches.
+     */
+    private static BoardModel find(Predicate<Short> matches) {
+        PositionIndexer indexer = solved.getIndexer();
+        for (int[] counts : new int[][]{{4, 4}, {4, 3}, {3, 4}, {3, 3}}) {
+            for (long index = 0; index < indexer.size(counts[0], counts[1]); index++) {
+                if (!matches.test(solved.probe(counts[0], counts[1], index))) continue;
+                long own = indexer.unrankOwn(index, counts[0], counts[1]);
+                return board(own, indexer.unrankOpp(index, own, counts[1]));
+            }
+        }
+        throw new AssertionError("No such position");
+    }
+
+    /**
+     * Helper method to set up a board of the moving phase with light to move.
+     */
+    @NotNull
+    private static BoardModel board(long light, long dark) {
+        BoardModel board = new BoardModel(mapModel);
+        for (int i = 1; i <= 9; i++) {
+            if ((light & BoardModel.bit(i)) != 0) board.putPiece(i, BoardModel.Color.LIGHT);
+            if ((dark & BoardModel.bit(i)) != 0) board.putPiece(i, BoardModel.Color.DARK);
+        }
+        board.setTurn(BoardModel.Color.LIGHT, 0, 0, false);
+        return board;
+    }
+
+    /**
+     * Helper method to get the value of the position after a legal move, for the opponent.
+     */
+    private static short after(BoardModel board, int move) {
+        int[] moves = new int[MoveGenerator.maxMoves(board)];
+        int count = MoveGenerator.generate(board, moves);
+        boolean legal = false;
+        for (int i = 0; i < count; i++) legal |= moves[i] == move;
+        assertTrue(legal);
+        board.makeMove(move);
+        short value = board.getPieceCount(BoardModel.Color.DARK) < 3 ? TablebaseValue.loss(0) : solved.probe(board);
+        board.unmakeMove();
+        return value;
+    }
+}
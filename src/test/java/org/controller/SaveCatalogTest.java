@@ -0,0 +1,93 @@
+package org.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.model.BoardModel;
+import org.model.SaveState;
+import org.model.SaveStateFormat;
+import org.util.MapModel;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveCatalogTest {
+
+    private static SaveState snapshot(MapModel mapModel, int placed, boolean lightToMove) {
+        BoardModel.Color[] fields = new BoardModel.Color[mapModel.fields.size() + 1];
+        for (int i = 1; i < fields.length; i++) {
+            fields[i] = i <= placed ? BoardModel.Color.DARK : BoardModel.Color.EMPTY;
+        }
+        return new SaveState(placed, fields, 9, false, lightToMove, 9, 9, mapModel);
+    }
+
+    @Test
+    void rebuildsAMissingIndexFromTheSaves(@TempDir Path directory) throws Exception {
+        MapModel mapModel = SelfPlayRunnerTest.loadMap();
+        SaveStateFormat.write(snapshot(mapModel, 5, false), "defaultmap", directory.resolve("100.sav"));
+        SaveStateFormat.exportJson(snapshot(mapModel, 2, true), directory.resolve("200.json"));
+        Files.writeString(directory.resolve("300.json"), "not a save");
+        AtomicInteger resolved = new AtomicInteger();
+
+        SaveCatalog catalog = SaveCatalog.open(directory, (id, hash) -> {
+            resolved.incrementAndGet();
+            return mapModel;
+        });
+        assertEquals(3, catalog.size());
+        assertEquals(1, resolved.get());
+        SaveCatalog.Entry binary = catalog.get("100");
+        assertEquals("defaultmap", binary.mapId());
+        assertEquals(5, binary.plies());
+        assertFalse(binary.lightToMove());
+        SaveCatalog.Entry json = catalog.get("200");
+        assertNull(json.mapId());
+        assertTrue(json.lightToMove());
+        assertEquals(-1, catalog.get("300").plies());
+        assertTrue(Files.exists(directory.resolve(SaveCatalog.FILE_NAME)));
+
+        //the rebuilt index is read without opening a save
+        SaveCatalog reopened = SaveCatalog.open(directory, (id, hash) -> {
+            throw new AssertionError("A save was read");
+        });
+        assertEquals(catalog.entries(), reopened.entries());
+    }
+
+    @Test
+    void appendsEntriesAndCompactsReplacedOnes(@TempDir Path directory) throws Exception {
+        SaveStateFormat.MapResolver unused = (id, hash) -> {
+            throw new AssertionError("A save was read");
+        };
+        SaveCatalog catalog = SaveCatalog.open(directory, unused);
+        assertEquals(0, catalog.size());
+        for (int i = 0; i < 200; i++) {
+            catalog.put(new SaveCatalog.Entry("game" + i % 3, "defaultmap", i, i, i % 2 == 0));
+        }
+        assertArrayEquals(new String[]{"game0", "game1", "game2"}, catalog.ids());
+        assertEquals(199, catalog.get("game1").plies());
+        long lines = Files.readAllLines(directory.resolve(SaveCatalog.FILE_NAME)).size();
+        assertTrue(lines < 80, "the index was not compacted: " + lines + " lines");
+
+        SaveCatalog reopened = SaveCatalog.open(directory, unused);
+        assertEquals(catalog.entries(), reopened.entries());
+    }
+
+    @Test
+    void skipsALineTornByACrash(@TempDir Path directory) throws Exception {
+        SaveStateFormat.MapResolver unused = (id, hash) -> {
+            throw new AssertionError("A save was read");
+        };
+        SaveCatalog catalog = SaveCatalog.open(directory, unused);
+        catalog.put(new SaveCatalog.Entry("1", null, 10, 4, true));
+        Files.writeString(directory.resolve(SaveCatalog.FILE_NAME), "2\tdefaultmap\t2", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        SaveCatalog reopened = SaveCatalog.open(directory, unused);
+        assertArrayEquals(new String[]{"1"}, reopened.ids());
+        reopened.put(new SaveCatalog.Entry("3", "defaultmap", 30, 12, false));
+        assertArrayEquals(new String[]{"1", "3"}, SaveCatalog.open(directory, unused).ids());
+    }
+}
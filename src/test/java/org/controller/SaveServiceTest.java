@@ -0,0 +1,94 @@
+package org.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.model.BoardModel;
+import org.model.SaveState;
+import org.model.SaveStateFormat;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveServiceTest {
+
+    private static SaveState snapshot(MapModel mapModel, int placed) {
+        BoardModel.Color[] fields = new BoardModel.Color[mapModel.fields.size() + 1];
+        for (int i = 1; i < fields.length; i++) {
+            fields[i] = i <= placed ? BoardModel.Color.LIGHT : BoardModel.Color.EMPTY;
+        }
+        return new SaveState(placed, fields, 9, false, true, 9, 9, mapModel);
+    }
+
+    @Test
+    void writesBinaryAndJsonSavesWithoutTemporaryFiles(@TempDir Path directory) throws Exception {
+        MapModel mapModel = SelfPlayRunnerTest.loadMap();
+        List<SaveService.Result> results = new CopyOnWriteArrayList<>();
+        try (SaveService service = new SaveService()) {
+            service.save("a", snapshot(mapModel, 3), "defaultmap", directory.resolve("saves/a.sav"), results::add);
+            service.save("b", snapshot(mapModel, 4), null, directory.resolve("saves/b.json"), results::add);
+            service.flush();
+        }
+        assertEquals(2, results.size());
+        assertTrue(results.stream().allMatch(SaveService.Result::succeeded));
+        SaveState binary = SaveStateFormat.read(directory.resolve("saves/a.sav"), (id, hash) -> mapModel);
+        SaveState json = SaveStateFormat.read(directory.resolve("saves/b.json"), (id, hash) -> mapModel);
+        assertEquals(3, binary.numberOfPiecesPlaced);
+        assertEquals(4, json.numberOfPiecesPlaced);
+        try (var files = Files.list(directory.resolve("saves"))) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void coalescesPendingSavesOfTheSameGame(@TempDir Path directory) throws Exception {
+        MapModel mapModel = SelfPlayRunnerTest.loadMap();
+        CountDownLatch release = new CountDownLatch(1);
+        List<SaveService.Result> results = new CopyOnWriteArrayList<>();
+        try (SaveService service = new SaveService()) {
+            //the first save holds the writer thread until the other saves are handed over
+            service.save("other", snapshot(mapModel, 1), "defaultmap", directory.resolve("other.sav"), result -> {
+                try {
+                    release.await(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            for (int placed = 2; placed <= 6; placed++) {
+                service.save("game", snapshot(mapModel, placed), "defaultmap", directory.resolve("game.sav"), results::add);
+            }
+            release.countDown();
+            service.flush();
+        }
+        assertEquals(5, results.size());
+        assertTrue(results.stream().allMatch(result -> result.coalesced() == 5 && result.succeeded()));
+        assertEquals(6, SaveStateFormat.read(directory.resolve("game.sav"), (id, hash) -> mapModel).numberOfPiecesPlaced);
+    }
+
+    @Test
+    void reportsFailuresAndKeepsThePreviousSave(@TempDir Path directory) throws Exception {
+        MapModel mapModel = SelfPlayRunnerTest.loadMap();
+        Path file = directory.resolve("game.sav");
+        SaveService.Result[] results = new SaveService.Result[2];
+        try (SaveService service = new SaveService()) {
+            service.save("game", snapshot(mapModel, 2), "defaultmap", file, result -> results[0] = result);
+            service.flush();
+            //a map identifier too long for the format fails before anything is written
+            service.save("game", snapshot(mapModel, 5), "m".repeat(300), file, result -> results[1] = result);
+            service.flush();
+            service.save("x", snapshot(mapModel, 1), "defaultmap", file.resolve("below-a-file.sav"), null);
+            service.flush();
+        }
+        assertTrue(results[0].succeeded());
+        assertFalse(results[1].succeeded());
+        assertInstanceOf(IOException.class, results[1].error());
+        assertEquals(2, SaveStateFormat.read(file, (id, hash) -> mapModel).numberOfPiecesPlaced);
+    }
+}
@@ -0,0 +1,185 @@
+package org.controller;
+
+import org.engine.book.BookBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.model.BoardModel;
+import org.model.CompiledMap;
+import org.model.SaveState;
+import org.util.FieldSet;
+import org.util.MapModel;
+import org.util.PlayerColor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelfPlayRunnerTest {
+
+    static MapModel loadMap() throws IOException {
+        return CompiledMap.load(Paths.get("maps", "defaultmap.json")).getMapModel();
+    }
+
+    @Test
+    void playsEveryGameAndRepeatsWithTheSameSeed(@TempDir Path directory) throws IOException {
+        SelfPlayRunner runner = new SelfPlayRunner(loadMap(), "ab:300", "mcts:300", 2, 4, 60, 42);
+        Path first = directory.resolve("first.txt");
+        SelfPlayRunner.Summary summary = runner.run(4, first);
+        assertEquals(4, summary.games());
+        assertEquals(4, summary.winsA() + summary.winsB() + summary.draws());
+        assertTrue(summary.gamesPerSecond() > 0);
+
+        List<String> lines = Files.readAllLines(first);
+        assertTrue(lines.get(0).startsWith("#"));
+        assertEquals(5, lines.size());
+        for (String line : lines.subList(1, lines.size())) {
+            String[] columns = line.split(" ");
+            int game = Integer.parseInt(columns[0]);
+            assertEquals(game % 2 == 0 ? "A" : "B", columns[1]);
+            assertTrue(Integer.parseInt(columns[3]) <= 60);
+            assertTrue(columns[2].equals("-") == columns[4].equals("P"));
+        }
+
+        //the games are the same on a single worker, only their order can change
+        Path second = directory.resolve("second.txt");
+        new SelfPlayRunner(loadMap(), "ab:300", "mcts:300", 1, 4, 60, 42).run(4, second);
+        assertEquals(sorted(lines), sorted(Files.readAllLines(second)));
+    }
+
+    @Test
+    void rejectsUnknownEngines() throws IOException {
+        MapModel mapModel = loadMap();
+        assertThrows(IllegalArgumentException.class, () -> new SelfPlayRunner(mapModel, "random", "ab:10", 1, 0, 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> SelfPlayRunner.createClient("mcts:x"));
+        assertThrows(IllegalArgumentException.class, () -> SelfPlayRunner.createClient("ab:0"));
+        assertThrows(IllegalArgumentException.class, () -> SelfPlayRunner.Engine.parse("mcts:10,depth=3"));
+
+        SelfPlayRunner.Engine engine = SelfPlayRunner.Engine.parse("ab:0,time=50,depth=6");
+        assertFalse(engine.mcts());
+        assertEquals(50, engine.time());
+        assertEquals(6, engine.depth());
+        assertEquals("ab:0,time=50,depth=6", engine.toString());
+    }
+
+    @Test
+    void opensTheOpeningBookOfAnEngine(@TempDir Path directory) throws IOException {
+        MapModel mapModel = loadMap();
+        Path book = directory.resolve("default.book");
+        new BookBuilder(mapModel, 1, 200, 0.5, 3).build(4, book);
+        SelfPlayRunner.Engine engine = SelfPlayRunner.Engine.parse("mcts:100,book=" + book);
+        assertEquals(book, engine.book());
+        GameClient client = engine.createClient(mapModel);
+        assertInstanceOf(MctsGameClient.class, client);
+        client.dispose();
+        assertThrows(IllegalArgumentException.class, () -> SelfPlayRunner.createClient("ab:100,book=" + book));
+        assertThrows(IOException.class, () -> SelfPlayRunner.Engine.parse("ab:100,book=" + directory.resolve("missing.book"))
+                .createClient(mapModel));
+    }
+
+    @Test
+    void countsTheLastTurnOfEveryWinBeforeTheLimit() throws InterruptedException {
+        //light encloses dark by moving 5 to 9
+        SaveState enclosing = position(new int[][]{{1, 9}, {5, 9}, {2, 3}, {3, 4}}, List.of(),
+                new int[]{5, 6, 7, 8}, new int[]{1, 2, 3, 4});
+        SelfPlayRunner.Result enclosed = SelfPlayRunner.play(enclosing, new ScriptedClient(5, 9), new ScriptedClient(), 1);
+        assertEquals(new SelfPlayRunner.Result(PlayerColor.LIGHT, GameController.Termination.ENCLOSED, 1), enclosed);
+
+        //light closes the mill 1 2 3 by moving 4 to 3 and removes a dark piece, leaving two
+        SaveState milling = position(new int[][]{{3, 4}}, List.of(new int[]{1, 2, 3}),
+                new int[]{1, 2, 4}, new int[]{5, 6, 7});
+        SelfPlayRunner.Result fewer = SelfPlayRunner.play(milling, new ScriptedClient(4, 3, 5), new ScriptedClient(), 1);
+        assertEquals(new SelfPlayRunner.Result(PlayerColor.LIGHT, GameController.Termination.FEWER_THAN_THREE, 1), fewer);
+    }
+
+    /**
+     * Builds a position of the moving phase with light to move, on a map of the given edges and mills whose fields are
+     * numbered up to the highest field used.
+     */
+    private static SaveState position(int[][] edges, List<int[]> groups, int[] light, int[] dark) {
+        MapModel mapModel = new MapModel();
+        mapModel.pieces = light.length;
+        int fields = 0;
+        for (int[] edge : edges) fields = Math.max(fields, Math.max(edge[0], edge[1]));
+        for (int field : light) fields = Math.max(fields, field);
+        for (int field : dark) fields = Math.max(fields, field);
+        mapModel.fields = new HashMap<>();
+        for (int field = 1; field <= fields; field++) mapModel.fields.put(field, new ArrayList<>());
+        for (int[] edge : edges) {
+            mapModel.fields.get(edge[0]).add(edge[1]);
+            mapModel.fields.get(edge[1]).add(edge[0]);
+        }
+        mapModel.groups = new ArrayList<>(groups);
+        BoardModel board = new BoardModel(mapModel);
+        for (int field : light) board.putPiece(field, BoardModel.Color.LIGHT);
+        for (int field : dark) board.putPiece(field, BoardModel.Color.DARK);
+        board.setTurn(BoardModel.Color.LIGHT, 0, 0, false);
+        return SaveState.fromBoard(board);
+    }
+
+    /**
+     * A client sending a fixed sequence of fields, one whenever it is asked for input, from its own thread like the
+     * computer players.
+     */
+    private static final class ScriptedClient extends GameClient {
+        private final Deque<Integer> fields = new ArrayDeque<>();
+        private final ExecutorService worker = Executors.newSingleThreadExecutor();
+
+        ScriptedClient(int... fields) {
+            for (int field : fields) this.fields.add(field);
+        }
+
+        @Override
+        public void sendUp(int field) {
+            worker.execute(() -> gameController.receiveInput(field));
+        }
+
+        private void next() {
+            Integer field = fields.poll();
+            if (field != null) sendUp(field);
+        }
+
+        @Override
+        void sendDownNone() {
+        }
+
+        @Override
+        void sendDownPlace(FieldSet possibleFields) {
+            next();
+        }
+
+        @Override
+        void sendDownRemove(FieldSet opponentFields) {
+            next();
+        }
+
+        @Override
+        void sendDownMove(FieldSet movableFields) {
+            next();
+        }
+
+        @Override
+        void sendDownMoveTo(int fieldToMove, FieldSet possibleFields) {
+            next();
+        }
+
+        @Override
+        void endGame() {
+            worker.shutdown();
+        }
+    }
+
+    static List<String> sorted(List<String> lines) {
+        return lines.subList(1, lines.size()).stream().sorted().collect(Collectors.toList());
+    }
+}
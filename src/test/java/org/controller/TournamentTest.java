@@ -0,0 +1,86 @@
+package org.controller;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.model.SaveState;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TournamentTest {
+
+    @Test
+    void playsEveryPairWithAlternatingColors(@TempDir Path directory) throws IOException {
+        //two openings, saved like the games of the menu
+        for (int i = 0; i < 2; i++) {
+            SaveState opening = SelfPlayRunner.opening(SelfPlayRunnerTest.loadMap(), 4, new Random(i));
+            try (Writer writer = Files.newBufferedWriter(directory.resolve("opening" + i + ".json"))) {
+                new Gson().toJson(opening, writer);
+            }
+        }
+        List<SaveState> openings = Tournament.loadOpenings(directory);
+        assertEquals(2, openings.size());
+        assertEquals(4, openings.get(1).numberOfPiecesPlaced);
+
+        List<String> engines = List.of("ab:200", "ab:200,depth=2,eval=100/0/0/0", "mcts:200");
+        Tournament tournament = new Tournament(engines, SelfPlayRunnerTest.loadMap(), openings, 2, 60, 7, null);
+        Path output = directory.resolve("results.txt");
+        List<Tournament.MatchResult> results = tournament.run(4, output);
+        assertEquals(3, results.size());
+        assertEquals("ab:200", results.get(0).engineA());
+        assertEquals("mcts:200", results.get(2).engineB());
+        for (Tournament.MatchResult result : results) {
+            assertEquals(4, result.score().games());
+            assertEquals(Tournament.Sprt.Decision.CONTINUE, result.decision());
+        }
+
+        List<String> lines = Files.readAllLines(output);
+        assertEquals(13, lines.size());
+        int[][] pairs = {{0, 1}, {0, 2}, {1, 2}};
+        for (String line : lines.subList(1, lines.size())) {
+            String[] columns = line.split(" ");
+            int[] pair = pairs[Integer.parseInt(columns[0])];
+            int game = Integer.parseInt(columns[1]);
+            assertEquals(pair[game % 2], Integer.parseInt(columns[2]));
+            assertEquals(pair[1 - game % 2], Integer.parseInt(columns[3]));
+        }
+    }
+
+    @Test
+    void computesEloAndStopsSettledMatches() {
+        Tournament.Score even = new Tournament.Score(40, 40, 20);
+        assertEquals(0, even.elo(), 1e-9);
+        assertTrue(even.eloError() > 0);
+        Tournament.Score better = new Tournament.Score(60, 30, 10);
+        assertEquals(-400 * Math.log10(1 / 0.65 - 1), better.elo(), 1e-9);
+        //more games give a narrower interval
+        assertTrue(new Tournament.Score(600, 300, 100).eloError() < better.eloError());
+        assertEquals(Double.POSITIVE_INFINITY, new Tournament.Score(3, 0, 0).elo());
+        assertEquals(Double.POSITIVE_INFINITY, new Tournament.Score(3, 0, 0).eloError());
+
+        Tournament.Sprt sprt = new Tournament.Sprt(0, 10, 0.05, 0.05);
+        assertEquals(Tournament.Sprt.Decision.CONTINUE, sprt.decide(new Tournament.Score(0, 0, 0)));
+        assertEquals(Tournament.Sprt.Decision.CONTINUE, sprt.decide(new Tournament.Score(6, 4, 2)));
+        assertEquals(Tournament.Sprt.Decision.H1, sprt.decide(new Tournament.Score(600, 300, 100)));
+        assertEquals(Tournament.Sprt.Decision.H0, sprt.decide(new Tournament.Score(300, 600, 100)));
+        assertEquals(Tournament.Sprt.Decision.CONTINUE, sprt.decide(new Tournament.Score(2, 0, 0)));
+        assertEquals(Tournament.Sprt.Decision.H1, sprt.decide(new Tournament.Score(40, 0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> new Tournament.Sprt(10, 0, 0.05, 0.05));
+    }
+
+    @Test
+    void rejectsInvalidTournaments() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new Tournament(List.of("ab:10"),
+                SelfPlayRunnerTest.loadMap(), List.of(), 1, 10, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> new Tournament(List.of("ab:10", "mcts:10,depth=3"),
+                SelfPlayRunnerTest.loadMap(), List.of(), 1, 10, 0, null));
+        assertInstanceOf(AiGameClient.class, SelfPlayRunner.createClient("ab:0,time=50"));
+    }
+}
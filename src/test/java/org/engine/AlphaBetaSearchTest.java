@@ -0,0 +1,64 @@
+package org.engine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.model.BoardModel;
+import org.model.CompiledMap;
+import org.model.Move;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlphaBetaSearchTest {
+
+    BoardModel boardModel;
+    AlphaBetaSearch search;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MapModel mapModel = CompiledMap.load(Paths.get("maps", "defaultmap.json")).getMapModel();
+        boardModel = new BoardModel(mapModel);
+        search = new AlphaBetaSearch(boardModel, Evaluator.DEFAULT);
+    }
+
+    @Test
+    void findsWinningMill() {
+        boardModel.putPiece(1, BoardModel.Color.LIGHT);
+        boardModel.putPiece(2, BoardModel.Color.LIGHT);
+        boardModel.putPiece(10, BoardModel.Color.LIGHT);
+        boardModel.putPiece(16, BoardModel.Color.DARK);
+        boardModel.putPiece(17, BoardModel.Color.DARK);
+        boardModel.putPiece(24, BoardModel.Color.DARK);
+        boardModel.setTurn(BoardModel.Color.LIGHT, 0, 0, false);
+        long hash = boardModel.positionHash();
+
+        SearchResult result = search.search(4, 0, 0);
+        //light flies to close a mill and removes a piece, leaving dark with 2 pieces
+        assertTrue(Move.hasRemoval(result.move()));
+        assertEquals(AlphaBetaSearch.MATE - 1, result.score());
+        assertEquals(hash, boardModel.positionHash());
+        assertEquals(0, boardModel.getHistorySize());
+    }
+
+    @Test
+    void lostPositionHasNoMove() {
+        boardModel.putPiece(1, BoardModel.Color.LIGHT);
+        boardModel.putPiece(2, BoardModel.Color.LIGHT);
+        boardModel.setTurn(BoardModel.Color.LIGHT, 0, 0, false);
+        SearchResult result = search.search(4, 0, 0);
+        assertEquals(Move.NONE, result.move());
+        assertEquals(-AlphaBetaSearch.MATE, result.score());
+    }
+
+    @Test
+    void respectsNodeLimit() {
+        SearchResult result = search.search(AlphaBetaSearch.MAX_PLY, 0, 5000);
+        assertTrue(Move.isPlacement(result.move()));
+        assertTrue(result.nodes() <= 5000);
+        assertTrue(result.depth() < AlphaBetaSearch.MAX_PLY);
+        assertEquals(0, boardModel.getHistorySize());
+    }
+}
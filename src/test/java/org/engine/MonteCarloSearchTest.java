@@ -0,0 +1,94 @@
+package org.engine;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.model.BoardModel;
+import org.model.CompiledMap;
+import org.model.Move;
+import org.model.MoveGenerator;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonteCarloSearchTest {
+
+    static MapModel mapModel;
+
+    @BeforeAll
+    static void loadMap() throws IOException {
+        mapModel = CompiledMap.load(Paths.get("maps", "defaultmap.json")).getMapModel();
+    }
+
+    @Test
+    void findsTheWinningMill() {
+        BoardModel boardModel = new BoardModel(mapModel);
+        boardModel.putPiece(1, BoardModel.Color.LIGHT);
+        boardModel.putPiece(2, BoardModel.Color.LIGHT);
+        boardModel.putPiece(10, BoardModel.Color.LIGHT);
+        boardModel.putPiece(16, BoardModel.Color.DARK);
+        boardModel.putPiece(17, BoardModel.Color.DARK);
+        boardModel.putPiece(24, BoardModel.Color.DARK);
+        boardModel.setTurn(BoardModel.Color.LIGHT, 0, 0, false);
+        long hash = boardModel.positionHash();
+
+        try (MonteCarloSearch search = new MonteCarloSearch(boardModel, 1, 2)) {
+            SearchResult result = search.search(0, 20_000);
+            assertEquals(20_000, result.nodes());
+            assertEquals(hash, boardModel.positionHash());
+            assertTrue(Move.hasRemoval(result.move()));
+            assertTrue(result.score() > 900);
+            boardModel.makeMove(result.move());
+            assertEquals(0, MoveGenerator.generate(boardModel, new int[MoveGenerator.maxMoves(boardModel)]));
+        }
+    }
+
+    @Test
+    void keepsTheSubtreeOfTheNextPosition() {
+        BoardModel boardModel = new BoardModel(mapModel);
+        try (MonteCarloSearch search = new MonteCarloSearch(boardModel, 4, 1)) {
+            SearchResult first = search.search(0, 5_000);
+            assertTrue(Move.isPlacement(first.move()));
+            assertEquals(5_000, search.getRootVisits());
+            assertTrue(search.getTreeSize() > 1);
+
+            //the chosen move was the most visited, so its subtree is kept with its playouts
+            boardModel.makeMove(first.move());
+            SearchResult second = search.search(0, 1_000);
+            assertEquals(1_000, second.nodes());
+            assertTrue(search.getRootVisits() > 1_000);
+            assertTrue(isLegal(boardModel, second.move()));
+
+            //an unrelated position starts a new tree
+            BoardModel other = new BoardModel(mapModel);
+            boardModel.copyFrom(other);
+            boardModel.setTurn(BoardModel.Color.DARK, 9, 9, false);
+            search.search(0, 100);
+            assertEquals(100, search.getRootVisits());
+        }
+    }
+
+    @Test
+    void stopsOnTimeOnSeveralThreads() {
+        BoardModel boardModel = new BoardModel(mapModel);
+        try (MonteCarloSearch search = new MonteCarloSearch(boardModel, 1, 3)) {
+            assertEquals(3, search.getThreads());
+            SearchResult result = search.search(200, 0);
+            assertTrue(result.millis() < 2_000);
+            assertTrue(result.nodes() > 0);
+            assertTrue(search.getTreeSize() <= search.getCapacity());
+            assertTrue(isLegal(boardModel, result.move()));
+        }
+    }
+
+    static boolean isLegal(BoardModel board, int move) {
+        int[] moves = new int[MoveGenerator.maxMoves(board)];
+        int count = MoveGenerator.generate(board, moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,45 @@
+package org.engine;
+
+import org.junit.jupiter.api.Test;
+import org.model.BoardModel;
+import org.model.CompiledMap;
+import org.model.Move;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSearchTest {
+
+    @Test
+    void helpersAgreeWithSingleThread() throws IOException {
+        MapModel mapModel = CompiledMap.load(Paths.get("maps", "defaultmap.json")).getMapModel();
+        BoardModel boardModel = new BoardModel(mapModel);
+        boardModel.putPiece(1, BoardModel.Color.LIGHT);
+        boardModel.putPiece(2, BoardModel.Color.LIGHT);
+        boardModel.putPiece(10, BoardModel.Color.LIGHT);
+        boardModel.putPiece(16, BoardModel.Color.DARK);
+        boardModel.putPiece(17, BoardModel.Color.DARK);
+        boardModel.putPiece(24, BoardModel.Color.DARK);
+        boardModel.setTurn(BoardModel.Color.LIGHT, 0, 0, false);
+        long hash = boardModel.positionHash();
+
+        try (ParallelSearch search = new ParallelSearch(boardModel, Evaluator.DEFAULT, new TranspositionTable(1), 4)) {
+            assertEquals(4, search.getThreads());
+            SearchResult result = search.search(6, 0, 0);
+            assertTrue(Move.hasRemoval(result.move()));
+            assertEquals(AlphaBetaSearch.MATE - 1, result.score());
+            assertEquals(hash, boardModel.positionHash());
+
+            //from the start, every thread stops on time and the board is restored
+            BoardModel start = new BoardModel(mapModel);
+            boardModel.copyFrom(start);
+            result = search.search(AlphaBetaSearch.MAX_PLY, 200, 0);
+            assertTrue(Move.isPlacement(result.move()));
+            assertTrue(result.depth() > 0);
+            assertEquals(start.positionHash(), boardModel.positionHash());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.engine;
+
+import org.junit.jupiter.api.Test;
+import org.model.BoardModel;
+import org.model.CompiledMap;
+import org.model.SaveState;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+
+    private static MapModel defaultMap() throws IOException {
+        return CompiledMap.load(Paths.get("maps", "defaultmap.json")).getMapModel();
+    }
+
+    @Test
+    void countsPlacementsFromStart() throws IOException {
+        BoardModel boardModel = new BoardModel(defaultMap());
+        long hash = boardModel.positionHash();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Perft perft = new Perft(boardModel, pool, 0);
+            //no mill can be closed in the first four placements
+            assertEquals(1, perft.count(0));
+            assertEquals(24, perft.count(1));
+            assertEquals(24 * 23, perft.count(2));
+            assertEquals(24 * 23 * 22, perft.count(3));
+            assertEquals(24 * 23 * 22 * 21, perft.count(4));
+            assertEquals(hash, boardModel.positionHash());
+            assertThrows(IllegalArgumentException.class, () -> perft.count(-1));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void cacheAndThreadsAgree() throws IOException {
+        BoardModel boardModel = new BoardModel(defaultMap());
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            Perft.Result plain = new Perft(boardModel, single, 0).divide(5);
+            Perft.Result cached = new Perft(boardModel, parallel, 4).divide(5);
+            assertEquals(plain.total(), cached.total());
+            assertArrayEquals(plain.counts(), cached.counts());
+            assertEquals(plain.total(), Arrays.stream(plain.counts()).sum());
+            assertEquals(24, plain.moves().length);
+            //the mills closed at the fifth placement remove one of the two opponent pieces
+            assertTrue(plain.total() > 24L * 23 * 22 * 21 * 20);
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void countsFromSaveState() throws IOException {
+        BoardModel boardModel = new BoardModel(defaultMap());
+        boardModel.putPiece(1, BoardModel.Color.LIGHT);
+        boardModel.putPiece(2, BoardModel.Color.LIGHT);
+        boardModel.putPiece(16, BoardModel.Color.DARK);
+        boardModel.putPiece(17, BoardModel.Color.DARK);
+        boardModel.setTurn(BoardModel.Color.LIGHT, 7, 7, false);
+
+        BoardModel restored = SaveState.fromBoard(boardModel).toBoard();
+        assertEquals(boardModel.positionHash(), restored.positionHash());
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            assertEquals(new Perft(boardModel, pool, 0).count(3), new Perft(restored, pool, 1).count(3));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.engine;
+
+import org.junit.jupiter.api.Test;
+import org.model.BoardModel;
+import org.model.Move;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    @Test
+    void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.encode(BoardModel.Color.DARK, 24, 23, 7);
+        table.store(0x123456789ABCDEFL, move, -AlphaBetaSearch.MATE + 5, 12, TranspositionTable.UPPER);
+
+        long entry = table.probe(0x123456789ABCDEFL);
+        assertNotEquals(0L, entry);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-AlphaBetaSearch.MATE + 5, TranspositionTable.score(entry));
+        assertEquals(12, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(entry));
+        assertEquals(1, table.getHits());
+
+        assertEquals(0L, table.probe(0x23456789ABCDEF1L));
+        assertEquals(2, table.getProbes());
+        assertEquals(1, table.getHits());
+    }
+
+    @Test
+    void deepEntriesArePreferred() {
+        TranspositionTable table = new TranspositionTable(1);
+        long buckets = table.capacity() / 2;
+        long deep = 5, shallow = 5 + buckets, newest = 5 + 2 * buckets; //all three share a bucket
+        table.store(deep, Move.NONE, 1, 10, TranspositionTable.EXACT);
+        table.store(shallow, Move.NONE, 2, 3, TranspositionTable.EXACT);
+        table.store(newest, Move.NONE, 3, 2, TranspositionTable.EXACT);
+
+        assertEquals(1, TranspositionTable.score(table.probe(deep)));
+        assertEquals(0L, table.probe(shallow));
+        assertEquals(3, TranspositionTable.score(table.probe(newest)));
+        assertEquals(1, table.getCollisions());
+
+        //a new search can replace the deep entry
+        table.newSearch();
+        table.store(shallow, Move.NONE, 2, 3, TranspositionTable.EXACT);
+        assertEquals(0L, table.probe(deep));
+        assertEquals(2, TranspositionTable.score(table.probe(shallow)));
+    }
+}
@@ -0,0 +1,113 @@
+package org.engine.book;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.model.BoardModel;
+import org.model.BoardSymmetries;
+import org.model.CompiledMap;
+import org.model.FieldPermutation;
+import org.model.Move;
+import org.model.MoveGenerator;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+
+    static MapModel mapModel;
+
+    @BeforeAll
+    static void loadMap() throws IOException {
+        mapModel = CompiledMap.load(Paths.get("maps", "defaultmap.json")).getMapModel();
+    }
+
+    @Test
+    void buildsTheSameSortedBookOnAnyNumberOfThreads(@TempDir Path directory) throws IOException {
+        Path single = directory.resolve("single.book");
+        Path parallel = directory.resolve("parallel.book");
+        long entries = new BookBuilder(mapModel, 1, 200, 0.5, 3).build(6, single);
+        assertEquals(entries, new BookBuilder(mapModel, 3, 200, 0.5, 3).build(6, parallel));
+        assertArrayEquals(Files.readAllBytes(single), Files.readAllBytes(parallel));
+
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(single));
+        assertEquals(OpeningBook.MAGIC, bytes.getInt());
+        assertEquals(OpeningBook.VERSION, bytes.getInt());
+        assertEquals(24, bytes.getInt());
+        assertEquals(CompiledMap.of(mapModel).contentHash(), bytes.getLong());
+        assertEquals(entries, bytes.getLong());
+        assertEquals(OpeningBook.HEADER_BYTES + entries * OpeningBook.ENTRY_BYTES, bytes.capacity());
+        long previousKey = Long.MIN_VALUE;
+        int previousMove = Integer.MIN_VALUE;
+        long startGames = 0;
+        long startKey = new BoardSymmetries(mapModel).canonicalHash(new BoardModel(mapModel));
+        for (long i = 0; i < entries; i++) {
+            long key = bytes.getLong();
+            int move = bytes.getInt();
+            int games = bytes.getInt();
+            int points = bytes.getInt();
+            assertTrue(key > previousKey || key == previousKey && move > previousMove);
+            assertTrue(games > 0 && points >= 0 && points <= 2 * games);
+            if (key == startKey) startGames += games;
+            previousKey = key;
+            previousMove = move;
+        }
+        //every game starts from the empty board
+        assertEquals(6, startGames);
+    }
+
+    @Test
+    void answersEquivalentPositionsWithEquivalentMoves(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("default.book");
+        new BookBuilder(mapModel, 2, 200, 0.5, 11).build(4, file);
+        OpeningBook book = OpeningBook.open(file, mapModel, 1);
+        BoardSymmetries symmetries = new BoardSymmetries(mapModel);
+
+        BoardModel board = new BoardModel(mapModel);
+        int first = book.bestMove(board);
+        assertTrue(isLegal(board, first));
+        board.makeMove(first);
+        int reply = book.bestMove(board);
+        assertTrue(isLegal(board, reply));
+
+        for (int t = 1; t < symmetries.size(); t++) {
+            FieldPermutation symmetry = symmetries.get(t);
+            BoardModel image = new BoardModel(mapModel);
+            image.makeMove(symmetries.mapMove(first, t));
+            int imageReply = book.bestMove(image);
+            assertTrue(isLegal(image, imageReply));
+            board.makeMove(reply);
+            image.makeMove(imageReply);
+            assertEquals(symmetries.canonicalHash(board), symmetries.canonicalHash(image), symmetry.toString());
+            board.unmakeMove();
+        }
+
+        //a position no game reached
+        BoardModel unknown = new BoardModel(mapModel);
+        unknown.setTurn(BoardModel.Color.LIGHT, 0, 0, false);
+        assertEquals(Move.NONE, book.bestMove(unknown));
+    }
+
+    @Test
+    void rejectsBooksOfOtherMaps(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("default.book");
+        new BookBuilder(mapModel, 1, 100, 1, 5).build(1, file);
+        MapModel other = CompiledMap.load(Paths.get("maps", "specialmap.json")).getMapModel();
+        assertThrows(IOException.class, () -> OpeningBook.open(file, other, 1));
+    }
+
+    static boolean isLegal(BoardModel board, int move) {
+        int[] moves = new int[MoveGenerator.maxMoves(board)];
+        int count = MoveGenerator.generate(board, moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,66 @@
+package org.engine.tablebase;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedTablebaseTest {
+
+    static DistanceTablebase solved;
+
+    @BeforeAll
+    static void solve() throws IOException {
+        RetrogradeSolverTest.setMapModel();
+        solved = new RetrogradeSolver(RetrogradeSolverTest.mapModel, null, ForkJoinPool.commonPool(), Long.MAX_VALUE).solve(4);
+    }
+
+    @Test
+    void probesTheSolvedValues(@TempDir Path directory) throws IOException {
+        CompressedTablebase.write(solved, directory);
+        //a cache of a single block per stripe keeps evicting
+        CompressedTablebase compressed = CompressedTablebase.open(9, directory, 0);
+        PositionIndexer indexer = solved.getIndexer();
+        for (int[] counts : new int[][]{{3, 3}, {3, 4}, {4, 3}, {4, 4}}) {
+            assertTrue(compressed.covers(counts[0], counts[1]));
+            for (long index = 0; index < indexer.size(counts[0], counts[1]); index++) {
+                long own = indexer.unrankOwn(index, counts[0], counts[1]);
+                long opp = indexer.unrankOpp(index, own, counts[1]);
+                assertWdl(solved.probe(counts[0], counts[1], index), compressed.probe(own, opp));
+            }
+        }
+        assertEquals(TablebaseValue.NOT_FOUND, compressed.probe(0b11111L, 0b1100000L));
+        assertTrue(compressed.getCacheMisses() > 0);
+    }
+
+    @Test
+    void probesFromSeveralThreads(@TempDir Path directory) throws IOException {
+        CompressedTablebase.write(solved, directory);
+        CompressedTablebase compressed = CompressedTablebase.open(9, directory, 1 << 10);
+        PositionIndexer indexer = solved.getIndexer();
+        long size = indexer.size(4, 3);
+        long mismatches = LongStream.range(0, 8 * size).parallel().filter(i -> {
+            long index = (i * 7919) % size;
+            long own = indexer.unrankOwn(index, 4, 3);
+            long opp = indexer.unrankOpp(index, own, 3);
+            short expected = solved.probe(4, 3, index);
+            short actual = compressed.probe(own, opp);
+            return TablebaseValue.isWin(expected) != TablebaseValue.isWin(actual)
+                    || TablebaseValue.isLoss(expected) != TablebaseValue.isLoss(actual);
+        }).count();
+        assertEquals(0, mismatches);
+        assertTrue(compressed.getCacheHits() > 0);
+    }
+
+    private static void assertWdl(short expected, short actual) {
+        assertEquals(TablebaseValue.isWin(expected), TablebaseValue.isWin(actual));
+        assertEquals(TablebaseValue.isLoss(expected), TablebaseValue.isLoss(actual));
+        assertEquals(TablebaseValue.isDraw(expected), TablebaseValue.isDraw(actual));
+    }
+}
@@ -0,0 +1,32 @@
+package org.engine.tablebase;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionIndexerTest {
+
+    @Test
+    void sizeCountsPositions() {
+        PositionIndexer indexer = new PositionIndexer(24);
+        //24 choose 3 times 21 choose 4
+        assertEquals(2024L * 5985L, indexer.size(3, 4));
+        assertEquals(1, indexer.size(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> indexer.size(20, 5));
+    }
+
+    @Test
+    void rankAndUnrankAreInverse() {
+        PositionIndexer indexer = new PositionIndexer(12);
+        long size = indexer.size(3, 4);
+        for (long index = 0; index < size; index++) {
+            long own = indexer.unrankOwn(index, 3, 4);
+            long opp = indexer.unrankOpp(index, own, 4);
+            assertEquals(3, Long.bitCount(own));
+            assertEquals(4, Long.bitCount(opp));
+            assertEquals(0, own & opp);
+            assertEquals(0, (own | opp) >>> 12);
+            assertEquals(index, indexer.rank(own, opp));
+        }
+    }
+}
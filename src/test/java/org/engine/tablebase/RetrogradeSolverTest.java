@@ -0,0 +1,173 @@
+package org.engine.tablebase;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.engine.AlphaBetaSearch;
+import org.engine.Evaluator;
+import org.engine.SearchResult;
+import org.model.BoardModel;
+import org.model.MoveGenerator;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetrogradeSolverTest {
+
+    static MapModel mapModel = new MapModel();
+
+    @NotNull
+    static ArrayList<Integer> listOf(@NotNull Integer... integers) {
+        ArrayList<Integer> list = new ArrayList<>();
+        for (Integer i : integers) list.add(i);
+        return list;
+    }
+
+    @BeforeAll
+    static void setMapModel() {
+        /*
+            1---2---3
+            |   |   |
+            4---5---6
+            |   |   |
+            7---8---9
+         */
+        if (!mapModel.fields.isEmpty()) return;
+        mapModel.pieces = 4;
+        mapModel.fields = new HashMap<>() {{
+            put(1, listOf(2, 4));
+            put(2, listOf(1, 3, 5));
+            put(3, listOf(2, 6));
+            put(4, listOf(1, 5, 7));
+            put(5, listOf(2, 4, 6, 8));
+            put(6, listOf(3, 5, 9));
+            put(7, listOf(4, 8));
+            put(8, listOf(5, 7, 9));
+            put(9, listOf(6, 8));
+        }};
+        mapModel.groups = new ArrayList<>() {{
+            add(new int[]{1, 2, 3});
+            add(new int[]{4, 5, 6});
+            add(new int[]{7, 8, 9});
+            add(new int[]{1, 4, 7});
+            add(new int[]{2, 5, 8});
+            add(new int[]{3, 6, 9});
+        }};
+    }
+
+    @Test
+    void valuesAgreeWithTheMoves() throws IOException {
+        DistanceTablebase tablebase = new RetrogradeSolver(mapModel, null, ForkJoinPool.commonPool(), Long.MAX_VALUE).solve(4);
+        BoardModel board = new BoardModel(mapModel);
+        int[] moves = new int[MoveGenerator.maxMoves(board)];
+        PositionIndexer indexer = tablebase.getIndexer();
+        int wins = 0;
+        int losses = 0;
+        for (int[] counts : new int[][]{{3, 3}, {3, 4}, {4, 3}, {4, 4}}) {
+            assertTrue(tablebase.covers(counts[0], counts[1]));
+            for (long index = 0; index < indexer.size(counts[0], counts[1]); index++) {
+                long own = indexer.unrankOwn(index, counts[0], counts[1]);
+                long opp = indexer.unrankOpp(index, own, counts[1]);
+                short value = tablebase.probe(counts[0], counts[1], index);
+                assertEquals(expected(board, moves, tablebase, own, opp), value,
+                        () -> "Position " + Long.toBinaryString(own) + " / " + Long.toBinaryString(opp));
+                if (TablebaseValue.isWin(value)) wins++;
+                if (TablebaseValue.isLoss(value)) losses++;
+            }
+        }
+        assertTrue(wins > 0);
+        assertTrue(losses > 0);
+        assertFalse(tablebase.covers(5, 4));
+    }
+
+    @Test
+    void spilledTablesMatchHeapTables(@TempDir Path directory) throws IOException {
+        DistanceTablebase onHeap = new RetrogradeSolver(mapModel, null, ForkJoinPool.commonPool(), Long.MAX_VALUE).solve(4);
+        DistanceTablebase spilled = new RetrogradeSolver(mapModel, directory, ForkJoinPool.commonPool(), 0).solve(4);
+        assertTrue(Files.exists(directory.resolve("tb-3-4.dte")));
+        DistanceTablebase opened = DistanceTablebase.open(9, directory);
+        PositionIndexer indexer = onHeap.getIndexer();
+        for (long index = 0; index < indexer.size(4, 3); index++) {
+            assertEquals(onHeap.probe(4, 3, index), spilled.probe(4, 3, index));
+            assertEquals(onHeap.probe(4, 3, index), opened.probe(4, 3, index));
+        }
+    }
+
+    @Test
+    void probesBoards() throws IOException {
+        DistanceTablebase tablebase = new RetrogradeSolver(mapModel, null, ForkJoinPool.commonPool(), Long.MAX_VALUE).solve(3);
+        BoardModel board = new BoardModel(mapModel);
+        //light can fly to 3 and close the mill 1-2-3
+        board.putPiece(1, BoardModel.Color.LIGHT);
+        board.putPiece(2, BoardModel.Color.LIGHT);
+        board.putPiece(9, BoardModel.Color.LIGHT);
+        board.putPiece(4, BoardModel.Color.DARK);
+        board.putPiece(5, BoardModel.Color.DARK);
+        board.putPiece(7, BoardModel.Color.DARK);
+        board.setTurn(BoardModel.Color.LIGHT, 0, 0, false);
+        assertEquals(TablebaseValue.win(1), tablebase.probe(board));
+        board.setTurn(BoardModel.Color.LIGHT, 1, 0, false);
+        assertEquals(TablebaseValue.NOT_FOUND, tablebase.probe(board));
+    }
+
+    @Test
+    void searchScoresPositionsFromTheTables() throws IOException {
+        DistanceTablebase tablebase = new RetrogradeSolver(mapModel, null, ForkJoinPool.commonPool(), Long.MAX_VALUE).solve(4);
+        PositionIndexer indexer = tablebase.getIndexer();
+        long index = 0;
+        while (!TablebaseValue.isWin(tablebase.probe(4, 4, index)) || TablebaseValue.distance(tablebase.probe(4, 4, index)) < 3) {
+            index++;
+        }
+        long own = indexer.unrankOwn(index, 4, 4);
+        long opp = indexer.unrankOpp(index, own, 4);
+        BoardModel board = new BoardModel(mapModel);
+        for (int i = 1; i <= 9; i++) {
+            if ((own & BoardModel.bit(i)) != 0) board.putPiece(i, BoardModel.Color.LIGHT);
+            if ((opp & BoardModel.bit(i)) != 0) board.putPiece(i, BoardModel.Color.DARK);
+        }
+        board.setTurn(BoardModel.Color.LIGHT, 0, 0, false);
+        AlphaBetaSearch search = new AlphaBetaSearch(board, Evaluator.DEFAULT);
+        search.setTablebase(tablebase);
+        SearchResult result = search.search(2, 0, 0);
+        assertEquals(AlphaBetaSearch.TABLEBASE_WIN - TablebaseValue.distance(tablebase.probe(4, 4, index)), result.score());
+    }
+
+    /**
+     * Helper method to compute the value of a position from the values of the positions after its moves.
+     */
+    private static short expected(BoardModel board, int[] moves, Tablebase tablebase, long own, long opp) {
+        for (int i = 1; i <= 9; i++) {
+            board.putPiece(i, BoardModel.Color.EMPTY);
+            if ((own & BoardModel.bit(i)) != 0) board.putPiece(i, BoardModel.Color.LIGHT);
+            if ((opp & BoardModel.bit(i)) != 0) board.putPiece(i, BoardModel.Color.DARK);
+        }
+        board.setTurn(BoardModel.Color.LIGHT, 0, 0, false);
+        int count = MoveGenerator.generate(board, moves);
+        int fastestWin = Integer.MAX_VALUE;
+        int slowestLoss = -1;
+        boolean allWon = true;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i]);
+            short child = board.getPieceCount(BoardModel.Color.DARK) < 3 ? TablebaseValue.loss(0) : tablebase.probe(board);
+            board.unmakeMove();
+            assertNotEquals(TablebaseValue.NOT_FOUND, child);
+            if (TablebaseValue.isLoss(child)) {
+                fastestWin = Math.min(fastestWin, TablebaseValue.distance(child) + 1);
+            } else if (TablebaseValue.isWin(child)) {
+                slowestLoss = Math.max(slowestLoss, TablebaseValue.distance(child));
+            } else {
+                allWon = false;
+            }
+        }
+        if (fastestWin != Integer.MAX_VALUE) return TablebaseValue.win(fastestWin);
+        return allWon ? TablebaseValue.loss(slowestLoss + 1) : TablebaseValue.DRAW;
+    }
+}
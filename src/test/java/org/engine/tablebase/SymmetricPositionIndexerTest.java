@@ -0,0 +1,76 @@
+package org.engine.tablebase;
+
+import org.junit.jupiter.api.Test;
+import org.model.BoardModel;
+import org.model.FieldPermutation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymmetricPositionIndexerTest {
+
+    /**
+     * The 8 symmetries of the 3x3 grid of {@link RetrogradeSolverTest}, generated by a rotation and a reflection.
+     */
+    static List<FieldPermutation> gridSymmetries() {
+        int[] rotation = new int[10];
+        int[] reflection = new int[10];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                rotation[3 * row + col + 1] = 3 * col + (2 - row) + 1;
+                reflection[3 * row + col + 1] = 3 * row + (2 - col) + 1;
+            }
+        }
+        List<FieldPermutation> group = new ArrayList<>();
+        FieldPermutation r = FieldPermutation.identity(9);
+        for (int i = 0; i < 4; i++) {
+            group.add(r);
+            group.add(r.then(new FieldPermutation(reflection)));
+            r = r.then(new FieldPermutation(rotation));
+        }
+        return group;
+    }
+
+    @Test
+    void equivalentPositionsShareTheirIndex() {
+        List<FieldPermutation> symmetries = gridSymmetries();
+        SymmetricPositionIndexer reduced = new SymmetricPositionIndexer(9, symmetries.toArray(new FieldPermutation[0]));
+        PositionIndexer full = new PositionIndexer(9);
+        assertEquals(8, reduced.getSymmetries());
+        long size = reduced.size(3, 3);
+        assertTrue(size < full.size(3, 3) / 4);
+
+        boolean[] used = new boolean[(int) size];
+        for (long index = 0; index < full.size(3, 3); index++) {
+            long own = full.unrankOwn(index, 3, 3);
+            long opp = full.unrankOpp(index, own, 3);
+            long rank = reduced.rank(own, opp);
+            assertTrue(rank >= 0 && rank < size);
+            used[(int) rank] = true;
+            for (FieldPermutation symmetry : symmetries) {
+                assertEquals(rank, reduced.rank(symmetry.apply(own), symmetry.apply(opp)));
+            }
+            long canonicalOwn = reduced.unrankOwn(rank, 3, 3);
+            long canonicalOpp = reduced.unrankOpp(rank, canonicalOwn, 3);
+            assertTrue(symmetries.stream().anyMatch(s -> s.apply(own) == canonicalOwn && s.apply(opp) == canonicalOpp));
+        }
+        int unused = 0;
+        for (boolean u : used) if (!u) unused++;
+        assertTrue(unused < size / 2, unused + " of " + size);
+    }
+
+    @Test
+    void colorSubspacesFollowTheSideToMove() {
+        PositionIndexer indexer = new PositionIndexer(9);
+        long light = 0b000000111L;
+        long dark = 0b011000000L;
+        long index = indexer.rank(light, dark, BoardModel.Color.DARK);
+        assertEquals(indexer.rank(dark, light), index);
+        assertEquals(indexer.size(2, 3), indexer.size(3, 2, BoardModel.Color.DARK));
+        long unrankedLight = indexer.unrankLight(index, 3, 2, BoardModel.Color.DARK);
+        assertEquals(light, unrankedLight);
+        assertEquals(dark, indexer.unrankDark(index, unrankedLight, 2, BoardModel.Color.DARK));
+    }
+}
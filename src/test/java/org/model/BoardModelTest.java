@@ -5,6 +5,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.util.FieldSet;
 import org.util.MapModel;
 
 import java.util.ArrayList;
@@ -142,83 +143,119 @@ class BoardModelTest {
 
     }
 
+    @Test
+    void removingPieceBreaksOnlyItsMills() {
+        assertFalse(boardModel.putPiece(4, BoardModel.Color.LIGHT));
+        assertTrue(boardModel.putPiece(7, BoardModel.Color.LIGHT));
+        // field 1 is part of two mills now
+        assertFalse(boardModel.putPiece(2, BoardModel.Color.EMPTY));
+        assertTrue(boardModel.isFieldInMill(1));
+        assertTrue(boardModel.isFieldInMill(4));
+        assertFalse(boardModel.isFieldInMill(3));
+        assertFalse(boardModel.movePiece(1, 2));
+        assertFalse(boardModel.isFieldInMill(1));
+        assertFalse(boardModel.isFieldInMill(4));
+        assertFalse(boardModel.isFieldInMill(7));
+    }
+
+    @Test
+    void makeAndUnmakeMove() {
+        // dark closes 7-8-9 and removes 5, light moves 3 away, breaking its mill, and back
+        int[] moves = {
+                Move.place(BoardModel.Color.LIGHT, 5),
+                Move.place(BoardModel.Color.DARK, 7),
+                Move.place(BoardModel.Color.LIGHT, 4),
+                Move.withRemoval(Move.place(BoardModel.Color.DARK, 8), 5),
+                Move.move(BoardModel.Color.LIGHT, 3, 6),
+                Move.move(BoardModel.Color.LIGHT, 6, 3),
+        };
+        for (int move : moves) boardModel.makeMove(move);
+        assertEquals(FieldSet.of(1, 2, 3, 4), boardModel.getFields(BoardModel.Color.LIGHT));
+        assertEquals(FieldSet.of(1, 2, 3), boardModel.getFields(BoardModel.Color.LIGHT, true));
+        assertEquals(FieldSet.of(7, 8, 9), boardModel.getFields(BoardModel.Color.DARK, true));
+        assertEquals(moves.length, boardModel.getHistorySize());
+
+        boardModel.unmakeMove();
+        assertFalse(boardModel.isFieldInMill(1));
+        assertTrue(boardModel.isFieldOfColor(6, BoardModel.Color.LIGHT));
+        for (int i = 1; i < moves.length; i++) boardModel.unmakeMove();
+
+        assertEquals(FieldSet.of(1, 2, 3), boardModel.getFields(BoardModel.Color.LIGHT, true));
+        assertEquals(FieldSet.of(9), boardModel.getFields(BoardModel.Color.DARK, false));
+        assertEquals(FieldSet.of(4, 5, 6, 7, 8), boardModel.getFields(BoardModel.Color.EMPTY));
+        assertThrows(IllegalStateException.class, () -> boardModel.unmakeMove());
+    }
+
+    @Test
+    void positionHash() {
+        long start = boardModel.positionHash();
+        boardModel.makeMove(Move.place(BoardModel.Color.LIGHT, 5));
+        boardModel.makeMove(Move.place(BoardModel.Color.DARK, 7));
+        boardModel.makeMove(Move.place(BoardModel.Color.LIGHT, 4));
+        long transposed = boardModel.positionHash();
+        assertEquals(BoardModel.Color.DARK, boardModel.getSideToMove());
+        assertEquals(7, boardModel.getPiecesToPlace(BoardModel.Color.LIGHT));
+        for (int i = 0; i < 3; i++) boardModel.unmakeMove();
+        assertEquals(start, boardModel.positionHash());
+
+        boardModel.makeMove(Move.place(BoardModel.Color.LIGHT, 4));
+        boardModel.makeMove(Move.place(BoardModel.Color.DARK, 7));
+        boardModel.makeMove(Move.place(BoardModel.Color.LIGHT, 5));
+        assertEquals(transposed, boardModel.positionHash());
+
+        boardModel.setTurn(BoardModel.Color.LIGHT, 7, 8, false);
+        assertNotEquals(transposed, boardModel.positionHash());
+        boardModel.setTurn(BoardModel.Color.DARK, 7, 8, true);
+        assertEquals(BoardModel.Phase.REMOVING, boardModel.getPhase());
+        boardModel.makeMove(Move.removal(BoardModel.Color.DARK, 4));
+        assertEquals(BoardModel.Phase.PLACING, boardModel.getPhase());
+        boardModel.putPiece(4, BoardModel.Color.LIGHT);
+        boardModel.setTurn(BoardModel.Color.DARK, 7, 8, false);
+        assertEquals(transposed, boardModel.positionHash());
+    }
+
     @Test
     void getFields() {
-        assertEquals(boardModel.getFields(BoardModel.Color.LIGHT), listOf(1, 2, 3));
-        assertEquals(boardModel.getFields(BoardModel.Color.DARK), listOf(9));
-        assertEquals(boardModel.getFields(BoardModel.Color.LIGHT, true), listOf(1, 2, 3));
-        assertEquals(boardModel.getFields(BoardModel.Color.LIGHT, false), new ArrayList<>());
-        assertEquals(boardModel.getFields(BoardModel.Color.DARK, false), listOf(9));
+        assertEquals(boardModel.getFields(BoardModel.Color.LIGHT), FieldSet.of(1, 2, 3));
+        assertEquals(boardModel.getFields(BoardModel.Color.DARK), FieldSet.of(9));
+        assertEquals(boardModel.getFields(BoardModel.Color.LIGHT, true), FieldSet.of(1, 2, 3));
+        assertEquals(boardModel.getFields(BoardModel.Color.LIGHT, false), FieldSet.EMPTY);
+        assertEquals(boardModel.getFields(BoardModel.Color.DARK, false), FieldSet.of(9));
 
     }
 
     @Test
     void getMovableFields() {
-        assertEquals(boardModel.getMovableFields(BoardModel.Color.LIGHT), new ArrayList<>(){{
-            add(1);
-            add(2);
-            add(3);
-        }});
-        assertEquals(boardModel.getMovableFields(BoardModel.Color.DARK), new ArrayList<>(){{
-            add(9);
-        }});
+        assertEquals(boardModel.getMovableFields(BoardModel.Color.LIGHT), FieldSet.of(1, 2, 3));
+        assertEquals(boardModel.getMovableFields(BoardModel.Color.DARK), FieldSet.of(9));
         assertThrows(RuntimeException.class, () -> boardModel.getMovableFields(BoardModel.Color.EMPTY));
     }
 
     @Test
     void filterFieldsByColor() {
-        assertEquals(boardModel.filterFieldsByColor(new ArrayList<>(){{
-            add(1);
-            add(2);
-            add(3);
-            add(4);
-            add(5);
-        }}, BoardModel.Color.LIGHT), new ArrayList<>(){{
-            add(1);
-            add(2);
-            add(3);
-        }});
-        assertEquals(boardModel.filterFieldsByColor(new ArrayList<>(){{
-            add(1);
-            add(2);
-            add(3);
-            add(4);
-            add(5);
-        }}, BoardModel.Color.DARK), new ArrayList<>(){});
-        assertEquals(boardModel.filterFieldsByColor(new ArrayList<>(){{
-            add(1);
-            add(2);
-            add(3);
-            add(4);
-            add(5);
-        }}, BoardModel.Color.EMPTY), new ArrayList<>(){{
-            add(4);
-            add(5);
-        }});
+        assertEquals(boardModel.filterFieldsByColor(FieldSet.of(1, 2, 3, 4, 5), BoardModel.Color.LIGHT), FieldSet.of(1, 2, 3));
+        assertEquals(boardModel.filterFieldsByColor(FieldSet.of(1, 2, 3, 4, 5), BoardModel.Color.DARK), FieldSet.EMPTY);
+        assertEquals(boardModel.filterFieldsByColor(FieldSet.of(1, 2, 3, 4, 5), BoardModel.Color.EMPTY), FieldSet.of(4, 5));
     }
 
     @Test
     void getPossibleMoves() {
-        assertEquals(boardModel.getPossibleMoves(1, false), listOf(4));
-        assertEquals(boardModel.getPossibleMoves(2, false), listOf(5));
-        assertEquals(boardModel.getPossibleMoves(3, false), listOf(6));
-        assertEquals(boardModel.getPossibleMoves(4, false), listOf(5, 7));
-        assertEquals(boardModel.getPossibleMoves(5, false), listOf(4,6,8));
-        assertEquals(boardModel.getPossibleMoves(6, false), listOf(5));
+        assertEquals(boardModel.getPossibleMoves(1, false), FieldSet.of(4));
+        assertEquals(boardModel.getPossibleMoves(2, false), FieldSet.of(5));
+        assertEquals(boardModel.getPossibleMoves(3, false), FieldSet.of(6));
+        assertEquals(boardModel.getPossibleMoves(4, false), FieldSet.of(5, 7));
+        assertEquals(boardModel.getPossibleMoves(5, false), FieldSet.of(4, 6, 8));
+        assertEquals(boardModel.getPossibleMoves(6, false), FieldSet.of(5));
+        assertEquals(boardModel.getPossibleMoves(1, true), FieldSet.of(4, 5, 6, 7, 8));
     }
 
     @Test
     void getNeighbouring() {
-        assertEquals(boardModel.getNeighbouring(5), new ArrayList<>() {{
-            add(2);
-            add(4);
-            add(6);
-            add(8);
-        }});
+        assertEquals(boardModel.getNeighbouring(5), FieldSet.of(2, 4, 6, 8));
     }
 
     @Test
     void testGetNeighbouring() {
-
+        assertEquals(boardModel.getNeighbouring(FieldSet.of(1, 9)), FieldSet.of(2, 4, 6, 8));
     }
 }
\ No newline at end of file
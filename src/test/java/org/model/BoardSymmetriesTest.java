@@ -0,0 +1,87 @@
+package org.model;
+
+import org.junit.jupiter.api.Test;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardSymmetriesTest {
+
+    static MapModel loadMap(String name) throws IOException {
+        return CompiledMap.load(Paths.get("maps", name + ".json")).getMapModel();
+    }
+
+    @Test
+    void defaultMapHasSixteenSymmetries() throws IOException {
+        MapModel mapModel = loadMap("defaultmap");
+        BoardSymmetries symmetries = new BoardSymmetries(mapModel);
+        assertEquals(16, symmetries.size());
+        assertTrue(symmetries.get(0).isIdentity());
+        assertSymmetriesOf(mapModel, symmetries);
+    }
+
+    @Test
+    void specialMapSymmetriesKeepTheMap() throws IOException {
+        MapModel mapModel = loadMap("specialmap");
+        BoardSymmetries symmetries = new BoardSymmetries(mapModel);
+        assertTrue(symmetries.size() > 1);
+        assertSymmetriesOf(mapModel, symmetries);
+    }
+
+    @Test
+    void equivalentPositionsHaveTheSameCanonicalForm() throws IOException {
+        MapModel mapModel = loadMap("defaultmap");
+        BoardSymmetries symmetries = new BoardSymmetries(mapModel);
+        BoardModel board = new BoardModel(mapModel);
+        Random random = new Random(7);
+        for (int n = 0; n < 200; n++) {
+            long light = random.nextLong() & 0xFFFFFFL;
+            long dark = random.nextLong() & 0xFFFFFFL & ~light;
+            BoardSymmetries.Canonical canonical = symmetries.canonicalize(light, dark);
+            assertEquals(symmetries.get(canonical.transform()).apply(light), canonical.light());
+            for (FieldPermutation symmetry : symmetries.getAll()) {
+                BoardSymmetries.Canonical image = symmetries.canonicalize(symmetry.apply(light), symmetry.apply(dark));
+                assertEquals(canonical.light(), image.light());
+                assertEquals(canonical.dark(), image.dark());
+            }
+        }
+
+        board.putPiece(1, BoardModel.Color.LIGHT);
+        long hash = symmetries.canonicalHash(board);
+        board.putPiece(1, BoardModel.Color.EMPTY);
+        board.putPiece(symmetries.get(5).apply(1), BoardModel.Color.LIGHT);
+        assertEquals(hash, symmetries.canonicalHash(board));
+
+        int move = Move.withRemoval(Move.move(BoardModel.Color.DARK, 1, 2), 10);
+        int mapped = symmetries.mapMove(move, 5);
+        assertEquals(symmetries.get(5).apply(2), Move.to(mapped));
+        assertEquals(symmetries.get(5).apply(10), Move.removed(mapped));
+        assertEquals(BoardModel.Color.DARK, Move.color(mapped));
+    }
+
+    /**
+     * Helper method to check that every symmetry maps neighbors to neighbors and groups to groups, and that they are
+     * distinct.
+     */
+    private static void assertSymmetriesOf(MapModel mapModel, BoardSymmetries symmetries) {
+        BoardModel board = new BoardModel(mapModel);
+        Set<Long> groups = new HashSet<>();
+        for (int g = 0; g < board.getNumberOfGroups(); g++) groups.add(board.getGroupMask(g));
+        Set<FieldPermutation> distinct = new HashSet<>();
+        for (FieldPermutation symmetry : symmetries.getAll()) {
+            assertTrue(distinct.add(symmetry));
+            for (int i = 1; i <= board.getNumberOfFields(); i++) {
+                assertEquals(symmetry.apply(board.getNeighborMask(i)), board.getNeighborMask(symmetry.apply(i)));
+            }
+            for (long group : groups) {
+                assertTrue(groups.contains(symmetry.apply(group)));
+            }
+        }
+    }
+}
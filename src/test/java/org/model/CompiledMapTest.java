@@ -0,0 +1,82 @@
+package org.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledMapTest {
+
+    @Test
+    void compilesTheTopologyOfTheMap() throws IOException {
+        CompiledMap map = CompiledMap.load(Paths.get("maps", "defaultmap.json"));
+        MapModel mapModel = map.getMapModel();
+        assertEquals(mapModel.fields.size(), map.getNumberOfFields());
+        assertEquals(mapModel.groups.size(), map.getNumberOfGroups());
+        assertEquals(mapModel.contentHash(), map.contentHash());
+        for (int field = 1; field <= map.getNumberOfFields(); field++) {
+            List<Integer> neighbors = new ArrayList<>(mapModel.fields.get(field));
+            neighbors.sort(null);
+            assertArrayEquals(neighbors.stream().mapToInt(Integer::intValue).toArray(), map.getNeighbors(field));
+            int f = field;
+            for (int group : map.getGroupsOf(field)) {
+                assertTrue(Arrays.stream(map.getGroupFields(group)).anyMatch(g -> g == f));
+            }
+        }
+        int incidences = 0;
+        for (int group = 0; group < map.getNumberOfGroups(); group++) {
+            assertArrayEquals(mapModel.groups.get(group), map.getGroupFields(group));
+            incidences += map.getGroupFields(group).length;
+        }
+        int indexed = 0;
+        for (int field = 1; field <= map.getNumberOfFields(); field++) {
+            indexed += map.getGroupsOf(field).length;
+        }
+        assertEquals(incidences, indexed);
+    }
+
+    @Test
+    void sharesOneTopologyPerMap(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("map.json");
+        Files.copy(Paths.get("maps", "defaultmap.json"), file);
+        CompiledMap map = CompiledMap.load(file);
+        assertSame(map, CompiledMap.load(file));
+        assertSame(map, CompiledMap.of(map.getMapModel()));
+        assertSame(map, new BoardModel(map.getMapModel()).getCompiledMap());
+
+        //a changed file is loaded again
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        CompiledMap reloaded = CompiledMap.load(file);
+        assertNotSame(map, reloaded);
+        assertEquals(map.contentHash(), reloaded.contentHash());
+
+        //a map whose lists were replaced is compiled again
+        MapModel mapModel = reloaded.getMapModel();
+        mapModel.groups = new ArrayList<>(mapModel.groups.subList(0, 1));
+        assertEquals(1, CompiledMap.of(mapModel).getNumberOfGroups());
+    }
+
+    @Test
+    void rejectsInvalidMaps(@TempDir Path directory) throws IOException {
+        MapModel mapModel = new MapModel();
+        mapModel.fields = new HashMap<>();
+        mapModel.fields.put(1, new ArrayList<>(List.of(2)));
+        mapModel.fields.put(2, new ArrayList<>(List.of(3)));
+        assertThrows(IllegalArgumentException.class, () -> CompiledMap.compile(mapModel));
+
+        Path file = directory.resolve("broken.json");
+        Files.writeString(file, "{\"fields\": {\"1\": [5]}, \"groups\": []}");
+        assertThrows(IOException.class, () -> CompiledMap.load(file));
+    }
+}
@@ -0,0 +1,74 @@
+package org.model;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapStoreTest {
+
+    private static SaveState position(MapModel mapModel) {
+        BoardModel boardModel = new BoardModel(mapModel);
+        boardModel.putPiece(4, BoardModel.Color.LIGHT);
+        boardModel.putPiece(9, BoardModel.Color.DARK);
+        boardModel.setTurn(BoardModel.Color.LIGHT, 8, 8, false);
+        return SaveState.fromBoard(boardModel);
+    }
+
+    @Test
+    void resolvesSavesByReferenceAfterTheMapFileChanged(@TempDir Path directory) throws IOException {
+        Path maps = Files.createDirectories(directory.resolve("maps"));
+        Files.copy(Paths.get("maps", "defaultmap.json"), maps.resolve("defaultmap.json"));
+        MapStore store = new MapStore(maps, directory.resolve(MapStore.FOLDER));
+        MapModel mapModel = CompiledMap.load(maps.resolve("defaultmap.json")).getMapModel();
+        assertSame(mapModel, store.resolve("defaultmap", mapModel.contentHash()));
+
+        long hash = store.put(mapModel);
+        assertEquals(mapModel.contentHash(), hash);
+        assertTrue(Files.exists(directory.resolve(MapStore.FOLDER).resolve(MapStore.key(hash) + ".json")));
+        Path save = directory.resolve("game.sav");
+        SaveStateFormat.write(position(mapModel), "defaultmap", save);
+
+        //the referenced map file is replaced, the save still loads the map it was played on from the store
+        Files.writeString(maps.resolve("defaultmap.json"), "{\"fields\": {}, \"groups\": []}");
+        SaveState read = SaveStateFormat.read(save, store);
+        assertEquals(hash, read.mapModel.contentHash());
+        assertEquals(BoardModel.Color.DARK, read.fields[9]);
+        assertSame(read.mapModel, SaveStateFormat.read(save, store).mapModel);
+        assertThrows(IOException.class, () -> SaveStateFormat.read(save, SaveStateFormat.folderResolver(maps)));
+    }
+
+    @Test
+    void referencesAreAnOrderOfMagnitudeSmallerThanEmbeddedMaps(@TempDir Path directory) throws IOException {
+        MapModel mapModel = CompiledMap.load(Paths.get("maps", "defaultmap.json")).getMapModel();
+        SaveState saveState = position(mapModel);
+        Path json = directory.resolve("game.json");
+        SaveStateFormat.exportJson(saveState, json);
+        byte[] reference = SaveStateFormat.encode(saveState, MapStore.key(mapModel.contentHash()));
+        assertTrue(10 * reference.length < Files.size(json), reference.length + " bytes, embedded " + Files.size(json));
+    }
+
+    @Test
+    void internsEmbeddedMaps(@TempDir Path directory) throws IOException {
+        MapStore store = new MapStore(directory.resolve("maps"), directory.resolve(MapStore.FOLDER));
+        MapModel mapModel = CompiledMap.load(Paths.get("maps", "defaultmap.json")).getMapModel();
+        String json = Files.readString(Paths.get("maps", "defaultmap.json"), StandardCharsets.UTF_8);
+        MapModel embedded = new Gson().fromJson(json, MapModel.class);
+        //nothing to share before the map is stored
+        assertSame(embedded, store.intern(embedded, null));
+        store.put(mapModel);
+        MapModel interned = store.intern(embedded, "defaultmap");
+        assertNotSame(embedded, interned);
+        assertEquals(embedded.contentHash(), interned.contentHash());
+        assertSame(interned, store.intern(new Gson().fromJson(json, MapModel.class), null));
+        assertThrows(IOException.class, () -> store.resolve("unknown", 42));
+    }
+}
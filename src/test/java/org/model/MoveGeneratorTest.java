@@ -0,0 +1,135 @@
+package org.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveGeneratorTest {
+
+    MapModel mapModel;
+    BoardModel boardModel;
+    int[] moves;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mapModel = CompiledMap.load(Paths.get("maps", "defaultmap.json")).getMapModel();
+        boardModel = new BoardModel(mapModel);
+        moves = new int[MoveGenerator.maxMoves(boardModel)];
+    }
+
+    @Test
+    void placingOnEmptyBoard() {
+        assertEquals(24, MoveGenerator.generate(boardModel, moves));
+        for (int i = 0; i < 24; i++) {
+            assertTrue(Move.isPlacement(moves[i]));
+            assertEquals(BoardModel.Color.LIGHT, Move.color(moves[i]));
+            assertFalse(Move.hasRemoval(moves[i]));
+        }
+    }
+
+    @Test
+    void millExpandsIntoRemovals() {
+        boardModel.putPiece(1, BoardModel.Color.LIGHT);
+        boardModel.putPiece(2, BoardModel.Color.LIGHT);
+        boardModel.putPiece(9, BoardModel.Color.DARK);
+        boardModel.putPiece(10, BoardModel.Color.DARK);
+        boardModel.putPiece(11, BoardModel.Color.DARK);
+        boardModel.setTurn(BoardModel.Color.LIGHT, 7, 6, false);
+        // 19 plain placements, placing on 3 closes a mill, but dark's pieces are all in a mill
+        assertEquals(19, MoveGenerator.generate(boardModel, moves));
+
+        boardModel.putPiece(12, BoardModel.Color.DARK);
+        boardModel.setTurn(BoardModel.Color.LIGHT, 7, 5, false);
+        // placing on 3 now comes with removing 12
+        int count = MoveGenerator.generate(boardModel, moves);
+        assertEquals(18, count);
+        int withRemoval = 0;
+        for (int i = 0; i < count; i++) {
+            if (Move.hasRemoval(moves[i])) {
+                withRemoval++;
+                assertEquals(3, Move.to(moves[i]));
+                assertEquals(12, Move.removed(moves[i]));
+            }
+        }
+        assertEquals(1, withRemoval);
+    }
+
+    @Test
+    void movingAndFlying() {
+        boardModel.putPiece(1, BoardModel.Color.LIGHT);
+        boardModel.putPiece(5, BoardModel.Color.LIGHT);
+        boardModel.putPiece(9, BoardModel.Color.LIGHT);
+        boardModel.putPiece(2, BoardModel.Color.DARK);
+        boardModel.putPiece(3, BoardModel.Color.DARK);
+        boardModel.putPiece(4, BoardModel.Color.DARK);
+        boardModel.putPiece(17, BoardModel.Color.DARK);
+        boardModel.setTurn(BoardModel.Color.LIGHT, 0, 0, false);
+        // light has 3 pieces and flies to any of the 17 empty fields
+        assertEquals(3 * 17, MoveGenerator.generate(boardModel, moves));
+        // dark moves 2-10, 4-12, 17-18 and 17-24, 3 is blocked
+        int count = MoveGenerator.generate(boardModel, BoardModel.Color.DARK, moves);
+        assertEquals(4, count);
+        for (int i = 0; i < count; i++) {
+            assertTrue(boardModel.areNeighbors(Move.from(moves[i]), Move.to(moves[i])));
+        }
+    }
+
+    @Test
+    void removingPhase() {
+        boardModel.putPiece(1, BoardModel.Color.DARK);
+        boardModel.putPiece(2, BoardModel.Color.DARK);
+        boardModel.putPiece(3, BoardModel.Color.DARK);
+        boardModel.putPiece(4, BoardModel.Color.DARK);
+        boardModel.setTurn(BoardModel.Color.LIGHT, 3, 0, true);
+        assertEquals(1, MoveGenerator.generate(boardModel, moves));
+        assertTrue(Move.isRemovalOnly(moves[0]));
+        assertEquals(4, Move.removed(moves[0]));
+    }
+
+    @Test
+    void randomGamesUnmakeToStart() {
+        Random random = new Random(42);
+        long start = boardModel.positionHash();
+        for (int game = 0; game < 50; game++) {
+            int plies = 0;
+            while (plies < 200) {
+                int count = MoveGenerator.generate(boardModel, moves);
+                assertEquals(count > 0, MoveGenerator.hasMoves(boardModel));
+                if (count == 0) break;
+                boardModel.makeMove(moves[random.nextInt(count)]);
+                plies++;
+                assertEquals(Zobrist.hash(boardModel.getBitboard(BoardModel.Color.LIGHT), boardModel.getBitboard(BoardModel.Color.DARK),
+                        boardModel.getSideToMove(), boardModel.getPiecesToPlace(BoardModel.Color.LIGHT),
+                        boardModel.getPiecesToPlace(BoardModel.Color.DARK), false), boardModel.positionHash());
+                assertMillsConsistent();
+            }
+            while (plies-- > 0) {
+                boardModel.unmakeMove();
+                assertMillsConsistent();
+            }
+            assertEquals(start, boardModel.positionHash());
+            assertEquals(24, boardModel.getFields(BoardModel.Color.EMPTY).size());
+        }
+    }
+
+    private void assertMillsConsistent() {
+        long light = boardModel.getBitboard(BoardModel.Color.LIGHT);
+        long dark = boardModel.getBitboard(BoardModel.Color.DARK);
+        for (int field = 1; field <= boardModel.getNumberOfFields(); field++) {
+            boolean expected = false;
+            for (int[] group : mapModel.groups) {
+                long mask = BoardModel.bit(group[0]) | BoardModel.bit(group[1]) | BoardModel.bit(group[2]);
+                if ((mask & BoardModel.bit(field)) != 0 && ((light & mask) == mask || (dark & mask) == mask)) {
+                    expected = true;
+                }
+            }
+            assertEquals(expected, boardModel.isFieldInMill(field), "field " + field);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.util.MapModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveStateFormatTest {
+
+    private static MapModel loadMap(String name) throws IOException {
+        return CompiledMap.load(Paths.get("maps", name + ".json")).getMapModel();
+    }
+
+    private static SaveState position(MapModel mapModel) {
+        BoardModel boardModel = new BoardModel(mapModel);
+        boardModel.putPiece(1, BoardModel.Color.LIGHT);
+        boardModel.putPiece(2, BoardModel.Color.LIGHT);
+        boardModel.putPiece(3, BoardModel.Color.LIGHT);
+        boardModel.putPiece(16, BoardModel.Color.DARK);
+        boardModel.putPiece(24, BoardModel.Color.DARK);
+        boardModel.setTurn(BoardModel.Color.LIGHT, 6, 7, true);
+        return SaveState.fromBoard(boardModel);
+    }
+
+    @Test
+    void roundTripsThroughBinaryFiles(@TempDir Path directory) throws IOException {
+        MapModel mapModel = loadMap("defaultmap");
+        SaveState saveState = position(mapModel);
+        byte[] bytes = SaveStateFormat.encode(saveState, "defaultmap");
+        assertEquals(36, bytes.length);
+
+        Path file = directory.resolve("game" + SaveStateFormat.EXTENSION);
+        SaveStateFormat.write(saveState, "defaultmap", file);
+        assertEquals(36, Files.size(file));
+        SaveState read = SaveStateFormat.read(file, SaveStateFormat.folderResolver(Paths.get("maps")));
+        assertEquals(mapModel.contentHash(), read.mapModel.contentHash());
+        assertEquals(saveState.numberOfPiecesPlaced, read.numberOfPiecesPlaced);
+        assertEquals(saveState.lightPlayerPieces, read.lightPlayerPieces);
+        assertEquals(saveState.darkPlayerPieces, read.darkPlayerPieces);
+        assertTrue(read.millPhase);
+        assertTrue(read.focusOnLight);
+        assertArrayEquals(saveState.fields, read.fields);
+        assertEquals(saveState.toBoard().positionHash(), read.toBoard().positionHash());
+
+        //JSON is exported with the map and read back without a resolver
+        Path json = directory.resolve("game.json");
+        SaveStateFormat.exportJson(read, json);
+        SaveState imported = SaveStateFormat.read(json, (id, hash) -> fail("JSON saves contain their map"));
+        assertEquals(saveState.toBoard().positionHash(), imported.toBoard().positionHash());
+        assertTrue(Files.size(json) > 50 * Files.size(file));
+    }
+
+    @Test
+    void checksTheMapAndHeader(@TempDir Path directory) throws IOException {
+        MapModel defaultMap = loadMap("defaultmap");
+        assertEquals(defaultMap.contentHash(), loadMap("defaultmap").contentHash());
+        assertNotEquals(defaultMap.contentHash(), loadMap("specialmap").contentHash());
+
+        //a save of another map with the same identifier is rejected
+        byte[] bytes = SaveStateFormat.encode(position(loadMap("specialmap")), "defaultmap");
+        assertThrows(IOException.class, () -> SaveStateFormat.decode(bytes, SaveStateFormat.folderResolver(Paths.get("maps"))));
+        assertThrows(IOException.class, () -> SaveStateFormat.decode(bytes, SaveStateFormat.folderResolver(directory)));
+
+        byte[] newer = SaveStateFormat.encode(position(defaultMap), "defaultmap");
+        newer[4] = 2;
+        assertThrows(IOException.class, () -> SaveStateFormat.decode(newer, (id, hash) -> defaultMap));
+        byte[] truncated = new byte[newer.length - 1];
+        System.arraycopy(SaveStateFormat.encode(position(defaultMap), "defaultmap"), 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> SaveStateFormat.decode(truncated, (id, hash) -> defaultMap));
+
+        Path garbage = directory.resolve("garbage.sav");
+        Files.writeString(garbage, "not a save");
+        assertThrows(IOException.class, () -> SaveStateFormat.read(garbage, (id, hash) -> defaultMap));
+    }
+
+    @Test
+    void readsSavesOfEarlierVersions() throws IOException {
+        //the shipped save was written as JSON, without the last field
+        SaveState saveState = SaveStateFormat.read(Paths.get("saves/1756839284377.json"), (id, hash) -> fail("embedded map"));
+        assertEquals(9, saveState.piecesPerPlayer);
+        byte[] bytes = SaveStateFormat.encode(saveState, "defaultmap");
+        SaveState read = SaveStateFormat.decode(bytes, (id, hash) -> saveState.mapModel);
+        assertEquals(BoardModel.Color.EMPTY, read.fields[24]);
+    }
+}